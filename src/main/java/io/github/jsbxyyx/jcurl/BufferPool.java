@@ -0,0 +1,288 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分级的I/O缓冲池，执行器读写请求体和响应体时借用，用完归还
+ *
+ * <p>缓冲区按4KB到256KB之间的2的幂分级，超过256KB的请求直接分配且不回收。平台线程每级有一个线程本地
+ * 缓存的缓冲区，其余缓冲区放在按线程分条的有界全局空闲列表中，列表满时归还的缓冲区直接丢弃。
+ * 虚拟线程不使用线程本地缓存，避免大量短命线程各自持有缓冲区。
+ *
+ * <p>归还后的缓冲区可能立刻被其他线程借出，归还后不能再使用。
+ */
+public final class BufferPool {
+
+    /** 最小分级 */
+    public static final int MIN_SIZE = 4 * 1024;
+
+    /** 最大分级，更大的缓冲区不进入缓冲池 */
+    public static final int MAX_SIZE = 256 * 1024;
+
+    /** 默认每级最多保留的空闲缓冲区数量 */
+    public static final int DEFAULT_MAX_PER_CLASS = 64;
+
+    private static final int CLASS_COUNT =
+            Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    private static final BufferPool SHARED =
+            new BufferPool(
+                    Integer.getInteger("jcurl.bufferPool.maxPerClass", DEFAULT_MAX_PER_CLASS),
+                    true);
+
+    private final FreeList<byte[]> heap;
+    private final FreeList<ByteBuffer> direct;
+    private final ThreadLocal<byte[][]> localCache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    private BufferPool(int maxPerClass, boolean threadLocalCache) {
+        if (maxPerClass < 0) {
+            throw new IllegalArgumentException("maxPerClass must be >= 0");
+        }
+        this.heap = new FreeList<>(maxPerClass);
+        this.direct = new FreeList<>(maxPerClass);
+        this.localCache =
+                threadLocalCache && maxPerClass > 0
+                        ? ThreadLocal.withInitial(() -> new byte[CLASS_COUNT][])
+                        : null;
+    }
+
+    /** 所有执行器共享的缓冲池，每级保留数量可通过 -Djcurl.bufferPool.maxPerClass 调整 */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 创建独立的缓冲池
+     *
+     * @param maxPerClass 每级最多保留的空闲缓冲区数量，0表示不缓存
+     * @param threadLocalCache 是否为平台线程启用线程本地缓存
+     */
+    public static BufferPool create(int maxPerClass, boolean threadLocalCache) {
+        return new BufferPool(maxPerClass, threadLocalCache);
+    }
+
+    /** 借出长度不小于minSize的堆内缓冲区 */
+    public byte[] acquire(int minSize) {
+        int index = sizeClass(minSize);
+        if (index < 0) {
+            misses.increment();
+            return new byte[minSize];
+        }
+        byte[][] cache = localCache();
+        if (cache != null && cache[index] != null) {
+            byte[] buffer = cache[index];
+            cache[index] = null;
+            hits.increment();
+            return buffer;
+        }
+        byte[] buffer = heap.poll(index);
+        if (buffer != null) {
+            hits.increment();
+            return buffer;
+        }
+        misses.increment();
+        return new byte[MIN_SIZE << index];
+    }
+
+    /** 归还堆内缓冲区，不是本缓冲池分级大小的数组会被忽略 */
+    public void release(byte[] buffer) {
+        int index = buffer != null ? exactClass(buffer.length) : -1;
+        if (index < 0) {
+            return;
+        }
+        released.increment();
+        byte[][] cache = localCache();
+        if (cache != null && cache[index] == null) {
+            cache[index] = buffer;
+            return;
+        }
+        if (!heap.offer(index, buffer)) {
+            discarded.increment();
+        }
+    }
+
+    /** 借出容量不小于minSize的直接内存缓冲区，position为0，limit为容量 */
+    public ByteBuffer acquireDirect(int minSize) {
+        int index = sizeClass(minSize);
+        if (index < 0) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(minSize);
+        }
+        ByteBuffer buffer = direct.poll(index);
+        if (buffer != null) {
+            hits.increment();
+            buffer.clear();
+            return buffer;
+        }
+        misses.increment();
+        return ByteBuffer.allocateDirect(MIN_SIZE << index);
+    }
+
+    /** 归还直接内存缓冲区 */
+    public void releaseDirect(ByteBuffer buffer) {
+        int index = buffer != null && buffer.isDirect() ? exactClass(buffer.capacity()) : -1;
+        if (index < 0) {
+            return;
+        }
+        released.increment();
+        if (!direct.offer(index, buffer)) {
+            discarded.increment();
+        }
+    }
+
+    /** 缓冲池统计 */
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), released.sum(), discarded.sum());
+    }
+
+    private byte[][] localCache() {
+        if (localCache == null) {
+            return null;
+        }
+        return isVirtualThread() ? null : localCache.get();
+    }
+
+    /** 当前线程是否是虚拟线程，无法判断时按虚拟线程处理，不使用线程本地缓存 */
+    static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(Thread.currentThread());
+        } catch (ReflectiveOperationException e) {
+            return true;
+        }
+    }
+
+    /** 能容纳size的最小分级，超过最大分级时返回-1 */
+    private static int sizeClass(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+        return 32
+                - Integer.numberOfLeadingZeros(size - 1)
+                - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    /** 大小恰好等于某个分级时返回该分级，否则返回-1 */
+    private static int exactClass(int size) {
+        int index = sizeClass(size);
+        return index >= 0 && (MIN_SIZE << index) == size ? index : -1;
+    }
+
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /** 按线程分条的有界空闲列表，减少多线程借还时的竞争 */
+    private static final class FreeList<T> {
+        private final ArrayBlockingQueue<T>[][] stripes;
+
+        @SuppressWarnings("unchecked")
+        FreeList(int maxPerClass) {
+            // 分条数必须是2的幂
+            int count =
+                    Integer.highestOneBit(
+                            Math.max(
+                                    1,
+                                    Math.min(
+                                            Runtime.getRuntime().availableProcessors(),
+                                            maxPerClass)));
+            int capacity = Math.max(1, maxPerClass / count);
+            stripes = new ArrayBlockingQueue[maxPerClass > 0 ? count : 0][CLASS_COUNT];
+            for (ArrayBlockingQueue<T>[] queues : stripes) {
+                for (int c = 0; c < CLASS_COUNT; c++) {
+                    queues[c] = new ArrayBlockingQueue<>(capacity);
+                }
+            }
+        }
+
+        /** 先从当前线程对应的分条取，取不到再依次尝试其他分条 */
+        T poll(int index) {
+            int start = stripe();
+            for (int i = 0; i < stripes.length; i++) {
+                T buffer = stripes[(start + i) & (stripes.length - 1)][index].poll();
+                if (buffer != null) {
+                    return buffer;
+                }
+            }
+            return null;
+        }
+
+        boolean offer(int index, T buffer) {
+            return stripes.length > 0 && stripes[stripe()][index].offer(buffer);
+        }
+
+        private int stripe() {
+            return (int) Thread.currentThread().getId() & (stripes.length - 1);
+        }
+    }
+
+    /** 缓冲池统计：命中、未命中（新分配）、归还、因空闲列表已满而丢弃的次数 */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long released;
+        private final long discarded;
+
+        Stats(long hits, long misses, long released, long discarded) {
+            this.hits = hits;
+            this.misses = misses;
+            this.released = released;
+            this.discarded = discarded;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getReleased() {
+            return released;
+        }
+
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        /** 命中率，没有借出过时返回0 */
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "BufferPool.Stats{hits="
+                    + hits
+                    + ", misses="
+                    + misses
+                    + ", released="
+                    + released
+                    + ", discarded="
+                    + discarded
+                    + ", hitRate="
+                    + String.format("%.2f", getHitRate())
+                    + "}";
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 带TTL的域名解析缓存，包装另一个{@link DnsResolver}（默认{@link DnsResolver#SYSTEM}）
+ *
+ * <p>每个域名的解析结果单独计算过期时间，过了TTL的3/4后再被访问时在后台提前刷新，
+ * 刷新期间继续返回旧的结果；解析失败的结果按negativeTtl缓存。同一个域名同时只会有一次解析，
+ * 其他线程等待同一个结果。
+ *
+ * <p>{@link #create}创建的实例每次返回的地址列表依次轮换起始位置，新连接分散到所有地址上。
+ * 只在和第一个地址同一协议族（IPv4或IPv6）的地址之间轮换，其他地址按原来的顺序排在后面，
+ * 双栈域名仍然优先连接系统选择的协议族。{@link #shared()}保持解析器返回的顺序。
+ */
+public final class CachingDnsResolver implements DnsResolver {
+
+    /** 默认的解析结果缓存时间 */
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+
+    /** 默认的解析失败缓存时间 */
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 10_000;
+
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final CachingDnsResolver SHARED =
+            new CachingDnsResolver(
+                    DnsResolver.SYSTEM,
+                    DEFAULT_TTL_MILLIS,
+                    DEFAULT_NEGATIVE_TTL_MILLIS,
+                    false,
+                    null,
+                    System::nanoTime);
+
+    private final DnsResolver delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final boolean rotate;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private final AtomicLong maxLookupNanos = new AtomicLong();
+
+    CachingDnsResolver(
+            DnsResolver delegate,
+            long ttlMillis,
+            long negativeTtlMillis,
+            boolean rotate,
+            Executor refreshExecutor,
+            LongSupplier clock) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be > 0");
+        }
+        if (negativeTtlMillis < 0) {
+            throw new IllegalArgumentException("negativeTtlMillis must be >= 0");
+        }
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.rotate = rotate;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    /** 请求没有指定解析器时使用的共享实例，使用默认的TTL，不轮换地址 */
+    public static CachingDnsResolver shared() {
+        return SHARED;
+    }
+
+    /**
+     * 创建解析缓存，后台刷新在{@link JCurl#getAsyncExecutor()}中执行
+     *
+     * @param delegate 实际解析域名的解析器
+     * @param ttlMillis 解析结果的缓存时间
+     * @param negativeTtlMillis 解析失败的缓存时间，0表示不缓存
+     */
+    public static CachingDnsResolver create(
+            DnsResolver delegate, long ttlMillis, long negativeTtlMillis) {
+        return create(delegate, ttlMillis, negativeTtlMillis, null);
+    }
+
+    /**
+     * 创建解析缓存
+     *
+     * @param delegate 实际解析域名的解析器
+     * @param ttlMillis 解析结果的缓存时间
+     * @param negativeTtlMillis 解析失败的缓存时间，0表示不缓存
+     * @param refreshExecutor 执行提前刷新的线程池
+     */
+    public static CachingDnsResolver create(
+            DnsResolver delegate,
+            long ttlMillis,
+            long negativeTtlMillis,
+            Executor refreshExecutor) {
+        return new CachingDnsResolver(
+                delegate, ttlMillis, negativeTtlMillis, true, refreshExecutor, System::nanoTime);
+    }
+
+    @Override
+    public List<InetAddress> resolve(String host) throws UnknownHostException {
+        if (host == null || host.isEmpty()) {
+            throw new UnknownHostException(String.valueOf(host));
+        }
+        if (isLiteral(host)) {
+            return Collections.singletonList(InetAddress.getByName(host));
+        }
+        String key = host.toLowerCase(Locale.ROOT);
+        long now = clock.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.expiresAt < 0) {
+            if (entry.addresses == null) {
+                negativeHits.incrementAndGet();
+                throw new UnknownHostException(host);
+            }
+            hits.incrementAndGet();
+            if (now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refresh(key, host, entry);
+            }
+            return rotate ? entry.next() : entry.all;
+        }
+        misses.incrementAndGet();
+        entry = load(key, host);
+        if (entry.addresses == null) {
+            throw new UnknownHostException(host);
+        }
+        return rotate ? entry.next() : entry.all;
+    }
+
+    /** 移除域名的解析结果 */
+    public void invalidate(String host) {
+        entries.remove(host.toLowerCase(Locale.ROOT));
+    }
+
+    /** 清空缓存 */
+    public void clear() {
+        entries.clear();
+    }
+
+    /** 缓存和解析耗时统计 */
+    public DnsStats getStats() {
+        return new DnsStats(
+                hits.get(),
+                misses.get(),
+                negativeHits.get(),
+                refreshes.get(),
+                lookups.get(),
+                failures.get(),
+                lookupNanos.get(),
+                maxLookupNanos.get(),
+                entries.size());
+    }
+
+    /** IP地址字面量不需要解析 */
+    static boolean isLiteral(String host) {
+        if (host.indexOf(':') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Entry load(String key, String host) throws UnknownHostException {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing, host);
+        }
+        try {
+            Entry entry = lookup(host);
+            store(key, entry);
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future, String host)
+            throws UnknownHostException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            UnknownHostException error = new UnknownHostException(host + ": lookup interrupted");
+            error.initCause(e);
+            throw error;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private void refresh(String key, String host, Entry stale) {
+        Executor executor = refreshExecutor != null ? refreshExecutor : JCurl.getAsyncExecutor();
+        try {
+            executor.execute(
+                    () -> {
+                        refreshes.incrementAndGet();
+                        Entry entry;
+                        try {
+                            entry = lookup(host);
+                        } catch (RuntimeException e) {
+                            return;
+                        }
+                        // 刷新失败时保留旧的结果直到过期
+                        if (entry.addresses != null) {
+                            entries.replace(key, stale, entry);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            stale.refreshing.set(false);
+        }
+    }
+
+    private Entry lookup(String host) {
+        lookups.incrementAndGet();
+        long start = System.nanoTime();
+        List<InetAddress> addresses;
+        try {
+            addresses = delegate.resolve(host);
+        } catch (UnknownHostException e) {
+            addresses = null;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            lookupNanos.addAndGet(elapsed);
+            maxLookupNanos.accumulateAndGet(elapsed, Math::max);
+        }
+        long now = clock.getAsLong();
+        if (addresses == null || addresses.isEmpty()) {
+            failures.incrementAndGet();
+            return new Entry(null, now + negativeTtlNanos, now + negativeTtlNanos);
+        }
+        return new Entry(
+                addresses.toArray(new InetAddress[0]), now + ttlNanos, now + ttlNanos / 4 * 3);
+    }
+
+    private void store(String key, Entry entry) {
+        if (entry.addresses == null && negativeTtlNanos == 0) {
+            entries.remove(key);
+            return;
+        }
+        entries.put(key, entry);
+        if (entries.size() > MAX_ENTRIES) {
+            long now = clock.getAsLong();
+            entries.values().removeIf(e -> now - e.expiresAt >= 0);
+            Iterator<String> it = entries.keySet().iterator();
+            while (entries.size() > MAX_ENTRIES && it.hasNext()) {
+                if (!it.next().equals(key)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /** 一个域名的解析结果，addresses为null表示解析失败 */
+    private static final class Entry {
+        final InetAddress[] addresses;
+        final long expiresAt;
+        final long refreshAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        // 解析器返回的顺序
+        final List<InetAddress> all;
+        // 和第一个地址同一协议族的地址个数，排序后位于数组前面
+        private final int preferred;
+        private final AtomicInteger next = new AtomicInteger();
+
+        Entry(InetAddress[] addresses, long expiresAt, long refreshAt) {
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+            if (addresses == null) {
+                this.addresses = null;
+                this.all = null;
+                this.preferred = 0;
+                return;
+            }
+            this.all = Collections.unmodifiableList(Arrays.asList(addresses.clone()));
+            InetAddress[] sorted = new InetAddress[addresses.length];
+            int count = 0;
+            for (InetAddress address : addresses) {
+                if (address.getClass() == addresses[0].getClass()) {
+                    sorted[count++] = address;
+                }
+            }
+            int other = count;
+            for (InetAddress address : addresses) {
+                if (address.getClass() != addresses[0].getClass()) {
+                    sorted[other++] = address;
+                }
+            }
+            this.addresses = sorted;
+            this.preferred = count;
+        }
+
+        /** 在第一个地址的协议族内轮换起始位置后的地址列表 */
+        List<InetAddress> next() {
+            int n = addresses.length;
+            if (preferred == 1) {
+                return Collections.unmodifiableList(Arrays.asList(addresses));
+            }
+            int start = Math.floorMod(next.getAndIncrement(), preferred);
+            InetAddress[] rotated = new InetAddress[n];
+            for (int i = 0; i < preferred; i++) {
+                rotated[i] = addresses[(start + i) % preferred];
+            }
+            System.arraycopy(addresses, preferred, rotated, preferred, n - preferred);
+            return Collections.unmodifiableList(Arrays.asList(rotated));
+        }
+    }
+
+    /** 解析缓存统计信息 */
+    public static final class DnsStats {
+        private final long hits;
+        private final long misses;
+        private final long negativeHits;
+        private final long refreshes;
+        private final long lookups;
+        private final long failures;
+        private final long lookupNanos;
+        private final long maxLookupNanos;
+        private final int entryCount;
+
+        DnsStats(
+                long hits,
+                long misses,
+                long negativeHits,
+                long refreshes,
+                long lookups,
+                long failures,
+                long lookupNanos,
+                long maxLookupNanos,
+                int entryCount) {
+            this.hits = hits;
+            this.misses = misses;
+            this.negativeHits = negativeHits;
+            this.refreshes = refreshes;
+            this.lookups = lookups;
+            this.failures = failures;
+            this.lookupNanos = lookupNanos;
+            this.maxLookupNanos = maxLookupNanos;
+            this.entryCount = entryCount;
+        }
+
+        /** 直接返回缓存结果的次数 */
+        public long getHits() {
+            return hits;
+        }
+
+        /** 缓存中没有可用结果、需要等待解析的次数 */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** 命中缓存的解析失败的次数 */
+        public long getNegativeHits() {
+            return negativeHits;
+        }
+
+        /** 后台提前刷新的次数 */
+        public long getRefreshes() {
+            return refreshes;
+        }
+
+        /** 实际调用被包装解析器的次数（包括后台刷新） */
+        public long getLookups() {
+            return lookups;
+        }
+
+        /** 解析失败的次数 */
+        public long getFailures() {
+            return failures;
+        }
+
+        /** 解析的平均耗时（毫秒） */
+        public double getAverageLookupMillis() {
+            return lookups == 0 ? 0 : lookupNanos / 1e6 / lookups;
+        }
+
+        /** 解析的最大耗时（毫秒） */
+        public double getMaxLookupMillis() {
+            return maxLookupNanos / 1e6;
+        }
+
+        /** 当前缓存的域名数 */
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        @Override
+        public String toString() {
+            return "DnsStats{hits="
+                    + hits
+                    + ", misses="
+                    + misses
+                    + ", negativeHits="
+                    + negativeHits
+                    + ", refreshes="
+                    + refreshes
+                    + ", lookups="
+                    + lookups
+                    + ", failures="
+                    + failures
+                    + ", averageLookupMillis="
+                    + String.format(Locale.ROOT, "%.3f", getAverageLookupMillis())
+                    + ", maxLookupMillis="
+                    + String.format(Locale.ROOT, "%.3f", getMaxLookupMillis())
+                    + ", entryCount="
+                    + entryCount
+                    + "}";
+        }
+    }
+}
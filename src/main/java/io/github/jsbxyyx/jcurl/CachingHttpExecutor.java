@@ -0,0 +1,1033 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 按RFC 9111缓存GET响应的执行器装饰器（私有缓存），内存中按字节数限制大小，
+ * 超出时淘汰最久未使用的URL
+ *
+ * <p>遵循Cache-Control、Expires和Vary；过期的响应带上If-None-Match/If-Modified-Since重新验证，304
+ * 时返回更新了响应头的缓存响应；响应带有stale-while-revalidate时先返回过期的响应，
+ * 在后台重新验证。POST、PUT、DELETE等请求成功后移除该URL的缓存。
+ *
+ * <p>注意：缓存命中时返回的响应与缓存共享响应体数组，不能修改getBodyBytes()返回的数组。
+ * executeToFile和execOpen的响应不会被缓存；指定了主机映射或自定义解析器的请求不经过缓存。
+ */
+public class CachingHttpExecutor implements JCurl.HttpExecutor {
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    /** 没有显式过期时间时也可以按Last-Modified推算新鲜度的状态码 */
+    private static final Set<Integer> HEURISTIC_STATUS =
+            new HashSet<>(Arrays.asList(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501));
+
+    /** 304响应中不用于更新缓存的响应头 */
+    private static final Set<String> NOT_UPDATED_HEADERS =
+            new HashSet<>(
+                    Arrays.asList(
+                            "content-length",
+                            "content-encoding",
+                            "transfer-encoding",
+                            "connection"));
+
+    private final JCurl.HttpExecutor delegate;
+    private final CacheStore store;
+    private final Executor backgroundExecutor;
+    private final LongSupplier clock;
+    // 正在后台重新验证的URL
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    CachingHttpExecutor(
+            JCurl.HttpExecutor delegate,
+            CacheStore store,
+            Executor backgroundExecutor,
+            LongSupplier clock) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = delegate;
+        this.store = store;
+        this.backgroundExecutor = backgroundExecutor;
+        this.clock = clock;
+    }
+
+    /**
+     * 创建缓存执行器，后台重新验证在{@link JCurl#getAsyncExecutor()}中执行
+     *
+     * @param delegate 实际发送请求的执行器
+     * @param maxBytes 缓存的最大字节数（响应体加响应头）
+     */
+    public static CachingHttpExecutor create(JCurl.HttpExecutor delegate, long maxBytes) {
+        return create(delegate, maxBytes, null);
+    }
+
+    /**
+     * 创建缓存执行器
+     *
+     * @param delegate 实际发送请求的执行器
+     * @param maxBytes 缓存的最大字节数（响应体加响应头）
+     * @param backgroundExecutor 执行stale-while-revalidate后台重新验证的线程池
+     */
+    public static CachingHttpExecutor create(
+            JCurl.HttpExecutor delegate, long maxBytes, Executor backgroundExecutor) {
+        return new CachingHttpExecutor(
+                delegate, new MemoryStore(maxBytes), backgroundExecutor, System::currentTimeMillis);
+    }
+
+    /**
+     * 使用磁盘缓存创建缓存执行器，后台重新验证在{@link JCurl#getAsyncExecutor()}中执行
+     *
+     * @param delegate 实际发送请求的执行器
+     * @param store 磁盘缓存，由调用方负责关闭
+     */
+    public static CachingHttpExecutor create(JCurl.HttpExecutor delegate, DiskCacheStore store) {
+        return create(delegate, store, null);
+    }
+
+    /**
+     * 使用磁盘缓存创建缓存执行器
+     *
+     * @param delegate 实际发送请求的执行器
+     * @param store 磁盘缓存，由调用方负责关闭
+     * @param backgroundExecutor 执行stale-while-revalidate后台重新验证的线程池
+     */
+    public static CachingHttpExecutor create(
+            JCurl.HttpExecutor delegate, DiskCacheStore store, Executor backgroundExecutor) {
+        if (store == null) {
+            throw new IllegalArgumentException("store cannot be null");
+        }
+        return new CachingHttpExecutor(
+                delegate, store, backgroundExecutor, System::currentTimeMillis);
+    }
+
+    public JCurl.HttpExecutor getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel) throws IOException {
+        String method = requestModel.getMethod().toUpperCase(Locale.ROOT);
+        if (!"GET".equals(method)) {
+            JCurl.HttpResponseModel response = delegate.execute(requestModel);
+            invalidateIfUnsafe(method, requestModel, response);
+            return response;
+        }
+        Map<String, String> requestCc = requestCacheControl(requestModel);
+        if (requestCc.containsKey("no-store")
+                || isConditional(requestModel)
+                || isRerouted(requestModel)) {
+            misses.incrementAndGet();
+            return delegate.execute(requestModel);
+        }
+        return lookup(requestModel, requestCc, null);
+    }
+
+    /**
+     * 可缓存的请求先查找缓存，命中时通过复用的缓冲区交给handler，磁盘缓存的响应体直接从映射的
+     * 文件读取；未命中时边接收边交给handler，响应头表明可以缓存时才同时收集一份响应体。
+     * 其他请求直接使用被装饰执行器的流式实现
+     */
+    @Override
+    public JCurl.HttpResponseModel executeStream(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) throws IOException {
+        String method = requestModel.getMethod().toUpperCase(Locale.ROOT);
+        if ("GET".equals(method)) {
+            Map<String, String> requestCc = requestCacheControl(requestModel);
+            if (!requestCc.containsKey("no-store")
+                    && !isConditional(requestModel)
+                    && !isRerouted(requestModel)) {
+                return lookup(requestModel, requestCc, handler);
+            }
+        }
+        JCurl.HttpResponseModel response = delegate.executeStream(requestModel, handler);
+        invalidateIfUnsafe(method, requestModel, response);
+        return response;
+    }
+
+    /** 查找缓存并按需发送请求，handler不为null时响应体交给handler */
+    private JCurl.HttpResponseModel lookup(
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            JCurl.StreamHandler handler)
+            throws IOException {
+        String key = requestModel.getFullUrl();
+        Entry entry = store.get(key, requestModel);
+        if (entry == null) {
+            if (requestCc.containsKey("only-if-cached")) {
+                return respond(gatewayTimeout(), requestModel, handler);
+            }
+            misses.incrementAndGet();
+            return fetch(key, requestModel, requestCc, handler);
+        }
+
+        long now = clock.getAsLong();
+        long age = entry.currentAge(now);
+        long lifetime = entry.freshnessLifetime();
+        boolean revalidate =
+                entry.cacheControl.containsKey("no-cache") || requestCc.containsKey("no-cache");
+        if (!revalidate && isFresh(age, lifetime, requestCc)) {
+            hits.incrementAndGet();
+            return respond(entry.toResponse(age), requestModel, handler);
+        }
+        boolean mustRevalidate = entry.cacheControl.containsKey("must-revalidate");
+        long staleness = age - lifetime;
+        if (!revalidate && !mustRevalidate && requestCc.containsKey("max-stale")) {
+            long maxStale = seconds(requestCc, "max-stale");
+            // 不带值的max-stale表示接受任意过期时间
+            if (requestCc.get("max-stale") == null || staleness <= maxStale * 1000) {
+                hits.incrementAndGet();
+                return respond(entry.toResponse(age), requestModel, handler);
+            }
+        }
+        if (requestCc.containsKey("only-if-cached")) {
+            return respond(gatewayTimeout(), requestModel, handler);
+        }
+        long staleWhileRevalidate = seconds(entry.cacheControl, "stale-while-revalidate");
+        if (!revalidate
+                && !mustRevalidate
+                && staleWhileRevalidate >= 0
+                && staleness <= staleWhileRevalidate * 1000) {
+            staleHits.incrementAndGet();
+            revalidateInBackground(key, entry, requestModel);
+            return respond(entry.toResponse(age), requestModel, handler);
+        }
+        return revalidate(key, entry, requestModel, requestCc, handler);
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeOpen(JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        return delegate.executeOpen(requestModel);
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeToFile(JCurl.HttpRequestModel requestModel, Path file)
+            throws IOException {
+        return delegate.executeToFile(requestModel, file);
+    }
+
+    /** 移除URL（包含查询参数）的所有缓存响应 */
+    public void invalidate(String url) throws IOException {
+        store.remove(url);
+    }
+
+    /** 清空缓存 */
+    public void clear() throws IOException {
+        store.clear();
+    }
+
+    /** 缓存统计信息 */
+    public CacheStats getStats() {
+        return new CacheStats(
+                hits.get(),
+                misses.get(),
+                staleHits.get(),
+                revalidations.get(),
+                notModified.get(),
+                store.evictions(),
+                store.count(),
+                store.size());
+    }
+
+    private JCurl.HttpResponseModel fetch(
+            String key,
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            JCurl.StreamHandler handler)
+            throws IOException {
+        long requestTime = clock.getAsLong();
+        JCurl.HttpResponseModel response =
+                send(requestModel, requestModel, requestCc, handler, false);
+        long responseTime = clock.getAsLong();
+        store(key, requestModel, requestCc, response, requestTime, responseTime);
+        return response;
+    }
+
+    private JCurl.HttpResponseModel revalidate(
+            String key,
+            Entry entry,
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            JCurl.StreamHandler handler)
+            throws IOException {
+        String etag = entry.header("ETag");
+        String lastModified = entry.header("Last-Modified");
+        if (etag == null && lastModified == null) {
+            misses.incrementAndGet();
+            return fetch(key, requestModel, requestCc, handler);
+        }
+        revalidations.incrementAndGet();
+        JCurl builder = JCurl.fromModel(requestModel);
+        if (etag != null) {
+            builder.setHeader("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            builder.setHeader("If-Modified-Since", lastModified);
+        }
+        long requestTime = clock.getAsLong();
+        JCurl.HttpResponseModel response =
+                send(builder.build(), requestModel, requestCc, handler, true);
+        long responseTime = clock.getAsLong();
+        if (response.getStatusCode() != 304) {
+            store(key, requestModel, requestCc, response, requestTime, responseTime);
+            return response;
+        }
+        notModified.incrementAndGet();
+        Entry updated = entry.update(response, requestTime, responseTime);
+        store.put(key, requestModel, updated);
+        return respond(
+                updated.toResponse(updated.currentAge(clock.getAsLong())), requestModel, handler);
+    }
+
+    /**
+     * 发送请求，handler不为null时流式读取响应体，只在响应头表明可以缓存时同时收集响应体；
+     * revalidating为true时304响应不交给handler
+     */
+    private JCurl.HttpResponseModel send(
+            JCurl.HttpRequestModel request,
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            JCurl.StreamHandler handler,
+            boolean revalidating)
+            throws IOException {
+        if (handler == null) {
+            return delegate.execute(request);
+        }
+        TeeHandler tee = new TeeHandler(requestModel, requestCc, handler, revalidating);
+        JCurl.HttpResponseModel response = delegate.executeStream(request, tee);
+        tee.applyTo(response);
+        return response;
+    }
+
+    /** handler不为null时通过复用的缓冲区把响应体交给handler */
+    private static JCurl.HttpResponseModel respond(
+            JCurl.HttpResponseModel response,
+            JCurl.HttpRequestModel requestModel,
+            JCurl.StreamHandler handler)
+            throws IOException {
+        if (handler == null) {
+            return response;
+        }
+        handler.onStart(
+                response.getStatusCode(), response.getStatusMessage(), response.getHeaders());
+        InputStream body = response.getBodyStream();
+        if (body != null) {
+            int bufferSize = requestModel.getConfig().getBufferSize();
+            byte[] buffer = BufferPool.shared().acquire(bufferSize);
+            try (InputStream in = body) {
+                int n;
+                while ((n = in.read(buffer, 0, bufferSize)) != -1) {
+                    handler.onChunk(buffer, 0, n);
+                }
+            } finally {
+                BufferPool.shared().release(buffer);
+            }
+        }
+        handler.onComplete();
+        return response;
+    }
+
+    /** 同一个缓存响应同时只进行一次后台重新验证，失败时保留原来的缓存 */
+    private void revalidateInBackground(
+            String key, Entry entry, JCurl.HttpRequestModel requestModel) {
+        if (!revalidating.add(key)) {
+            return;
+        }
+        Executor executor =
+                backgroundExecutor != null ? backgroundExecutor : JCurl.getAsyncExecutor();
+        try {
+            executor.execute(
+                    () -> {
+                        try {
+                            revalidate(key, entry, requestModel, Collections.emptyMap(), null);
+                        } catch (IOException | RuntimeException ignored) {
+                        } finally {
+                            revalidating.remove(key);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            revalidating.remove(key);
+        }
+    }
+
+    private void store(
+            String key,
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            JCurl.HttpResponseModel response,
+            long requestTime,
+            long responseTime)
+            throws IOException {
+        Entry entry =
+                storable(requestModel, requestCc, response)
+                        ? new Entry(requestModel, response, requestTime, responseTime)
+                        : null;
+        // 不可缓存的响应也要替换掉匹配同一个Vary的旧响应
+        store.put(key, requestModel, entry);
+    }
+
+    private static boolean storable(
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            JCurl.HttpResponseModel response)
+            throws IOException {
+        if (response.isBodySpilled() || response.getBodyBytes() == null || !isComplete(response)) {
+            return false;
+        }
+        return cacheable(requestModel, requestCc, response.getStatusCode(), response.getHeaders());
+    }
+
+    /** 只按请求和响应头判断是否可以缓存，不检查响应体；headers的名称忽略大小写 */
+    private static boolean cacheable(
+            JCurl.HttpRequestModel requestModel,
+            Map<String, String> requestCc,
+            int statusCode,
+            Map<String, List<String>> headers) {
+        if (requestCc.containsKey("no-store")) {
+            return false;
+        }
+        Map<String, String> cc = parseCacheControl(values(headers, "Cache-Control"));
+        if (cc.containsKey("no-store")) {
+            return false;
+        }
+        // 带认证信息的请求的响应只有明确允许时才能给其他调用方使用（RFC 9111 3.5）
+        if (isAuthenticated(requestModel)
+                && !cc.containsKey("public")
+                && !cc.containsKey("s-maxage")
+                && !cc.containsKey("must-revalidate")) {
+            return false;
+        }
+        for (String vary : values(headers, "Vary")) {
+            if (vary.contains("*")) {
+                return false;
+            }
+        }
+        boolean explicit = cc.containsKey("max-age") || headers.containsKey("Expires");
+        if (!explicit && !HEURISTIC_STATUS.contains(statusCode)) {
+            return false;
+        }
+        // 既不会新鲜也无法重新验证的响应没有缓存的意义
+        return explicit || headers.containsKey("Last-Modified") || headers.containsKey("ETag");
+    }
+
+    private static List<String> values(Map<String, List<String>> headers, String name) {
+        return headers.getOrDefault(name, Collections.emptyList());
+    }
+
+    private static boolean isAuthenticated(JCurl.HttpRequestModel requestModel) {
+        return requestModel.getHeader("Authorization") != null
+                || requestModel.getUsername() != null;
+    }
+
+    /** 没有压缩的响应体长度必须和Content-Length一致，被截断的响应不缓存 */
+    private static boolean isComplete(JCurl.HttpResponseModel response) {
+        String contentLength = response.getHeader("Content-Length");
+        if (contentLength == null || response.getHeader("Content-Encoding") != null) {
+            return true;
+        }
+        try {
+            return Long.parseLong(contentLength.trim()) == response.getBodyLength();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** 不安全的方法成功后缓存的响应不再有效（RFC 9111 4.4） */
+    private void invalidateIfUnsafe(
+            String method, JCurl.HttpRequestModel requestModel, JCurl.HttpResponseModel response)
+            throws IOException {
+        if ("HEAD".equals(method) || "OPTIONS".equals(method) || "TRACE".equals(method)) {
+            return;
+        }
+        if (response.getStatusCode() < 400) {
+            invalidate(requestModel.getFullUrl());
+        }
+    }
+
+    private static boolean isFresh(long age, long lifetime, Map<String, String> requestCc) {
+        if (age >= lifetime) {
+            return false;
+        }
+        long maxAge = seconds(requestCc, "max-age");
+        if (maxAge >= 0 && age > maxAge * 1000) {
+            return false;
+        }
+        long minFresh = seconds(requestCc, "min-fresh");
+        return minFresh < 0 || lifetime - age >= minFresh * 1000;
+    }
+
+    /** 已带有条件请求头或Range的请求由调用方自己处理缓存，不经过缓存 */
+    private static boolean isConditional(JCurl.HttpRequestModel requestModel) {
+        return requestModel.getHeader("If-None-Match") != null
+                || requestModel.getHeader("If-Modified-Since") != null
+                || requestModel.getHeader("If-Match") != null
+                || requestModel.getHeader("If-Unmodified-Since") != null
+                || requestModel.getHeader("Range") != null;
+    }
+
+    /**
+     * 指定了主机映射（--resolve、--connect-to）或自定义解析器的请求可能连接到其他服务器，
+     * 而缓存只按URL区分，这些请求不经过缓存
+     */
+    private static boolean isRerouted(JCurl.HttpRequestModel requestModel) {
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        DnsResolver resolver = config.getDnsResolver();
+        return config.hostMapping() != null
+                || (resolver != null
+                        && resolver != DnsResolver.SYSTEM
+                        && resolver != CachingDnsResolver.shared());
+    }
+
+    private static Map<String, String> requestCacheControl(JCurl.HttpRequestModel requestModel) {
+        List<String> values = requestModel.getHeaderValues("Cache-Control");
+        if (values.isEmpty()) {
+            for (String pragma : requestModel.getHeaderValues("Pragma")) {
+                if (pragma.toLowerCase(Locale.ROOT).contains("no-cache")) {
+                    return Collections.singletonMap("no-cache", null);
+                }
+            }
+            return Collections.emptyMap();
+        }
+        return parseCacheControl(values);
+    }
+
+    /** 解析Cache-Control，指令名转为小写，没有值的指令对应null */
+    static Map<String, String> parseCacheControl(List<String> values) {
+        if (values.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> directives = new LinkedHashMap<>();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                String directive = part.trim();
+                if (directive.isEmpty()) {
+                    continue;
+                }
+                int eq = directive.indexOf('=');
+                if (eq < 0) {
+                    directives.put(directive.toLowerCase(Locale.ROOT), null);
+                } else {
+                    String argument = directive.substring(eq + 1).trim();
+                    if (argument.length() >= 2 && argument.startsWith("\"")) {
+                        argument = argument.substring(1, argument.length() - 1);
+                    }
+                    directives.put(
+                            directive.substring(0, eq).trim().toLowerCase(Locale.ROOT), argument);
+                }
+            }
+        }
+        return directives;
+    }
+
+    /** 指令的秒数，不存在或无效时返回-1 */
+    private static long seconds(Map<String, String> directives, String name) {
+        String value = directives.get(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds >= 0 ? seconds : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** 解析HTTP日期，不存在或无效时返回-1 */
+    static long parseDate(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), HTTP_DATE).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static JCurl.HttpResponseModel gatewayTimeout() {
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        response.setStatusCode(504);
+        response.setStatusMessage("Gateway Timeout");
+        response.setBodyBytes(new byte[0]);
+        return response;
+    }
+
+    /**
+     * 把响应转交给调用方的handler，响应头表明可以缓存时同时收集一份响应体，超过spillThreshold
+     * 时放弃收集；重新验证得到的304响应不转交，由调用方改为交给缓存的响应
+     */
+    private static final class TeeHandler implements JCurl.BufferHandler {
+        private final JCurl.HttpRequestModel requestModel;
+        private final Map<String, String> requestCc;
+        private final JCurl.StreamHandler handler;
+        private final boolean revalidating;
+        private final long spillThreshold;
+        private boolean forward = true;
+        private JCurl.BodyBuffer body;
+
+        TeeHandler(
+                JCurl.HttpRequestModel requestModel,
+                Map<String, String> requestCc,
+                JCurl.StreamHandler handler,
+                boolean revalidating) {
+            this.requestModel = requestModel;
+            this.requestCc = requestCc;
+            this.handler = handler;
+            this.revalidating = revalidating;
+            this.spillThreshold = requestModel.getConfig().getSpillThreshold();
+        }
+
+        @Override
+        public void onStart(int statusCode, String statusMessage, Map<String, List<String>> headers)
+                throws IOException {
+            if (revalidating && statusCode == 304) {
+                forward = false;
+                return;
+            }
+            if (cacheable(requestModel, requestCc, statusCode, new JCurl.HeaderMap(headers))) {
+                body = new JCurl.BodyBuffer(0, 0);
+                body.onStart(statusCode, statusMessage, headers);
+            }
+            handler.onStart(statusCode, statusMessage, headers);
+        }
+
+        @Override
+        public void onChunk(byte[] buffer, int offset, int length) throws IOException {
+            if (!forward) {
+                return;
+            }
+            if (body != null) {
+                if (spillThreshold > 0 && body.size() + length > spillThreshold) {
+                    body = null;
+                } else {
+                    body.onChunk(buffer, offset, length);
+                }
+            }
+            handler.onChunk(buffer, offset, length);
+        }
+
+        @Override
+        public void onComplete() throws IOException {
+            if (forward) {
+                handler.onComplete();
+            }
+        }
+
+        /** 把收集到的响应体交给响应模型，没有收集时不修改 */
+        void applyTo(JCurl.HttpResponseModel response) throws IOException {
+            if (body != null) {
+                body.applyTo(response);
+                body = null;
+            }
+        }
+    }
+
+    /** 缓存的响应，创建后不再修改；body是只读的，可能是磁盘缓存中内存映射的数据 */
+    static final class Entry {
+        final int statusCode;
+        final String statusMessage;
+        final JCurl.HeaderMap headers;
+        final ByteBuffer body;
+        final Map<String, String> cacheControl;
+        // Vary中的请求头及保存时的请求头值
+        final Map<String, String> varyValues;
+        final long requestTime;
+        final long responseTime;
+        // 占用内存的估算值
+        final long size;
+
+        Entry(
+                JCurl.HttpRequestModel requestModel,
+                JCurl.HttpResponseModel response,
+                long requestTime,
+                long responseTime)
+                throws IOException {
+            this(
+                    response.getStatusCode(),
+                    response.getStatusMessage(),
+                    new JCurl.HeaderMap(response.getHeaders()),
+                    ByteBuffer.wrap(response.getBodyBytes()),
+                    varyValues(requestModel, response.getHeaderValues("Vary")),
+                    requestTime,
+                    responseTime);
+        }
+
+        Entry(
+                int statusCode,
+                String statusMessage,
+                JCurl.HeaderMap headers,
+                ByteBuffer body,
+                Map<String, String> varyValues,
+                long requestTime,
+                long responseTime) {
+            this.statusCode = statusCode;
+            this.statusMessage = statusMessage;
+            this.headers = headers;
+            this.body = body;
+            this.cacheControl =
+                    parseCacheControl(
+                            headers.getOrDefault("Cache-Control", Collections.emptyList()));
+            this.varyValues = varyValues;
+            this.requestTime = requestTime;
+            this.responseTime = responseTime;
+            long headerBytes = 0;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                for (String value : header.getValue()) {
+                    headerBytes += header.getKey().length() + value.length() + 4;
+                }
+            }
+            this.size = body.remaining() + headerBytes;
+        }
+
+        /** 用304响应的响应头更新缓存的响应头（RFC 9111 3.2） */
+        Entry update(JCurl.HttpResponseModel notModified, long requestTime, long responseTime) {
+            JCurl.HeaderMap merged = new JCurl.HeaderMap(headers);
+            for (Map.Entry<String, List<String>> header : notModified.getHeaders().entrySet()) {
+                if (!NOT_UPDATED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                    merged.put(header.getKey(), new ArrayList<>(header.getValue()));
+                }
+            }
+            return new Entry(
+                    statusCode, statusMessage, merged, body, varyValues, requestTime, responseTime);
+        }
+
+        String header(String name) {
+            List<String> values = headers.get(name);
+            return values != null && !values.isEmpty() ? values.get(0) : null;
+        }
+
+        boolean matches(JCurl.HttpRequestModel requestModel) {
+            for (Map.Entry<String, String> vary : varyValues.entrySet()) {
+                String value = requestHeader(requestModel, vary.getKey());
+                if (value == null ? vary.getValue() != null : !value.equals(vary.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** 当前的Age（毫秒，RFC 9111 4.2.3） */
+        long currentAge(long now) {
+            long date = parseDate(header("Date"));
+            long apparentAge = date >= 0 ? Math.max(0, responseTime - date) : 0;
+            long ageValue = 0;
+            try {
+                String age = header("Age");
+                ageValue = age != null ? Math.max(0, Long.parseLong(age.trim())) * 1000 : 0;
+            } catch (NumberFormatException ignored) {
+            }
+            long correctedAge = ageValue + (responseTime - requestTime);
+            return Math.max(apparentAge, correctedAge) + Math.max(0, now - responseTime);
+        }
+
+        /** 新鲜度有效期（毫秒，RFC 9111 4.2.1），私有缓存不使用s-maxage */
+        long freshnessLifetime() {
+            long maxAge = seconds(cacheControl, "max-age");
+            if (maxAge >= 0) {
+                return maxAge * 1000;
+            }
+            long date = parseDate(header("Date"));
+            if (date < 0) {
+                date = responseTime;
+            }
+            String expires = header("Expires");
+            if (expires != null) {
+                // 无效的Expires表示已经过期
+                long expiresAt = parseDate(expires);
+                return expiresAt >= 0 ? Math.max(0, expiresAt - date) : 0;
+            }
+            long lastModified = parseDate(header("Last-Modified"));
+            if (lastModified >= 0 && HEURISTIC_STATUS.contains(statusCode)) {
+                return Math.max(0, (date - lastModified) / 10);
+            }
+            return 0;
+        }
+
+        JCurl.HttpResponseModel toResponse(long age) {
+            JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+            response.setStatusCode(statusCode);
+            response.setStatusMessage(statusMessage);
+            response.setHeaders(headers);
+            response.setHeader("Age", String.valueOf(age / 1000));
+            if (body.hasArray()
+                    && body.arrayOffset() == 0
+                    && body.position() == 0
+                    && body.remaining() == body.array().length) {
+                response.setBodyBytes(body.array());
+            } else {
+                response.setBodyBuffer(body.duplicate());
+            }
+            return response;
+        }
+
+        private static Map<String, String> varyValues(
+                JCurl.HttpRequestModel requestModel, List<String> vary) {
+            if (vary.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String value : vary) {
+                for (String name : value.split(",")) {
+                    name = name.trim();
+                    if (!name.isEmpty()) {
+                        values.put(name, requestHeader(requestModel, name));
+                    }
+                }
+            }
+            return values;
+        }
+
+        /** 请求头的值，多个值用逗号连接；Cookie还包含通过cookie()设置的值 */
+        private static String requestHeader(JCurl.HttpRequestModel requestModel, String name) {
+            List<String> values = requestModel.getHeaderValues(name);
+            String value = values.isEmpty() ? null : String.join(",", values);
+            if ("Cookie".equalsIgnoreCase(name) && !requestModel.getCookies().isEmpty()) {
+                String cookies = requestModel.getCookies().toString();
+                value = value == null ? cookies : value + ";" + cookies;
+            }
+            return value;
+        }
+    }
+
+    /** 缓存响应的存储，同一个URL下按Vary保存多个响应 */
+    abstract static class CacheStore {
+
+        /** 查找URL下与请求头匹配（Vary）的响应，不存在时返回null */
+        abstract Entry get(String key, JCurl.HttpRequestModel requestModel) throws IOException;
+
+        /** 移除URL下与请求头匹配的旧响应并保存新的响应，entry为null时只移除 */
+        abstract void put(String key, JCurl.HttpRequestModel requestModel, Entry entry)
+                throws IOException;
+
+        /** 移除URL下的所有响应 */
+        abstract void remove(String key) throws IOException;
+
+        abstract void clear() throws IOException;
+
+        abstract int count();
+
+        abstract long size();
+
+        abstract long evictions();
+    }
+
+    /** 内存中的存储，按访问顺序淘汰最久未使用的URL */
+    static final class MemoryStore extends CacheStore {
+        private final long maxBytes;
+        private final LinkedHashMap<String, List<Entry>> entries =
+                new LinkedHashMap<>(16, 0.75f, true);
+        private int count;
+        private long size;
+        private long evictions;
+
+        MemoryStore(long maxBytes) {
+            if (maxBytes <= 0) {
+                throw new IllegalArgumentException("maxBytes must be > 0");
+            }
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        synchronized Entry get(String key, JCurl.HttpRequestModel requestModel) {
+            List<Entry> variants = entries.get(key);
+            if (variants != null) {
+                for (Entry entry : variants) {
+                    if (entry.matches(requestModel)) {
+                        return entry;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        synchronized void put(String key, JCurl.HttpRequestModel requestModel, Entry entry) {
+            List<Entry> variants = entries.get(key);
+            if (variants != null) {
+                Iterator<Entry> it = variants.iterator();
+                while (it.hasNext()) {
+                    Entry old = it.next();
+                    if (old.matches(requestModel)) {
+                        it.remove();
+                        count--;
+                        size -= old.size;
+                    }
+                }
+            }
+            if (entry == null || entry.size > maxBytes) {
+                if (variants != null && variants.isEmpty()) {
+                    entries.remove(key);
+                }
+                return;
+            }
+            if (variants == null) {
+                variants = new ArrayList<>(1);
+                entries.put(key, variants);
+            }
+            variants.add(entry);
+            count++;
+            size += entry.size;
+            Iterator<List<Entry>> it = entries.values().iterator();
+            while (size > maxBytes && it.hasNext()) {
+                for (Entry evicted : it.next()) {
+                    count--;
+                    size -= evicted.size;
+                    evictions++;
+                }
+                it.remove();
+            }
+        }
+
+        @Override
+        synchronized void remove(String key) {
+            List<Entry> removed = entries.remove(key);
+            if (removed != null) {
+                for (Entry entry : removed) {
+                    count--;
+                    size -= entry.size;
+                }
+            }
+        }
+
+        @Override
+        synchronized void clear() {
+            entries.clear();
+            count = 0;
+            size = 0;
+        }
+
+        @Override
+        synchronized int count() {
+            return count;
+        }
+
+        @Override
+        synchronized long size() {
+            return size;
+        }
+
+        @Override
+        synchronized long evictions() {
+            return evictions;
+        }
+    }
+
+    /** 缓存统计信息 */
+    public static final class CacheStats {
+        private final long hits;
+        private final long misses;
+        private final long staleHits;
+        private final long revalidations;
+        private final long notModified;
+        private final long evictions;
+        private final int entryCount;
+        private final long size;
+
+        CacheStats(
+                long hits,
+                long misses,
+                long staleHits,
+                long revalidations,
+                long notModified,
+                long evictions,
+                int entryCount,
+                long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.staleHits = staleHits;
+            this.revalidations = revalidations;
+            this.notModified = notModified;
+            this.evictions = evictions;
+            this.entryCount = entryCount;
+            this.size = size;
+        }
+
+        /** 直接返回新鲜缓存的次数 */
+        public long getHits() {
+            return hits;
+        }
+
+        /** 缓存中没有可用响应、直接发送请求的次数 */
+        public long getMisses() {
+            return misses;
+        }
+
+        /** 返回过期响应并在后台重新验证（stale-while-revalidate）的次数 */
+        public long getStaleHits() {
+            return staleHits;
+        }
+
+        /** 发送条件请求重新验证的次数 */
+        public long getRevalidations() {
+            return revalidations;
+        }
+
+        /** 重新验证得到304、继续使用缓存的次数 */
+        public long getNotModified() {
+            return notModified;
+        }
+
+        /** 因超出大小限制被淘汰的响应数 */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /** 当前缓存的响应数 */
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        /** 当前缓存占用的字节数 */
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{hits="
+                    + hits
+                    + ", misses="
+                    + misses
+                    + ", staleHits="
+                    + staleHits
+                    + ", revalidations="
+                    + revalidations
+                    + ", notModified="
+                    + notModified
+                    + ", evictions="
+                    + evictions
+                    + ", entryCount="
+                    + entryCount
+                    + ", size="
+                    + size
+                    + "}";
+        }
+    }
+}
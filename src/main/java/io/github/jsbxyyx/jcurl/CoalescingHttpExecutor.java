@@ -0,0 +1,372 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并并发相同请求的执行器装饰器（single-flight）：相同的GET/HEAD请求正在执行时，
+ * 后来的请求不再发送，等待第一个请求完成后得到同一个响应的副本，失败时得到同一个异常
+ *
+ * <p>请求的标识由方法、完整URL（包含查询参数）、Cookie、认证信息、指定的请求头，
+ * 以及影响连接和响应的配置（重定向、压缩、SSL校验、客户端证书、代理、DNS解析器和主机映射）组成，
+ * 不在其中的请求头和请求配置（超时、重试等）以第一个请求为准。响应副本的响应头各自独立，
+ * 响应体共享，调用getBodyBytes()时才各自复制，修改返回的数组不影响其他请求。带请求体的请求
+ * 以及executeStream、execOpen、execToFile不会被合并。
+ */
+public class CoalescingHttpExecutor implements JCurl.HttpExecutor {
+
+    /** 默认参与请求标识的请求头 */
+    public static final List<String> DEFAULT_KEY_HEADERS =
+            Collections.unmodifiableList(
+                    Arrays.asList(
+                            "Authorization",
+                            "Cookie",
+                            "Accept",
+                            "Accept-Encoding",
+                            "Accept-Language",
+                            "Range",
+                            "If-None-Match",
+                            "If-Modified-Since"));
+
+    private final JCurl.HttpExecutor delegate;
+    private final String[] keyHeaders;
+    private final Map<Key, Call> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+
+    private CoalescingHttpExecutor(JCurl.HttpExecutor delegate, Collection<String> keyHeaders) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = delegate;
+        this.keyHeaders = keyHeaders.toArray(new String[0]);
+    }
+
+    /** 创建合并执行器，使用{@link #DEFAULT_KEY_HEADERS}作为请求标识的请求头 */
+    public static CoalescingHttpExecutor create(JCurl.HttpExecutor delegate) {
+        return new CoalescingHttpExecutor(delegate, DEFAULT_KEY_HEADERS);
+    }
+
+    /**
+     * 创建合并执行器
+     *
+     * @param delegate 实际发送请求的执行器
+     * @param keyHeaders 参与请求标识的请求头（忽略大小写），值不同的请求不会被合并
+     */
+    public static CoalescingHttpExecutor create(
+            JCurl.HttpExecutor delegate, Collection<String> keyHeaders) {
+        if (keyHeaders == null) {
+            throw new IllegalArgumentException("keyHeaders cannot be null");
+        }
+        return new CoalescingHttpExecutor(delegate, new ArrayList<>(keyHeaders));
+    }
+
+    public JCurl.HttpExecutor getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel) throws IOException {
+        if (!isCoalescible(requestModel)) {
+            bypassed.incrementAndGet();
+            return delegate.execute(requestModel);
+        }
+        Key key = new Key(key(requestModel), requestModel.getConfig());
+        while (true) {
+            Call call = new Call();
+            Call existing = inFlight.putIfAbsent(key, call);
+            if (existing == null) {
+                return lead(key, call, requestModel);
+            }
+            if (existing.join()) {
+                coalesced.incrementAndGet();
+                return existing.await();
+            }
+            // 已经完成、正在分发结果，重新发起
+        }
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeStream(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) throws IOException {
+        bypassed.incrementAndGet();
+        return delegate.executeStream(requestModel, handler);
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeOpen(JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        bypassed.incrementAndGet();
+        return delegate.executeOpen(requestModel);
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeToFile(JCurl.HttpRequestModel requestModel, Path file)
+            throws IOException {
+        bypassed.incrementAndGet();
+        return delegate.executeToFile(requestModel, file);
+    }
+
+    /** 合并统计信息 */
+    public CoalescingStats getStats() {
+        return new CoalescingStats(
+                executions.get(), coalesced.get(), bypassed.get(), inFlight.size());
+    }
+
+    private JCurl.HttpResponseModel lead(Key key, Call call, JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        executions.incrementAndGet();
+        JCurl.HttpResponseModel response;
+        try {
+            response = delegate.execute(requestModel);
+        } catch (IOException | RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.finish();
+            call.future.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, call);
+        int waiters = call.finish();
+        // 在返回之前为每个等待的请求准备副本，调用方关闭响应不影响副本
+        Queue<JCurl.HttpResponseModel> copies = new ConcurrentLinkedQueue<>();
+        try {
+            for (int i = 0; i < waiters; i++) {
+                copies.add(response.copy());
+            }
+        } catch (IOException | RuntimeException e) {
+            for (JCurl.HttpResponseModel copy : copies) {
+                copy.close();
+            }
+            call.future.completeExceptionally(e);
+            return response;
+        }
+        call.future.complete(copies);
+        return response;
+    }
+
+    private static boolean isCoalescible(JCurl.HttpRequestModel requestModel) {
+        String method = requestModel.getMethod().toUpperCase(Locale.ROOT);
+        return ("GET".equals(method) || "HEAD".equals(method))
+                && requestModel.getBody() == null
+                && requestModel.getBinaryBody() == null
+                && requestModel.getBodySource() == null
+                && requestModel.getFormFields() == null;
+    }
+
+    private String key(JCurl.HttpRequestModel requestModel) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(requestModel.getMethod().toUpperCase(Locale.ROOT))
+                .append(' ')
+                .append(requestModel.getFullUrl());
+        if (!requestModel.getCookies().isEmpty()) {
+            sb.append("\ncookies:").append(requestModel.getCookies());
+        }
+        if (requestModel.getUsername() != null) {
+            sb.append("\nuser:")
+                    .append(requestModel.getUsername())
+                    .append(':')
+                    .append(requestModel.getPassword());
+        }
+        for (String name : keyHeaders) {
+            List<String> values = requestModel.getHeaderValues(name);
+            if (!values.isEmpty()) {
+                sb.append('\n').append(name.toLowerCase(Locale.ROOT)).append(':').append(values);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** 请求的标识，包含请求配置中决定连接目标、TLS和响应内容的部分 */
+    private static final class Key {
+        private final String request;
+        private final boolean followRedirects;
+        private final boolean verifySSL;
+        private final boolean compressed;
+        private final String certType;
+        private final String certPath;
+        private final String certPassword;
+        private final byte[] certBytes;
+        private final Proxy proxy;
+        private final Proxy.Type proxyType;
+        private final String proxyHost;
+        private final int proxyPort;
+        private final String proxyUsername;
+        private final String proxyPassword;
+        private final DnsResolver dnsResolver;
+        private final HostMapping hostMapping;
+        private final int hash;
+
+        Key(String request, JCurl.HttpRequestModel.RequestConfig config) {
+            this.request = request;
+            this.followRedirects = config.isFollowRedirects();
+            this.verifySSL = config.isVerifySSL();
+            this.compressed = config.isCompressed();
+            this.certType = config.getCertType();
+            this.certPath = config.getCertPath();
+            this.certPassword = config.getCertPassword();
+            this.certBytes = config.getCertBytes();
+            this.proxy = config.getProxy();
+            this.proxyType = config.getProxyType();
+            this.proxyHost = config.getProxyHost();
+            this.proxyPort = config.getProxyPort();
+            this.proxyUsername = config.getProxyUsername();
+            this.proxyPassword = config.getProxyPassword();
+            this.dnsResolver = config.getDnsResolver();
+            this.hostMapping = config.hostMapping();
+            int h =
+                    Objects.hash(
+                            request,
+                            followRedirects,
+                            verifySSL,
+                            compressed,
+                            certType,
+                            certPath,
+                            certPassword,
+                            proxy,
+                            proxyType,
+                            proxyHost,
+                            proxyPort,
+                            proxyUsername,
+                            proxyPassword,
+                            dnsResolver,
+                            hostMapping);
+            this.hash = 31 * h + Arrays.hashCode(certBytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return request.equals(that.request)
+                    && followRedirects == that.followRedirects
+                    && verifySSL == that.verifySSL
+                    && compressed == that.compressed
+                    && Objects.equals(certType, that.certType)
+                    && Objects.equals(certPath, that.certPath)
+                    && Objects.equals(certPassword, that.certPassword)
+                    && Arrays.equals(certBytes, that.certBytes)
+                    && Objects.equals(proxy, that.proxy)
+                    && proxyType == that.proxyType
+                    && Objects.equals(proxyHost, that.proxyHost)
+                    && proxyPort == that.proxyPort
+                    && Objects.equals(proxyUsername, that.proxyUsername)
+                    && Objects.equals(proxyPassword, that.proxyPassword)
+                    && Objects.equals(dnsResolver, that.dnsResolver)
+                    && Objects.equals(hostMapping, that.hostMapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** 正在执行的请求，等待者在完成之前登记，完成后按登记的数量准备响应副本 */
+    private static final class Call {
+        final CompletableFuture<Queue<JCurl.HttpResponseModel>> future = new CompletableFuture<>();
+        private int waiters;
+        private boolean finished;
+
+        /** 登记为等待者，已经完成时返回false */
+        synchronized boolean join() {
+            if (finished) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /** 标记完成，返回等待者数量 */
+        synchronized int finish() {
+            finished = true;
+            return waiters;
+        }
+
+        JCurl.HttpResponseModel await() throws IOException {
+            try {
+                return future.get().poll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("request interrupt", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /** 合并统计信息 */
+    public static final class CoalescingStats {
+        private final long executions;
+        private final long coalesced;
+        private final long bypassed;
+        private final int inFlight;
+
+        CoalescingStats(long executions, long coalesced, long bypassed, int inFlight) {
+            this.executions = executions;
+            this.coalesced = coalesced;
+            this.bypassed = bypassed;
+            this.inFlight = inFlight;
+        }
+
+        /** 实际发送的可合并请求数 */
+        public long getExecutions() {
+            return executions;
+        }
+
+        /** 被合并、没有发送而是共享响应的请求数 */
+        public long getCoalesced() {
+            return coalesced;
+        }
+
+        /** 不可合并、直接交给被装饰执行器的请求数 */
+        public long getBypassed() {
+            return bypassed;
+        }
+
+        /** 当前正在执行的可合并请求数 */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        @Override
+        public String toString() {
+            return "CoalescingStats{executions="
+                    + executions
+                    + ", coalesced="
+                    + coalesced
+                    + ", bypassed="
+                    + bypassed
+                    + ", inFlight="
+                    + inFlight
+                    + "}";
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 响应体内容解码器（Content-Encoding），通过{@link ContentDecoders#register}
+ * 注册后所有执行器都会使用
+ *
+ * <p>读取输入流的执行器使用{@link #decode}，推送数据的执行器使用{@link #newDecoder}。只实现decode
+ * 的解码器在推送式执行器中会先收集完整的响应体再解码。
+ */
+public interface ContentDecoder {
+
+    /** 编码名称，与Content-Encoding中的值忽略大小写比较，如gzip */
+    String getEncoding();
+
+    /** 包装输入流，返回解码后的流 */
+    InputStream decode(InputStream in) throws IOException;
+
+    /** 创建增量解码器，默认先收集全部数据，在finish时调用{@link #decode}解码 */
+    default Incremental newDecoder(int bufferSize) {
+        return new ContentDecoders.BufferingDecoder(this, bufferSize);
+    }
+
+    /** 解码后的数据块消费者，buffer会被复用，只在回调期间有效 */
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    /** 增量解码器，一个实例只用于一个响应体 */
+    interface Incremental {
+
+        /** 解码input中[offset, offset + length)的数据，input在返回后可以被复用 */
+        void decode(byte[] input, int offset, int length, ChunkConsumer output) throws IOException;
+
+        /** 输入结束，输出剩余数据；数据不完整时抛出IOException */
+        void finish(ChunkConsumer output) throws IOException;
+
+        /** 释放资源（可重复调用），之后不能再调用decode */
+        void close();
+    }
+}
@@ -0,0 +1,358 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 响应体内容解码器注册表，内置gzip和deflate（zlib格式和raw deflate）
+ *
+ * <p>Accept-Encoding由已注册的解码器生成；Content-Encoding中有多个编码时按相反的顺序依次解码，
+ * 存在未注册的编码时不解码，原样返回响应体。
+ */
+public final class ContentDecoders {
+
+    private static final Object LOCK = new Object();
+    // 写时复制，读取时不加锁
+    private static volatile ContentDecoder[] decoders =
+            new ContentDecoder[] {
+                new InflateCodec(JCurl.Constants.GZIP_VALUE, true),
+                new InflateCodec(JCurl.Constants.DEFLATE_VALUE, false)
+            };
+    private static volatile String acceptEncoding = JCurl.Constants.GZIP_DEFLATE_VALUE;
+
+    private ContentDecoders() {}
+
+    /** 注册解码器，已存在同名（忽略大小写）解码器时替换 */
+    public static void register(ContentDecoder decoder) {
+        Objects.requireNonNull(decoder, "decoder");
+        String encoding = decoder.getEncoding();
+        if (encoding == null || encoding.trim().isEmpty() || encoding.indexOf(',') >= 0) {
+            throw new IllegalArgumentException("invalid encoding: " + encoding);
+        }
+        synchronized (LOCK) {
+            List<ContentDecoder> list = new ArrayList<>(Arrays.asList(decoders));
+            int index = indexOf(encoding.trim());
+            if (index >= 0) {
+                list.set(index, decoder);
+            } else {
+                list.add(decoder);
+            }
+            update(list);
+        }
+    }
+
+    /** 移除解码器，返回是否存在 */
+    public static boolean unregister(String encoding) {
+        synchronized (LOCK) {
+            int index = indexOf(encoding);
+            if (index < 0) {
+                return false;
+            }
+            List<ContentDecoder> list = new ArrayList<>(Arrays.asList(decoders));
+            list.remove(index);
+            update(list);
+            return true;
+        }
+    }
+
+    /** 获取解码器，不存在时返回null */
+    public static ContentDecoder get(String encoding) {
+        int index = indexOf(encoding);
+        return index < 0 ? null : decoders[index];
+    }
+
+    /** 已注册的编码，用于Accept-Encoding，如 gzip, deflate */
+    public static String acceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /** 按Content-Encoding包装输入流；没有编码或存在未注册的编码时返回原输入流 */
+    public static InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        ContentDecoder[] chain = resolve(contentEncoding);
+        if (chain == null) {
+            return in;
+        }
+        for (int i = chain.length - 1; i >= 0; i--) {
+            in = chain[i].decode(in);
+        }
+        return in;
+    }
+
+    /** 按Content-Encoding创建增量解码器；没有编码或存在未注册的编码时返回null */
+    public static ContentDecoder.Incremental newDecoder(String contentEncoding, int bufferSize) {
+        ContentDecoder[] chain = resolve(contentEncoding);
+        if (chain == null) {
+            return null;
+        }
+        if (chain.length == 1) {
+            return chain[0].newDecoder(bufferSize);
+        }
+        ContentDecoder.Incremental[] stages = new ContentDecoder.Incremental[chain.length];
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = chain[chain.length - 1 - i].newDecoder(bufferSize);
+        }
+        return new ChainedDecoder(stages);
+    }
+
+    private static void update(List<ContentDecoder> list) {
+        StringBuilder sb = new StringBuilder();
+        for (ContentDecoder decoder : list) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(decoder.getEncoding().trim());
+        }
+        decoders = list.toArray(new ContentDecoder[0]);
+        acceptEncoding = sb.toString();
+    }
+
+    private static int indexOf(String encoding) {
+        if (encoding == null) {
+            return -1;
+        }
+        ContentDecoder[] current = decoders;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].getEncoding().trim().equalsIgnoreCase(encoding)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** 解析Content-Encoding，按编码的应用顺序返回解码器；忽略identity */
+    private static ContentDecoder[] resolve(String contentEncoding) {
+        if (contentEncoding == null) {
+            return null;
+        }
+        if (contentEncoding.indexOf(',') < 0) {
+            String encoding = contentEncoding.trim();
+            if (encoding.isEmpty() || "identity".equalsIgnoreCase(encoding)) {
+                return null;
+            }
+            ContentDecoder decoder = get(encoding);
+            return decoder == null ? null : new ContentDecoder[] {decoder};
+        }
+        List<ContentDecoder> chain = new ArrayList<>();
+        for (String part : contentEncoding.split(",")) {
+            String encoding = part.trim();
+            if (encoding.isEmpty() || "identity".equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            ContentDecoder decoder = get(encoding);
+            if (decoder == null) {
+                return null;
+            }
+            chain.add(decoder);
+        }
+        return chain.isEmpty() ? null : chain.toArray(new ContentDecoder[0]);
+    }
+
+    /** 内置的gzip/deflate解码器 */
+    private static final class InflateCodec implements ContentDecoder {
+
+        private final String encoding;
+        private final boolean gzip;
+
+        InflateCodec(String encoding, boolean gzip) {
+            this.encoding = encoding;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public String getEncoding() {
+            return encoding;
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            int bufferSize = JCurl.HttpRequestModel.RequestConfig.DEFAULT_BUFFER_SIZE;
+            return new DecodingInputStream(in, newDecoder(bufferSize), bufferSize);
+        }
+
+        @Override
+        public Incremental newDecoder(int bufferSize) {
+            return new InflatingDecoder(gzip, bufferSize);
+        }
+    }
+
+    /** 多个编码依次解码，stages[0]对应最后应用的编码 */
+    private static final class ChainedDecoder implements ContentDecoder.Incremental {
+
+        private final ContentDecoder.Incremental[] stages;
+
+        ChainedDecoder(ContentDecoder.Incremental[] stages) {
+            this.stages = stages;
+        }
+
+        @Override
+        public void decode(
+                byte[] input, int offset, int length, ContentDecoder.ChunkConsumer output)
+                throws IOException {
+            push(0, input, offset, length, output);
+        }
+
+        @Override
+        public void finish(ContentDecoder.ChunkConsumer output) throws IOException {
+            for (int i = 0; i < stages.length; i++) {
+                int next = i + 1;
+                stages[i].finish((b, off, len) -> push(next, b, off, len, output));
+            }
+        }
+
+        @Override
+        public void close() {
+            for (ContentDecoder.Incremental stage : stages) {
+                stage.close();
+            }
+        }
+
+        private void push(
+                int index,
+                byte[] input,
+                int offset,
+                int length,
+                ContentDecoder.ChunkConsumer output)
+                throws IOException {
+            if (index == stages.length) {
+                output.accept(input, offset, length);
+            } else {
+                stages[index].decode(
+                        input,
+                        offset,
+                        length,
+                        (b, off, len) -> push(index + 1, b, off, len, output));
+            }
+        }
+    }
+
+    /**
+     * 只实现了{@link ContentDecoder#decode}的解码器在推送式执行器中使用：先收集数据，finish时解码
+     */
+    static final class BufferingDecoder implements ContentDecoder.Incremental {
+
+        private final ContentDecoder decoder;
+        private final int bufferSize;
+        private final ByteArrayOutputStream input = new ByteArrayOutputStream();
+
+        BufferingDecoder(ContentDecoder decoder, int bufferSize) {
+            this.decoder = decoder;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void decode(
+                byte[] buffer, int offset, int length, ContentDecoder.ChunkConsumer output) {
+            input.write(buffer, offset, length);
+        }
+
+        @Override
+        public void finish(ContentDecoder.ChunkConsumer output) throws IOException {
+            byte[] buffer = BufferPool.shared().acquire(bufferSize);
+            try (InputStream in = decoder.decode(new ByteArrayInputStream(input.toByteArray()))) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    output.accept(buffer, 0, n);
+                }
+            } finally {
+                BufferPool.shared().release(buffer);
+            }
+        }
+
+        @Override
+        public void close() {
+            input.reset();
+        }
+    }
+
+    /** 把增量解码器适配为输入流 */
+    static final class DecodingInputStream extends InputStream {
+
+        private final InputStream in;
+        private final ContentDecoder.Incremental decoder;
+        private final byte[] input;
+        private byte[] pending = new byte[0];
+        private int pendingPos;
+        private int pendingLen;
+        private boolean eof;
+        private boolean closed;
+
+        DecodingInputStream(InputStream in, ContentDecoder.Incremental decoder, int bufferSize) {
+            this.in = in;
+            this.decoder = decoder;
+            this.input = BufferPool.shared().acquire(bufferSize);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return pending[pendingPos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, pendingLen - pendingPos);
+            System.arraycopy(pending, pendingPos, b, off, n);
+            pendingPos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return pendingLen - pendingPos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            decoder.close();
+            BufferPool.shared().release(input);
+            in.close();
+        }
+
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            while (pendingPos == pendingLen) {
+                if (eof) {
+                    return false;
+                }
+                pendingPos = 0;
+                pendingLen = 0;
+                int n = in.read(input, 0, input.length);
+                if (n == -1) {
+                    eof = true;
+                    decoder.finish(this::append);
+                } else {
+                    decoder.decode(input, 0, n, this::append);
+                }
+            }
+            return true;
+        }
+
+        private void append(byte[] b, int off, int len) {
+            if (pendingLen + len > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pendingLen + len, input.length));
+            }
+            System.arraycopy(b, off, pending, pendingLen, len);
+            pendingLen += len;
+        }
+    }
+}
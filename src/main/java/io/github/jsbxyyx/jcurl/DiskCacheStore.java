@@ -0,0 +1,895 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * 磁盘上的响应缓存，配合{@link CachingHttpExecutor}使用，进程重启后缓存仍然可用
+ *
+ * <p>响应按记录追加写入数据文件，每条记录带CRC校验；索引文件通过内存映射保存开放寻址哈希表，按URL
+ * 的哈希定位记录，同一个URL的多个Vary响应位于同一条探测链上，按保存时的请求头区分。
+ * 超出大小限制时按最近访问时间淘汰，并重写数据文件回收空间。
+ *
+ * <p>正常关闭时在索引中写入标记；打开时没有该标记（进程崩溃或断电）则逐条校验数据文件重建索引，
+ * 截断不完整的记录。命中时响应体直接引用内存映射的数据文件，不复制到堆上。同一个目录同时只能被
+ * 一个实例打开。
+ *
+ * <p>查找只读取内存映射，持有读锁；写入、删除和压缩由写入锁串行执行，文件读写期间不阻塞查找。
+ * 压缩时把保留的记录复制到新文件并建立新的索引，完成后才短暂持有写锁替换，替换前的查找仍然使用
+ * 旧文件的映射。
+ */
+public final class DiskCacheStore extends CachingHttpExecutor.CacheStore implements Closeable {
+
+    private static final String DATA_FILE = "jcurl-cache.data";
+    private static final String INDEX_FILE = "jcurl-cache.index";
+    private static final String LOCK_FILE = "jcurl-cache.lock";
+
+    private static final int INDEX_MAGIC = 0x4A43494E;
+    private static final int INDEX_VERSION = 1;
+    // magic, version, capacity, clean, dataLength
+    private static final int INDEX_HEADER = 32;
+    // hash, offset, length, lastAccess
+    private static final int SLOT_SIZE = 32;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = 1;
+
+    private static final int RECORD_MAGIC = 0x4A435231;
+    // magic, type, hash, metaLength, bodyLength, crc
+    private static final int RECORD_HEADER = 25;
+    private static final byte TYPE_RESPONSE = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final long maxBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+
+    // 串行化写入、删除、压缩等修改操作，持有期间可以读写文件
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 保护索引和数据映射的替换：查找持有读锁，修改只在更新内存中的索引时持有写锁
+    private final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+
+    // 以下两个字段只由持有writeLock的线程访问
+    private FileChannel data;
+    private long dataLength;
+    // 只读映射，总是覆盖索引中的所有记录
+    private MappedByteBuffer dataMap;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int live;
+    private int tombstones;
+    private long liveBytes;
+    private long evictions;
+    // 最近访问时间，保证严格递增
+    private final AtomicLong tick = new AtomicLong();
+    private boolean closed;
+
+    private DiskCacheStore(Path directory, long maxBytes) throws IOException {
+        this.dataPath = directory.resolve(DATA_FILE);
+        this.indexPath = directory.resolve(INDEX_FILE);
+        this.maxBytes = maxBytes;
+        this.lockChannel =
+                FileChannel.open(
+                        directory.resolve(LOCK_FILE),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+        try {
+            FileLock acquired;
+            try {
+                acquired = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // 同一个进程中已经打开
+                acquired = null;
+            }
+            this.lock = acquired;
+            if (lock == null) {
+                throw new IOException("cache directory is used by another process: " + directory);
+            }
+            this.data =
+                    FileChannel.open(
+                            dataPath,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+            if (!loadIndex()) {
+                rebuild();
+            }
+        } catch (IOException | RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    /**
+     * 打开（不存在时创建）目录中的磁盘缓存，不再使用时需要调用{@link #close()}
+     *
+     * @param directory 缓存目录
+     * @param maxBytes 数据文件的最大字节数，不能超过2GB
+     */
+    public static DiskCacheStore open(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0 || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBytes must be > 0 and <= " + Integer.MAX_VALUE);
+        }
+        Files.createDirectories(directory);
+        return new DiskCacheStore(directory, maxBytes);
+    }
+
+    @Override
+    CachingHttpExecutor.Entry get(String key, JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        tableLock.readLock().lock();
+        try {
+            ensureOpen();
+            long hash = hash(key);
+            int mask = capacity - 1;
+            for (int i = (int) mix(hash) & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+                long slotHash = slotHash(i);
+                if (slotHash == EMPTY) {
+                    break;
+                }
+                if (slotHash != hash) {
+                    continue;
+                }
+                CachingHttpExecutor.Entry entry = read(slotOffset(i), key);
+                if (entry != null && entry.matches(requestModel)) {
+                    // 并发的查找只更新各自槽位的访问时间，丢失一次更新不影响正确性
+                    index.putLong(slotPosition(i) + 24, nextTick());
+                    return entry;
+                }
+            }
+            return null;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    void put(String key, JCurl.HttpRequestModel requestModel, CachingHttpExecutor.Entry entry)
+            throws IOException {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            doPut(key, requestModel, entry);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void doPut(
+            String key, JCurl.HttpRequestModel requestModel, CachingHttpExecutor.Entry entry)
+            throws IOException {
+        long hash = hash(key);
+        // 只有持有writeLock的线程修改索引结构，查找旧记录不需要tableLock
+        List<Integer> matched = new ArrayList<>();
+        int mask = capacity - 1;
+        for (int i = (int) mix(hash) & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+            long slotHash = slotHash(i);
+            if (slotHash == EMPTY) {
+                break;
+            }
+            if (slotHash == hash) {
+                CachingHttpExecutor.Entry old = read(slotOffset(i), key);
+                if (old != null && old.matches(requestModel)) {
+                    matched.add(i);
+                }
+            }
+        }
+        clearSlots(matched);
+        boolean removed = !matched.isEmpty();
+        if (entry == null) {
+            if (removed) {
+                // 重建索引时按URL移除，会多移除其他Vary的响应，不影响正确性
+                appendRemove(hash);
+            }
+            return;
+        }
+        byte[] meta = encode(key, entry);
+        ByteBuffer body = entry.body.duplicate();
+        long length = (long) RECORD_HEADER + meta.length + body.remaining();
+        if (length > maxBytes) {
+            if (removed) {
+                appendRemove(hash);
+            }
+            return;
+        }
+        if (dataLength + length > maxBytes) {
+            compact(length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(meta, 0, meta.length);
+        crc.update(body.duplicate());
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER + meta.length);
+        head.putInt(RECORD_MAGIC)
+                .put(TYPE_RESPONSE)
+                .putLong(hash)
+                .putInt(meta.length)
+                .putInt(body.remaining())
+                .putInt((int) crc.getValue())
+                .put(meta);
+        head.flip();
+        long offset = dataLength;
+        write(head, offset);
+        write(body, offset + RECORD_HEADER + meta.length);
+        dataLength = offset + length;
+        ensureCapacity();
+        MappedByteBuffer map = mapData();
+        tableLock.writeLock().lock();
+        try {
+            dataMap = map;
+            index.putLong(16, dataLength);
+            insert(hash, offset, length, nextTick());
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    void remove(String key) throws IOException {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            long hash = hash(key);
+            List<Integer> matched = new ArrayList<>();
+            int mask = capacity - 1;
+            for (int i = (int) mix(hash) & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+                long slotHash = slotHash(i);
+                if (slotHash == EMPTY) {
+                    break;
+                }
+                if (slotHash == hash) {
+                    matched.add(i);
+                }
+            }
+            clearSlots(matched);
+            if (!matched.isEmpty()) {
+                appendRemove(hash);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    void clear() throws IOException {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            // 换成新的空文件，已返回的响应体仍然引用旧文件的映射
+            Path temp = dataPath.resolveSibling(DATA_FILE + ".tmp");
+            Files.deleteIfExists(temp);
+            Files.createFile(temp);
+            replaceData(temp);
+            MappedByteBuffer map = mapData();
+            MappedByteBuffer table = newIndex(INITIAL_CAPACITY);
+            tableLock.writeLock().lock();
+            try {
+                dataMap = map;
+                installIndex(table, INITIAL_CAPACITY);
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    int count() {
+        tableLock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    long size() {
+        tableLock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    long evictions() {
+        tableLock.readLock().lock();
+        try {
+            return evictions;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /** 写入正常关闭的标记并释放文件 */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            tableLock.writeLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+            try {
+                data.force(false);
+                index.putLong(16, dataLength);
+                index.putInt(12, 1);
+                index.force();
+            } finally {
+                closeQuietly();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("cache store closed");
+        }
+    }
+
+    /** 加载上次正常关闭时的索引，索引不可用时返回false */
+    private boolean loadIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        MappedByteBuffer map;
+        try (FileChannel channel =
+                FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < INDEX_HEADER) {
+                return false;
+            }
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        int slots = map.getInt(8);
+        long length = map.getLong(16);
+        if (map.getInt(0) != INDEX_MAGIC
+                || map.getInt(4) != INDEX_VERSION
+                || map.getInt(12) != 1
+                || slots < INITIAL_CAPACITY
+                || Integer.bitCount(slots) != 1
+                || map.capacity() != INDEX_HEADER + (long) slots * SLOT_SIZE
+                || length < 0
+                || length > data.size()) {
+            return false;
+        }
+        // 打开期间标记为未正常关闭
+        map.putInt(12, 0);
+        map.force();
+        index = map;
+        capacity = slots;
+        dataLength = length;
+        data.truncate(length);
+        dataMap = mapData();
+        for (int i = 0; i < capacity; i++) {
+            long slotHash = slotHash(i);
+            if (slotHash == TOMBSTONE) {
+                tombstones++;
+            } else if (slotHash != EMPTY) {
+                long offset = slotOffset(i);
+                long recordLength = slotLength(i);
+                if (offset < 0 || recordLength <= 0 || offset + recordLength > dataLength) {
+                    clearSlot(i);
+                } else {
+                    live++;
+                    liveBytes += recordLength;
+                    tick.accumulateAndGet(index.getLong(slotPosition(i) + 24), Math::max);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** 逐条校验数据文件重建索引，遇到不完整或校验失败的记录时截断 */
+    private void rebuild() throws IOException {
+        dataLength = data.size();
+        installIndex(newIndex(INITIAL_CAPACITY), INITIAL_CAPACITY);
+        dataMap = mapData();
+        long position = 0;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER <= dataLength) {
+            int p = (int) position;
+            if (dataMap.getInt(p) != RECORD_MAGIC) {
+                break;
+            }
+            byte type = dataMap.get(p + 4);
+            long hash = dataMap.getLong(p + 5);
+            int metaLength = dataMap.getInt(p + 13);
+            int bodyLength = dataMap.getInt(p + 17);
+            long length = (long) RECORD_HEADER + metaLength + bodyLength;
+            if (metaLength < 0 || bodyLength < 0 || position + length > dataLength) {
+                break;
+            }
+            ByteBuffer payload = dataMap.duplicate();
+            payload.position(p + RECORD_HEADER);
+            payload.limit((int) (position + length));
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != dataMap.getInt(p + 21)) {
+                break;
+            }
+            if (type == TYPE_REMOVE) {
+                removeHash(hash);
+            } else if (type == TYPE_RESPONSE) {
+                replace(hash, position);
+                ensureCapacity();
+                // 没有访问时间，按写入顺序淘汰
+                insert(hash, position, length, position);
+            } else {
+                break;
+            }
+            position += length;
+        }
+        if (position < dataLength) {
+            data.truncate(position);
+            dataLength = position;
+            dataMap = mapData();
+        }
+        index.putLong(16, dataLength);
+        index.force();
+    }
+
+    /** 重建索引时移除与新记录的URL和Vary请求头都相同的旧记录 */
+    private void replace(long hash, long position) throws IOException {
+        Meta meta = decodeMeta(position);
+        int mask = capacity - 1;
+        for (int i = (int) mix(hash) & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+            long slotHash = slotHash(i);
+            if (slotHash == EMPTY) {
+                break;
+            }
+            if (slotHash == hash) {
+                Meta old = decodeMeta(slotOffset(i));
+                if (old.url.equals(meta.url) && old.varyValues.equals(meta.varyValues)) {
+                    clearSlot(i);
+                }
+            }
+        }
+    }
+
+    private void removeHash(long hash) {
+        int mask = capacity - 1;
+        for (int i = (int) mix(hash) & mask, n = 0; n < capacity; i = (i + 1) & mask, n++) {
+            long slotHash = slotHash(i);
+            if (slotHash == EMPTY) {
+                break;
+            }
+            if (slotHash == hash) {
+                clearSlot(i);
+            }
+        }
+    }
+
+    /**
+     * 按最近访问时间淘汰，直到可以再写入needed字节，然后只保留有效的记录写入新的数据文件和索引。
+     * 复制期间查找继续使用旧的映射，最后持有写锁替换
+     */
+    private void compact(long needed) throws IOException {
+        long limit = Math.min(maxBytes * 3 / 4, maxBytes - needed);
+        List<long[]> slots = liveSlots();
+        // [slot, offset, length, lastAccess]
+        slots.sort(Comparator.comparingLong(slot -> slot[3]));
+        int evicted = 0;
+        long remaining = liveBytes;
+        while (remaining > limit && evicted < slots.size()) {
+            remaining -= slots.get(evicted)[2];
+            evicted++;
+        }
+        List<long[]> kept = new ArrayList<>(slots.subList(evicted, slots.size()));
+        kept.sort(Comparator.comparingLong(slot -> slot[1]));
+        long[] hashes = new long[kept.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = slotHash((int) kept.get(i)[0]);
+        }
+
+        Path temp = dataPath.resolveSibling(DATA_FILE + ".tmp");
+        long position = 0;
+        try (FileChannel out =
+                FileChannel.open(
+                        temp,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE)) {
+            for (long[] slot : kept) {
+                long copied = 0;
+                while (copied < slot[2]) {
+                    copied += data.transferTo(slot[1] + copied, slot[2] - copied, out);
+                }
+                slot[1] = position;
+                position += slot[2];
+            }
+            out.force(false);
+        }
+        replaceData(temp);
+        MappedByteBuffer map = mapData();
+        int slotCount = indexCapacity(kept.size());
+        MappedByteBuffer table = newIndex(slotCount);
+        tableLock.writeLock().lock();
+        try {
+            dataMap = map;
+            installIndex(table, slotCount);
+            for (int i = 0; i < hashes.length; i++) {
+                long[] slot = kept.get(i);
+                insert(hashes[i], slot[1], slot[2], slot[3]);
+            }
+            evictions += evicted;
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /** 所有有效的槽位：[slot, offset, length, lastAccess] */
+    private List<long[]> liveSlots() {
+        List<long[]> slots = new ArrayList<>(live);
+        for (int i = 0; i < capacity; i++) {
+            long slotHash = slotHash(i);
+            if (slotHash != EMPTY && slotHash != TOMBSTONE) {
+                int p = slotPosition(i);
+                slots.add(
+                        new long[] {
+                            i, index.getLong(p + 8), index.getLong(p + 16), index.getLong(p + 24)
+                        });
+            }
+        }
+        return slots;
+    }
+
+    /** 用新文件替换数据文件，旧文件的映射在被回收之前仍然有效，调用方负责重新映射 */
+    private void replaceData(Path temp) throws IOException {
+        data.close();
+        try {
+            Files.move(
+                    temp,
+                    dataPath,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, dataPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        data =
+                FileChannel.open(
+                        dataPath,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+        dataLength = data.size();
+    }
+
+    /** 创建空的索引文件，先写入临时文件再替换，由{@link #installIndex}启用 */
+    private MappedByteBuffer newIndex(int slots) throws IOException {
+        Path temp = indexPath.resolveSibling(INDEX_FILE + ".tmp");
+        MappedByteBuffer map;
+        try (FileChannel channel =
+                FileChannel.open(
+                        temp,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+            map =
+                    channel.map(
+                            FileChannel.MapMode.READ_WRITE,
+                            0,
+                            INDEX_HEADER + (long) slots * SLOT_SIZE);
+        }
+        map.putInt(0, INDEX_MAGIC);
+        map.putInt(4, INDEX_VERSION);
+        map.putInt(8, slots);
+        map.putInt(12, 0);
+        map.putLong(16, dataLength);
+        try {
+            Files.move(
+                    temp,
+                    indexPath,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return map;
+    }
+
+    /** 使用新的空索引，构造完成后需要持有tableLock的写锁 */
+    private void installIndex(MappedByteBuffer map, int slots) {
+        index = map;
+        capacity = slots;
+        live = 0;
+        tombstones = 0;
+        liveBytes = 0;
+    }
+
+    /** 再插入一条记录前按需扩大索引 */
+    private void ensureCapacity() throws IOException {
+        if ((live + tombstones + 1) * 4L > capacity * 3L) {
+            resize(indexCapacity(live + 1));
+        }
+    }
+
+    /** 构造完成后需要持有tableLock的写锁，容量由{@link #ensureCapacity}保证 */
+    private void insert(long hash, long offset, long length, long lastAccess) {
+        int mask = capacity - 1;
+        int i = (int) mix(hash) & mask;
+        while (slotHash(i) != EMPTY && slotHash(i) != TOMBSTONE) {
+            i = (i + 1) & mask;
+        }
+        if (slotHash(i) == TOMBSTONE) {
+            tombstones--;
+        }
+        int p = slotPosition(i);
+        index.putLong(p + 8, offset);
+        index.putLong(p + 16, length);
+        index.putLong(p + 24, lastAccess);
+        index.putLong(p, hash);
+        live++;
+        liveBytes += length;
+    }
+
+    /** 重新分配索引，去掉删除标记 */
+    private void resize(int slots) throws IOException {
+        List<long[]> entries = liveSlots();
+        long[] hashes = new long[entries.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = slotHash((int) entries.get(i)[0]);
+        }
+        MappedByteBuffer table = newIndex(slots);
+        tableLock.writeLock().lock();
+        try {
+            installIndex(table, slots);
+            for (int i = 0; i < hashes.length; i++) {
+                long[] slot = entries.get(i);
+                insert(hashes[i], slot[1], slot[2], slot[3]);
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    private long nextTick() {
+        long now = System.currentTimeMillis();
+        return tick.accumulateAndGet(now, (last, time) -> Math.max(last + 1, time));
+    }
+
+    private static int indexCapacity(int entries) {
+        int slots = INITIAL_CAPACITY;
+        while (slots < entries * 2L) {
+            slots <<= 1;
+        }
+        return slots;
+    }
+
+    private void clearSlots(List<Integer> slots) {
+        if (slots.isEmpty()) {
+            return;
+        }
+        tableLock.writeLock().lock();
+        try {
+            for (int i : slots) {
+                clearSlot(i);
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    private void clearSlot(int i) {
+        int p = slotPosition(i);
+        live--;
+        liveBytes -= index.getLong(p + 16);
+        tombstones++;
+        index.putLong(p, TOMBSTONE);
+    }
+
+    private static int slotPosition(int i) {
+        return INDEX_HEADER + i * SLOT_SIZE;
+    }
+
+    private long slotHash(int i) {
+        return index.getLong(slotPosition(i));
+    }
+
+    private long slotOffset(int i) {
+        return index.getLong(slotPosition(i) + 8);
+    }
+
+    private long slotLength(int i) {
+        return index.getLong(slotPosition(i) + 16);
+    }
+
+    private void appendRemove(long hash) throws IOException {
+        if (dataLength + RECORD_HEADER > maxBytes) {
+            compact(RECORD_HEADER);
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER);
+        head.putInt(RECORD_MAGIC)
+                .put(TYPE_REMOVE)
+                .putLong(hash)
+                .putInt(0)
+                .putInt(0)
+                .putInt((int) crc.getValue());
+        head.flip();
+        write(head, dataLength);
+        dataLength += RECORD_HEADER;
+        index.putLong(16, dataLength);
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += data.write(buffer, position);
+        }
+    }
+
+    private MappedByteBuffer mapData() throws IOException {
+        return data.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+    }
+
+    /** 读取记录，URL不一致（哈希冲突）时返回null */
+    private CachingHttpExecutor.Entry read(long offset, String key) {
+        Meta meta = decodeMeta(offset);
+        if (!meta.url.equals(key)) {
+            return null;
+        }
+        int p = (int) offset;
+        int metaLength = dataMap.getInt(p + 13);
+        int bodyLength = dataMap.getInt(p + 17);
+        ByteBuffer body = dataMap.duplicate();
+        body.position(p + RECORD_HEADER + metaLength);
+        body.limit(p + RECORD_HEADER + metaLength + bodyLength);
+        return new CachingHttpExecutor.Entry(
+                meta.statusCode,
+                meta.statusMessage,
+                meta.headers,
+                body.slice().asReadOnlyBuffer(),
+                meta.varyValues,
+                meta.requestTime,
+                meta.responseTime);
+    }
+
+    private Meta decodeMeta(long offset) {
+        int p = (int) offset;
+        int metaLength = dataMap.getInt(p + 13);
+        ByteBuffer in = dataMap.duplicate();
+        in.position(p + RECORD_HEADER);
+        in.limit(p + RECORD_HEADER + metaLength);
+        Meta meta = new Meta();
+        meta.url = readString(in);
+        int varyCount = in.getInt();
+        Map<String, String> varyValues = new LinkedHashMap<>();
+        for (int i = 0; i < varyCount; i++) {
+            varyValues.put(readString(in), readString(in));
+        }
+        meta.varyValues = varyValues;
+        meta.statusCode = in.getInt();
+        meta.statusMessage = readString(in);
+        meta.requestTime = in.getLong();
+        meta.responseTime = in.getLong();
+        int headerCount = in.getInt();
+        JCurl.HeaderMap headers = new JCurl.HeaderMap(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            String name = readString(in);
+            int valueCount = in.getInt();
+            for (int j = 0; j < valueCount; j++) {
+                headers.add(name, readString(in));
+            }
+        }
+        meta.headers = headers;
+        return meta;
+    }
+
+    private static byte[] encode(String key, CachingHttpExecutor.Entry entry) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+        DataOutputStream out = new DataOutputStream(bos);
+        writeString(out, key);
+        out.writeInt(entry.varyValues.size());
+        for (Map.Entry<String, String> vary : entry.varyValues.entrySet()) {
+            writeString(out, vary.getKey());
+            writeString(out, vary.getValue());
+        }
+        out.writeInt(entry.statusCode);
+        writeString(out, entry.statusMessage);
+        out.writeLong(entry.requestTime);
+        out.writeLong(entry.responseTime);
+        out.writeInt(entry.headers.size());
+        for (Map.Entry<String, List<String>> header : entry.headers.entrySet()) {
+            writeString(out, header.getKey());
+            out.writeInt(header.getValue().size());
+            for (String value : header.getValue()) {
+                writeString(out, value);
+            }
+        }
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** URL的64位FNV-1a哈希，避开空槽位和删除标记的值 */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == EMPTY || h == TOMBSTONE ? h + 2 : h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private void closeQuietly() {
+        for (Closeable closeable : Arrays.asList(data, lockChannel)) {
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static final class Meta {
+        String url;
+        Map<String, String> varyValues;
+        int statusCode;
+        String statusMessage;
+        long requestTime;
+        long responseTime;
+        JCurl.HeaderMap headers;
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 域名解析，通过{@link JCurl.HttpRequestModel.RequestConfig#setDnsResolver}为请求指定
+ *
+ * <p>返回的地址按连接的优先顺序排列，执行器新建连接时使用第一个地址（OkHttp会依次尝试后面的地址）。
+ * 没有指定时HttpURLConnection执行器交给JVM解析，其他执行器使用{@link CachingDnsResolver#shared()}。
+ */
+public interface DnsResolver {
+
+    /** 直接使用InetAddress.getAllByName，缓存时间由JVM的networkaddress.cache.ttl决定 */
+    DnsResolver SYSTEM = host -> Arrays.asList(InetAddress.getAllByName(host));
+
+    /**
+     * 解析域名，返回至少一个地址
+     *
+     * @throws UnknownHostException 域名不存在或解析失败
+     */
+    List<InetAddress> resolve(String host) throws UnknownHostException;
+}
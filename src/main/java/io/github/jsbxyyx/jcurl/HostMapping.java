@@ -0,0 +1,297 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * curl --resolve和--connect-to指定的静态主机映射，由{@link JCurl.HttpRequestModel.RequestConfig}
+ * 的映射项解析得到
+ *
+ * <p>连接时先按--connect-to替换连接的主机和端口，再按--resolve查找地址，都没有命中时交给
+ * {@link DnsResolver}。只改变连接的地址，Host请求头和TLS的SNI、证书校验仍然使用URL中的主机名。
+ */
+final class HostMapping {
+
+    /** 匹配任意主机的--resolve主机名 */
+    private static final String ANY_HOST = "*";
+
+    private final List<String> resolve;
+    private final List<String> connectTo;
+    // host:port -> 地址，主机名为*的项匹配该端口的所有主机
+    private final Map<String, List<InetAddress>> addresses = new LinkedHashMap<>();
+    private final List<ConnectTo> targets = new ArrayList<>();
+
+    private HostMapping(List<String> resolve, List<String> connectTo) {
+        this.resolve = resolve;
+        this.connectTo = connectTo;
+        for (String entry : resolve) {
+            parseResolve(entry, addresses);
+        }
+        for (String entry : connectTo) {
+            targets.add(parseConnectTo(entry));
+        }
+    }
+
+    /** 创建映射，两者都为空时返回null */
+    static HostMapping of(List<String> resolve, List<String> connectTo) {
+        if (resolve.isEmpty() && connectTo.isEmpty()) {
+            return null;
+        }
+        return new HostMapping(
+                Collections.unmodifiableList(new ArrayList<>(resolve)),
+                Collections.unmodifiableList(new ArrayList<>(connectTo)));
+    }
+
+    /** 检查--resolve的格式：[+]host:port:addr[,addr]...，或-host:port删除之前的映射 */
+    static void checkResolve(String entry) {
+        parseResolve(entry, new LinkedHashMap<>());
+    }
+
+    /** 检查--connect-to的格式：HOST1:PORT1:HOST2:PORT2，为空的部分表示任意或不替换 */
+    static void checkConnectTo(String entry) {
+        parseConnectTo(entry);
+    }
+
+    /**
+     * 映射是否可能改变该主机某个端口的连接目标，用于不知道端口的场合（如OkHttp的Dns）。
+     * 连接时仍需按主机和端口用{@link #applies}或{@link #connectAddress}决定
+     */
+    boolean mayApply(String host) {
+        String name = normalize(host);
+        for (ConnectTo target : targets) {
+            if (target.sourceHost == null || target.sourceHost.equals(name)) {
+                return true;
+            }
+        }
+        for (String key : addresses.keySet()) {
+            String mapped = key.substring(0, key.lastIndexOf(':'));
+            if (mapped.equals(ANY_HOST) || mapped.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 映射是否会改变该主机和端口的连接目标 */
+    boolean applies(String host, int port) {
+        String name = normalize(host);
+        return target(name, port) != null || lookup(name, port) != null;
+    }
+
+    /**
+     * 计算实际连接的地址：先应用第一个匹配的--connect-to，再查找--resolve，都没有时用解析器解析，
+     * 有多个地址时使用第一个
+     */
+    InetSocketAddress connectAddress(String host, int port, DnsResolver resolver)
+            throws UnknownHostException {
+        String name = normalize(host);
+        ConnectTo target = target(name, port);
+        if (target != null) {
+            if (target.targetHost != null) {
+                name = target.targetHost;
+            }
+            if (target.targetPort > 0) {
+                port = target.targetPort;
+            }
+        }
+        List<InetAddress> found = lookup(name, port);
+        if (found != null) {
+            return new InetSocketAddress(found.get(0), port);
+        }
+        if (CachingDnsResolver.isLiteral(name)) {
+            return new InetSocketAddress(InetAddress.getByName(name), port);
+        }
+        return new InetSocketAddress(resolver.resolve(name).get(0), port);
+    }
+
+    private ConnectTo target(String host, int port) {
+        for (ConnectTo target : targets) {
+            if ((target.sourceHost == null || target.sourceHost.equals(host))
+                    && (target.sourcePort == 0 || target.sourcePort == port)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private List<InetAddress> lookup(String host, int port) {
+        List<InetAddress> found = addresses.get(host + ":" + port);
+        return found != null ? found : addresses.get(ANY_HOST + ":" + port);
+    }
+
+    private static void parseResolve(String entry, Map<String, List<InetAddress>> addresses) {
+        if (entry == null) {
+            throw new IllegalArgumentException("invalid resolve format: null");
+        }
+        String value = entry.trim();
+        boolean remove = value.startsWith("-");
+        if (remove || value.startsWith("+")) {
+            value = value.substring(1);
+        }
+        List<String> parts = split(value, 3, entry, "resolve");
+        if (remove ? parts.size() != 2 : parts.size() != 3) {
+            throw new IllegalArgumentException("invalid resolve format: " + entry);
+        }
+        String host = normalize(parts.get(0));
+        if (host.isEmpty()) {
+            throw new IllegalArgumentException("invalid resolve format: " + entry);
+        }
+        String key = host + ":" + parsePort(parts.get(1), entry, "resolve", false);
+        if (remove) {
+            addresses.remove(key);
+            return;
+        }
+        List<InetAddress> list = new ArrayList<>();
+        for (String address : parts.get(2).split(",")) {
+            list.add(parseAddress(host, address.trim(), entry));
+        }
+        // 和curl一样，后面的映射覆盖前面相同主机和端口的映射
+        addresses.remove(key);
+        addresses.put(key, Collections.unmodifiableList(list));
+    }
+
+    private static ConnectTo parseConnectTo(String entry) {
+        if (entry == null) {
+            throw new IllegalArgumentException("invalid connect-to format: null");
+        }
+        List<String> parts = split(entry.trim(), 4, entry, "connect-to");
+        if (parts.size() != 4) {
+            throw new IllegalArgumentException("invalid connect-to format: " + entry);
+        }
+        String sourceHost = normalize(parts.get(0));
+        String targetHost = normalize(parts.get(2));
+        return new ConnectTo(
+                sourceHost.isEmpty() ? null : sourceHost,
+                parsePort(parts.get(1), entry, "connect-to", true),
+                targetHost.isEmpty() ? null : targetHost,
+                parsePort(parts.get(3), entry, "connect-to", true));
+    }
+
+    /** 按冒号拆分为最多limit部分，方括号中的IPv6地址作为整体 */
+    private static List<String> split(String value, int limit, String entry, String option) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        boolean bracket = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '[') {
+                bracket = true;
+            } else if (c == ']') {
+                bracket = false;
+            } else if (c == ':' && !bracket && parts.size() < limit - 1) {
+                parts.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (bracket) {
+            throw new IllegalArgumentException("invalid " + option + " format: " + entry);
+        }
+        parts.add(value.substring(start));
+        return parts;
+    }
+
+    private static int parsePort(String port, String entry, String option, boolean optional) {
+        String value = port.trim();
+        if (optional && value.isEmpty()) {
+            return 0;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0 && number <= 65535) {
+                return number;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("invalid " + option + " format: " + entry);
+    }
+
+    /** 只接受IP地址，避免解析映射本身时查询DNS */
+    private static InetAddress parseAddress(String host, String address, String entry) {
+        String literal = address;
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        if (!isIpLiteral(literal)) {
+            throw new IllegalArgumentException("invalid resolve format: " + entry);
+        }
+        try {
+            byte[] bytes = InetAddress.getByName(literal).getAddress();
+            return InetAddress.getByAddress(ANY_HOST.equals(host) ? null : host, bytes);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("invalid resolve format: " + entry, e);
+        }
+    }
+
+    private static boolean isIpLiteral(String address) {
+        if (address.indexOf(':') >= 0) {
+            return true;
+        }
+        String[] octets = address.split("\\.", -1);
+        if (octets.length != 4) {
+            return false;
+        }
+        for (String octet : octets) {
+            if (octet.isEmpty() || octet.length() > 3) {
+                return false;
+            }
+            for (int i = 0; i < octet.length(); i++) {
+                if (octet.charAt(i) < '0' || octet.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            if (Integer.parseInt(octet) > 255) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 主机名忽略大小写，IPv6地址去掉方括号 */
+    private static String normalize(String host) {
+        String name = host.trim().toLowerCase(Locale.ROOT);
+        if (name.startsWith("[") && name.endsWith("]")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HostMapping)) return false;
+        HostMapping that = (HostMapping) o;
+        return resolve.equals(that.resolve) && connectTo.equals(that.connectTo);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * resolve.hashCode() + connectTo.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HostMapping{resolve=" + resolve + ", connectTo=" + connectTo + "}";
+    }
+
+    /** 一条--connect-to映射，null和0表示任意主机、端口或不替换 */
+    private static final class ConnectTo {
+        final String sourceHost;
+        final int sourcePort;
+        final String targetHost;
+        final int targetPort;
+
+        ConnectTo(String sourceHost, int sourcePort, String targetHost, int targetPort) {
+            this.sourceHost = sourceHost;
+            this.sourcePort = sourcePort;
+            this.targetHost = targetHost;
+            this.targetPort = targetPort;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 基于Inflater的增量gzip/deflate解码器，deflate根据前两个字节自动识别zlib格式和raw deflate
+ *
+ * <p>gzip的每个成员都校验尾部的CRC32和长度，多个成员依次解码，成员之后不是gzip头的数据报错。
+ *
+ * <p>Inflater在平台线程上按线程缓存复用，关闭解码器时reset后放回当前线程的缓存。
+ */
+final class InflatingDecoder implements ContentDecoder.Incremental {
+
+    /** 每个线程缓存的Inflater：[0]为zlib格式，[1]为nowrap（gzip和raw deflate） */
+    private static final ThreadLocal<Inflater[]> INFLATERS =
+            ThreadLocal.withInitial(() -> new Inflater[2]);
+
+    private final boolean gzip;
+    private final byte[] buffer;
+    private Inflater inflater;
+    private boolean nowrap;
+    // 确定格式（解析完gzip头或读到deflate前两个字节）之前收到的数据，为null时正在解码
+    private byte[] pending = new byte[0];
+    // 当前gzip成员解码结果的CRC32和长度
+    private final CRC32 crc;
+    private long size;
+    // 正在读取的gzip尾部（CRC32和ISIZE），不在读取尾部时为null
+    private byte[] trailer;
+    private int trailerLength;
+    private boolean closed;
+
+    InflatingDecoder(boolean gzip, int bufferSize) {
+        this.gzip = gzip;
+        this.crc = gzip ? new CRC32() : null;
+        this.buffer = BufferPool.shared().acquire(bufferSize);
+    }
+
+    @Override
+    public void decode(byte[] input, int offset, int length, ContentDecoder.ChunkConsumer output)
+            throws IOException {
+        while (length > 0) {
+            if (pending != null) {
+                byte[] data = new byte[pending.length + length];
+                System.arraycopy(pending, 0, data, 0, pending.length);
+                System.arraycopy(input, offset, data, pending.length, length);
+                int start = gzip ? gzipHeaderLength(data) : deflateStart(data);
+                if (start < 0) {
+                    pending = data;
+                    return;
+                }
+                pending = null;
+                if (inflater == null) {
+                    inflater = acquire(nowrap);
+                } else {
+                    inflater.reset();
+                }
+                input = data;
+                offset = start;
+                length = data.length - start;
+            } else if (trailer != null) {
+                int n = Math.min(trailer.length - trailerLength, length);
+                System.arraycopy(input, offset, trailer, trailerLength, n);
+                trailerLength += n;
+                offset += n;
+                length -= n;
+                if (trailerLength == trailer.length) {
+                    checkTrailer();
+                    // 后面的数据是下一个gzip成员
+                    trailer = null;
+                    pending = new byte[0];
+                }
+            } else if (inflater.finished()) {
+                return; // 忽略deflate结束之后的数据
+            } else {
+                inflater.setInput(input, offset, length);
+                inflate(output);
+                if (!inflater.finished()) {
+                    return;
+                }
+                int remaining = inflater.getRemaining();
+                offset += length - remaining;
+                length = remaining;
+                if (gzip) {
+                    trailer = new byte[8];
+                    trailerLength = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void finish(ContentDecoder.ChunkConsumer output) throws IOException {
+        // gzip在成员之间结束，deflate在压缩数据结束之后结束；没有收到数据时同样完整
+        boolean complete = pending != null ? pending.length == 0 : !gzip && inflater.finished();
+        if (!complete) {
+            throw new EOFException("unexpected end of compressed response body");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (inflater != null) {
+            release(inflater, nowrap);
+            inflater = null;
+        }
+        BufferPool.shared().release(buffer);
+    }
+
+    private void inflate(ContentDecoder.ChunkConsumer output) throws IOException {
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n > 0) {
+                    if (gzip) {
+                        crc.update(buffer, 0, n);
+                        size += n;
+                    }
+                    output.accept(buffer, 0, n);
+                } else if (inflater.needsInput() || inflater.needsDictionary()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("invalid compressed response body", e);
+        }
+    }
+
+    /** 校验gzip尾部的CRC32和ISIZE（长度的低32位，小端序），然后为下一个成员重新计数 */
+    private void checkTrailer() throws IOException {
+        if (readInt(trailer, 0) != crc.getValue()) {
+            throw new IOException("invalid compressed response body: gzip CRC32 mismatch");
+        }
+        if (readInt(trailer, 4) != (size & 0xffffffffL)) {
+            throw new IOException("invalid compressed response body: gzip size mismatch");
+        }
+        crc.reset();
+        size = 0;
+    }
+
+    private static long readInt(byte[] data, int pos) {
+        return (data[pos] & 0xffL)
+                | ((data[pos + 1] & 0xffL) << 8)
+                | ((data[pos + 2] & 0xffL) << 16)
+                | ((data[pos + 3] & 0xffL) << 24);
+    }
+
+    /** 根据前两个字节判断是否为zlib格式，数据不足时返回-1 */
+    private int deflateStart(byte[] data) {
+        if (data.length < 2) {
+            return -1;
+        }
+        int cmf = data[0] & 0xff;
+        int flg = data[1] & 0xff;
+        nowrap = (cmf & 0x0f) != 8 || ((cmf << 8) | flg) % 31 != 0;
+        return 0;
+    }
+
+    /** 返回gzip头长度，数据不足时返回-1 */
+    private int gzipHeaderLength(byte[] data) throws IOException {
+        if (data.length < 10) {
+            return -1;
+        }
+        if ((data[0] & 0xff) != 0x1f || (data[1] & 0xff) != 0x8b || data[2] != 8) {
+            throw new IOException("not in gzip format");
+        }
+        nowrap = true;
+        int flags = data[3] & 0xff;
+        int pos = 10;
+        if ((flags & 4) != 0) { // FEXTRA
+            if (data.length < pos + 2) return -1;
+            pos += 2 + ((data[pos] & 0xff) | ((data[pos + 1] & 0xff) << 8));
+        }
+        if ((flags & 8) != 0) { // FNAME
+            pos = skipZeroTerminated(data, pos);
+            if (pos < 0) return -1;
+        }
+        if ((flags & 16) != 0) { // FCOMMENT
+            pos = skipZeroTerminated(data, pos);
+            if (pos < 0) return -1;
+        }
+        if ((flags & 2) != 0) { // FHCRC
+            pos += 2;
+        }
+        return pos <= data.length ? pos : -1;
+    }
+
+    private static int skipZeroTerminated(byte[] data, int pos) {
+        for (int i = pos; i < data.length; i++) {
+            if (data[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static Inflater acquire(boolean nowrap) {
+        if (!BufferPool.isVirtualThread()) {
+            Inflater[] cache = INFLATERS.get();
+            int index = nowrap ? 1 : 0;
+            Inflater inflater = cache[index];
+            if (inflater != null) {
+                cache[index] = null;
+                return inflater;
+            }
+        }
+        return new Inflater(nowrap);
+    }
+
+    private static void release(Inflater inflater, boolean nowrap) {
+        if (!BufferPool.isVirtualThread()) {
+            Inflater[] cache = INFLATERS.get();
+            int index = nowrap ? 1 : 0;
+            if (cache[index] == null) {
+                inflater.reset();
+                cache[index] = inflater;
+                return;
+            }
+        }
+        inflater.end();
+    }
+}
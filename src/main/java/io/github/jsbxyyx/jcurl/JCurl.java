@@ -5,40 +5,83 @@ import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.ProtocolException;
 import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Properties;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 public class JCurl {
 
@@ -133,13 +176,12 @@ public class JCurl {
         JCurl builder = new JCurl();
         builder.request.setUrl(model.getUrl());
         builder.request.setMethod(model.getMethod());
-        Map<String, List<String>> headersCopy = new LinkedHashMap<>();
-        for (Map.Entry<String, List<String>> entry : model.getHeaders().entrySet()) {
-            headersCopy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-        }
-        builder.request.setHeaders(headersCopy);
+        // setHeaders会复制header及其值列表
+        builder.request.setHeaders(model.getHeaders());
         builder.request.setBody(model.getBody());
         builder.request.setBinaryBody(model.getBinaryBody());
+        // 共享同一个请求体来源，不复制数据
+        builder.request.setBodySource(model.getBodySource());
         if (model.getFormFields() != null) {
             Map<String, List<HttpRequestModel.FormField>> formFieldsCopy = new LinkedHashMap<>();
             for (Map.Entry<String, List<HttpRequestModel.FormField>> entry :
@@ -260,13 +302,37 @@ public class JCurl {
     /** 设置二进制请求体 */
     public JCurl binaryBody(byte[] data) {
         request.setBinaryBody(data);
+        request.setBodySource(null);
         return this;
     }
 
-    /** 从文件读取二进制数据 */
+    /** 使用文件作为请求体，发送时才读取文件 */
     public JCurl binaryBodyFromFile(String filePath) throws IOException {
-        byte[] data = Files.readAllBytes(Paths.get(filePath));
-        request.setBinaryBody(data);
+        if (!Files.isReadable(Paths.get(filePath))) {
+            throw new NoSuchFileException(filePath);
+        }
+        return bodySource(HttpRequestModel.BodySource.file(filePath));
+    }
+
+    /** 使用文件的一部分作为请求体，length为-1表示读到文件末尾 */
+    public JCurl bodyFile(String filePath, long offset, long length) {
+        return bodySource(HttpRequestModel.BodySource.file(filePath, offset, length));
+    }
+
+    /** 使用输入流作为请求体，每次发送都会重新打开，length为-1表示长度未知 */
+    public JCurl bodyStream(HttpRequestModel.BodySource.StreamSupplier supplier, long length) {
+        return bodySource(HttpRequestModel.BodySource.stream(supplier, length));
+    }
+
+    /** 使用通道作为请求体（只能发送一次），length为-1表示长度未知 */
+    public JCurl bodyChannel(ReadableByteChannel channel, long length) {
+        return bodySource(HttpRequestModel.BodySource.channel(channel, length));
+    }
+
+    /** 设置流式请求体 */
+    public JCurl bodySource(HttpRequestModel.BodySource source) {
+        request.setBodySource(source);
+        request.setBinaryBody(null);
         return this;
     }
 
@@ -329,7 +395,7 @@ public class JCurl {
     /** 启用压缩 */
     public JCurl compressed() {
         request.getConfig().setCompressed(true);
-        request.setHeader(Constants.ACCEPT_ENCODING, Constants.GZIP_DEFLATE_VALUE);
+        request.setHeader(Constants.ACCEPT_ENCODING, ContentDecoders.acceptEncoding());
         return this;
     }
 
@@ -405,6 +471,61 @@ public class JCurl {
         return this;
     }
 
+    /** 设置读取响应体的缓冲区大小（字节），默认8192 */
+    public JCurl bufferSize(int bytes) {
+        request.getConfig().setBufferSize(bytes);
+        return this;
+    }
+
+    /** 响应体超过该大小（字节）时写入临时文件，通过getBodyStream/getBodyChannel读取 */
+    public JCurl spillThreshold(long bytes) {
+        request.getConfig().setSpillThreshold(bytes);
+        return this;
+    }
+
+    /**
+     * 指定域名解析器。默认HttpURLConnection执行器交给JVM解析，其他执行器使用带缓存的
+     * {@link CachingDnsResolver#shared()}
+     */
+    public JCurl dnsResolver(DnsResolver resolver) {
+        request.getConfig().setDnsResolver(resolver);
+        return this;
+    }
+
+    /** 把host:port固定解析到指定的地址（curl --resolve host:port:addr[,addr]） */
+    public JCurl resolve(String entry) {
+        request.getConfig().addResolve(entry);
+        return this;
+    }
+
+    /** 把到HOST1:PORT1的连接改为连接HOST2:PORT2（curl --connect-to），Host请求头和SNI不变 */
+    public JCurl connectTo(String entry) {
+        request.getConfig().addConnectTo(entry);
+        return this;
+    }
+
+    /** 把响应体写入文件（curl -o） */
+    public JCurl output(String filePath) {
+        request.getConfig().setOutputFile(filePath);
+        return this;
+    }
+
+    /** 使用URL中的文件名把响应体写入当前目录（curl -O） */
+    public JCurl remoteName() {
+        request.getConfig().setRemoteName(true);
+        return this;
+    }
+
+    /**
+     * 下载到文件时断点续传（curl -C -）
+     *
+     * <p>失败重试和重新运行时从已下载的位置继续，进度记录在目标文件旁的 .part.checkpoint 文件中。
+     */
+    public JCurl resume() {
+        request.getConfig().setResume(true);
+        return this;
+    }
+
     /** 设置客户端证书（从文件路径） - 使用枚举 */
     public JCurl clientCert(CertType certType, String certPath, String password) {
         request.getConfig().setCertType(certType.getKeystoreType());
@@ -565,6 +686,16 @@ public class JCurl {
                     maxDownloadSize(Long.parseLong(value));
                     break;
 
+                case "-o":
+                case "--output":
+                    output(value);
+                    break;
+
+                case "-C":
+                case "--continue-at":
+                    parseContinueAt(request, value);
+                    break;
+
                 case "--url":
                     url(value);
                     break;
@@ -577,6 +708,14 @@ public class JCurl {
                     parseAndSetCert(value);
                     break;
 
+                case "--resolve":
+                    resolve(value);
+                    break;
+
+                case "--connect-to":
+                    connectTo(value);
+                    break;
+
                 default:
                     throw new IllegalArgumentException("unknown: " + option);
             }
@@ -617,6 +756,11 @@ public class JCurl {
                 head();
                 break;
 
+            case "-O":
+            case "--remote-name":
+                remoteName();
+                break;
+
             default:
                 throw new IllegalArgumentException("unknown option: " + option);
         }
@@ -812,7 +956,8 @@ public class JCurl {
                     case "--data-binary":
                         String binaryData = getNextArg(args, i);
                         if (binaryData.startsWith("@")) {
-                            request.setBinaryBody(readBinaryFile(binaryData.substring(1)));
+                            request.setBodySource(
+                                    HttpRequestModel.BodySource.file(binaryData.substring(1)));
                         } else {
                             request.setBinaryBody(binaryData.getBytes(StandardCharsets.UTF_8));
                         }
@@ -886,7 +1031,8 @@ public class JCurl {
 
                     case "--compressed":
                         request.getConfig().setCompressed(true);
-                        request.addHeader(Constants.ACCEPT_ENCODING, Constants.GZIP_DEFLATE_VALUE);
+                        request.addHeader(
+                                Constants.ACCEPT_ENCODING, ContentDecoders.acceptEncoding());
                         break;
 
                     case "--connect-timeout":
@@ -930,6 +1076,23 @@ public class JCurl {
                         i++;
                         break;
 
+                    case "-o":
+                    case "--output":
+                        request.getConfig().setOutputFile(getNextArg(args, i));
+                        i++;
+                        break;
+
+                    case "-O":
+                    case "--remote-name":
+                        request.getConfig().setRemoteName(true);
+                        break;
+
+                    case "-C":
+                    case "--continue-at":
+                        parseContinueAt(request, getNextArg(args, i));
+                        i++;
+                        break;
+
                     case "--url":
                         request.setUrl(getNextArg(args, i));
                         i++;
@@ -945,6 +1108,16 @@ public class JCurl {
                         i++;
                         break;
 
+                    case "--resolve":
+                        request.getConfig().addResolve(getNextArg(args, i));
+                        i++;
+                        break;
+
+                    case "--connect-to":
+                        request.getConfig().addConnectTo(getNextArg(args, i));
+                        i++;
+                        break;
+
                     default:
                         if (!arg.startsWith("-")) {
                             request.setUrl(arg);
@@ -1021,6 +1194,14 @@ public class JCurl {
         return args[currentIndex + 1];
     }
 
+    /** 只支持根据已下载的数据自动续传（-C -） */
+    private static void parseContinueAt(HttpRequestModel request, String value) {
+        if (!"-".equals(value)) {
+            throw new IllegalArgumentException("only '-C -' is supported: " + value);
+        }
+        request.getConfig().setResume(true);
+    }
+
     private static void parseHeader(HttpRequestModel request, String header) {
         int colonIndex = header.indexOf(':');
         if (colonIndex == -1) {
@@ -1168,17 +1349,14 @@ public class JCurl {
         }
     }
 
-    private static byte[] readBinaryFile(String filePath) throws IOException {
-        return Files.readAllBytes(Paths.get(filePath));
-    }
-
     /** HTTP请求模型 - 支持多值headers和queryParams */
     public static class HttpRequestModel {
         private String url;
         private String method = "GET";
-        private Map<String, List<String>> headers = new CaseInsensitiveMap<>();
+        private HeaderMap headers = new HeaderMap();
         private String body;
         private byte[] binaryBody;
+        private BodySource bodySource;
         private Map<String, List<FormField>> formFields;
         private Map<String, List<String>> queryParams = new LinkedHashMap<>();
 
@@ -1214,12 +1392,12 @@ public class JCurl {
         }
 
         public void setHeaders(Map<String, List<String>> headers) {
-            this.headers = new CaseInsensitiveMap<>(headers);
+            this.headers = new HeaderMap(headers);
         }
 
         /** 添加单个header值 */
         public void addHeader(String key, String value) {
-            this.headers.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+            this.headers.add(key, value);
         }
 
         /** 设置header（覆盖已有值） */
@@ -1256,6 +1434,15 @@ public class JCurl {
             this.binaryBody = binaryBody;
         }
 
+        /** 文件或流形式的请求体，发送时才读取 */
+        public BodySource getBodySource() {
+            return bodySource;
+        }
+
+        public void setBodySource(BodySource bodySource) {
+            this.bodySource = bodySource;
+        }
+
         public Map<String, List<FormField>> getFormFields() {
             return formFields;
         }
@@ -1403,7 +1590,7 @@ public class JCurl {
                     + ", headers="
                     + headers.size()
                     + ", hasBody="
-                    + (body != null || binaryBody != null)
+                    + (body != null || binaryBody != null || bodySource != null)
                     + ", formFields="
                     + (formFields != null ? formFields.size() : 0)
                     + ", queryParams="
@@ -1487,8 +1674,169 @@ public class JCurl {
             }
         }
 
+        /** 文件、输入流或通道形式的请求体，发送时边读边发，不会整体加载到内存 */
+        public static class BodySource {
+            private final Path filePath;
+            private final long offset;
+            private final long length;
+            private final StreamSupplier streamSupplier;
+            private final ReadableByteChannel channel;
+            private final AtomicBoolean channelConsumed = new AtomicBoolean();
+
+            private BodySource(
+                    Path filePath,
+                    long offset,
+                    long length,
+                    StreamSupplier streamSupplier,
+                    ReadableByteChannel channel) {
+                this.filePath = filePath;
+                this.offset = offset;
+                this.length = length;
+                this.streamSupplier = streamSupplier;
+                this.channel = channel;
+            }
+
+            /** 整个文件 */
+            public static BodySource file(String filePath) {
+                return file(filePath, 0, -1);
+            }
+
+            /** 文件的一部分，length为-1表示读到文件末尾 */
+            public static BodySource file(String filePath, long offset, long length) {
+                if (offset < 0) {
+                    throw new IllegalArgumentException("offset must be >= 0");
+                }
+                return new BodySource(Paths.get(filePath), offset, length, null, null);
+            }
+
+            /** 每次发送（包括重试）都会调用supplier打开新的输入流，length为-1表示长度未知 */
+            public static BodySource stream(StreamSupplier supplier, long length) {
+                Objects.requireNonNull(supplier, "supplier");
+                return new BodySource(null, 0, length, supplier, null);
+            }
+
+            /** 通道只能读取一次，因此不支持重试，length为-1表示长度未知 */
+            public static BodySource channel(ReadableByteChannel channel, long length) {
+                Objects.requireNonNull(channel, "channel");
+                return new BodySource(null, 0, length, null, channel);
+            }
+
+            /** 请求体长度，未知时返回-1（使用chunked编码发送） */
+            public long getLength() {
+                if (filePath == null || length >= 0) {
+                    return length;
+                }
+                try {
+                    return Files.isRegularFile(filePath)
+                            ? Math.max(0, Files.size(filePath) - offset)
+                            : -1;
+                } catch (IOException e) {
+                    return -1;
+                }
+            }
+
+            /** 是否可以多次读取（重试、重定向时需要重新发送） */
+            public boolean isRepeatable() {
+                return channel == null;
+            }
+
+            public Path getFilePath() {
+                return filePath;
+            }
+
+            /** 打开请求体通道，调用方负责关闭 */
+            public ReadableByteChannel openChannel() throws IOException {
+                if (filePath != null) {
+                    FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+                    fileChannel.position(offset);
+                    return length >= 0 ? new BoundedChannel(fileChannel, length) : fileChannel;
+                }
+                if (streamSupplier != null) {
+                    return Channels.newChannel(streamSupplier.get());
+                }
+                if (!channelConsumed.compareAndSet(false, true)) {
+                    throw new IOException("request body channel can not be read twice");
+                }
+                return channel;
+            }
+
+            /** 打开请求体输入流，调用方负责关闭 */
+            public InputStream openStream() throws IOException {
+                if (streamSupplier != null) {
+                    return streamSupplier.get();
+                }
+                return Channels.newInputStream(openChannel());
+            }
+
+            /** 把请求体写入输出流，不关闭输出流 */
+            public void writeTo(OutputStream os) throws IOException {
+                byte[] buffer = BufferPool.shared().acquire(8192);
+                try (InputStream inputStream = openStream()) {
+                    int bytesRead;
+                    while ((bytesRead = inputStream.read(buffer)) != -1) {
+                        os.write(buffer, 0, bytesRead);
+                    }
+                } finally {
+                    BufferPool.shared().release(buffer);
+                }
+                os.flush();
+            }
+
+            /** 输入流提供者 */
+            @FunctionalInterface
+            public interface StreamSupplier {
+                InputStream get() throws IOException;
+            }
+
+            /** 只读取前limit个字节的通道 */
+            private static class BoundedChannel implements ReadableByteChannel {
+                private final ReadableByteChannel delegate;
+                private long remaining;
+
+                BoundedChannel(ReadableByteChannel delegate, long limit) {
+                    this.delegate = delegate;
+                    this.remaining = limit;
+                }
+
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int n;
+                    if (dst.remaining() > remaining) {
+                        ByteBuffer slice = dst.duplicate();
+                        slice.limit(slice.position() + (int) remaining);
+                        n = delegate.read(slice);
+                        if (n > 0) {
+                            dst.position(dst.position() + n);
+                        }
+                    } else {
+                        n = delegate.read(dst);
+                    }
+                    if (n > 0) {
+                        remaining -= n;
+                    }
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return delegate.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    delegate.close();
+                }
+            }
+        }
+
         /** 请求配置 */
         public static class RequestConfig {
+            /** 默认读取缓冲区大小 */
+            public static final int DEFAULT_BUFFER_SIZE = 8192;
+
             private int connectTimeout = 30000;
             private int readTimeout = 60000;
             private boolean followRedirects = false;
@@ -1503,10 +1851,19 @@ public class JCurl {
             private int maxRetries = 0;
             private int retryDelay = 1000;
             private long maxDownloadSize = 0;
+            private int bufferSize = DEFAULT_BUFFER_SIZE;
+            private long spillThreshold = 0;
+            private String outputFile;
+            private boolean remoteName;
+            private boolean resume;
             private String certType;
             private String certPath;
             private String certPassword;
             private byte[] certBytes;
+            private DnsResolver dnsResolver;
+            private List<String> resolve = Collections.emptyList();
+            private List<String> connectTo = Collections.emptyList();
+            private HostMapping hostMapping;
 
             // Getters and Setters
             public int getConnectTimeout() {
@@ -1626,6 +1983,57 @@ public class JCurl {
                 this.maxDownloadSize = maxDownloadSize;
             }
 
+            /** 读取响应体的缓冲区大小（字节） */
+            public int getBufferSize() {
+                return bufferSize;
+            }
+
+            public void setBufferSize(int bufferSize) {
+                if (bufferSize <= 0) {
+                    throw new IllegalArgumentException("bufferSize must be > 0");
+                }
+                this.bufferSize = bufferSize;
+            }
+
+            /** 响应体超过该大小（字节）时写入临时文件而不是保存在内存中，0表示不限制 */
+            public long getSpillThreshold() {
+                return spillThreshold;
+            }
+
+            public void setSpillThreshold(long spillThreshold) {
+                if (spillThreshold < 0) {
+                    throw new IllegalArgumentException("spillThreshold must be >= 0");
+                }
+                this.spillThreshold = spillThreshold;
+            }
+
+            /** 响应体输出文件（curl -o），设置后exec直接写入文件 */
+            public String getOutputFile() {
+                return outputFile;
+            }
+
+            public void setOutputFile(String outputFile) {
+                this.outputFile = outputFile;
+            }
+
+            /** 使用URL中的文件名作为输出文件（curl -O） */
+            public boolean isRemoteName() {
+                return remoteName;
+            }
+
+            public void setRemoteName(boolean remoteName) {
+                this.remoteName = remoteName;
+            }
+
+            /** 下载到文件时断点续传（curl -C -） */
+            public boolean isResume() {
+                return resume;
+            }
+
+            public void setResume(boolean resume) {
+                this.resume = resume;
+            }
+
             public String getCertType() {
                 return certType;
             }
@@ -1658,6 +2066,71 @@ public class JCurl {
                 this.certBytes = certBytes;
             }
 
+            /**
+             * 域名解析器，null表示默认：HttpURLConnection执行器交给JVM解析，其他执行器使用
+             * {@link CachingDnsResolver#shared()}
+             */
+            public DnsResolver getDnsResolver() {
+                return dnsResolver;
+            }
+
+            public void setDnsResolver(DnsResolver dnsResolver) {
+                this.dnsResolver = dnsResolver;
+            }
+
+            /** 实际使用的域名解析器 */
+            DnsResolver effectiveDnsResolver() {
+                return dnsResolver != null ? dnsResolver : CachingDnsResolver.shared();
+            }
+
+            /** curl --resolve格式的地址映射：host:port:addr[,addr]... */
+            public List<String> getResolve() {
+                return resolve;
+            }
+
+            public void setResolve(List<String> resolve) {
+                List<String> entries = resolve != null ? resolve : Collections.emptyList();
+                for (String entry : entries) {
+                    HostMapping.checkResolve(entry);
+                }
+                this.resolve = Collections.unmodifiableList(new ArrayList<>(entries));
+                this.hostMapping = null;
+            }
+
+            public void addResolve(String entry) {
+                List<String> entries = new ArrayList<>(resolve);
+                entries.add(entry);
+                setResolve(entries);
+            }
+
+            /** curl --connect-to格式的连接映射：HOST1:PORT1:HOST2:PORT2 */
+            public List<String> getConnectTo() {
+                return connectTo;
+            }
+
+            public void setConnectTo(List<String> connectTo) {
+                List<String> entries = connectTo != null ? connectTo : Collections.emptyList();
+                for (String entry : entries) {
+                    HostMapping.checkConnectTo(entry);
+                }
+                this.connectTo = Collections.unmodifiableList(new ArrayList<>(entries));
+                this.hostMapping = null;
+            }
+
+            public void addConnectTo(String entry) {
+                List<String> entries = new ArrayList<>(connectTo);
+                entries.add(entry);
+                setConnectTo(entries);
+            }
+
+            /** 解析后的主机映射，没有映射时返回null */
+            HostMapping hostMapping() {
+                if (hostMapping == null && (!resolve.isEmpty() || !connectTo.isEmpty())) {
+                    hostMapping = HostMapping.of(resolve, connectTo);
+                }
+                return hostMapping;
+            }
+
             public RequestConfig copy() {
                 HttpRequestModel.RequestConfig config = new HttpRequestModel.RequestConfig();
                 config.setConnectTimeout(getConnectTimeout());
@@ -1674,21 +2147,41 @@ public class JCurl {
                 config.setMaxRetries(getMaxRetries());
                 config.setRetryDelay(getRetryDelay());
                 config.setMaxDownloadSize(getMaxDownloadSize());
+                config.setBufferSize(getBufferSize());
+                config.setSpillThreshold(getSpillThreshold());
+                config.setOutputFile(getOutputFile());
+                config.setRemoteName(isRemoteName());
+                config.setResume(isResume());
                 config.setCertType(getCertType());
                 config.setCertPath(getCertPath());
                 config.setCertPassword(getCertPassword());
                 config.setCertBytes(getCertBytes());
+                config.setDnsResolver(getDnsResolver());
+                config.resolve = resolve;
+                config.connectTo = connectTo;
+                config.hostMapping = hostMapping;
                 return config;
             }
         }
     }
 
-    /** HTTP响应模型 */
-    public static class HttpResponseModel {
+    /** HTTP响应模型，响应体写入临时文件时需要close删除临时文件 */
+    public static class HttpResponseModel implements Closeable {
         private int statusCode;
         private String statusMessage;
-        private Map<String, List<String>> headers = new CaseInsensitiveMap<>();
+        private HeaderMap headers = new HeaderMap();
         private byte[] bodyBytes;
+        // bodyBytes与其他副本共享，getBodyBytes返回之前先复制一份
+        private boolean bodyShared;
+        // 分块收集的响应体，首次访问时才拼接成bodyBytes
+        private List<byte[]> bodyBlocks;
+        private int bodyLength;
+        // 超过spillThreshold时写入临时文件的响应体
+        private SpillFile bodyFile;
+        // executeOpen返回的未读取响应体，关闭时释放连接
+        private InputStream bodyStream;
+        // 直接引用的只读响应体（如磁盘缓存中内存映射的数据），不复制到堆上
+        private ByteBuffer bodyBuffer;
 
         // Getters and Setters
         public int getStatusCode() {
@@ -1712,11 +2205,11 @@ public class JCurl {
         }
 
         public void setHeaders(Map<String, List<String>> headers) {
-            this.headers = headers;
+            this.headers = new HeaderMap(headers);
         }
 
         public void addHeader(String name, String value) {
-            this.headers.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+            this.headers.add(name, value);
         }
 
         public void setHeader(String name, String value) {
@@ -1739,18 +2232,207 @@ public class JCurl {
         }
 
         public String getBody(Charset charset) {
-            if (bodyBytes == null) {
+            byte[] bytes = getBodyBytes();
+            if (bytes == null) {
                 return null;
             }
-            return new String(bodyBytes, charset);
+            return new String(bytes, charset);
         }
 
+        /**
+         * 响应体字节，写入临时文件或直接引用的响应体每次调用都会复制到新的数组，
+         * 与其他副本共享的响应体首次调用时复制，未读取的输入流会被读完并关闭
+         */
         public byte[] getBodyBytes() {
+            if (bodyStream != null) {
+                InputStream stream = bodyStream;
+                bodyStream = null;
+                BodyBuffer buffer = new BodyBuffer(0, 0);
+                try {
+                    try {
+                        buffer.readFrom(stream);
+                    } finally {
+                        stream.close();
+                    }
+                    buffer.applyTo(this);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (bodyFile != null) {
+                try {
+                    return bodyFile.readAll();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (bodyBuffer != null) {
+                byte[] bytes = new byte[bodyBuffer.remaining()];
+                bodyBuffer.duplicate().get(bytes);
+                return bytes;
+            }
+            if (bodyBytes == null && bodyBlocks != null) {
+                byte[] bytes = new byte[bodyLength];
+                int position = 0;
+                for (byte[] block : bodyBlocks) {
+                    int n = Math.min(block.length, bodyLength - position);
+                    System.arraycopy(block, 0, bytes, position, n);
+                    position += n;
+                }
+                bodyBytes = bytes;
+                bodyBlocks = null;
+            }
+            if (bodyShared && bodyBytes != null) {
+                bodyBytes = bodyBytes.clone();
+                bodyShared = false;
+            }
             return bodyBytes;
         }
 
         public void setBodyBytes(byte[] bodyBytes) {
+            close();
+            this.bodyBuffer = null;
             this.bodyBytes = bodyBytes;
+            this.bodyShared = false;
+            this.bodyBlocks = null;
+            this.bodyLength = 0;
+        }
+
+        /** 响应体长度，不会触发拼接或读取临时文件；响应体是未读取的输入流时返回-1 */
+        public long getBodyLength() {
+            if (bodyStream != null) {
+                return -1;
+            }
+            if (bodyFile != null) {
+                return bodyFile.length();
+            }
+            if (bodyBuffer != null) {
+                return bodyBuffer.remaining();
+            }
+            if (bodyBytes != null) {
+                return bodyBytes.length;
+            }
+            return bodyBlocks != null ? bodyLength : 0;
+        }
+
+        /** 响应体是否写入了临时文件 */
+        public boolean isBodySpilled() {
+            return bodyFile != null;
+        }
+
+        /** 以输入流读取响应体，不会把整个响应体读入内存；没有响应体时返回null */
+        public InputStream getBodyStream() throws IOException {
+            if (bodyStream != null) {
+                return bodyStream;
+            }
+            if (bodyFile != null) {
+                return Channels.newInputStream(bodyFile.open());
+            }
+            if (bodyBuffer != null) {
+                return new ByteBufferInputStream(bodyBuffer.duplicate());
+            }
+            if (bodyBytes != null) {
+                return new ByteArrayInputStream(bodyBytes);
+            }
+            if (bodyBlocks == null) {
+                return null;
+            }
+            List<InputStream> streams = new ArrayList<>();
+            int remaining = bodyLength;
+            for (byte[] block : bodyBlocks) {
+                int n = Math.min(block.length, remaining);
+                streams.add(new ByteArrayInputStream(block, 0, n));
+                remaining -= n;
+            }
+            return new SequenceInputStream(Collections.enumeration(streams));
+        }
+
+        /**
+         * 以通道读取响应体；写入临时文件的响应体返回只读的FileChannel，可以用map做内存映射。
+         * 没有响应体时返回null
+         */
+        public ReadableByteChannel getBodyChannel() throws IOException {
+            if (bodyFile != null) {
+                return bodyFile.open();
+            }
+            InputStream stream = getBodyStream();
+            return stream != null ? Channels.newChannel(stream) : null;
+        }
+
+        /** 设置分块收集的响应体，按顺序取前length个字节，首次访问时才拼接 */
+        void setBodyBlocks(List<byte[]> blocks, int length) {
+            close();
+            this.bodyBuffer = null;
+            this.bodyBytes = null;
+            this.bodyBlocks = blocks;
+            this.bodyLength = length;
+        }
+
+        /** 设置未读取的响应体输入流，关闭响应时关闭该流 */
+        void setBodyStream(InputStream stream) {
+            close();
+            this.bodyBuffer = null;
+            this.bodyBytes = null;
+            this.bodyBlocks = null;
+            this.bodyStream = stream;
+        }
+
+        /** 设置写入临时文件的响应体，响应关闭或被回收时删除临时文件 */
+        void setBodyFile(SpillFile file) {
+            close();
+            this.bodyBuffer = null;
+            this.bodyBytes = null;
+            this.bodyBlocks = null;
+            this.bodyFile = file;
+        }
+
+        /** 设置直接引用的只读响应体，读取时不会复制整个响应体 */
+        void setBodyBuffer(ByteBuffer buffer) {
+            close();
+            this.bodyBytes = null;
+            this.bodyBlocks = null;
+            this.bodyBuffer = buffer;
+        }
+
+        /**
+         * 复制响应：响应头单独复制，内存中的响应体共享，首次调用getBodyBytes时才各自复制，
+         * 修改返回的数组不影响其他副本；临时文件通过硬链接共享（不支持时复制文件），
+         * 各个副本可以分别关闭。未读取的响应体流会先被读完
+         */
+        HttpResponseModel copy() throws IOException {
+            if (bodyStream != null) {
+                getBodyBytes();
+            }
+            HttpResponseModel copy = new HttpResponseModel();
+            copy.statusCode = statusCode;
+            copy.statusMessage = statusMessage;
+            copy.headers = new HeaderMap(headers);
+            copy.bodyBytes = bodyBytes;
+            if (bodyBytes != null) {
+                bodyShared = true;
+                copy.bodyShared = true;
+            }
+            copy.bodyBlocks = bodyBlocks;
+            copy.bodyLength = bodyLength;
+            copy.bodyBuffer = bodyBuffer != null ? bodyBuffer.duplicate() : null;
+            copy.bodyFile = bodyFile != null ? bodyFile.duplicate() : null;
+            return copy;
+        }
+
+        /** 关闭未读取的响应体流并释放连接，删除响应体临时文件；响应体在内存中时什么也不做 */
+        @Override
+        public void close() {
+            if (bodyStream != null) {
+                try {
+                    bodyStream.close();
+                } catch (IOException ignored) {
+                }
+                bodyStream = null;
+            }
+            if (bodyFile != null) {
+                bodyFile.close();
+                bodyFile = null;
+            }
         }
 
         public boolean isSuccess() {
@@ -1768,120 +2450,1921 @@ public class JCurl {
                     + ", headers="
                     + headers.size()
                     + ", bodyLength="
-                    + (bodyBytes != null ? bodyBytes.length : 0)
+                    + getBodyLength()
                     + '}';
         }
     }
 
-    /**
-     * 忽略大小写的Map实现
-     *
-     * @param <V>
-     */
-    private static class CaseInsensitiveMap<V> implements Map<String, V> {
-
-        private Map<String, V> wrappedMap;
+    /** multipart/form-data请求体：part头预先编码，文件内容写出时才读取，发送前即可得到准确长度 */
+    static final class MultipartForm {
+        private static final String CRLF = "\r\n";
+        private static final String BOUNDARY_PREFIX = "----JCurlFormBoundary";
 
-        public CaseInsensitiveMap() {
-            this(new LinkedHashMap<String, V>());
+        private final String boundary = BOUNDARY_PREFIX + System.currentTimeMillis();
+        private final List<Object> parts = new ArrayList<>();
+        private final long contentLength;
+
+        MultipartForm(List<Map.Entry<String, HttpRequestModel.FormField>> fields) {
+            long length = 0;
+            boolean known = true;
+            for (Map.Entry<String, HttpRequestModel.FormField> entry : fields) {
+                HttpRequestModel.FormField field = entry.getValue();
+                StringBuilder head = new StringBuilder();
+                head.append("--").append(boundary).append(CRLF);
+                head.append(Constants.CONTENT_DISPOSITION)
+                        .append(Constants.COLON_SPACE)
+                        .append(Constants.FORM_DATA_VALUE)
+                        .append("; name=\"")
+                        .append(entry.getKey())
+                        .append("\"");
+                if (field.isFile()) {
+                    String contentType = field.getContentType();
+                    if (contentType == null || contentType.isEmpty()) {
+                        contentType = URLConnection.guessContentTypeFromName(field.getFileName());
+                        if (contentType == null) {
+                            contentType = Constants.APPLICATION_OCTET_STREAM_VALUE;
+                        }
+                    }
+                    head.append("; filename=\"").append(field.getFileName()).append("\"");
+                    head.append(CRLF);
+                    head.append(Constants.CONTENT_TYPE)
+                            .append(Constants.COLON_SPACE)
+                            .append(contentType)
+                            .append(CRLF);
+                    head.append(Constants.CONTENT_TRANSFER_ENCODING)
+                            .append(Constants.COLON_SPACE)
+                            .append(Constants.BINARY_VALUE)
+                            .append(CRLF);
+                    head.append(CRLF);
+                    length += add(head.toString());
+                    Path path = Paths.get(field.getFilePath());
+                    parts.add(path);
+                    long size = fileLength(path);
+                    known &= size >= 0;
+                    length += Math.max(0, size);
+                    length += add(CRLF);
+                } else {
+                    head.append(CRLF).append(CRLF).append(field.getValue()).append(CRLF);
+                    length += add(head.toString());
+                }
+            }
+            length += add("--" + boundary + "--" + CRLF);
+            this.contentLength = known ? length : -1;
         }
 
-        public CaseInsensitiveMap(Map<String, V> wrappedMap) {
-            this.wrappedMap = wrappedMap;
+        private int add(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            parts.add(bytes);
+            return bytes.length;
         }
 
-        public int size() {
-            return wrappedMap.size();
+        /** 普通文件返回大小，管道等无法预知大小的文件返回-1 */
+        private static long fileLength(Path path) {
+            try {
+                return Files.isRegularFile(path) ? Files.size(path) : -1;
+            } catch (IOException e) {
+                return -1;
+            }
         }
 
-        public boolean isEmpty() {
-            return wrappedMap.isEmpty();
+        String getContentType() {
+            return Constants.MULTIPART_FORM_DATA_VALUE + "; boundary=" + boundary;
         }
 
-        public boolean containsKey(Object key) {
-            if (key == null || !(key instanceof String)) {
-                return false;
-            }
-            return wrappedMap.containsKey(key.toString().toLowerCase());
+        /** 请求体总长度，无法预知时返回-1（需要使用chunked编码） */
+        long getContentLength() {
+            return contentLength;
         }
 
-        public boolean containsValue(Object value) {
-            return wrappedMap.containsValue(value);
+        /** 按顺序排列的各个部分：byte[]或文件Path */
+        List<Object> getParts() {
+            return parts;
         }
 
-        public V get(Object key) {
-            if (key == null || !(key instanceof String)) {
-                return null;
+        /** 写出请求体，不关闭输出流 */
+        void writeTo(OutputStream os) throws IOException {
+            byte[] buffer = null;
+            try {
+                for (Object part : parts) {
+                    if (part instanceof byte[]) {
+                        os.write((byte[]) part);
+                        continue;
+                    }
+                    if (buffer == null) {
+                        buffer = BufferPool.shared().acquire(8192);
+                    }
+                    try (InputStream inputStream = Files.newInputStream((Path) part)) {
+                        int bytesRead;
+                        while ((bytesRead = inputStream.read(buffer)) != -1) {
+                            os.write(buffer, 0, bytesRead);
+                        }
+                    }
+                }
+            } finally {
+                BufferPool.shared().release(buffer);
             }
-            return wrappedMap.get(key.toString().toLowerCase());
+            os.flush();
         }
 
-        public V put(String key, V value) {
-            if (key == null) {
-                throw new NullPointerException("key cannot be null");
-            }
-            return wrappedMap.put(key.toLowerCase(), value);
+        /** 以输入流形式读取请求体，文件在读取到时才打开 */
+        InputStream openStream() {
+            Iterator<Object> iterator = parts.iterator();
+            return new SequenceInputStream(
+                    new Enumeration<InputStream>() {
+                        @Override
+                        public boolean hasMoreElements() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public InputStream nextElement() {
+                            Object part = iterator.next();
+                            if (part instanceof byte[]) {
+                                return new ByteArrayInputStream((byte[]) part);
+                            }
+                            try {
+                                return Files.newInputStream((Path) part);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    });
         }
+    }
 
-        public V remove(Object key) {
-            if (key == null || !(key instanceof String)) {
-                return null;
+    /**
+     * 忽略大小写的header存储：按插入顺序保存在平行数组中，按ASCII忽略大小写的哈希比较，
+     * 查找和添加时不创建小写副本，并保留header原始大小写。header数量通常很少，线性查找即可
+     */
+    static final class HeaderMap extends AbstractMap<String, List<String>> {
+        /** 常用header名，与其完全相同的名称直接使用常量，不保留执行器创建的字符串 */
+        private static final String[] KNOWN_NAMES = {
+            Constants.ACCEPT_ENCODING,
+            Constants.REFERER,
+            Constants.USER_AGENT,
+            Constants.PROXY_AUTHORIZATION,
+            Constants.AUTHORIZATION,
+            Constants.COOKIE,
+            Constants.CONTENT_TYPE,
+            Constants.CONTENT_DISPOSITION,
+            Constants.CONTENT_TRANSFER_ENCODING,
+            Constants.CONTENT_ENCODING,
+            "Accept",
+            "Accept-Ranges",
+            "Cache-Control",
+            "Connection",
+            "Content-Length",
+            "Content-Range",
+            "Date",
+            "ETag",
+            "Expires",
+            "Host",
+            "If-Range",
+            "Last-Modified",
+            "Location",
+            "Range",
+            "Server",
+            "Set-Cookie",
+            "Transfer-Encoding",
+            "Vary"
+        };
+
+        private static final int[] KNOWN_HASHES = new int[KNOWN_NAMES.length];
+
+        static {
+            for (int i = 0; i < KNOWN_NAMES.length; i++) {
+                KNOWN_HASHES[i] = hash(KNOWN_NAMES[i]);
             }
-            return wrappedMap.remove(key.toString().toLowerCase());
         }
 
-        public void putAll(Map<? extends String, ? extends V> m) {
-            if (m == null) {
-                throw new NullPointerException("map cannot be null");
-            }
-            for (java.util.Map.Entry<? extends String, ? extends V> entry : m.entrySet()) {
-                this.put(entry.getKey(), entry.getValue());
+        private String[] names;
+        private int[] hashes;
+        private List<String>[] values;
+        private int size;
+        private EntrySet entrySet;
+
+        HeaderMap() {
+            this(8);
+        }
+
+        @SuppressWarnings("unchecked")
+        HeaderMap(int capacity) {
+            names = new String[capacity];
+            hashes = new int[capacity];
+            values = new List[capacity];
+        }
+
+        /** 复制headers，名称只有大小写不同的值合并到一起 */
+        HeaderMap(Map<String, List<String>> headers) {
+            this(Math.max(8, headers.size()));
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                for (String value : entry.getValue()) {
+                    add(entry.getKey(), value);
+                }
+            }
+        }
+
+        /** 追加一个值 */
+        void add(String name, String value) {
+            int hash = hash(name);
+            int index = indexOf(name, hash);
+            if (index < 0) {
+                index = append(intern(name, hash), hash, new ArrayList<>(1));
+            }
+            values[index].add(value);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && indexOf((String) key, hash((String) key)) >= 0;
+        }
+
+        @Override
+        public List<String> get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int index = indexOf((String) key, hash((String) key));
+            return index >= 0 ? values[index] : null;
+        }
+
+        /** 已存在（忽略大小写）时替换值并保留原来的名称 */
+        @Override
+        public List<String> put(String key, List<String> value) {
+            if (key == null) {
+                throw new NullPointerException("key cannot be null");
+            }
+            int hash = hash(key);
+            int index = indexOf(key, hash);
+            if (index >= 0) {
+                List<String> old = values[index];
+                values[index] = value;
+                return old;
+            }
+            append(intern(key, hash), hash, value);
+            return null;
+        }
+
+        @Override
+        public List<String> remove(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int index = indexOf((String) key, hash((String) key));
+            if (index < 0) {
+                return null;
+            }
+            List<String> old = values[index];
+            removeAt(index);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(names, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        @Override
+        public Set<Map.Entry<String, List<String>>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new EntrySet();
+            }
+            return entrySet;
+        }
+
+        private int indexOf(String name, int hash) {
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == hash && equalsIgnoreCase(names[i], name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int append(String name, int hash, List<String> value) {
+            if (size == names.length) {
+                int capacity = size * 2;
+                names = Arrays.copyOf(names, capacity);
+                hashes = Arrays.copyOf(hashes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            names[size] = name;
+            hashes[size] = hash;
+            values[size] = value;
+            return size++;
+        }
+
+        private void removeAt(int index) {
+            int moved = size - index - 1;
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(hashes, index + 1, hashes, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+            size--;
+            names[size] = null;
+            values[size] = null;
+        }
+
+        private static String intern(String name, int hash) {
+            for (int i = 0; i < KNOWN_NAMES.length; i++) {
+                if (KNOWN_HASHES[i] == hash && KNOWN_NAMES[i].equals(name)) {
+                    return KNOWN_NAMES[i];
+                }
+            }
+            return name;
+        }
+
+        /** ASCII忽略大小写的哈希，header名只包含ASCII字符 */
+        private static int hash(String name) {
+            int h = 0;
+            for (int i = 0; i < name.length(); i++) {
+                h = 31 * h + toLower(name.charAt(i));
+            }
+            return h;
+        }
+
+        private static boolean equalsIgnoreCase(String a, String b) {
+            if (a == b) {
+                return true;
+            }
+            if (a.length() != b.length()) {
+                return false;
+            }
+            for (int i = 0; i < a.length(); i++) {
+                if (toLower(a.charAt(i)) != toLower(b.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static char toLower(char c) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+
+        private final class EntrySet extends AbstractSet<Map.Entry<String, List<String>>> {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                HeaderMap.this.clear();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, List<String>>> iterator() {
+                return new Iterator<Map.Entry<String, List<String>>>() {
+                    private int next;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Map.Entry<String, List<String>> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next++;
+                        return new HeaderEntry(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+        }
+
+        /** 遍历时的entry视图，setValue直接修改对应位置的值 */
+        private final class HeaderEntry extends AbstractMap.SimpleEntry<String, List<String>> {
+            private final int index;
+
+            HeaderEntry(int index) {
+                super(names[index], values[index]);
+                this.index = index;
+            }
+
+            @Override
+            public List<String> setValue(List<String> value) {
+                values[index] = value;
+                return super.setValue(value);
+            }
+        }
+    }
+
+    /**
+     * SSLContext缓存（进程内共享）
+     *
+     * <p>按证书类型、证书内容、密码和是否验证SSL缓存已初始化的SSLContext，避免每次请求都重新加载
+     * 证书；复用同一个SSLContext也使TLS会话恢复可以生效。
+     */
+    public static class SslContextCache {
+
+        private static final int MAX_ENTRIES = 64;
+
+        /** 信任所有证书（insecure） */
+        static final X509TrustManager INSECURE_TRUST_MANAGER =
+                new X509TrustManager() {
+                    @Override
+                    public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+                    @Override
+                    public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+                    @Override
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+                };
+
+        /** 不校验主机名（insecure） */
+        static final HostnameVerifier INSECURE_HOSTNAME_VERIFIER = (hostname, session) -> true;
+
+        private static final Map<Key, SslEntry> cache =
+                new LinkedHashMap<Key, SslEntry>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, SslEntry> eldest) {
+                        return size() > MAX_ENTRIES;
+                    }
+                };
+
+        private static volatile boolean reloadOnChange = false;
+
+        private SslContextCache() {}
+
+        /** 获取（必要时创建）与配置对应的SSL上下文 */
+        public static SslEntry get(HttpRequestModel.RequestConfig config) throws Exception {
+            Key key = new Key(config);
+            SslEntry entry;
+            synchronized (cache) {
+                entry = cache.get(key);
+            }
+            if (entry != null && !isStale(entry)) {
+                return entry;
+            }
+            entry = build(config);
+            synchronized (cache) {
+                cache.put(key, entry);
+            }
+            return entry;
+        }
+
+        /** 开启后，每次获取时检查certPath文件的修改时间，文件变化则重新加载 */
+        public static void setReloadOnChange(boolean reload) {
+            reloadOnChange = reload;
+        }
+
+        /** 使指定证书文件对应的缓存失效 */
+        public static void invalidate(String certPath) {
+            String path = normalizePath(certPath);
+            synchronized (cache) {
+                cache.keySet().removeIf(key -> Objects.equals(key.certPath, path));
+            }
+        }
+
+        /** 清空缓存 */
+        public static void invalidateAll() {
+            synchronized (cache) {
+                cache.clear();
+            }
+        }
+
+        public static int size() {
+            synchronized (cache) {
+                return cache.size();
+            }
+        }
+
+        private static boolean isStale(SslEntry entry) {
+            if (!reloadOnChange || entry.certPath == null) {
+                return false;
+            }
+            return lastModified(entry.certPath) != entry.lastModified;
+        }
+
+        private static long lastModified(String path) {
+            try {
+                return Files.getLastModifiedTime(Paths.get(path)).toMillis();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        private static SslEntry build(HttpRequestModel.RequestConfig config) throws Exception {
+            X509TrustManager trustManager =
+                    config.isVerifySSL() ? defaultTrustManager() : INSECURE_TRUST_MANAGER;
+
+            // 配置客户端证书
+            KeyManager[] keyManagers = null;
+            String certPath = null;
+            long lastModified = 0;
+            if (config.getCertBytes() == null && config.getCertPath() != null) {
+                certPath = normalizePath(config.getCertPath());
+                lastModified = lastModified(certPath);
+            }
+            if (config.getCertPath() != null || config.getCertBytes() != null) {
+                keyManagers = loadClientCertificate(config);
+            }
+
+            // 初始化SSL上下文
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers, new TrustManager[] {trustManager}, null);
+            return new SslEntry(sslContext, trustManager, certPath, lastModified);
+        }
+
+        private static X509TrustManager defaultTrustManager() throws Exception {
+            TrustManagerFactory tmf =
+                    TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init((KeyStore) null);
+            for (TrustManager trustManager : tmf.getTrustManagers()) {
+                if (trustManager instanceof X509TrustManager) {
+                    return (X509TrustManager) trustManager;
+                }
+            }
+            throw new IllegalStateException("no default X509TrustManager");
+        }
+
+        private static KeyManager[] loadClientCertificate(HttpRequestModel.RequestConfig config)
+                throws Exception {
+            KeyStore keyStore = KeyStore.getInstance(certType(config));
+            char[] password =
+                    config.getCertPassword() != null
+                            ? config.getCertPassword().toCharArray()
+                            : new char[0];
+
+            // 从字节数组或文件加载证书
+            if (config.getCertBytes() != null) {
+                try (ByteArrayInputStream bis = new ByteArrayInputStream(config.getCertBytes())) {
+                    keyStore.load(bis, password);
+                }
+            } else if (config.getCertPath() != null) {
+                try (InputStream fis = Files.newInputStream(Paths.get(config.getCertPath()))) {
+                    keyStore.load(fis, password);
+                }
+            } else {
+                throw new IllegalArgumentException("cert path or cert bytes must be provided");
+            }
+
+            KeyManagerFactory kmf =
+                    KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, password);
+            return kmf.getKeyManagers();
+        }
+
+        private static String certType(HttpRequestModel.RequestConfig config) {
+            String certType = config.getCertType();
+            if (certType == null || certType.isEmpty()) {
+                certType = CertType.PKCS12.getKeystoreType(); // 默认使用PKCS12
+            }
+            return certType;
+        }
+
+        private static String normalizePath(String path) {
+            return path == null ? null : Paths.get(path).toAbsolutePath().normalize().toString();
+        }
+
+        private static String sha256(byte[] data) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                return Base64.getEncoder().encodeToString(digest.digest(data));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** 已初始化的SSL上下文 */
+        public static class SslEntry {
+            private final SSLContext sslContext;
+            private final SSLSocketFactory socketFactory;
+            private final X509TrustManager trustManager;
+            private final String certPath;
+            private final long lastModified;
+
+            SslEntry(
+                    SSLContext sslContext,
+                    X509TrustManager trustManager,
+                    String certPath,
+                    long lastModified) {
+                this.sslContext = sslContext;
+                this.socketFactory = sslContext.getSocketFactory();
+                this.trustManager = trustManager;
+                this.certPath = certPath;
+                this.lastModified = lastModified;
+            }
+
+            public SSLContext getSslContext() {
+                return sslContext;
+            }
+
+            public SSLSocketFactory getSocketFactory() {
+                return socketFactory;
+            }
+
+            public X509TrustManager getTrustManager() {
+                return trustManager;
+            }
+        }
+
+        /** 缓存key：证书类型 + 证书内容hash（文件证书使用路径）+ 密码hash + 是否验证SSL */
+        private static final class Key {
+            private final String certType;
+            private final String certPath;
+            private final String certHash;
+            private final String passwordHash;
+            private final boolean verifySSL;
+
+            Key(HttpRequestModel.RequestConfig config) {
+                boolean hasCert = config.getCertBytes() != null || config.getCertPath() != null;
+                this.certType = hasCert ? certType(config) : null;
+                this.certHash =
+                        config.getCertBytes() != null ? sha256(config.getCertBytes()) : null;
+                this.certPath =
+                        config.getCertBytes() == null ? normalizePath(config.getCertPath()) : null;
+                this.passwordHash =
+                        hasCert && config.getCertPassword() != null
+                                ? sha256(config.getCertPassword().getBytes(StandardCharsets.UTF_8))
+                                : null;
+                this.verifySSL = config.isVerifySSL();
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (this == o) return true;
+                if (!(o instanceof Key)) return false;
+                Key that = (Key) o;
+                return verifySSL == that.verifySSL
+                        && Objects.equals(certType, that.certType)
+                        && Objects.equals(certPath, that.certPath)
+                        && Objects.equals(certHash, that.certHash)
+                        && Objects.equals(passwordHash, that.passwordHash);
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(certType, certPath, certHash, passwordHash, verifySSL);
+            }
+        }
+    }
+
+    public HttpResponseModel exec() throws IOException {
+        return exec(HttpUrlConnectionExecutor.create());
+    }
+
+    public HttpResponseModel exec(HttpExecutor executor) throws IOException {
+        HttpRequestModel.RequestConfig config = request.getConfig();
+        if (config.getOutputFile() != null) {
+            return execToFile(executor, Paths.get(config.getOutputFile()));
+        }
+        if (config.isRemoteName()) {
+            return execToFile(executor, Paths.get(remoteFileName(request.getUrl())));
+        }
+        return executor.execute(request);
+    }
+
+    /** 把响应体直接写入文件，返回的响应只包含状态和响应头 */
+    public HttpResponseModel execToFile(Path file) throws IOException {
+        return execToFile(HttpUrlConnectionExecutor.create(), file);
+    }
+
+    /** 使用指定执行器把响应体直接写入文件，返回的响应只包含状态和响应头 */
+    public HttpResponseModel execToFile(HttpExecutor executor, Path file) throws IOException {
+        return executor.executeToFile(request, file);
+    }
+
+    /**
+     * 分段并发下载到文件：服务器支持Range时把文件分成segments段并发下载，写入预分配文件的对应位置，
+     * 不支持时退化为单连接下载
+     */
+    public HttpResponseModel execToFile(HttpExecutor executor, Path file, int segments)
+            throws IOException {
+        return new SegmentedDownload(executor, request, file, segments).execute();
+    }
+
+    /** URL路径的最后一段作为文件名，与curl -O一致 */
+    private static String remoteFileName(String url) throws IOException {
+        String path = new URL(url).getPath();
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.isEmpty()) {
+            throw new IOException("remote file name has no length: " + url);
+        }
+        return name;
+    }
+
+    /** 读到响应头即返回，响应体通过getBodyStream按需读取，用完后close响应释放连接 */
+    public HttpResponseModel execOpen() throws IOException {
+        return execOpen(HttpUrlConnectionExecutor.create());
+    }
+
+    /** 使用指定执行器执行请求，读到响应头即返回，用完后close响应释放连接 */
+    public HttpResponseModel execOpen(HttpExecutor executor) throws IOException {
+        return executor.executeOpen(request);
+    }
+
+    public HttpResponseModel execStream(StreamHandler handler) throws IOException {
+        return execStream(HttpUrlConnectionExecutor.create(), handler);
+    }
+
+    public HttpResponseModel execStream(HttpExecutor executor, StreamHandler handler)
+            throws IOException {
+        return executor.executeStream(request, handler);
+    }
+
+    /** 异步执行请求 */
+    public CompletableFuture<HttpResponseModel> execAsync() {
+        return execAsync(HttpUrlConnectionExecutor.create());
+    }
+
+    /** 使用指定执行器异步执行请求 */
+    public CompletableFuture<HttpResponseModel> execAsync(HttpExecutor executor) {
+        return executor.executeAsync(request);
+    }
+
+    /** 异步执行流式请求 */
+    public CompletableFuture<HttpResponseModel> execStreamAsync(StreamHandler handler) {
+        return execStreamAsync(HttpUrlConnectionExecutor.create(), handler);
+    }
+
+    /** 使用指定执行器异步执行流式请求 */
+    public CompletableFuture<HttpResponseModel> execStreamAsync(
+            HttpExecutor executor, StreamHandler handler) {
+        return executor.executeStreamAsync(request, handler);
+    }
+
+    // ==================== 异步执行 ====================
+
+    private static volatile Executor asyncExecutor;
+
+    /** 设置{@link HttpExecutor#executeAsync}默认实现使用的线程池，传入null恢复默认线程池 */
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    /**
+     * 获取异步执行使用的线程池，未设置时使用默认线程池
+     *
+     * <p>运行时支持虚拟线程（JDK 21+）时默认每个任务一个虚拟线程，系统属性
+     * jcurl.virtualThreads=false 可关闭。
+     */
+    public static Executor getAsyncExecutor() {
+        Executor executor = asyncExecutor;
+        return executor != null ? executor : DefaultAsyncExecutor.INSTANCE;
+    }
+
+    /** 当前运行时是否支持虚拟线程（JDK 21+） */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreads.EXECUTOR != null;
+    }
+
+    /** 并发执行多个请求（默认执行器），按请求顺序返回响应，任一请求失败时抛出第一个异常 */
+    public static List<HttpResponseModel> execAll(List<JCurl> requests) throws IOException {
+        return execAll(requests, HttpUrlConnectionExecutor.create());
+    }
+
+    /** 使用指定执行器并发执行多个请求，阻塞式执行器的请求在{@link #getAsyncExecutor()}中执行 */
+    public static List<HttpResponseModel> execAll(List<JCurl> requests, HttpExecutor executor)
+            throws IOException {
+        List<CompletableFuture<HttpResponseModel>> futures = new ArrayList<>(requests.size());
+        for (JCurl request : requests) {
+            futures.add(request.execAsync(executor));
+        }
+        List<HttpResponseModel> responses = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<HttpResponseModel> future : futures) {
+                responses.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("request interrupt", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return responses;
+    }
+
+    /** 创建批量执行器，用于大量请求的并发控制 */
+    public static Batch batch(HttpExecutor executor) {
+        return new Batch(executor);
+    }
+
+    /**
+     * 批量执行请求，限制全局和每个host的并发数，结果逐个回调而不是全部保存在内存中
+     *
+     * <p>请求按迭代顺序逐个提交，某个host达到并发上限时会等待该host的请求完成后再继续提交。
+     */
+    public static class Batch {
+        private final HttpExecutor executor;
+        private int maxConcurrency = 64;
+        private int maxPerHost = 0;
+        private boolean ordered = false;
+        private Callback callback = item -> {};
+
+        private Batch(HttpExecutor executor) {
+            this.executor = Objects.requireNonNull(executor, "executor");
+        }
+
+        /** 全局最大并发请求数，默认64 */
+        public Batch maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency must be > 0");
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /** 每个host（scheme+host+port）的最大并发请求数，0表示不限制 */
+        public Batch maxPerHost(int maxPerHost) {
+            this.maxPerHost = maxPerHost;
+            return this;
+        }
+
+        /** 按请求顺序回调结果，默认按完成顺序回调 */
+        public Batch ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /** 结果回调，同一批次中的回调不会并发执行 */
+        public Batch onResult(Callback callback) {
+            this.callback = Objects.requireNonNull(callback, "callback");
+            return this;
+        }
+
+        public Stats execute(Iterable<HttpRequestModel> requests) throws IOException {
+            return execute(requests.iterator());
+        }
+
+        /** 执行所有请求并阻塞到全部完成，返回吞吐量和延迟统计 */
+        public Stats execute(Iterator<HttpRequestModel> requests) throws IOException {
+            return new Run().execute(requests);
+        }
+
+        /** 批量结果回调 */
+        @FunctionalInterface
+        public interface Callback {
+            void onResult(Item item);
+        }
+
+        /** 单个请求的结果 */
+        public static class Item {
+            private final long index;
+            private final HttpRequestModel request;
+            private final HttpResponseModel response;
+            private final Throwable error;
+            private final long latencyNanos;
+
+            Item(
+                    long index,
+                    HttpRequestModel request,
+                    HttpResponseModel response,
+                    Throwable error,
+                    long latencyNanos) {
+                this.index = index;
+                this.request = request;
+                this.response = response;
+                this.error = error;
+                this.latencyNanos = latencyNanos;
+            }
+
+            /** 请求在批次中的序号，从0开始 */
+            public long getIndex() {
+                return index;
+            }
+
+            public HttpRequestModel getRequest() {
+                return request;
+            }
+
+            /** 请求失败时为null */
+            public HttpResponseModel getResponse() {
+                return response;
+            }
+
+            /** 请求成功时为null */
+            public Throwable getError() {
+                return error;
+            }
+
+            public boolean isSuccess() {
+                return error == null;
+            }
+
+            /** 从拿到并发许可、开始执行请求到完成的时间，不包括排队等待许可的时间 */
+            public long getLatencyMillis() {
+                return latencyNanos / 1_000_000;
+            }
+        }
+
+        /** 批次统计信息 */
+        public static class Stats {
+            private final long total;
+            private final long failed;
+            private final long elapsedNanos;
+            private final LatencyHistogram histogram;
+
+            Stats(long total, long failed, long elapsedNanos, LatencyHistogram histogram) {
+                this.total = total;
+                this.failed = failed;
+                this.elapsedNanos = elapsedNanos;
+                this.histogram = histogram;
+            }
+
+            public long getTotal() {
+                return total;
+            }
+
+            public long getSucceeded() {
+                return total - failed;
+            }
+
+            /** 抛出异常的请求数（不包括HTTP错误状态码） */
+            public long getFailed() {
+                return failed;
+            }
+
+            public long getElapsedMillis() {
+                return elapsedNanos / 1_000_000;
+            }
+
+            /** 每秒完成的请求数 */
+            public double getThroughput() {
+                return elapsedNanos > 0 ? total * 1_000_000_000.0 / elapsedNanos : 0;
+            }
+
+            /** 延迟百分位（毫秒），percentile取值0~100，误差约1.6% */
+            public double getLatencyPercentile(double percentile) {
+                return histogram.percentile(percentile) / 1000.0;
+            }
+
+            public double getP50() {
+                return getLatencyPercentile(50);
+            }
+
+            public double getP90() {
+                return getLatencyPercentile(90);
+            }
+
+            public double getP99() {
+                return getLatencyPercentile(99);
+            }
+
+            public double getMaxLatency() {
+                return histogram.max / 1000.0;
+            }
+
+            @Override
+            public String toString() {
+                return String.format(
+                        "Stats{total=%d, failed=%d, elapsed=%dms, throughput=%.1f/s, "
+                                + "p50=%.1fms, p90=%.1fms, p99=%.1fms, max=%.1fms}",
+                        total,
+                        failed,
+                        getElapsedMillis(),
+                        getThroughput(),
+                        getP50(),
+                        getP90(),
+                        getP99(),
+                        getMaxLatency());
+            }
+        }
+
+        /** 一次批量执行的状态 */
+        private class Run {
+            private final Semaphore global = new Semaphore(maxConcurrency);
+            private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+            private final Set<CompletableFuture<HttpResponseModel>> inFlight =
+                    ConcurrentHashMap.newKeySet();
+            private final ReentrantLock lock = new ReentrantLock();
+            private final TreeMap<Long, Item> pending = new TreeMap<>();
+            private final LatencyHistogram histogram = new LatencyHistogram();
+            private long nextToDeliver;
+            private long failed;
+            private Throwable callbackError;
+
+            Stats execute(Iterator<HttpRequestModel> requests) throws IOException {
+                long start = System.nanoTime();
+                long index = 0;
+                try {
+                    while (requests.hasNext() && callbackError() == null) {
+                        submit(index++, requests.next());
+                    }
+                    // 拿到全部许可即表示所有请求都已完成并回调
+                    global.acquire(maxConcurrency);
+                } catch (InterruptedException e) {
+                    inFlight.forEach(future -> future.cancel(true));
+                    Thread.currentThread().interrupt();
+                    throw new IOException("request interrupt", e);
+                }
+                if (callbackError instanceof Error) {
+                    throw (Error) callbackError;
+                }
+                if (callbackError != null) {
+                    throw (RuntimeException) callbackError;
+                }
+                return new Stats(index, failed, System.nanoTime() - start, histogram);
+            }
+
+            private void submit(long index, HttpRequestModel request) throws InterruptedException {
+                global.acquire();
+                Semaphore host;
+                try {
+                    host = hostPermit(request);
+                } catch (IOException | RuntimeException e) {
+                    complete(new Item(index, request, null, e, 0));
+                    return;
+                }
+                // 拿到全局和host许可后才开始计时，延迟不包括排队等待的时间
+                long start = System.nanoTime();
+                CompletableFuture<HttpResponseModel> future;
+                try {
+                    future = executor.executeAsync(request);
+                } catch (RuntimeException e) {
+                    if (host != null) {
+                        host.release();
+                    }
+                    complete(new Item(index, request, null, e, System.nanoTime() - start));
+                    return;
+                }
+                inFlight.add(future);
+                Semaphore hostPermit = host;
+                future.whenComplete(
+                        (response, error) -> {
+                            inFlight.remove(future);
+                            if (hostPermit != null) {
+                                hostPermit.release();
+                            }
+                            Throwable cause =
+                                    error instanceof CompletionException && error.getCause() != null
+                                            ? error.getCause()
+                                            : error;
+                            complete(
+                                    new Item(
+                                            index,
+                                            request,
+                                            response,
+                                            cause,
+                                            System.nanoTime() - start));
+                        });
+            }
+
+            private Semaphore hostPermit(HttpRequestModel request)
+                    throws IOException, InterruptedException {
+                if (maxPerHost <= 0) {
+                    return null;
+                }
+                URL url = new URL(request.getFullUrl());
+                int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+                String key = url.getProtocol() + "://" + url.getHost() + ":" + port;
+                Semaphore host = hosts.computeIfAbsent(key, k -> new Semaphore(maxPerHost));
+                host.acquire();
+                return host;
+            }
+
+            /** 记录结果并回调；有序模式下缓存乱序完成的结果，回调后才释放全局许可以限制缓存大小 */
+            private void complete(Item item) {
+                int released = 0;
+                lock.lock();
+                try {
+                    histogram.record(item.latencyNanos / 1000);
+                    if (item.error != null) {
+                        failed++;
+                    }
+                    if (!ordered) {
+                        deliver(item);
+                        released = 1;
+                    } else {
+                        pending.put(item.index, item);
+                        Item next;
+                        while ((next = pending.remove(nextToDeliver)) != null) {
+                            deliver(next);
+                            nextToDeliver++;
+                            released++;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                global.release(released);
+            }
+
+            private void deliver(Item item) {
+                if (callbackError != null) {
+                    return;
+                }
+                try {
+                    callback.onResult(item);
+                } catch (RuntimeException | Error e) {
+                    callbackError = e;
+                }
+            }
+
+            private Throwable callbackError() {
+                lock.lock();
+                try {
+                    return callbackError;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /** 对数分桶的延迟直方图（微秒），固定内存，每个2的幂区间分64个桶 */
+    private static class LatencyHistogram {
+        private static final int SUB_BUCKETS = 64;
+        private final long[] counts = new long[SUB_BUCKETS * 64];
+        private long total;
+        private long max;
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            counts[index(value)]++;
+            total++;
+            max = Math.max(max, value);
+        }
+
+        long percentile(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value); // >= 6
+            int sub = (int) (value >>> (exponent - 6)) & (SUB_BUCKETS - 1);
+            return (exponent - 5) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + 5;
+            int sub = index % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 6)) - 1;
+        }
+    }
+
+    /** 延迟创建的默认异步线程池 */
+    private static class DefaultAsyncExecutor {
+        private static final AtomicLong THREAD_ID = new AtomicLong();
+        private static final ExecutorService INSTANCE =
+                VirtualThreads.EXECUTOR != null
+                                && !"false"
+                                        .equalsIgnoreCase(
+                                                System.getProperty("jcurl.virtualThreads"))
+                        ? VirtualThreads.EXECUTOR
+                        : Executors.newCachedThreadPool(
+                                r -> {
+                                    Thread thread =
+                                            new Thread(
+                                                    r,
+                                                    "jcurl-async-" + THREAD_ID.incrementAndGet());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                });
+    }
+
+    /** 通过反射创建虚拟线程池，保持Java 8编译兼容；不支持时为null */
+    private static class VirtualThreads {
+        private static final ExecutorService EXECUTOR = create();
+
+        private static ExecutorService create() {
+            try {
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                builder =
+                        builderClass
+                                .getMethod("name", String.class, long.class)
+                                .invoke(builder, "jcurl-virtual-", 0L);
+                ThreadFactory factory =
+                        (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+                return (ExecutorService)
+                        Executors.class
+                                .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                                .invoke(null, factory);
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                // JDK 21以下，或JDK 19/20未开启预览特性
+                return null;
+            }
+        }
+    }
+
+    /** 可抛出IOException的任务 */
+    @FunctionalInterface
+    interface IOCallable<T> {
+        T call() throws IOException;
+    }
+
+    /** 在异步线程池中执行阻塞任务，IOException通过CompletionException传递 */
+    static <T> CompletableFuture<T> supplyAsync(IOCallable<T> task) {
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return task.call();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                getAsyncExecutor());
+    }
+
+    @FunctionalInterface
+    public interface StreamHandler {
+        default void onStart(
+                int statusCode, String statusMessage, Map<String, List<String>> headers)
+                throws IOException {}
+
+        void onChunk(byte[] chunk) throws IOException;
+
+        /**
+         * 接收buffer中[offset, offset + length)的数据，执行器读取响应体时调用此方法
+         *
+         * <p>buffer会被复用，只在回调期间有效。默认复制一份后调用{@link #onChunk(byte[])}，
+         * 需要避免分配时使用{@link BufferHandler}。
+         */
+        default void onChunk(byte[] buffer, int offset, int length) throws IOException {
+            byte[] chunk = new byte[length];
+            System.arraycopy(buffer, offset, chunk, 0, length);
+            onChunk(chunk);
+        }
+
+        default void onComplete() throws IOException {}
+    }
+
+    /** 直接接收复用缓冲区的StreamHandler，buffer只在回调期间有效，需要保留数据时必须自行复制 */
+    @FunctionalInterface
+    public interface BufferHandler extends StreamHandler {
+        @Override
+        void onChunk(byte[] buffer, int offset, int length) throws IOException;
+
+        @Override
+        default void onChunk(byte[] chunk) throws IOException {
+            onChunk(chunk, 0, chunk.length);
+        }
+    }
+
+    /** 把响应体写入文件的StreamHandler，重试时从头覆盖写入 */
+    static final class FileDownload implements BufferHandler {
+        private final Path target;
+        private final Path temp;
+        private final long maxDownloadSize;
+        private FileChannel channel;
+        private long written;
+
+        FileDownload(Path target, long maxDownloadSize) {
+            this.target = target.toAbsolutePath();
+            this.temp = this.target.resolveSibling(this.target.getFileName() + ".part");
+            this.maxDownloadSize = maxDownloadSize;
+        }
+
+        @Override
+        public void onStart(int statusCode, String statusMessage, Map<String, List<String>> headers)
+                throws IOException {
+            if (channel == null) {
+                channel =
+                        FileChannel.open(
+                                temp,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+            } else {
+                channel.truncate(0);
+            }
+            written = 0;
+            // 响应未压缩时按Content-Length预分配文件，减少写入过程中的文件扩展
+            long contentLength = contentLength(headers);
+            if (contentLength > 0 && (maxDownloadSize <= 0 || contentLength <= maxDownloadSize)) {
+                channel.write(ByteBuffer.wrap(new byte[1]), contentLength - 1);
+            }
+        }
+
+        @Override
+        public void onChunk(byte[] chunk, int offset, int length) throws IOException {
+            if (maxDownloadSize > 0 && written + length > maxDownloadSize) {
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, offset, length);
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, written);
+            }
+        }
+
+        @Override
+        public void onComplete() throws IOException {
+            if (channel == null) {
+                onStart(0, null, Collections.emptyMap());
+            }
+            channel.truncate(written);
+            channel.close();
+            channel = null;
+            commit(temp, target);
+        }
+
+        /** 下载失败，关闭并删除临时文件 */
+        void abort() {
+            discard(channel, temp);
+            channel = null;
+        }
+
+        /** 下载完成，把临时文件重命名为目标文件 */
+        static void commit(Path temp, Path target) throws IOException {
+            try {
+                Files.move(
+                        temp,
+                        target,
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        static void discard(FileChannel channel, Path temp) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+        }
+
+        /**
+         * 解析Content-Range（bytes start-end/total，416响应中区间为*），返回{start, end, total}，
+         * 区间为*时start和end为-1，总长度为*时total为-1，格式不正确时抛出IOException
+         */
+        static long[] contentRange(String value) throws IOException {
+            String range = value != null ? value.trim() : "";
+            int slash = range.indexOf('/');
+            if (!range.regionMatches(true, 0, "bytes ", 0, 6) || slash < 0) {
+                throw new IOException("unexpected Content-Range: " + value);
+            }
+            String bounds = range.substring(6, slash).trim();
+            String length = range.substring(slash + 1).trim();
+            try {
+                long total = "*".equals(length) ? -1 : Long.parseLong(length);
+                if ("*".equals(bounds)) {
+                    if (total < 0) {
+                        throw new IOException("unexpected Content-Range: " + value);
+                    }
+                    return new long[] {-1, -1, total};
+                }
+                int dash = bounds.indexOf('-');
+                if (dash <= 0) {
+                    throw new IOException("unexpected Content-Range: " + value);
+                }
+                long start = Long.parseLong(bounds.substring(0, dash).trim());
+                long end = Long.parseLong(bounds.substring(dash + 1).trim());
+                if (start < 0 || end < start || total < -1) {
+                    throw new IOException("unexpected Content-Range: " + value);
+                }
+                return new long[] {start, end, total};
+            } catch (NumberFormatException e) {
+                throw new IOException("unexpected Content-Range: " + value, e);
+            }
+        }
+
+        /** 响应头的第一个值，名称忽略大小写，不存在时返回null */
+        static String header(Map<String, List<String>> headers, String name) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        static long contentLength(Map<String, List<String>> headers) {
+            String contentLength = null;
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (entry.getKey() == null || entry.getValue().isEmpty()) {
+                    continue;
+                }
+                if (Constants.CONTENT_ENCODING.equalsIgnoreCase(entry.getKey())) {
+                    return -1;
+                }
+                if ("Content-Length".equalsIgnoreCase(entry.getKey())) {
+                    contentLength = entry.getValue().get(0);
+                }
+            }
+            try {
+                return contentLength != null ? Long.parseLong(contentLength.trim()) : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * 收集响应体的BufferHandler：已知长度且不超过MAX_BLOCK时一次分配精确大小的数组直接填充，
+     * 结果不再复制；更大时先按块收集，声明的长度可信后（见EXACT_LIMIT）分配精确大小的数组，
+     * 已收到的数据只复制一次。未知长度时按逐步增大的块收集，首次访问响应体时才拼接。超过
+     * spillThreshold时转为写入临时文件
+     */
+    static final class BodyBuffer implements BufferHandler {
+        private static final int FIRST_BLOCK = 8192;
+        private static final int MAX_BLOCK = 1024 * 1024;
+        private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+        // 第一块填满后，声明长度不超过EXACT_LIMIT或已收到数据的EXACT_RATIO倍时分配精确大小的数组
+        private static final int EXACT_LIMIT = 64 * 1024 * 1024;
+        private static final int EXACT_RATIO = 8;
+
+        private final long maxDownloadSize;
+        private final long spillThreshold;
+        private final List<byte[]> blocks = new ArrayList<>();
+        private long expected = -1;
+        private byte[] current;
+        private int position;
+        private long size;
+        private SpillFile spill;
+        private FileChannel channel;
+
+        BodyBuffer(long maxDownloadSize, long spillThreshold) {
+            this.maxDownloadSize = maxDownloadSize;
+            this.spillThreshold = spillThreshold;
+        }
+
+        /** 声明响应体长度，只在还没有写入数据时生效；-1表示未知 */
+        void expect(long contentLength) {
+            if (size == 0
+                    && current == null
+                    && contentLength <= MAX_LENGTH
+                    && (maxDownloadSize <= 0 || contentLength <= maxDownloadSize)
+                    && (spillThreshold <= 0 || contentLength <= spillThreshold)) {
+                expected = contentLength;
+            }
+        }
+
+        @Override
+        public void onStart(
+                int statusCode, String statusMessage, Map<String, List<String>> headers) {
+            if (statusCode != 204 && statusCode != 304) {
+                expect(FileDownload.contentLength(headers));
+            }
+        }
+
+        @Override
+        public void onChunk(byte[] chunk, int offset, int length) throws IOException {
+            if (channel == null && spillThreshold > 0 && size + length > spillThreshold) {
+                spill();
+            }
+            if (channel != null) {
+                checkSize(size + length);
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                size += length;
+                return;
+            }
+            while (length > 0) {
+                if (current == null || position == current.length) {
+                    nextBlock();
+                }
+                int n = Math.min(length, current.length - position);
+                System.arraycopy(chunk, offset, current, position, n);
+                advance(n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        /** 直接从输入流读入内部数组，不经过中间缓冲区 */
+        void readFrom(InputStream inputStream) throws IOException {
+            while (true) {
+                if (channel == null && spillThreshold > 0 && size > spillThreshold) {
+                    spill();
+                }
+                if (channel != null) {
+                    readToFile(inputStream);
+                    return;
+                }
+                if (size == expected && (current == null || position == current.length)) {
+                    // 已读满声明的长度，确认流已结束
+                    int b = inputStream.read();
+                    if (b == -1) {
+                        return;
+                    }
+                    onChunk(new byte[] {(byte) b}, 0, 1);
+                    continue;
+                }
+                if (current == null || position == current.length) {
+                    nextBlock();
+                }
+                int length = current.length - position;
+                if (spillThreshold > 0) {
+                    // 最多读到超过阈值一个字节，超过后立即转为写入文件
+                    length = (int) Math.min(length, spillThreshold + 1 - size);
+                }
+                int n = inputStream.read(current, position, length);
+                if (n == -1) {
+                    return;
+                }
+                advance(n);
+            }
+        }
+
+        @Override
+        public void onComplete() {}
+
+        /** 已收集的字节数 */
+        long size() {
+            return size;
+        }
+
+        /** 把收集到的响应体交给响应模型，只有一个恰好填满的块时直接使用该数组 */
+        void applyTo(HttpResponseModel response) throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                spill.setLength(size);
+                response.setBodyFile(spill);
+                spill = null;
+                return;
+            }
+            if (current != null && position > 0) {
+                blocks.add(current);
+            }
+            current = null;
+            if (blocks.isEmpty()) {
+                response.setBodyBytes(new byte[0]);
+            } else if (blocks.size() == 1 && blocks.get(0).length == size) {
+                response.setBodyBytes(blocks.get(0));
+            } else {
+                response.setBodyBlocks(blocks, (int) size);
+            }
+        }
+
+        /** 读取失败，删除已写入的临时文件 */
+        void discard() {
+            if (spill != null) {
+                FileDownload.discard(channel, spill.path());
+                spill.close();
+                channel = null;
+                spill = null;
+            }
+        }
+
+        /** 把已收集的数据写入临时文件，之后的数据直接追加到文件 */
+        private void spill() throws IOException {
+            spill = SpillFile.create();
+            channel = FileChannel.open(spill.path(), StandardOpenOption.WRITE);
+            for (byte[] block : blocks) {
+                write(block, block.length);
+            }
+            if (current != null) {
+                write(current, position);
+            }
+            blocks.clear();
+            current = null;
+            position = 0;
+        }
+
+        private void write(byte[] block, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(block, 0, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void readToFile(InputStream inputStream) throws IOException {
+            byte[] buffer = BufferPool.shared().acquire(FIRST_BLOCK);
+            try {
+                int n;
+                while ((n = inputStream.read(buffer)) != -1) {
+                    onChunk(buffer, 0, n);
+                }
+            } finally {
+                BufferPool.shared().release(buffer);
             }
         }
 
-        public void clear() {
-            wrappedMap.clear();
+        private void nextBlock() {
+            if (size < expected
+                    && current != null
+                    && expected <= Math.max(EXACT_LIMIT, size * EXACT_RATIO)) {
+                // 已经收到足够的数据，声明的长度可信，改为分配精确大小的数组，
+                // 已收到的数据只复制一次
+                byte[] exact = new byte[(int) expected];
+                int copied = 0;
+                for (byte[] block : blocks) {
+                    System.arraycopy(block, 0, exact, copied, block.length);
+                    copied += block.length;
+                }
+                System.arraycopy(current, 0, exact, copied, position);
+                blocks.clear();
+                current = exact;
+                position = (int) size;
+                return;
+            }
+            if (current != null) {
+                blocks.add(current);
+            }
+            int length;
+            if (size < expected) {
+                // 按声明长度分块，每块不超过MAX_BLOCK和已收到的数据量中较大的，错误的
+                // Content-Length不会一次分配过大的数组
+                length = (int) Math.min(expected - size, Math.max(MAX_BLOCK, size));
+            } else {
+                // 超出声明长度或长度未知时，块大小随已读字节数翻倍增长
+                length = (int) Math.min(MAX_BLOCK, Math.max(FIRST_BLOCK, size));
+            }
+            current = new byte[length];
+            position = 0;
         }
 
-        public Set<String> keySet() {
-            return wrappedMap.keySet();
+        private void advance(int n) throws IOException {
+            position += n;
+            size += n;
+            checkSize(size);
+            if (size > MAX_LENGTH) {
+                throw new IOException("response body too large to buffer: " + size + " bytes");
+            }
         }
 
-        public Collection<V> values() {
-            return wrappedMap.values();
+        private void checkSize(long newSize) throws IOException {
+            if (maxDownloadSize > 0 && newSize > maxDownloadSize) {
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
         }
+    }
 
-        public Set<java.util.Map.Entry<String, V>> entrySet() {
-            return wrappedMap.entrySet();
+    /**
+     * executeOpen返回的响应体流：第一次读取时才按Content-Encoding解压，限制最大下载大小，
+     * 关闭时释放连接
+     */
+    static final class BodyStream extends InputStream {
+        private final InputStream raw;
+        private final String encoding;
+        private final long maxDownloadSize;
+        private final Closeable onClose;
+        private InputStream in;
+        private long total;
+        private boolean closed;
+
+        BodyStream(InputStream raw, String encoding, long maxDownloadSize, Closeable onClose) {
+            this.raw = raw;
+            this.encoding = encoding;
+            this.maxDownloadSize = maxDownloadSize;
+            this.onClose = onClose;
         }
-    }
 
-    public HttpResponseModel exec() throws IOException {
-        return exec(HttpUrlConnectionExecutor.create());
-    }
+        @Override
+        public int read() throws IOException {
+            int b = in().read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
 
-    public HttpResponseModel exec(HttpExecutor executor) throws IOException {
-        return executor.execute(request);
-    }
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in().read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
 
-    public HttpResponseModel execStream(StreamHandler handler) throws IOException {
-        return execStream(HttpUrlConnectionExecutor.create(), handler);
+        @Override
+        public int available() throws IOException {
+            return in != null && !closed ? in.available() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                (in != null ? in : raw).close();
+            } finally {
+                if (onClose != null) {
+                    onClose.close();
+                }
+            }
+        }
+
+        private InputStream in() throws IOException {
+            if (closed) {
+                throw new IOException("stream closed");
+            }
+            if (in == null) {
+                in = ContentDecoders.decode(raw, encoding);
+            }
+            return in;
+        }
+
+        private void count(long n) throws IOException {
+            total += n;
+            if (maxDownloadSize > 0 && total > maxDownloadSize) {
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
+        }
     }
 
-    public HttpResponseModel execStream(HttpExecutor executor, StreamHandler handler)
-            throws IOException {
-        return executor.executeStream(request, handler);
+    /** 读取ByteBuffer剩余数据的输入流，不复制数据 */
+    static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 
-    @FunctionalInterface
-    public interface StreamHandler {
-        default void onStart(
-                int statusCode, String statusMessage, Map<String, List<String>> headers)
-                throws IOException {}
+    /** 响应体临时文件，close或对象被回收后删除，JVM退出时删除仍未清理的文件 */
+    static final class SpillFile implements Closeable {
+        private static final ReferenceQueue<SpillFile> QUEUE = new ReferenceQueue<>();
+        private static final Set<Cleanup> PENDING = ConcurrentHashMap.newKeySet();
 
-        void onChunk(byte[] chunk) throws IOException;
+        static {
+            Runtime.getRuntime()
+                    .addShutdownHook(
+                            new Thread(
+                                    () -> {
+                                        for (Cleanup cleanup : PENDING) {
+                                            cleanup.clean();
+                                        }
+                                    },
+                                    "jcurl-spill-cleanup"));
+        }
+
+        private final Path path;
+        private final Cleanup cleanup;
+        private long length;
+
+        private SpillFile(Path path) {
+            this.path = path;
+            this.cleanup = new Cleanup(this, path);
+            PENDING.add(cleanup);
+        }
+
+        /** 创建临时文件，顺便删除已被回收但没有关闭的临时文件 */
+        static SpillFile create() throws IOException {
+            Reference<? extends SpillFile> reference;
+            while ((reference = QUEUE.poll()) != null) {
+                ((Cleanup) reference).clean();
+            }
+            return new SpillFile(Files.createTempFile("jcurl-body", ".tmp"));
+        }
 
-        default void onComplete() throws IOException {}
+        Path path() {
+            return path;
+        }
+
+        long length() {
+            return length;
+        }
+
+        void setLength(long length) {
+            this.length = length;
+        }
+
+        /** 打开只读通道 */
+        FileChannel open() throws IOException {
+            return FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        /** 创建指向同一内容的临时文件，优先使用硬链接，不复制数据 */
+        SpillFile duplicate() throws IOException {
+            Path target = Files.createTempFile("jcurl-body", ".tmp");
+            SpillFile copy = new SpillFile(target);
+            try {
+                Files.delete(target);
+                try {
+                    Files.createLink(target, path);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                copy.close();
+                throw e;
+            }
+            copy.length = length;
+            return copy;
+        }
+
+        byte[] readAll() throws IOException {
+            if (length > BodyBuffer.MAX_LENGTH) {
+                throw new IOException("response body too large to buffer: " + length + " bytes");
+            }
+            byte[] bytes = new byte[(int) length];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try (FileChannel channel = open()) {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) == -1) {
+                        throw new EOFException("response body file truncated: " + path);
+                    }
+                }
+            }
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            cleanup.clean();
+        }
+
+        /** SpillFile不可达后由ReferenceQueue通知，删除对应的文件 */
+        private static final class Cleanup extends PhantomReference<SpillFile> {
+            private final Path path;
+
+            Cleanup(SpillFile referent, Path path) {
+                super(referent, QUEUE);
+                this.path = path;
+            }
+
+            void clean() {
+                if (PENDING.remove(this)) {
+                    clear();
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
     }
 
     public interface HttpExecutor {
@@ -1899,12 +4382,452 @@ public class JCurl {
             handler.onComplete();
             return response;
         }
+
+        /**
+         * 读到响应头即返回，响应体保留为未读取的输入流，通过getBodyStream读取，关闭响应时释放连接。
+         * 默认实现先读完整个响应体
+         */
+        default JCurl.HttpResponseModel executeOpen(JCurl.HttpRequestModel requestModel)
+                throws IOException {
+            return execute(requestModel);
+        }
+
+        /** 把响应体直接写入文件：先写入同目录的临时文件，完成后重命名，失败时删除临时文件 */
+        default JCurl.HttpResponseModel executeToFile(
+                JCurl.HttpRequestModel requestModel, Path file) throws IOException {
+            if (requestModel.getConfig().isResume()) {
+                return new ResumableDownload(this, requestModel, file).execute();
+            }
+            FileDownload download =
+                    new FileDownload(file, requestModel.getConfig().getMaxDownloadSize());
+            try {
+                JCurl.HttpResponseModel response = executeStream(requestModel, download);
+                response.setBodyBytes(null);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                download.abort();
+                throw e;
+            }
+        }
+
+        /** 异步执行请求，默认在{@link JCurl#getAsyncExecutor()}线程池中调用{@link #execute} */
+        default CompletableFuture<JCurl.HttpResponseModel> executeAsync(
+                JCurl.HttpRequestModel requestModel) {
+            return JCurl.supplyAsync(() -> execute(requestModel));
+        }
+
+        /**
+         * 异步执行流式请求，默认在{@link JCurl#getAsyncExecutor()}线程池中调用
+         * {@link #executeStream}
+         */
+        default CompletableFuture<JCurl.HttpResponseModel> executeStreamAsync(
+                JCurl.HttpRequestModel requestModel, StreamHandler handler) {
+            return JCurl.supplyAsync(() -> executeStream(requestModel, handler));
+        }
     }
 
-    public static class HttpUrlConnectionExecutor implements JCurl.HttpExecutor {
+    /** 断点续传下载：重试时从已写入的位置继续，进度保存在检查点文件中以便进程重启后继续 */
+    static final class ResumableDownload implements BufferHandler {
+        /** 每写入这么多字节把数据刷到磁盘并更新检查点 */
+        private static final long CHECKPOINT_INTERVAL = 4 * 1024 * 1024;
+
+        private final HttpExecutor executor;
+        private final HttpRequestModel request;
+        private final Path target;
+        private final Path temp;
+        private final Path checkpoint;
+        private final long maxDownloadSize;
+        private FileChannel channel;
+        private long written;
+        private long checkpointed;
+        private long total = -1;
+        private String validator;
+        private boolean complete;
+        private boolean limitExceeded;
+
+        ResumableDownload(HttpExecutor executor, HttpRequestModel request, Path file) {
+            this.executor = executor;
+            this.request = request;
+            this.target = file.toAbsolutePath();
+            this.temp = target.resolveSibling(target.getFileName() + ".part");
+            this.checkpoint = target.resolveSibling(target.getFileName() + ".part.checkpoint");
+            this.maxDownloadSize = request.getConfig().getMaxDownloadSize();
+        }
+
+        HttpResponseModel execute() throws IOException {
+            channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                loadCheckpoint();
+                int maxRetries = request.getConfig().getMaxRetries();
+                IOException lastException = null;
+                for (int attempt = 0; attempt <= maxRetries; attempt++) {
+                    complete = false;
+                    try {
+                        HttpResponseModel response = executor.executeStream(nextRequest(), this);
+                        if (complete) {
+                            channel.close();
+                            FileDownload.commit(temp, target);
+                            Files.deleteIfExists(checkpoint);
+                            response.setBodyBytes(null);
+                            return response;
+                        }
+                    } catch (IOException e) {
+                        lastException = e;
+                        if (limitExceeded) {
+                            break;
+                        }
+                        saveCheckpoint();
+                        if (attempt < maxRetries) {
+                            try {
+                                Thread.sleep(request.getConfig().getRetryDelay());
+                            } catch (InterruptedException ie) {
+                                Thread.currentThread().interrupt();
+                                throw new IOException("request interrupt", ie);
+                            }
+                        }
+                    }
+                }
+                if (limitExceeded) {
+                    FileDownload.discard(channel, temp);
+                    Files.deleteIfExists(checkpoint);
+                } else {
+                    channel.close();
+                }
+                throw new IOException(
+                        "request failed，retry " + maxRetries + " times", lastException);
+            } catch (IOException | RuntimeException e) {
+                if (channel.isOpen()) {
+                    channel.close();
+                }
+                throw e;
+            }
+        }
 
-        private static final String CRLF = "\r\n";
-        private static final String BOUNDARY_PREFIX = "----JCurlFormBoundary";
+        /** 每次尝试都发送不带重试的请求，已有数据时带上Range和If-Range */
+        private HttpRequestModel nextRequest() {
+            JCurl builder = JCurl.fromModel(request);
+            HttpRequestModel.RequestConfig config = builder.request.getConfig();
+            config.setMaxRetries(0);
+            config.setResume(false);
+            config.setOutputFile(null);
+            config.setRemoteName(false);
+            // 续传按原始字节偏移计算，不能使用压缩编码
+            config.setCompressed(false);
+            builder.request.getHeaders().remove(Constants.ACCEPT_ENCODING);
+            if (written > 0) {
+                builder.setHeader("Range", "bytes=" + written + "-");
+                if (validator != null) {
+                    builder.setHeader("If-Range", validator);
+                }
+            }
+            return builder.request;
+        }
+
+        @Override
+        public void onStart(int statusCode, String statusMessage, Map<String, List<String>> headers)
+                throws IOException {
+            if (statusCode == 206) {
+                String contentRange = FileDownload.header(headers, "Content-Range");
+                long[] range = FileDownload.contentRange(contentRange);
+                if (range[0] != written || (range[2] >= 0 && range[1] >= range[2])) {
+                    throw new IOException("unexpected Content-Range: " + contentRange);
+                }
+                if (range[2] >= 0) {
+                    total = range[2];
+                }
+                return;
+            }
+            if (statusCode == 416 && written > 0) {
+                if (written == total) {
+                    // 上次已下载完整，只差重命名
+                    complete = true;
+                    return;
+                }
+                // 已有数据超出了服务器上的文件，丢弃后由下次重试从头下载
+                written = 0;
+                total = -1;
+                validator = null;
+                channel.truncate(0);
+                saveCheckpoint();
+                throw new IOException("range not satisfiable, status: " + statusCode);
+            }
+            if (statusCode != 200) {
+                // 错误响应的内容不是文件数据，保留已下载的数据和检查点，由重试继续
+                throw new IOException("unexpected response status: " + statusCode);
+            }
+            // 服务器返回完整内容（不支持Range或文件已变化），从头开始
+            written = 0;
+            checkpointed = 0;
+            channel.truncate(0);
+            total = FileDownload.contentLength(headers);
+            validator = FileDownload.header(headers, "ETag");
+            if (validator == null) {
+                validator = FileDownload.header(headers, "Last-Modified");
+            }
+        }
+
+        @Override
+        public void onChunk(byte[] chunk, int offset, int length) throws IOException {
+            if (complete) {
+                return;
+            }
+            if (maxDownloadSize > 0 && written + length > maxDownloadSize) {
+                limitExceeded = true;
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, offset, length);
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, written);
+            }
+            if (written - checkpointed >= CHECKPOINT_INTERVAL) {
+                saveCheckpoint();
+            }
+        }
+
+        @Override
+        public void onComplete() throws IOException {
+            if (complete) {
+                return;
+            }
+            if (total >= 0 && written != total) {
+                throw new IOException("response body incomplete: " + written + " of " + total);
+            }
+            channel.truncate(written);
+            complete = true;
+        }
+
+        /** 读取检查点，只有URL一致时才续传，已下载长度以检查点和临时文件中较小的为准 */
+        private void loadCheckpoint() throws IOException {
+            if (!Files.exists(checkpoint)) {
+                channel.truncate(0);
+                return;
+            }
+            Properties properties = new Properties();
+            try (InputStream is = Files.newInputStream(checkpoint)) {
+                properties.load(is);
+            }
+            if (!request.getUrl().equals(properties.getProperty("url"))) {
+                channel.truncate(0);
+                return;
+            }
+            try {
+                written =
+                        Math.min(Long.parseLong(properties.getProperty("written")), channel.size());
+                total = Long.parseLong(properties.getProperty("length", "-1"));
+            } catch (NumberFormatException e) {
+                written = 0;
+            }
+            validator = properties.getProperty("validator");
+            checkpointed = written;
+            channel.truncate(written);
+        }
+
+        /** 先把数据刷到磁盘再记录进度，保证检查点中的长度都已落盘 */
+        private void saveCheckpoint() throws IOException {
+            channel.force(false);
+            Properties properties = new Properties();
+            properties.setProperty("url", request.getUrl());
+            properties.setProperty("written", String.valueOf(written));
+            properties.setProperty("length", String.valueOf(total));
+            if (validator != null) {
+                properties.setProperty("validator", validator);
+            }
+            Path tempCheckpoint = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            try (OutputStream os = Files.newOutputStream(tempCheckpoint)) {
+                properties.store(os, null);
+            }
+            FileDownload.commit(tempCheckpoint, checkpoint);
+            checkpointed = written;
+        }
+    }
+
+    /** 基于HTTP Range的分段并发下载 */
+    static final class SegmentedDownload {
+        /** 每段最小字节数，文件较小时减少分段数 */
+        private static final long MIN_SEGMENT_SIZE = 256 * 1024;
+
+        private final HttpExecutor executor;
+        private final HttpRequestModel request;
+        private final Path target;
+        private final Path temp;
+        private final int segments;
+
+        SegmentedDownload(
+                HttpExecutor executor, HttpRequestModel request, Path file, int segments) {
+            if (segments < 1) {
+                throw new IllegalArgumentException("segments must be >= 1");
+            }
+            this.executor = executor;
+            this.request = request;
+            this.target = file.toAbsolutePath();
+            this.temp = target.resolveSibling(target.getFileName() + ".part");
+            this.segments = segments;
+        }
+
+        HttpResponseModel execute() throws IOException {
+            if (segments == 1 || !"GET".equals(request.getMethod())) {
+                return executor.executeToFile(request, target);
+            }
+            // 用HEAD探测长度和Range支持
+            HttpResponseModel probe = executor.execute(JCurl.fromModel(request).head().build());
+            long total = FileDownload.contentLength(probe.getHeaders());
+            String acceptRanges = probe.getHeader("Accept-Ranges");
+            if (probe.getStatusCode() != 200
+                    || total <= 0
+                    || acceptRanges == null
+                    || !acceptRanges.trim().equalsIgnoreCase("bytes")) {
+                return executor.executeToFile(request, target);
+            }
+            long maxDownloadSize = request.getConfig().getMaxDownloadSize();
+            if (maxDownloadSize > 0 && total > maxDownloadSize) {
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
+            int count = (int) Math.max(1, Math.min(segments, total / MIN_SEGMENT_SIZE));
+            if (count == 1) {
+                return executor.executeToFile(request, target);
+            }
+            // 文件在下载过程中被修改时，If-Range使服务器返回200而不是206，从而失败而
+            // 不是拼接出错误文件
+            String validator = probe.getHeader("ETag");
+            if (validator == null) {
+                validator = probe.getHeader("Last-Modified");
+            }
+
+            FileChannel channel =
+                    FileChannel.open(
+                            temp,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                channel.write(ByteBuffer.wrap(new byte[1]), total - 1);
+                long segmentSize = (total + count - 1) / count;
+                // 文件已预先分配到total，只能按各段实际写完的字节数确认完整
+                AtomicLong written = new AtomicLong();
+                List<CompletableFuture<HttpResponseModel>> futures = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    long start = i * segmentSize;
+                    long end = Math.min(total, start + segmentSize) - 1;
+                    futures.add(fetch(channel, start, end, total, validator, written));
+                }
+                try {
+                    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+                } catch (CompletionException e) {
+                    for (CompletableFuture<HttpResponseModel> future : futures) {
+                        future.cancel(true);
+                    }
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException("segmented download failed", cause);
+                }
+                if (written.get() != total) {
+                    throw new IOException(
+                            "downloaded size " + written.get() + " != content length " + total);
+                }
+                channel.close();
+                FileDownload.commit(temp, target);
+            } catch (IOException | RuntimeException e) {
+                FileDownload.discard(channel, temp);
+                throw e;
+            }
+            probe.setBodyBytes(null);
+            return probe;
+        }
+
+        /**
+         * 下载[start, end]区间，按偏移写入文件，重试时从区间起点重新写入；
+         * 响应的Content-Range必须正好是请求的区间，完成后把该段的字节数加到written
+         */
+        private CompletableFuture<HttpResponseModel> fetch(
+                FileChannel channel,
+                long start,
+                long end,
+                long total,
+                String validator,
+                AtomicLong written) {
+            JCurl builder = JCurl.fromModel(request);
+            // 按原始字节分段，不能使用压缩编码
+            builder.request.getConfig().setCompressed(false);
+            builder.request.getHeaders().remove(Constants.ACCEPT_ENCODING);
+            builder.setHeader("Range", "bytes=" + start + "-" + end);
+            if (validator != null) {
+                builder.setHeader("If-Range", validator);
+            }
+            long expected = end - start + 1;
+            StreamHandler handler =
+                    new BufferHandler() {
+                        private long position;
+
+                        @Override
+                        public void onStart(
+                                int statusCode,
+                                String statusMessage,
+                                Map<String, List<String>> headers)
+                                throws IOException {
+                            if (statusCode != 206) {
+                                throw new IOException(
+                                        "range request bytes="
+                                                + start
+                                                + "-"
+                                                + end
+                                                + " failed, status: "
+                                                + statusCode);
+                            }
+                            String contentRange = FileDownload.header(headers, "Content-Range");
+                            long[] range = FileDownload.contentRange(contentRange);
+                            if (range[0] != start
+                                    || range[1] != end
+                                    || (range[2] >= 0 && range[2] != total)) {
+                                throw new IOException(
+                                        "unexpected Content-Range: "
+                                                + contentRange
+                                                + ", requested bytes="
+                                                + start
+                                                + "-"
+                                                + end);
+                            }
+                            position = start;
+                        }
+
+                        @Override
+                        public void onChunk(byte[] chunk, int offset, int length)
+                                throws IOException {
+                            if (position + length > end + 1) {
+                                throw new IOException(
+                                        "range response exceeds " + expected + " bytes");
+                            }
+                            ByteBuffer buffer = ByteBuffer.wrap(chunk, offset, length);
+                            while (buffer.hasRemaining()) {
+                                position += channel.write(buffer, position);
+                            }
+                        }
+
+                        @Override
+                        public void onComplete() throws IOException {
+                            if (position != end + 1) {
+                                throw new IOException(
+                                        "range response incomplete: "
+                                                + (position - start)
+                                                + " of "
+                                                + expected
+                                                + " bytes");
+                            }
+                            written.addAndGet(expected);
+                        }
+                    };
+            return executor.executeStreamAsync(builder.build(), handler);
+        }
+    }
+
+    public static class HttpUrlConnectionExecutor implements JCurl.HttpExecutor {
 
         static {
             try {
@@ -1913,27 +4836,118 @@ public class JCurl {
                 System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
             } catch (Exception ignored) {
             }
-        }
-
-        private static final HttpUrlConnectionExecutor executor = new HttpUrlConnectionExecutor();
-
-        private HttpUrlConnectionExecutor() {}
+        }
+
+        private static final HttpUrlConnectionExecutor executor =
+                new HttpUrlConnectionExecutor(false);
+
+        private static final HttpUrlConnectionExecutor keepAliveExecutor =
+                new HttpUrlConnectionExecutor(true);
+
+        /**
+         * 按SSLSocketFactory（以及解析器或主机名）缓存的包装SSLSocketFactory，包括计数用的factory，
+         * 保证同一个底层factory的连接能命中JDK的keep-alive缓存
+         */
+        private static final Map<List<Object>, SSLSocketFactory> wrappedFactories =
+                new ConcurrentHashMap<>();
+
+        /** 标记当前线程的请求是否新建了TLS连接 */
+        private static final ThreadLocal<boolean[]> newConnectionFlag = new ThreadLocal<>();
+
+        /** 手动跟随重定向的最大次数，和HttpURLConnection一致 */
+        private static final int MAX_REDIRECTS = 20;
+
+        /** JDK keep-alive缓存中空闲连接的默认有效期（毫秒），服务器可以用Keep-Alive: timeout修改 */
+        private static final long IDLE_LIFETIME = 5000;
+
+        private final boolean keepAlive;
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong httpsRequestCount = new AtomicLong();
+        private final AtomicLong reusedConnectionCount = new AtomicLong();
+        // HTTP连接的目标 -> 归还到JDK缓存的空闲连接的失效时间，最近归还的在前
+        private final Map<String, Deque<Long>> idleConnections = new ConcurrentHashMap<>();
+
+        private HttpUrlConnectionExecutor(boolean keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+
+        public static HttpUrlConnectionExecutor create() {
+            return executor;
+        }
+
+        /** keep-alive模式：读完并关闭响应流，不调用disconnect()，socket回到JDK连接缓存复用 */
+        public static HttpUrlConnectionExecutor keepAlive() {
+            return keepAliveExecutor;
+        }
+
+        /** 设置每个host最多保留的空闲连接数（系统属性http.maxConnections，需在首次请求前调用） */
+        public static void setMaxIdlePerHost(int maxIdle) {
+            if (maxIdle <= 0) {
+                throw new IllegalArgumentException("maxIdle must be greater than 0");
+            }
+            System.setProperty("http.maxConnections", String.valueOf(maxIdle));
+        }
+
+        public boolean isKeepAlive() {
+            return keepAlive;
+        }
+
+        /** keep-alive模式下执行的请求数 */
+        public long getRequestCount() {
+            return requestCount.get();
+        }
+
+        /** keep-alive模式下执行的HTTPS请求数 */
+        public long getHttpsRequestCount() {
+            return httpsRequestCount.get();
+        }
+
+        /**
+         * keep-alive模式下复用已有连接的请求数。HTTPS按是否重新握手统计；JDK不公开HTTP
+         * 连接是否来自缓存，HTTP按JDK keep-alive缓存的规则（每个目标最多http.maxConnections
+         * 个空闲连接，空闲超时失效）估算
+         */
+        public long getReusedConnectionCount() {
+            return reusedConnectionCount.get();
+        }
+
+        @Override
+        public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel)
+                throws IOException {
+            int maxRetries = requestModel.getConfig().getMaxRetries();
+            int retryDelay = requestModel.getConfig().getRetryDelay();
+
+            IOException lastException = null;
+
+            for (int attempt = 0; attempt <= maxRetries; attempt++) {
+                try {
+                    return doExecute(requestModel);
+                } catch (IOException e) {
+                    lastException = e;
+                    if (attempt < maxRetries) {
+                        try {
+                            Thread.sleep(retryDelay);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("request interrupt", ie);
+                        }
+                    }
+                }
+            }
 
-        public static HttpUrlConnectionExecutor create() {
-            return executor;
+            throw lastException;
         }
 
         @Override
-        public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel)
-                throws IOException {
+        public JCurl.HttpResponseModel executeStream(
+                JCurl.HttpRequestModel requestModel, StreamHandler handler) throws IOException {
             int maxRetries = requestModel.getConfig().getMaxRetries();
             int retryDelay = requestModel.getConfig().getRetryDelay();
-
             IOException lastException = null;
 
             for (int attempt = 0; attempt <= maxRetries; attempt++) {
                 try {
-                    return doExecute(requestModel);
+                    return doExecuteStream(requestModel, handler);
                 } catch (IOException e) {
                     lastException = e;
                     if (attempt < maxRetries) {
@@ -1950,16 +4964,38 @@ public class JCurl {
             throw lastException;
         }
 
-        @Override
-        public JCurl.HttpResponseModel executeStream(
+        private JCurl.HttpResponseModel doExecuteStream(
                 JCurl.HttpRequestModel requestModel, StreamHandler handler) throws IOException {
+            HttpURLConnection connection = null;
+            boolean reusable = false;
+            beginTracking();
+            try {
+                connection = connect(requestModel);
+                JCurl.HttpResponseModel response =
+                        getResponseStream(connection, requestModel, handler);
+                reusable = keepAlive;
+                return response;
+            } finally {
+                endTracking(connection);
+                if (connection != null && !reusable) {
+                    connection.disconnect();
+                } else if (reusable) {
+                    releaseIdle(connection);
+                }
+            }
+        }
+
+        /** 只在发送请求、读取响应头阶段重试，响应体读取失败时由调用方处理 */
+        @Override
+        public JCurl.HttpResponseModel executeOpen(JCurl.HttpRequestModel requestModel)
+                throws IOException {
             int maxRetries = requestModel.getConfig().getMaxRetries();
             int retryDelay = requestModel.getConfig().getRetryDelay();
             IOException lastException = null;
 
             for (int attempt = 0; attempt <= maxRetries; attempt++) {
                 try {
-                    return doExecuteStream(requestModel, handler);
+                    return doExecuteOpen(requestModel);
                 } catch (IOException e) {
                     lastException = e;
                     if (attempt < maxRetries) {
@@ -1976,17 +5012,57 @@ public class JCurl {
             throw lastException;
         }
 
-        private JCurl.HttpResponseModel doExecuteStream(
-                JCurl.HttpRequestModel requestModel, StreamHandler handler) throws IOException {
+        private JCurl.HttpResponseModel doExecuteOpen(JCurl.HttpRequestModel requestModel)
+                throws IOException {
             HttpURLConnection connection = null;
+            boolean open = false;
+            beginTracking();
             try {
-                connection = createConnection(requestModel);
-                configureConnection(connection, requestModel);
-                setHeaders(connection, requestModel);
-                sendRequestBody(connection, requestModel);
-                return getResponseStream(connection, requestModel, handler);
+                connection = connect(requestModel);
+
+                JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+                response.setStatusCode(connection.getResponseCode());
+                response.setStatusMessage(connection.getResponseMessage());
+                Map<String, List<String>> headerFields = connection.getHeaderFields();
+                for (Map.Entry<String, List<String>> entry : headerFields.entrySet()) {
+                    if (entry.getKey() != null
+                            && entry.getValue() != null
+                            && !entry.getValue().isEmpty()) {
+                        for (String value : entry.getValue()) {
+                            response.addHeader(entry.getKey(), value);
+                        }
+                    }
+                }
+
+                InputStream rawStream =
+                        response.getStatusCode() >= 400
+                                ? connection.getErrorStream()
+                                : connection.getInputStream();
+                if (rawStream == null) {
+                    response.setBodyBytes(new byte[0]);
+                    open = keepAlive;
+                    releaseIdle(connection);
+                    return response;
+                }
+                // keep-alive模式下关闭响应流，连接回到JDK连接缓存；否则断开连接
+                HttpURLConnection current = connection;
+                response.setBodyStream(
+                        new BodyStream(
+                                rawStream,
+                                connection.getContentEncoding(),
+                                requestModel.getConfig().getMaxDownloadSize(),
+                                () -> {
+                                    if (!keepAlive) {
+                                        current.disconnect();
+                                    } else {
+                                        releaseIdle(current);
+                                    }
+                                }));
+                open = true;
+                return response;
             } finally {
-                if (connection != null) {
+                endTracking(connection);
+                if (connection != null && !open) {
                     connection.disconnect();
                 }
             }
@@ -2015,19 +5091,21 @@ public class JCurl {
             handler.onStart(
                     response.getStatusCode(), response.getStatusMessage(), response.getHeaders());
 
+            InputStream rawStream = null;
             InputStream inputStream = null;
             try {
-                inputStream =
+                rawStream =
                         response.getStatusCode() >= 400
                                 ? connection.getErrorStream()
                                 : connection.getInputStream();
+                inputStream = rawStream;
                 if (inputStream != null) {
-                    String contentEncoding = connection.getContentEncoding();
-                    if (Constants.GZIP_VALUE.equalsIgnoreCase(contentEncoding)) {
-                        inputStream = new GZIPInputStream(inputStream);
+                    inputStream =
+                            ContentDecoders.decode(inputStream, connection.getContentEncoding());
+                    streamToHandler(inputStream, requestModel.getConfig(), handler);
+                    if (keepAlive) {
+                        drain(rawStream);
                     }
-                    streamToHandler(
-                            inputStream, requestModel.getConfig().getMaxDownloadSize(), handler);
                 }
             } finally {
                 if (inputStream != null) {
@@ -2043,42 +5121,237 @@ public class JCurl {
         }
 
         private void streamToHandler(
-                InputStream inputStream, long maxDownloadSize, StreamHandler handler)
+                InputStream inputStream,
+                JCurl.HttpRequestModel.RequestConfig config,
+                StreamHandler handler)
                 throws IOException {
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            long totalBytesRead = 0;
-
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                totalBytesRead += bytesRead;
-                if (maxDownloadSize > 0 && totalBytesRead > maxDownloadSize) {
-                    throw new IOException(
-                            "response body size more than max-download-size limit: "
-                                    + maxDownloadSize
-                                    + " bytes");
+            long maxDownloadSize = config.getMaxDownloadSize();
+            byte[] buffer = BufferPool.shared().acquire(config.getBufferSize());
+            try {
+                int bytesRead;
+                long totalBytesRead = 0;
+                while ((bytesRead = inputStream.read(buffer, 0, config.getBufferSize())) != -1) {
+                    totalBytesRead += bytesRead;
+                    if (maxDownloadSize > 0 && totalBytesRead > maxDownloadSize) {
+                        throw new IOException(
+                                "response body size more than max-download-size limit: "
+                                        + maxDownloadSize
+                                        + " bytes");
+                    }
+                    handler.onChunk(buffer, 0, bytesRead);
                 }
-                byte[] chunk = new byte[bytesRead];
-                System.arraycopy(buffer, 0, chunk, 0, bytesRead);
-                handler.onChunk(chunk);
+            } finally {
+                BufferPool.shared().release(buffer);
             }
         }
 
         private JCurl.HttpResponseModel doExecute(JCurl.HttpRequestModel requestModel)
                 throws IOException {
             HttpURLConnection connection = null;
-
+            boolean reusable = false;
+            beginTracking();
             try {
-                connection = createConnection(requestModel);
-                configureConnection(connection, requestModel);
-                setHeaders(connection, requestModel);
-                sendRequestBody(connection, requestModel);
-                return getResponse(connection, requestModel);
+                connection = connect(requestModel);
+                JCurl.HttpResponseModel response = getResponse(connection, requestModel);
+                reusable = keepAlive;
+                return response;
 
             } finally {
-                if (connection != null) {
+                endTracking(connection);
+                if (connection != null && !reusable) {
                     connection.disconnect();
+                } else if (reusable) {
+                    releaseIdle(connection);
+                }
+            }
+        }
+
+        /**
+         * 发送请求并读取响应头，返回最终响应的连接
+         *
+         * <p>按解析器或映射替换了地址的HTTP连接设置了Host请求头，HttpURLConnection
+         * 自动重定向时会把它带到其他主机；流式发送的请求体HttpURLConnection无法重发。
+         * 这两种情况关闭自动重定向，在这里按新的URL重新解析和连接，并从请求体来源重新发送。
+         */
+        private HttpURLConnection connect(JCurl.HttpRequestModel requestModel) throws IOException {
+            JCurl.HttpRequestModel current = requestModel;
+            for (int redirects = 0; ; redirects++) {
+                HttpURLConnection connection = createConnection(current);
+                boolean done = false;
+                try {
+                    boolean follow =
+                            current.getConfig().isFollowRedirects()
+                                    && manualRedirects(connection, current);
+                    configureConnection(connection, current);
+                    setHeaders(connection, current);
+                    sendRequestBody(connection, current);
+                    URL location = follow ? redirectLocation(connection, current) : null;
+                    if (location == null) {
+                        done = true;
+                        return connection;
+                    }
+                    if (redirects >= MAX_REDIRECTS) {
+                        throw new ProtocolException(
+                                "Server redirected too many times (" + MAX_REDIRECTS + ")");
+                    }
+                    int statusCode = connection.getResponseCode();
+                    // 丢弃重定向响应的响应体，keep-alive模式下连接回到缓存
+                    if (keepAlive) {
+                        InputStream in = connection.getInputStream();
+                        drain(in);
+                        in.close();
+                        releaseIdle(connection);
+                        done = true;
+                    }
+                    current = redirectRequest(current, location, statusCode);
+                } finally {
+                    if (!done) {
+                        connection.disconnect();
+                    }
+                }
+            }
+        }
+
+        /** 是否由{@link #connect}手动跟随重定向：设置了Host请求头，或请求体需要流式发送 */
+        private static boolean manualRedirects(
+                HttpURLConnection connection, JCurl.HttpRequestModel requestModel) {
+            return connection.getRequestProperty("Host") != null
+                    || requestModel.getBodySource() != null
+                    || (requestModel.getFormFields() != null
+                            && !requestModel.getFormFields().isEmpty());
+        }
+
+        /** 需要跟随的重定向目标，不是重定向或不能跟随时返回null */
+        private static URL redirectLocation(
+                HttpURLConnection connection, JCurl.HttpRequestModel requestModel)
+                throws IOException {
+            int statusCode = connection.getResponseCode();
+            String location = connection.getHeaderField("Location");
+            if (location == null
+                    || (statusCode != 301
+                            && statusCode != 302
+                            && statusCode != 303
+                            && statusCode != 307
+                            && statusCode != 308)) {
+                return null;
+            }
+            URL target = new URL(new URL(requestModel.getFullUrl()), location);
+            String protocol = target.getProtocol();
+            return "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol)
+                    ? target
+                    : null;
+        }
+
+        /**
+         * 303以及GET、HEAD之外方法的301、302改为不带请求体的GET，其余重定向按原方法和请求体重新发送
+         */
+        private static JCurl.HttpRequestModel redirectRequest(
+                JCurl.HttpRequestModel requestModel, URL location, int statusCode) {
+            JCurl.HttpRequestModel next = JCurl.fromModel(requestModel).peek();
+            next.setUrl(location.toString());
+            next.setQueryParams(new LinkedHashMap<>());
+            String method = requestModel.getMethod();
+            if (statusCode == 303
+                    || ((statusCode == 301 || statusCode == 302)
+                            && !"GET".equals(method)
+                            && !"HEAD".equals(method))) {
+                next.setMethod("GET");
+                next.setBody(null);
+                next.setBinaryBody(null);
+                next.setBodySource(null);
+                next.setFormFields(null);
+            }
+            return next;
+        }
+
+        private void beginTracking() {
+            if (keepAlive) {
+                newConnectionFlag.set(new boolean[1]);
+            }
+        }
+
+        private void endTracking(HttpURLConnection connection) {
+            if (!keepAlive) {
+                return;
+            }
+            boolean[] flag = newConnectionFlag.get();
+            newConnectionFlag.remove();
+            if (connection == null) {
+                return;
+            }
+            requestCount.incrementAndGet();
+            if (connection instanceof HttpsURLConnection) {
+                httpsRequestCount.incrementAndGet();
+                if (flag != null && !flag[0]) {
+                    reusedConnectionCount.incrementAndGet();
+                }
+            } else if (takeIdle(connection)) {
+                reusedConnectionCount.incrementAndGet();
+            }
+        }
+
+        /** 取出一个仍然有效的空闲HTTP连接；和JDK一样只看最近归还的一个，它失效时其他的也已失效 */
+        private boolean takeIdle(HttpURLConnection connection) {
+            Deque<Long> idle = idleConnections.get(idleKey(connection));
+            if (idle == null) {
+                return false;
+            }
+            synchronized (idle) {
+                Long expiresAt = idle.pollFirst();
+                if (expiresAt != null && expiresAt > System.currentTimeMillis()) {
+                    return true;
+                }
+                idle.clear();
+                return false;
+            }
+        }
+
+        /** 读完响应后HTTP连接回到JDK的keep-alive缓存，记录下来用于估算复用 */
+        private void releaseIdle(HttpURLConnection connection) {
+            if (!keepAlive || connection instanceof HttpsURLConnection) {
+                return;
+            }
+            if ("close".equalsIgnoreCase(connection.getHeaderField("Connection"))) {
+                return;
+            }
+            // 访问大量主机时避免无限增长
+            if (idleConnections.size() >= 256) {
+                idleConnections.clear();
+            }
+            long expiresAt =
+                    System.currentTimeMillis()
+                            + keepAliveTimeout(connection.getHeaderField("Keep-Alive"));
+            Deque<Long> idle =
+                    idleConnections.computeIfAbsent(idleKey(connection), k -> new ArrayDeque<>());
+            int maxIdle = Integer.getInteger("http.maxConnections", 5);
+            synchronized (idle) {
+                idle.addFirst(expiresAt);
+                while (idle.size() > Math.max(1, maxIdle)) {
+                    idle.pollLast();
+                }
+            }
+        }
+
+        private static String idleKey(HttpURLConnection connection) {
+            URL url = connection.getURL();
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            return url.getHost() + ":" + port + (connection.usingProxy() ? ":proxy" : "");
+        }
+
+        /** Keep-Alive响应头中的timeout（秒），没有时使用JDK的默认值 */
+        private static long keepAliveTimeout(String keepAlive) {
+            if (keepAlive != null) {
+                for (String part : keepAlive.split(",")) {
+                    String[] pair = part.trim().split("=", 2);
+                    if (pair.length == 2 && "timeout".equalsIgnoreCase(pair[0].trim())) {
+                        try {
+                            return Math.max(0, Long.parseLong(pair[1].trim())) * 1000;
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
                 }
             }
+            return IDLE_LIFETIME;
         }
 
         private HttpURLConnection createConnection(JCurl.HttpRequestModel requestModel)
@@ -2092,7 +5365,7 @@ public class JCurl {
             if (proxy != null) {
                 connection = (HttpURLConnection) url.openConnection(proxy);
             } else {
-                connection = (HttpURLConnection) url.openConnection();
+                connection = openResolved(url, config);
             }
 
             // 配置 SSL
@@ -2103,11 +5376,133 @@ public class JCurl {
                         || config.getCertBytes() != null) {
                     configureSSL(httpsConnection, config);
                 }
+                if (keepAlive) {
+                    SSLSocketFactory factory = httpsConnection.getSSLSocketFactory();
+                    if (!(factory instanceof CountingSSLSocketFactory)) {
+                        httpsConnection.setSSLSocketFactory(
+                                wrappedFactory(
+                                        Collections.singletonList(factory),
+                                        () -> new CountingSSLSocketFactory(factory)));
+                    }
+                }
+                if (proxy == null && customResolution(config)) {
+                    SSLSocketFactory factory = httpsConnection.getSSLSocketFactory();
+                    // 已经替换为地址的连接只需要恢复SNI和证书校验的主机名，否则连接时再解析
+                    httpsConnection.setSSLSocketFactory(
+                            connection.getRequestProperty("Host") != null
+                                    ? serverNameFactory(factory, url.getHost())
+                                    : resolvingFactory(
+                                            factory,
+                                            config.effectiveDnsResolver(),
+                                            config.hostMapping()));
+                }
             }
 
             return connection;
         }
 
+        /** 是否指定了解析器或主机映射，没有时HttpURLConnection按原来的方式交给JVM解析 */
+        private static boolean customResolution(JCurl.HttpRequestModel.RequestConfig config) {
+            DnsResolver resolver = config.getDnsResolver();
+            return config.hostMapping() != null
+                    || (resolver != null && resolver != DnsResolver.SYSTEM);
+        }
+
+        /**
+         * 直接连接解析出的地址并设置Host请求头，JVM不会再解析域名；HTTPS由
+         * {@link #serverNameFactory}恢复SNI和证书校验使用的主机名。系统代理生效或Host
+         * 请求头被禁止时不替换，HTTP交给JVM解析，HTTPS通过{@link ResolvingSSLSocketFactory}
+         * 在连接时解析。没有指定解析器和主机映射时不替换，和原来一样交给JVM解析
+         *
+         * <p>设置了Host请求头的连接关闭自动重定向，由connect手动跟随
+         */
+        private static HttpURLConnection openResolved(
+                URL url, JCurl.HttpRequestModel.RequestConfig config) throws IOException {
+            String host = url.getHost();
+            int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            HostMapping mapping = config.hostMapping();
+            boolean mapped = mapping != null && !host.isEmpty() && mapping.applies(host, port);
+            String protocol = url.getProtocol();
+            if (!customResolution(config)
+                    || !("http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol))
+                    || host.isEmpty()
+                    || (CachingDnsResolver.isLiteral(host) && !mapped)
+                    || !isDirect(url)) {
+                return (HttpURLConnection) url.openConnection();
+            }
+            InetAddress address;
+            int connectPort = url.getPort();
+            if (mapped) {
+                InetSocketAddress target =
+                        mapping.connectAddress(host, port, config.effectiveDnsResolver());
+                address = target.getAddress();
+                connectPort = target.getPort();
+            } else {
+                address = config.effectiveDnsResolver().resolve(host).get(0);
+            }
+            URL resolved =
+                    new URL(
+                            url.getProtocol(),
+                            address.getHostAddress(),
+                            connectPort,
+                            url.getFile());
+            HttpURLConnection connection = (HttpURLConnection) resolved.openConnection();
+            String hostHeader = url.getPort() != -1 ? host + ":" + url.getPort() : host;
+            connection.setRequestProperty("Host", hostHeader);
+            if (!hostHeader.equals(connection.getRequestProperty("Host"))) {
+                return (HttpURLConnection) url.openConnection();
+            }
+            return connection;
+        }
+
+        private static boolean isDirect(URL url) {
+            ProxySelector selector = ProxySelector.getDefault();
+            if (selector == null) {
+                return true;
+            }
+            try {
+                for (Proxy proxy : selector.select(url.toURI())) {
+                    if (proxy.type() != Proxy.Type.DIRECT) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /** 同一个factory、解析器和主机映射使用同一个包装实例，保证能命中JDK的keep-alive缓存 */
+        private static SSLSocketFactory resolvingFactory(
+                SSLSocketFactory factory, DnsResolver resolver, HostMapping mapping) {
+            return wrappedFactory(
+                    Arrays.asList(factory, resolver, mapping),
+                    () -> new ResolvingSSLSocketFactory(factory, resolver, mapping));
+        }
+
+        /**
+         * 同一个factory和主机名使用同一个包装实例。JDK按URL中的地址和factory缓存keep-alive连接，
+         * 按主机名区分factory，同一地址上的不同主机不会复用彼此的TLS连接
+         */
+        private static SSLSocketFactory serverNameFactory(SSLSocketFactory factory, String host) {
+            return wrappedFactory(
+                    Arrays.asList(factory, host),
+                    () -> new ServerNameSSLSocketFactory(factory, host));
+        }
+
+        private static SSLSocketFactory wrappedFactory(
+                List<Object> key, Supplier<SSLSocketFactory> creator) {
+            SSLSocketFactory existing = wrappedFactories.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            // 每个请求都创建新的解析器或访问大量主机时避免无限增长
+            if (wrappedFactories.size() >= 256) {
+                wrappedFactories.clear();
+            }
+            return wrappedFactories.computeIfAbsent(key, k -> creator.get());
+        }
+
         private Proxy createProxy(JCurl.HttpRequestModel.RequestConfig config) {
             if (config.getProxy() != null) {
                 return config.getProxy();
@@ -2135,13 +5530,15 @@ public class JCurl {
             connection.setConnectTimeout(config.getConnectTimeout());
             connection.setReadTimeout(config.getReadTimeout());
 
-            // 设置重定向
-            connection.setInstanceFollowRedirects(config.isFollowRedirects());
+            // 设置重定向，替换了地址的HTTP连接和流式请求体不能自动跟随，由connect手动跟随
+            connection.setInstanceFollowRedirects(
+                    config.isFollowRedirects() && !manualRedirects(connection, requestModel));
 
             // 如果有请求体，需要设置 doOutput
             boolean hasBody =
                     requestModel.getBody() != null
                             || requestModel.getBinaryBody() != null
+                            || requestModel.getBodySource() != null
                             || requestModel.getFormFields() != null;
             connection.setDoOutput(hasBody);
             connection.setDoInput(true);
@@ -2201,125 +5598,58 @@ public class JCurl {
                 HttpURLConnection connection, JCurl.HttpRequestModel requestModel)
                 throws IOException {
 
-            // 处理表单数据
+            // 处理表单数据：预先计算长度，文件内容边读边发
             if (requestModel.getFormFields() != null && !requestModel.getFormFields().isEmpty()) {
-                sendMultipartFormData(connection, requestModel);
-                return;
-            }
-
-            // 处理二进制数据
-            if (requestModel.getBinaryBody() != null) {
+                MultipartForm form = new MultipartForm(requestModel.getAllFormFields());
+                connection.setRequestProperty(Constants.CONTENT_TYPE, form.getContentType());
+                setStreamingMode(connection, form.getContentLength());
                 try (OutputStream os = connection.getOutputStream()) {
-                    os.write(requestModel.getBinaryBody());
-                    os.flush();
+                    form.writeTo(os);
                 }
                 return;
             }
 
-            // 处理普通文本数据
-            if (requestModel.getBody() != null) {
+            // 处理文件、流形式的请求体：直接从来源读取并发送
+            if (requestModel.getBodySource() != null) {
+                HttpRequestModel.BodySource source = requestModel.getBodySource();
+                setStreamingMode(connection, source.getLength());
                 try (OutputStream os = connection.getOutputStream()) {
-                    os.write(requestModel.getBody().getBytes(StandardCharsets.UTF_8));
-                    os.flush();
+                    source.writeTo(os);
                 }
                 return;
             }
-        }
-
-        private void sendMultipartFormData(
-                HttpURLConnection connection, JCurl.HttpRequestModel requestModel)
-                throws IOException {
-            String boundary = BOUNDARY_PREFIX + System.currentTimeMillis();
-            connection.setRequestProperty(
-                    Constants.CONTENT_TYPE,
-                    Constants.MULTIPART_FORM_DATA_VALUE + "; boundary=" + boundary);
-
-            try (OutputStream os = connection.getOutputStream();
-                    PrintWriter writer =
-                            new PrintWriter(
-                                    new OutputStreamWriter(os, StandardCharsets.UTF_8), true)) {
-
-                for (Map.Entry<String, JCurl.HttpRequestModel.FormField> entry :
-                        requestModel.getAllFormFields()) {
-                    String fieldName = entry.getKey();
-                    JCurl.HttpRequestModel.FormField field = entry.getValue();
-
-                    if (field.isFile()) {
-                        writeFilePart(writer, os, boundary, fieldName, field);
-                    } else {
-                        writeTextPart(writer, boundary, fieldName, field.getValue());
-                    }
-                }
 
-                // 结束边界
-                writer.append("--").append(boundary).append("--").append(CRLF);
-                writer.flush();
+            byte[] body;
+            if (requestModel.getBinaryBody() != null) {
+                // 处理二进制数据
+                body = requestModel.getBinaryBody();
+            } else if (requestModel.getBody() != null) {
+                // 处理普通文本数据
+                body = requestModel.getBody().getBytes(StandardCharsets.UTF_8);
+            } else {
+                return;
             }
-        }
-
-        private void writeTextPart(
-                PrintWriter writer, String boundary, String fieldName, String value) {
-            writer.append("--").append(boundary).append(CRLF);
-            writer.append(Constants.CONTENT_DISPOSITION)
-                    .append(Constants.COLON_SPACE)
-                    .append(Constants.FORM_DATA_VALUE)
-                    .append("; name=\"")
-                    .append(fieldName)
-                    .append("\"")
-                    .append(CRLF);
-            writer.append(CRLF);
-            writer.append(value).append(CRLF);
-            writer.flush();
-        }
-
-        private void writeFilePart(
-                PrintWriter writer,
-                OutputStream os,
-                String boundary,
-                String fieldName,
-                JCurl.HttpRequestModel.FormField field)
-                throws IOException {
-            writer.append("--").append(boundary).append(CRLF);
-            writer.append(Constants.CONTENT_DISPOSITION)
-                    .append(Constants.COLON_SPACE)
-                    .append(Constants.FORM_DATA_VALUE)
-                    .append("; name=\"")
-                    .append(fieldName)
-                    .append("\"; filename=\"")
-                    .append(field.getFileName())
-                    .append("\"")
-                    .append(CRLF);
-
-            String contentType = field.getContentType();
-            if (contentType == null || contentType.isEmpty()) {
-                contentType = URLConnection.guessContentTypeFromName(field.getFileName());
-                if (contentType == null) {
-                    contentType = Constants.APPLICATION_OCTET_STREAM_VALUE;
-                }
-            }
-            writer.append(Constants.CONTENT_TYPE)
-                    .append(Constants.COLON_SPACE)
-                    .append(contentType)
-                    .append(CRLF);
-            writer.append(Constants.CONTENT_TRANSFER_ENCODING)
-                    .append(Constants.COLON_SPACE)
-                    .append(Constants.BINARY_VALUE)
-                    .append(CRLF);
-            writer.append(CRLF);
-            writer.flush();
-
-            // 写入文件内容
-            try (InputStream inputStream = Files.newInputStream(Paths.get(field.getFilePath()))) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    os.write(buffer, 0, bytesRead);
-                }
+            // 跟随重定向时HttpURLConnection需要缓存请求体以便重发，否则直接按固定长度发送
+            if (!connection.getInstanceFollowRedirects()) {
+                connection.setFixedLengthStreamingMode(body.length);
+            }
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(body);
                 os.flush();
             }
+        }
 
-            os.write(CRLF.getBytes(StandardCharsets.UTF_8));
-            os.flush();
+        /**
+         * 流式发送请求体，避免HttpURLConnection把整个请求体缓存在内存中
+         *
+         * <p>流式模式下HttpURLConnection无法重发请求体，-L时的重定向由{@link #connect}手动跟随。
+         */
+        private static void setStreamingMode(HttpURLConnection connection, long contentLength) {
+            if (contentLength >= 0) {
+                connection.setFixedLengthStreamingMode(contentLength);
+            } else {
+                connection.setChunkedStreamingMode(0);
+            }
         }
 
         private JCurl.HttpResponseModel getResponse(
@@ -2345,28 +5675,55 @@ public class JCurl {
             }
 
             // 读取响应体
+            InputStream rawStream = null;
             InputStream inputStream = null;
+            BodyBuffer body = null;
             try {
                 if (response.getStatusCode() >= 400) {
-                    inputStream = connection.getErrorStream();
+                    rawStream = connection.getErrorStream();
                 } else {
-                    inputStream = connection.getInputStream();
+                    rawStream = connection.getInputStream();
                 }
+                inputStream = rawStream;
                 if (inputStream != null) {
                     // 处理压缩
-                    String contentEncoding = connection.getContentEncoding();
-                    if (Constants.GZIP_VALUE.equalsIgnoreCase(contentEncoding)) {
-                        inputStream = new GZIPInputStream(inputStream);
+                    inputStream =
+                            ContentDecoders.decode(inputStream, connection.getContentEncoding());
+                    // 读取响应体（考虑最大下载大小限制），未压缩时按Content-Length一次分配
+                    JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+                    body = new BodyBuffer(config.getMaxDownloadSize(), config.getSpillThreshold());
+                    long contentLength = -1;
+                    int statusCode = response.getStatusCode();
+                    if (inputStream == rawStream
+                            && !"HEAD".equals(connection.getRequestMethod())
+                            && statusCode != 204
+                            && statusCode != 304) {
+                        contentLength = connection.getContentLengthLong();
+                        body.expect(contentLength);
+                    }
+                    body.readFrom(inputStream);
+                    // HttpURLConnection在连接提前关闭时只返回流结束，需要自己检查是否读满
+                    // Content-Length
+                    if (contentLength >= 0 && body.size() < contentLength) {
+                        throw new IOException(
+                                "premature end of response body: expected "
+                                        + contentLength
+                                        + " bytes, received "
+                                        + body.size());
+                    }
+                    body.applyTo(response);
+                    // keep-alive模式下读完底层流，连接才会被放回缓存
+                    if (keepAlive) {
+                        drain(rawStream);
                     }
-                    // 读取响应体（考虑最大下载大小限制）
-                    byte[] bodyBytes =
-                            readInputStream(
-                                    inputStream, requestModel.getConfig().getMaxDownloadSize());
-                    response.setBodyBytes(bodyBytes);
                 }
             } catch (IOException e) {
-                // 如果读取响应体失败，不抛出异常，只是没有响应体
-                response.setBodyBytes(new byte[0]);
+                // 响应体读取失败或被截断时抛出异常，交给重试处理；连接状态未知，不能复用
+                if (body != null) {
+                    body.discard();
+                }
+                connection.disconnect();
+                throw e;
             } finally {
                 if (inputStream != null) {
                     try {
@@ -2379,113 +5736,247 @@ public class JCurl {
             return response;
         }
 
-        private byte[] readInputStream(InputStream inputStream, long maxDownloadSize)
-                throws IOException {
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            byte[] data = new byte[8192];
-            int bytesRead;
-            long totalBytesRead = 0;
-
-            while ((bytesRead = inputStream.read(data)) != -1) {
-                totalBytesRead += bytesRead;
-
-                // 检查最大下载大小限制
-                if (maxDownloadSize > 0 && totalBytesRead > maxDownloadSize) {
-                    throw new IOException(
-                            "response body size more than max-download-size limit:  "
-                                    + maxDownloadSize
-                                    + " bytes");
+        /** 读完流中剩余的数据（如gzip尾部之后的字节），使连接可以被复用 */
+        private static void drain(InputStream inputStream) throws IOException {
+            byte[] buffer = BufferPool.shared().acquire(BufferPool.MIN_SIZE);
+            try {
+                while (inputStream.read(buffer) != -1) {
+                    // discard
                 }
-
-                buffer.write(data, 0, bytesRead);
+            } finally {
+                BufferPool.shared().release(buffer);
             }
-
-            return buffer.toByteArray();
         }
 
         private void configureSSL(
                 HttpsURLConnection connection, JCurl.HttpRequestModel.RequestConfig config) {
             try {
-                TrustManager[] trustManagers = null;
-                KeyManager[] keyManagers = null;
+                SslContextCache.SslEntry entry = SslContextCache.get(config);
+                connection.setSSLSocketFactory(entry.getSocketFactory());
 
-                // 配置信任管理器（如果不验证SSL）
+                // 如果不验证SSL，设置主机名验证器
                 if (!config.isVerifySSL()) {
-                    trustManagers =
-                            new TrustManager[] {
-                                new X509TrustManager() {
-                                    @Override
-                                    public X509Certificate[] getAcceptedIssuers() {
-                                        return null;
-                                    }
+                    connection.setHostnameVerifier(SslContextCache.INSECURE_HOSTNAME_VERIFIER);
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("config SSL failed.", e);
+            }
+        }
 
-                                    @Override
-                                    public void checkClientTrusted(
-                                            X509Certificate[] certs, String authType) {}
+        /** 包装SSLSocketFactory，记录当前请求是否新建了socket（即发生了TLS握手） */
+        private static class CountingSSLSocketFactory extends SSLSocketFactory {
+            private final SSLSocketFactory delegate;
 
-                                    @Override
-                                    public void checkServerTrusted(
-                                            X509Certificate[] certs, String authType) {}
-                                }
-                            };
-                }
+            CountingSSLSocketFactory(SSLSocketFactory delegate) {
+                this.delegate = delegate;
+            }
 
-                // 配置客户端证书
-                if (config.getCertPath() != null || config.getCertBytes() != null) {
-                    keyManagers = loadClientCertificate(config);
+            private static <T extends Socket> T mark(T socket) {
+                boolean[] flag = newConnectionFlag.get();
+                if (flag != null) {
+                    flag[0] = true;
                 }
+                return socket;
+            }
 
-                // 初始化SSL上下文
-                SSLContext sslContext = SSLContext.getInstance("TLS");
-                sslContext.init(keyManagers, trustManagers, new java.security.SecureRandom());
+            @Override
+            public String[] getDefaultCipherSuites() {
+                return delegate.getDefaultCipherSuites();
+            }
 
-                connection.setSSLSocketFactory(sslContext.getSocketFactory());
+            @Override
+            public String[] getSupportedCipherSuites() {
+                return delegate.getSupportedCipherSuites();
+            }
 
-                // 如果不验证SSL，设置主机名验证器
-                if (!config.isVerifySSL()) {
-                    connection.setHostnameVerifier(
-                            new HostnameVerifier() {
-                                @Override
-                                public boolean verify(String hostname, SSLSession session) {
-                                    return true;
-                                }
-                            });
-                }
-            } catch (Exception e) {
-                throw new RuntimeException("config SSL failed.", e);
+            @Override
+            public Socket createSocket() throws IOException {
+                return mark(delegate.createSocket());
+            }
+
+            @Override
+            public Socket createSocket(Socket s, String host, int port, boolean autoClose)
+                    throws IOException {
+                return mark(delegate.createSocket(s, host, port, autoClose));
+            }
+
+            @Override
+            public Socket createSocket(String host, int port) throws IOException {
+                return mark(delegate.createSocket(host, port));
+            }
+
+            @Override
+            public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+                    throws IOException {
+                return mark(delegate.createSocket(host, port, localHost, localPort));
+            }
+
+            @Override
+            public Socket createSocket(InetAddress host, int port) throws IOException {
+                return mark(delegate.createSocket(host, port));
+            }
+
+            @Override
+            public Socket createSocket(
+                    InetAddress address, int port, InetAddress localAddress, int localPort)
+                    throws IOException {
+                return mark(delegate.createSocket(address, port, localAddress, localPort));
             }
         }
 
-        private KeyManager[] loadClientCertificate(JCurl.HttpRequestModel.RequestConfig config)
-                throws Exception {
-            String certType = config.getCertType();
-            if (certType == null || certType.isEmpty()) {
-                certType = "PKCS12"; // 默认使用PKCS12
+        /**
+         * 包装SSLSocketFactory：URL中的主机已经替换为地址时，在连接好的普通socket上叠加TLS，
+         * SNI和证书校验使用原来的主机名
+         */
+        private static class ServerNameSSLSocketFactory extends SSLSocketFactory {
+            private final SSLSocketFactory delegate;
+            private final String host;
+
+            ServerNameSSLSocketFactory(SSLSocketFactory delegate, String host) {
+                this.delegate = delegate;
+                this.host = host;
             }
 
-            KeyStore keyStore = KeyStore.getInstance(certType);
-            char[] password =
-                    config.getCertPassword() != null
-                            ? config.getCertPassword().toCharArray()
-                            : new char[0];
+            @Override
+            public String[] getDefaultCipherSuites() {
+                return delegate.getDefaultCipherSuites();
+            }
 
-            // 从字节数组或文件加载证书
-            if (config.getCertBytes() != null) {
-                try (ByteArrayInputStream bis = new ByteArrayInputStream(config.getCertBytes())) {
-                    keyStore.load(bis, password);
-                }
-            } else if (config.getCertPath() != null) {
-                try (InputStream fis = Files.newInputStream(Paths.get(config.getCertPath()))) {
-                    keyStore.load(fis, password);
-                }
-            } else {
-                throw new IllegalArgumentException("cert path or cert bytes must be provided");
+            @Override
+            public String[] getSupportedCipherSuites() {
+                return delegate.getSupportedCipherSuites();
             }
 
-            KeyManagerFactory kmf =
-                    KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-            kmf.init(keyStore, password);
-            return kmf.getKeyManagers();
+            /** 返回普通socket，JDK连接后再调用下面的方法叠加TLS，不会把SNI设置为地址 */
+            @Override
+            public Socket createSocket() {
+                return new Socket();
+            }
+
+            @Override
+            public Socket createSocket(Socket s, String address, int port, boolean autoClose)
+                    throws IOException {
+                return delegate.createSocket(s, host, port, autoClose);
+            }
+
+            @Override
+            public Socket createSocket(String address, int port) throws IOException {
+                return delegate.createSocket(new Socket(address, port), host, port, true);
+            }
+
+            @Override
+            public Socket createSocket(
+                    String address, int port, InetAddress localHost, int localPort)
+                    throws IOException {
+                return delegate.createSocket(
+                        new Socket(address, port, localHost, localPort), host, port, true);
+            }
+
+            @Override
+            public Socket createSocket(InetAddress address, int port) throws IOException {
+                return delegate.createSocket(new Socket(address, port), host, port, true);
+            }
+
+            @Override
+            public Socket createSocket(
+                    InetAddress address, int port, InetAddress localAddress, int localPort)
+                    throws IOException {
+                return delegate.createSocket(
+                        new Socket(address, port, localAddress, localPort), host, port, true);
+            }
+        }
+
+        /**
+         * 包装SSLSocketFactory：先创建未连接的普通socket，连接时按主机映射和DnsResolver得到地址，
+         * 再叠加TLS，SNI和证书校验仍使用URL中的主机名
+         */
+        private static class ResolvingSSLSocketFactory extends SSLSocketFactory {
+            private final SSLSocketFactory delegate;
+            private final DnsResolver resolver;
+            private final HostMapping mapping;
+
+            ResolvingSSLSocketFactory(
+                    SSLSocketFactory delegate, DnsResolver resolver, HostMapping mapping) {
+                this.delegate = delegate;
+                this.resolver = resolver;
+                this.mapping = mapping;
+            }
+
+            @Override
+            public String[] getDefaultCipherSuites() {
+                return delegate.getDefaultCipherSuites();
+            }
+
+            @Override
+            public String[] getSupportedCipherSuites() {
+                return delegate.getSupportedCipherSuites();
+            }
+
+            @Override
+            public Socket createSocket() {
+                return new ResolvingSocket(resolver, mapping);
+            }
+
+            @Override
+            public Socket createSocket(Socket s, String host, int port, boolean autoClose)
+                    throws IOException {
+                return delegate.createSocket(s, host, port, autoClose);
+            }
+
+            @Override
+            public Socket createSocket(String host, int port) throws IOException {
+                Socket socket = new ResolvingSocket(resolver, mapping);
+                socket.connect(InetSocketAddress.createUnresolved(host, port));
+                return delegate.createSocket(socket, host, port, true);
+            }
+
+            @Override
+            public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+                    throws IOException {
+                Socket socket = new ResolvingSocket(resolver, mapping);
+                socket.bind(new InetSocketAddress(localHost, localPort));
+                socket.connect(InetSocketAddress.createUnresolved(host, port));
+                return delegate.createSocket(socket, host, port, true);
+            }
+
+            @Override
+            public Socket createSocket(InetAddress host, int port) throws IOException {
+                return delegate.createSocket(host, port);
+            }
+
+            @Override
+            public Socket createSocket(
+                    InetAddress address, int port, InetAddress localAddress, int localPort)
+                    throws IOException {
+                return delegate.createSocket(address, port, localAddress, localPort);
+            }
+        }
+
+        /** 连接时按主机映射或DnsResolver得到地址的socket，连接第一个地址 */
+        private static class ResolvingSocket extends Socket {
+            private final DnsResolver resolver;
+            private final HostMapping mapping;
+
+            ResolvingSocket(DnsResolver resolver, HostMapping mapping) {
+                this.resolver = resolver;
+                this.mapping = mapping;
+            }
+
+            @Override
+            public void connect(SocketAddress endpoint, int timeout) throws IOException {
+                if (endpoint instanceof InetSocketAddress) {
+                    InetSocketAddress address = (InetSocketAddress) endpoint;
+                    String host = address.getHostString();
+                    if (mapping != null && mapping.applies(host, address.getPort())) {
+                        endpoint = mapping.connectAddress(host, address.getPort(), resolver);
+                    } else if (!CachingDnsResolver.isLiteral(host)) {
+                        endpoint =
+                                new InetSocketAddress(
+                                        resolver.resolve(host).get(0), address.getPort());
+                    }
+                }
+                super.connect(endpoint, timeout);
+            }
         }
     }
 }
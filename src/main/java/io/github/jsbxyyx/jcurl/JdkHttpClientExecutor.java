@@ -0,0 +1,33 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.IOException;
+
+/**
+ * java.net.http.HttpClient实现的HTTP请求执行器（支持HTTP/2多路复用）
+ *
+ * <p>需要Java 11+。这是Java 8下的占位实现，真正的实现以multi-release方式打包在
+ * META-INF/versions/11中，Java 11+运行时会自动加载。
+ */
+public class JdkHttpClientExecutor implements JCurl.HttpExecutor {
+
+    private JdkHttpClientExecutor() {}
+
+    /** 当前运行时是否支持java.net.http.HttpClient */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    public static JdkHttpClientExecutor create() {
+        throw new UnsupportedOperationException("JdkHttpClientExecutor requires Java 11+");
+    }
+
+    /** 指定是否优先使用HTTP/2创建执行器 */
+    public static JdkHttpClientExecutor create(boolean http2) {
+        throw new UnsupportedOperationException("JdkHttpClientExecutor requires Java 11+");
+    }
+
+    @Override
+    public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel) throws IOException {
+        throw new UnsupportedOperationException("JdkHttpClientExecutor requires Java 11+");
+    }
+}
@@ -0,0 +1,1976 @@
+package io.github.jsbxyyx.jcurl;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.APPLICATION_X_WWW_FORM_URLENCODED_VALUE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.AUTHORIZATION;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.BASIC_SPACE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.COLON_SPACE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.CONTENT_ENCODING;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.CONTENT_TYPE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.COOKIE;
+
+/**
+ * 基于NIO(SocketChannel/Selector/SSLEngine)的非阻塞HTTP/1.1执行器，零依赖
+ *
+ * <p>少量selector线程驱动所有连接，每个host维护keep-alive连接池（空闲超时淘汰、失效连接检测）。
+ *
+ * <p>selector线程只做非阻塞读写，DNS解析、SSL配置加载、读取文件请求体和StreamHandler
+ * 回调在工作线程中执行，回调积压过多时暂停读取该连接。工作线程使用
+ * {@link JCurl#getAsyncExecutor()}。暂不支持代理。
+ */
+public class NioHttpExecutor implements JCurl.HttpExecutor, Closeable {
+
+    public static final int DEFAULT_MAX_IDLE_PER_HOST = 32;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private static final String CRLF = "\r\n";
+    private static final int MAX_REDIRECTS = 20;
+    /** 能容纳一个完整的TLS记录 */
+    private static final int BUFFER_SIZE = 17 * 1024;
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** 等待工作线程处理的响应体块达到这么多时暂停读取，降到一半以下再继续 */
+    private static final int MAX_RELAY_CHUNKS = 4;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private static final int ACTIVE = 0;
+    private static final int IDLE = 1;
+    private static final int CLOSED = 2;
+
+    private static volatile NioHttpExecutor defaultExecutor;
+
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final int maxIdlePerHost;
+    private final long idleTimeoutMillis;
+    private final Map<Route, Deque<Connection>> pool = new ConcurrentHashMap<>();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong staleEvicted = new AtomicLong();
+    private final AtomicLong idleEvicted = new AtomicLong();
+    private volatile boolean closed;
+
+    private NioHttpExecutor(int selectorThreads, int maxIdlePerHost, long idleTimeoutMillis)
+            throws IOException {
+        if (selectorThreads <= 0) {
+            throw new IllegalArgumentException("selectorThreads must be > 0");
+        }
+        this.maxIdlePerHost = maxIdlePerHost;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.loops = new EventLoop[selectorThreads];
+        int id = System.identityHashCode(this);
+        for (int i = 0; i < selectorThreads; i++) {
+            loops[i] = new EventLoop("jcurl-nio-" + Integer.toHexString(id) + "-" + i);
+        }
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /** 使用共享的默认实例（selector线程数为CPU核数的一半，最多4个） */
+    public static NioHttpExecutor create() {
+        NioHttpExecutor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (NioHttpExecutor.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    int threads =
+                            Math.max(
+                                    1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+                    executor =
+                            create(threads, DEFAULT_MAX_IDLE_PER_HOST, DEFAULT_IDLE_TIMEOUT_MILLIS);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 创建独立的执行器，不再使用时需要调用{@link #close()}
+     *
+     * @param selectorThreads selector线程数
+     * @param maxIdlePerHost 每个host最多保留的空闲连接数
+     * @param idleTimeoutMillis 空闲连接超时时间（毫秒）
+     */
+    public static NioHttpExecutor create(
+            int selectorThreads, int maxIdlePerHost, long idleTimeoutMillis) {
+        try {
+            return new NioHttpExecutor(selectorThreads, maxIdlePerHost, idleTimeoutMillis);
+        } catch (IOException e) {
+            throw new RuntimeException("open selector failed.", e);
+        }
+    }
+
+    @Override
+    public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel) throws IOException {
+        return await(executeAsync(requestModel));
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeStream(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) throws IOException {
+        return await(executeStreamAsync(requestModel, handler));
+    }
+
+    @Override
+    public CompletableFuture<JCurl.HttpResponseModel> executeAsync(
+            JCurl.HttpRequestModel requestModel) {
+        return start(requestModel, null);
+    }
+
+    @Override
+    public CompletableFuture<JCurl.HttpResponseModel> executeStreamAsync(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) {
+        return start(requestModel, handler);
+    }
+
+    /** 获取连接池统计信息 */
+    public PoolStats getPoolStats() {
+        int idle = 0;
+        for (Deque<Connection> connections : pool.values()) {
+            idle += connections.size();
+        }
+        return new PoolStats(
+                opened.get(), reused.get(), staleEvicted.get(), idleEvicted.get(), idle);
+    }
+
+    /** 关闭selector线程和所有连接 */
+    @Override
+    public void close() {
+        if (this == defaultExecutor) {
+            throw new UnsupportedOperationException("default executor can not be closed");
+        }
+        closed = true;
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    private CompletableFuture<JCurl.HttpResponseModel> start(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) {
+        CompletableFuture<JCurl.HttpResponseModel> future = new CompletableFuture<>();
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        if (config.getProxy() != null || config.getProxyHost() != null) {
+            future.completeExceptionally(
+                    new IOException("proxy is not supported by NioHttpExecutor"));
+            return future;
+        }
+        try {
+            Exchange exchange = new Exchange(requestModel, handler, future);
+            exchange.url = new URL(requestModel.getFullUrl());
+            exchange.method = requestModel.getMethod();
+            dispatch(exchange);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 从连接池获取连接或新建连接，然后交给连接所属的selector线程发送请求
+     *
+     * <p>DNS解析和SSL配置加载可能阻塞，重定向和重试在selector线程中发起时转到工作线程执行
+     */
+    private void dispatch(Exchange exchange) {
+        if (exchange.future.isDone()) {
+            return;
+        }
+        if (isLoopThread()) {
+            work(() -> dispatch(exchange), e -> fail(exchange, e, false));
+            return;
+        }
+        try {
+            if (closed) {
+                throw new IOException("executor closed");
+            }
+            Route route = route(exchange);
+            Connection connection = acquire(route);
+            if (connection != null) {
+                reused.incrementAndGet();
+                connection.loop.execute(() -> connection.begin(exchange));
+                return;
+            }
+            DnsResolver resolver = exchange.model.getConfig().effectiveDnsResolver();
+            InetSocketAddress address =
+                    route.mapping != null
+                            ? route.mapping.connectAddress(route.host, route.port, resolver)
+                            : new InetSocketAddress(
+                                    resolver.resolve(route.host).get(0), route.port);
+            EventLoop loop = nextLoop();
+            loop.execute(() -> loop.connect(route, address, exchange));
+        } catch (IOException | RuntimeException e) {
+            fail(exchange, e, false);
+        }
+    }
+
+    private EventLoop nextLoop() {
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    private boolean isLoopThread() {
+        Thread current = Thread.currentThread();
+        for (EventLoop loop : loops) {
+            if (loop.thread == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 在工作线程中执行可能阻塞的任务，线程池拒绝时交给rejected处理 */
+    private static void work(Runnable task, Consumer<Throwable> rejected) {
+        try {
+            JCurl.getAsyncExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.accept(e);
+        }
+    }
+
+    private Route route(Exchange exchange) throws IOException {
+        URL url = exchange.url;
+        String protocol = url.getProtocol();
+        boolean https = "https".equalsIgnoreCase(protocol);
+        if (!https && !"http".equalsIgnoreCase(protocol)) {
+            throw new MalformedURLException("unsupported protocol: " + protocol);
+        }
+        String host = url.getHost();
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        JCurl.SslContextCache.SslEntry sslEntry = null;
+        if (https) {
+            try {
+                sslEntry = JCurl.SslContextCache.get(exchange.model.getConfig());
+            } catch (Exception e) {
+                throw new RuntimeException("config SSL failed.", e);
+            }
+        }
+        // 只有映射改变连接目标时才区分连接池，SNI和Host请求头仍使用URL中的主机名
+        HostMapping mapping = exchange.model.getConfig().hostMapping();
+        if (mapping != null && !mapping.applies(host, port)) {
+            mapping = null;
+        }
+        return new Route(host, port, sslEntry, exchange.model.getConfig().isVerifySSL(), mapping);
+    }
+
+    private Connection acquire(Route route) {
+        Deque<Connection> connections = pool.get(route);
+        if (connections == null) {
+            return null;
+        }
+        Connection connection;
+        while ((connection = connections.pollLast()) != null) {
+            if (connection.state.compareAndSet(IDLE, ACTIVE)) {
+                if (connection.channel.isOpen()) {
+                    return connection;
+                }
+                connection.state.set(CLOSED);
+            }
+        }
+        return null;
+    }
+
+    /** 请求失败时的处理：复用连接失效时立即换新连接重发，否则按配置重试 */
+    private void fail(Exchange exchange, Throwable error, boolean staleConnection) {
+        if (exchange.future.isDone()) {
+            return;
+        }
+        if (staleConnection && !exchange.staleRetried) {
+            exchange.staleRetried = true;
+            dispatch(exchange);
+            return;
+        }
+        int maxRetries = exchange.model.getConfig().getMaxRetries();
+        if (error instanceof IOException && !closed) {
+            if (exchange.attempts < maxRetries) {
+                exchange.attempts++;
+                int retryDelay = exchange.model.getConfig().getRetryDelay();
+                nextLoop().schedule(retryDelay, () -> dispatch(exchange));
+                return;
+            }
+            if (maxRetries > 0) {
+                error = new IOException("request failed，retry " + maxRetries + " times", error);
+            }
+        }
+        exchange.future.completeExceptionally(error);
+    }
+
+    private static JCurl.HttpResponseModel await(CompletableFuture<JCurl.HttpResponseModel> future)
+            throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("request interrupt", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /** 构造请求头和请求体，请求体按顺序由ByteBuffer、文件和BodySource组成 */
+    private static RequestSource buildRequest(Exchange exchange) throws IOException {
+        JCurl.HttpRequestModel requestModel = exchange.model;
+        URL url = exchange.url;
+        List<Object> body = new ArrayList<>();
+        long contentLength = -1;
+        String contentType = null;
+        boolean chunked = false;
+
+        if (exchange.sendBody) {
+            if (requestModel.getFormFields() != null && !requestModel.getFormFields().isEmpty()) {
+                JCurl.MultipartForm form = new JCurl.MultipartForm(requestModel.getAllFormFields());
+                contentType = form.getContentType();
+                contentLength = form.getContentLength();
+                chunked = contentLength < 0;
+                for (Object part : form.getParts()) {
+                    body.add(part instanceof byte[] ? ByteBuffer.wrap((byte[]) part) : part);
+                }
+            } else if (requestModel.getBodySource() != null) {
+                body.add(requestModel.getBodySource());
+                contentLength = requestModel.getBodySource().getLength();
+                chunked = contentLength < 0;
+            } else if (requestModel.getBinaryBody() != null) {
+                body.add(ByteBuffer.wrap(requestModel.getBinaryBody()));
+                contentLength = requestModel.getBinaryBody().length;
+            } else if (requestModel.getBody() != null) {
+                byte[] bytes = requestModel.getBody().getBytes(StandardCharsets.UTF_8);
+                body.add(ByteBuffer.wrap(bytes));
+                contentLength = bytes.length;
+            }
+            if ((contentLength >= 0 || chunked)
+                    && contentType == null
+                    && requestModel.getHeader(CONTENT_TYPE) == null) {
+                contentType = APPLICATION_X_WWW_FORM_URLENCODED_VALUE;
+            }
+        }
+        String method = exchange.method;
+        if (contentLength < 0
+                && ("POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method))) {
+            contentLength = 0;
+        }
+
+        StringBuilder head = new StringBuilder(256);
+        String file = url.getFile();
+        head.append(method).append(' ').append(file.isEmpty() ? "/" : file).append(" HTTP/1.1");
+        head.append(CRLF);
+        boolean hasHost = false;
+        for (Map.Entry<String, List<String>> header : requestModel.getHeaders().entrySet()) {
+            String name = header.getKey();
+            if ("Content-Length".equalsIgnoreCase(name)
+                    || "Transfer-Encoding".equalsIgnoreCase(name)
+                    || (contentType != null && CONTENT_TYPE.equalsIgnoreCase(name))
+                    || (!exchange.sendBody && CONTENT_TYPE.equalsIgnoreCase(name))) {
+                continue;
+            }
+            hasHost |= "Host".equalsIgnoreCase(name);
+            for (String value : header.getValue()) {
+                head.append(name).append(COLON_SPACE).append(value).append(CRLF);
+            }
+        }
+        if (!hasHost) {
+            head.append("Host").append(COLON_SPACE).append(url.getHost());
+            if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+                head.append(':').append(url.getPort());
+            }
+            head.append(CRLF);
+        }
+        if (!requestModel.getCookies().isEmpty()) {
+            head.append(COOKIE).append(COLON_SPACE);
+            boolean first = true;
+            for (Map.Entry<String, String> cookie : requestModel.getCookies().entrySet()) {
+                if (!first) head.append("; ");
+                head.append(cookie.getKey()).append("=").append(cookie.getValue());
+                first = false;
+            }
+            head.append(CRLF);
+        }
+        if (requestModel.getUsername() != null) {
+            String auth =
+                    requestModel.getUsername()
+                            + ":"
+                            + (requestModel.getPassword() != null
+                                    ? requestModel.getPassword()
+                                    : "");
+            head.append(AUTHORIZATION)
+                    .append(COLON_SPACE)
+                    .append(BASIC_SPACE)
+                    .append(
+                            Base64.getEncoder()
+                                    .encodeToString(auth.getBytes(StandardCharsets.UTF_8)))
+                    .append(CRLF);
+        }
+        if (contentType != null) {
+            head.append(CONTENT_TYPE).append(COLON_SPACE).append(contentType).append(CRLF);
+        }
+        if (chunked) {
+            head.append("Transfer-Encoding").append(COLON_SPACE).append("chunked").append(CRLF);
+        } else if (contentLength >= 0) {
+            head.append("Content-Length").append(COLON_SPACE).append(contentLength).append(CRLF);
+        }
+        head.append(CRLF);
+
+        return new RequestSource(
+                ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.UTF_8)), body, chunked);
+    }
+
+    /** 超时时间为0表示不限制 */
+    private static long deadlineAfter(int timeoutMillis) {
+        return timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+    }
+
+    private static boolean isRedirect(int statusCode) {
+        return statusCode == 301
+                || statusCode == 302
+                || statusCode == 303
+                || statusCode == 307
+                || statusCode == 308;
+    }
+
+    /** 连接池统计信息 */
+    public static final class PoolStats {
+        private final long opened;
+        private final long reused;
+        private final long staleEvicted;
+        private final long idleEvicted;
+        private final int idle;
+
+        PoolStats(long opened, long reused, long staleEvicted, long idleEvicted, int idle) {
+            this.opened = opened;
+            this.reused = reused;
+            this.staleEvicted = staleEvicted;
+            this.idleEvicted = idleEvicted;
+            this.idle = idle;
+        }
+
+        /** 新建的连接数 */
+        public long getOpened() {
+            return opened;
+        }
+
+        /** 复用连接池中连接的次数 */
+        public long getReused() {
+            return reused;
+        }
+
+        /** 空闲时被服务端关闭而移除的连接数 */
+        public long getStaleEvicted() {
+            return staleEvicted;
+        }
+
+        /** 空闲超时被关闭的连接数 */
+        public long getIdleEvicted() {
+            return idleEvicted;
+        }
+
+        /** 当前空闲连接数 */
+        public int getIdle() {
+            return idle;
+        }
+
+        @Override
+        public String toString() {
+            return "PoolStats{opened="
+                    + opened
+                    + ", reused="
+                    + reused
+                    + ", staleEvicted="
+                    + staleEvicted
+                    + ", idleEvicted="
+                    + idleEvicted
+                    + ", idle="
+                    + idle
+                    + '}';
+        }
+    }
+
+    /** 一次请求（包括重定向和重试）的状态 */
+    private static final class Exchange {
+        final JCurl.HttpRequestModel model;
+        final JCurl.StreamHandler userHandler;
+        final CompletableFuture<JCurl.HttpResponseModel> future;
+        URL url;
+        String method;
+        boolean sendBody = true;
+        int redirects;
+        int attempts;
+        boolean staleRetried;
+        JCurl.StreamHandler handler;
+        JCurl.BodyBuffer buffer;
+        HandlerRelay relay;
+        /** 工作线程中的回调链，重试和重定向都接在后面，保证同一请求的回调按顺序执行 */
+        CompletableFuture<Void> callbacks = CompletableFuture.completedFuture(null);
+
+        Exchange(
+                JCurl.HttpRequestModel model,
+                JCurl.StreamHandler userHandler,
+                CompletableFuture<JCurl.HttpResponseModel> future) {
+            this.model = model;
+            this.userHandler = userHandler;
+            this.future = future;
+        }
+
+        /** 每次发送都重新创建缓冲，避免重试时重复收集响应体 */
+        void prepare() {
+            relay = null;
+            if (userHandler != null) {
+                handler = userHandler;
+            } else {
+                // 解析器已限制最大下载大小，收集时不再检查
+                buffer = new JCurl.BodyBuffer(0, model.getConfig().getSpillThreshold());
+                handler = buffer;
+            }
+        }
+    }
+
+    /** 连接池的key */
+    private static final class Route {
+        final String host;
+        final int port;
+        final JCurl.SslContextCache.SslEntry sslEntry;
+        final boolean verifyHost;
+        final HostMapping mapping;
+
+        Route(
+                String host,
+                int port,
+                JCurl.SslContextCache.SslEntry sslEntry,
+                boolean verifyHost,
+                HostMapping mapping) {
+            this.host = host;
+            this.port = port;
+            this.sslEntry = sslEntry;
+            this.verifyHost = verifyHost;
+            this.mapping = mapping;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Route)) return false;
+            Route that = (Route) o;
+            return port == that.port
+                    && verifyHost == that.verifyHost
+                    && host.equals(that.host)
+                    && sslEntry == that.sslEntry
+                    && Objects.equals(mapping, that.mapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, System.identityHashCode(sslEntry), verifyHost, mapping);
+        }
+    }
+
+    /** 按顺序输出请求的各个部分（ByteBuffer或文件） */
+    private static final class RequestSource {
+        /** chunk头固定为8位十六进制长度加CRLF，便于先预留位置再回填 */
+        private static final int CHUNK_HEADER_SIZE = 10;
+
+        private static final int MIN_CHUNK_SPACE = CHUNK_HEADER_SIZE + 2 + 64;
+        private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+        private final ByteBuffer head;
+        private final List<Object> parts;
+        private final boolean chunked;
+        /** 最后一个需要阻塞读取的部分（文件或BodySource）的位置，没有时为-1 */
+        private final int lastBlocking;
+
+        private int next;
+        private Object current;
+        private ReadableByteChannel channel;
+        private boolean bodyDone;
+        private ByteBuffer staging;
+
+        RequestSource(ByteBuffer head, List<Object> parts, boolean chunked) {
+            this.head = head;
+            this.parts = parts;
+            this.chunked = chunked;
+            int last = -1;
+            for (int i = 0; i < parts.size(); i++) {
+                if (!(parts.get(i) instanceof ByteBuffer)) {
+                    last = i;
+                }
+            }
+            this.lastBlocking = last;
+        }
+
+        /** 继续填充是否可能阻塞，是则应在工作线程中调用{@link #fill} */
+        boolean blocking() {
+            return channel != null || next <= lastBlocking;
+        }
+
+        /** 工作线程填充数据用的缓冲区，每次填充前清空 */
+        ByteBuffer staging() {
+            if (staging == null) {
+                staging = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+            staging.clear();
+            return staging;
+        }
+
+        /** 填充dst，全部输出后返回true */
+        boolean fill(ByteBuffer dst) throws IOException {
+            if (head.hasRemaining()) {
+                copy(head, dst);
+                if (head.hasRemaining()) {
+                    return false;
+                }
+            }
+            if (!chunked) {
+                return fillBody(dst);
+            }
+            while (!bodyDone) {
+                if (dst.remaining() < MIN_CHUNK_SPACE) {
+                    return false;
+                }
+                int start = dst.position();
+                int limit = dst.limit();
+                dst.position(start + CHUNK_HEADER_SIZE).limit(limit - 2);
+                bodyDone = fillBody(dst);
+                int size = dst.position() - start - CHUNK_HEADER_SIZE;
+                dst.limit(limit);
+                if (size == 0) {
+                    dst.position(start);
+                    continue;
+                }
+                for (int i = 7; i >= 0; i--) {
+                    dst.put(start + i, HEX[(size >>> ((7 - i) * 4)) & 0xF]);
+                }
+                dst.put(start + 8, (byte) '\r').put(start + 9, (byte) '\n');
+                dst.put((byte) '\r').put((byte) '\n');
+            }
+            if (dst.remaining() < LAST_CHUNK.length) {
+                return false;
+            }
+            dst.put(LAST_CHUNK);
+            return true;
+        }
+
+        /** 按顺序读取请求体各部分，文件和BodySource以阻塞方式读取 */
+        private boolean fillBody(ByteBuffer dst) throws IOException {
+            while (dst.hasRemaining()) {
+                if (current == null) {
+                    if (next == parts.size()) {
+                        return true;
+                    }
+                    current = parts.get(next++);
+                    if (current instanceof Path) {
+                        channel = FileChannel.open((Path) current, StandardOpenOption.READ);
+                    } else if (current instanceof JCurl.HttpRequestModel.BodySource) {
+                        channel = ((JCurl.HttpRequestModel.BodySource) current).openChannel();
+                    }
+                }
+                if (channel != null) {
+                    if (channel.read(dst) < 0) {
+                        close();
+                        current = null;
+                    }
+                } else {
+                    ByteBuffer src = (ByteBuffer) current;
+                    copy(src, dst);
+                    if (!src.hasRemaining()) {
+                        current = null;
+                    }
+                }
+            }
+            return current == null && next == parts.size();
+        }
+
+        private static void copy(ByteBuffer src, ByteBuffer dst) {
+            int n = Math.min(src.remaining(), dst.remaining());
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            src.position(src.position() + n);
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+            }
+        }
+    }
+
+    /** 一个selector线程，负责其上所有连接的读写，超时和空闲淘汰按到期时间排序的定时器检查 */
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final PriorityQueue<Timer> timers = new PriorityQueue<>();
+        final Set<Connection> connections = new HashSet<>();
+        final ArrayDeque<ByteBuffer> bufferCache = new ArrayDeque<>();
+
+        EventLoop(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        void schedule(long delayMillis, Runnable task) {
+            long deadline = System.currentTimeMillis() + delayMillis;
+            execute(() -> addTimer(deadline, task));
+        }
+
+        /** 只能在本线程中调用 */
+        void addTimer(long deadline, Runnable task) {
+            timers.add(new Timer(deadline, task));
+        }
+
+        /** 从本线程的缓存中借出缓冲区，避免每个连接分配新的缓冲区 */
+        ByteBuffer borrow(int size) {
+            if (size <= BUFFER_SIZE) {
+                ByteBuffer buffer = bufferCache.pollFirst();
+                if (buffer != null) {
+                    buffer.clear();
+                    return buffer;
+                }
+                return ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        void release(ByteBuffer buffer) {
+            if (buffer != null && buffer.capacity() == BUFFER_SIZE && bufferCache.size() < 256) {
+                bufferCache.addFirst(buffer);
+            }
+        }
+
+        void connect(Route route, InetSocketAddress address, Exchange exchange) {
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(this, route, channel);
+                connection.exchange = exchange;
+                connection.connecting = true;
+                connection.key = channel.register(selector, 0, connection);
+                connection.setDeadline(exchange.model.getConfig().getConnectTimeout());
+                connections.add(connection);
+                opened.incrementAndGet();
+                if (channel.connect(address)) {
+                    connection.onConnected();
+                } else {
+                    connection.setInterest(SelectionKey.OP_CONNECT);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                fail(exchange, e, false);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    // 没有定时器时一直等待，新任务会唤醒selector
+                    long timeout = 0;
+                    Timer timer = timers.peek();
+                    if (timer != null) {
+                        timeout = Math.max(1, timer.deadline - System.currentTimeMillis());
+                    }
+                    selector.select(timeout);
+                    runTasks();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        ((Connection) key.attachment()).onSelected(key);
+                    }
+                    runTimers();
+                } catch (IOException | RuntimeException ignored) {
+                    // 单个连接的异常已在Connection中处理，这里只保证线程不退出
+                }
+            }
+            shutdown();
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        private void runTimers() {
+            long now = System.currentTimeMillis();
+            while (!timers.isEmpty() && timers.peek().deadline <= now) {
+                timers.poll().task.run();
+            }
+        }
+
+        private void shutdown() {
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.abort(new IOException("executor closed"));
+            }
+            runTasks();
+            for (Timer timer : timers) {
+                timer.task.run();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class Timer implements Comparable<Timer> {
+        final long deadline;
+        final Runnable task;
+
+        Timer(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Timer o) {
+            return Long.compare(deadline, o.deadline);
+        }
+    }
+
+    /** 一个HTTP/1.1连接，除state外的字段只在所属selector线程中访问 */
+    private final class Connection {
+        final EventLoop loop;
+        final Route route;
+        final SocketChannel channel;
+        final SSLEngine engine;
+        final AtomicInteger state = new AtomicInteger(ACTIVE);
+        SelectionKey key;
+        ByteBuffer netIn;
+        ByteBuffer netOut;
+        ByteBuffer appIn;
+        ByteBuffer appOut;
+        Exchange exchange;
+        RequestSource source;
+        ResponseParser parser;
+        boolean connecting;
+        boolean handshaking;
+        boolean reused;
+        long deadline;
+        /** 已安排的最早一次超时检查的时间，没有时为Long.MAX_VALUE */
+        long checkAt = Long.MAX_VALUE;
+        /** 每次放回连接池加1，用于识别过期的空闲检查 */
+        int idleGeneration;
+        /** 工作线程读好的请求数据，发送完后再继续填充 */
+        ByteBuffer staged;
+
+        boolean stagedLast;
+
+        Connection(EventLoop loop, Route route, SocketChannel channel) {
+            this.loop = loop;
+            this.route = route;
+            this.channel = channel;
+            if (route.sslEntry != null) {
+                engine = route.sslEntry.getSslContext().createSSLEngine(route.host, route.port);
+                engine.setUseClientMode(true);
+                if (route.verifyHost) {
+                    SSLParameters parameters = engine.getSSLParameters();
+                    parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    engine.setSSLParameters(parameters);
+                }
+            } else {
+                engine = null;
+            }
+            acquireBuffers();
+        }
+
+        /** 只有处理请求的连接持有缓冲区，空闲连接把缓冲区还给selector线程 */
+        private void acquireBuffers() {
+            if (appIn != null) {
+                return;
+            }
+            if (engine != null) {
+                int packetSize = engine.getSession().getPacketBufferSize();
+                int applicationSize = engine.getSession().getApplicationBufferSize();
+                netIn = loop.borrow(packetSize);
+                netOut = loop.borrow(packetSize);
+                appIn = loop.borrow(applicationSize);
+                appOut = loop.borrow(applicationSize);
+                appOut.flip();
+            } else {
+                netOut = loop.borrow(BUFFER_SIZE);
+                appIn = loop.borrow(BUFFER_SIZE);
+            }
+            netOut.flip();
+        }
+
+        private void releaseBuffers() {
+            loop.release(netIn);
+            loop.release(netOut);
+            loop.release(appIn);
+            loop.release(appOut);
+            netIn = netOut = appIn = appOut = null;
+        }
+
+        void setInterest(int ops) {
+            key.interestOps(ops);
+        }
+
+        /** 设置超时时间，比已安排的检查更早时再安排一次检查，推迟时由到期的检查重新安排 */
+        void setDeadline(int timeoutMillis) {
+            deadline = deadlineAfter(timeoutMillis);
+            if (deadline < checkAt) {
+                scheduleCheck(deadline);
+            }
+        }
+
+        private void scheduleCheck(long at) {
+            checkAt = at;
+            loop.addTimer(at, () -> checkDeadline(at));
+        }
+
+        private void checkDeadline(long at) {
+            if (at != checkAt) {
+                return; // 已被更早的检查取代
+            }
+            checkAt = Long.MAX_VALUE;
+            if (state.get() != ACTIVE || exchange == null) {
+                return;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                abort(
+                        new SocketTimeoutException(
+                                connecting ? "connect timed out" : "read timed out"));
+            } else if (deadline != Long.MAX_VALUE) {
+                scheduleCheck(deadline);
+            }
+        }
+
+        void onConnected() throws IOException {
+            connecting = false;
+            setDeadline(exchange.model.getConfig().getReadTimeout());
+            if (engine != null) {
+                engine.beginHandshake();
+                handshaking = true;
+                advanceHandshake();
+            } else {
+                startRequest();
+            }
+        }
+
+        /** 在复用的连接上开始新的请求 */
+        void begin(Exchange next) {
+            exchange = next;
+            reused = true;
+            acquireBuffers();
+            setDeadline(next.model.getConfig().getReadTimeout());
+            try {
+                startRequest();
+            } catch (IOException | RuntimeException e) {
+                abort(e);
+            }
+        }
+
+        void onSelected(SelectionKey selected) {
+            try {
+                if (!selected.isValid()) {
+                    return;
+                }
+                if (state.get() == IDLE) {
+                    onIdleReadable();
+                    return;
+                }
+                if (exchange == null) {
+                    setInterest(0);
+                    return;
+                }
+                if (connecting) {
+                    if (selected.isConnectable() && channel.finishConnect()) {
+                        onConnected();
+                    }
+                } else if (handshaking) {
+                    advanceHandshake();
+                } else if (selected.isWritable()) {
+                    writeRequest();
+                } else if (selected.isReadable()) {
+                    readResponse();
+                }
+            } catch (IOException | RuntimeException e) {
+                abort(e);
+            }
+        }
+
+        /** 空闲连接可读说明服务端已关闭连接（或发送了非法数据），直接移除 */
+        private void onIdleReadable() {
+            if (state.compareAndSet(IDLE, CLOSED)) {
+                staleEvicted.incrementAndGet();
+                close();
+            }
+        }
+
+        private void startRequest() throws IOException {
+            exchange.prepare();
+            // 用户的handler和可能写临时文件的响应体缓冲在工作线程中执行
+            if (exchange.userHandler != null
+                    || exchange.model.getConfig().getSpillThreshold() > 0) {
+                exchange.relay = new HandlerRelay(exchange, this);
+            }
+            staged = null;
+            source = buildRequest(exchange);
+            parser = new ResponseParser(exchange);
+            writeRequest();
+        }
+
+        private void writeRequest() throws IOException {
+            while (true) {
+                if (!flushNetOut()) {
+                    setInterest(SelectionKey.OP_WRITE);
+                    return;
+                }
+                if (engine != null && appOut.hasRemaining()) {
+                    netOut.compact();
+                    SSLEngineResult result = engine.wrap(appOut, netOut);
+                    netOut.flip();
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        throw new SSLException("SSLEngine closed");
+                    }
+                    continue;
+                }
+                if (source == null) {
+                    setInterest(SelectionKey.OP_READ);
+                    return;
+                }
+                ByteBuffer target = engine != null ? appOut : netOut;
+                if (staged != null) {
+                    target.compact();
+                    RequestSource.copy(staged, target);
+                    target.flip();
+                    if (!staged.hasRemaining()) {
+                        staged = null;
+                        if (stagedLast) {
+                            source.close();
+                            source = null;
+                        }
+                    }
+                    continue;
+                }
+                if (source.blocking()) {
+                    fillAsync();
+                    return;
+                }
+                target.compact();
+                boolean done = source.fill(target);
+                target.flip();
+                if (done) {
+                    source.close();
+                    source = null;
+                }
+            }
+        }
+
+        /** 在工作线程中读取文件或BodySource，读好一块后回到selector线程继续发送 */
+        private void fillAsync() {
+            setInterest(0);
+            Exchange owner = exchange;
+            RequestSource current = source;
+            ByteBuffer buffer = current.staging();
+            work(
+                    () -> {
+                        boolean done;
+                        try {
+                            done = current.fill(buffer);
+                            buffer.flip();
+                        } catch (IOException | RuntimeException e) {
+                            loop.execute(() -> abortIfCurrent(owner, e));
+                            return;
+                        }
+                        loop.execute(
+                                () -> {
+                                    if (exchange != owner || source != current) {
+                                        return;
+                                    }
+                                    staged = buffer;
+                                    stagedLast = done;
+                                    try {
+                                        writeRequest();
+                                    } catch (IOException | RuntimeException e) {
+                                        abort(e);
+                                    }
+                                });
+                    },
+                    e -> abortIfCurrent(owner, e));
+        }
+
+        /** 工作线程中的任务出错时，只有连接仍在处理同一个请求才中止 */
+        void abortIfCurrent(Exchange owner, Throwable error) {
+            if (exchange == owner && owner != null) {
+                abort(error);
+            }
+        }
+
+        private boolean flushNetOut() throws IOException {
+            while (netOut.hasRemaining()) {
+                if (channel.write(netOut) == 0) {
+                    return false;
+                }
+                // 写入有进展就刷新超时，上传较大的请求体时不会因总耗时超过读超时而失败
+                setDeadline(exchange.model.getConfig().getReadTimeout());
+            }
+            return true;
+        }
+
+        private void advanceHandshake() throws IOException {
+            while (true) {
+                if (!flushNetOut()) {
+                    setInterest(SelectionKey.OP_WRITE);
+                    return;
+                }
+                SSLEngineResult result;
+                switch (engine.getHandshakeStatus()) {
+                    case NEED_WRAP:
+                        netOut.compact();
+                        result = engine.wrap(EMPTY, netOut);
+                        netOut.flip();
+                        if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new SSLException("SSLEngine closed during handshake");
+                        }
+                        break;
+                    case NEED_TASK:
+                        Runnable task;
+                        while ((task = engine.getDelegatedTask()) != null) {
+                            task.run();
+                        }
+                        break;
+                    case FINISHED:
+                    case NOT_HANDSHAKING:
+                        handshaking = false;
+                        startRequest();
+                        return;
+                    default: // NEED_UNWRAP
+                        netIn.flip();
+                        result = engine.unwrap(netIn, appIn);
+                        netIn.compact();
+                        if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                            int n = channel.read(netIn);
+                            if (n < 0) {
+                                throw new EOFException("connection closed during TLS handshake");
+                            }
+                            if (n == 0) {
+                                setInterest(SelectionKey.OP_READ);
+                                return;
+                            }
+                        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw new SSLException("SSLEngine closed during handshake");
+                        }
+                }
+            }
+        }
+
+        private void readResponse() throws IOException {
+            while (true) {
+                int n = channel.read(engine != null ? netIn : appIn);
+                if (n > 0) {
+                    setDeadline(exchange.model.getConfig().getReadTimeout());
+                }
+                boolean pending;
+                do {
+                    pending = engine != null && unwrap();
+                    appIn.flip();
+                    try {
+                        parser.feed(appIn);
+                    } finally {
+                        appIn.compact();
+                    }
+                    if (parser.done) {
+                        finish();
+                        return;
+                    }
+                    if (parser.paused()) {
+                        pauseReading();
+                        return;
+                    }
+                } while (pending);
+                if (n < 0) {
+                    parser.onEof();
+                    if (!parser.done) {
+                        throw new EOFException("connection closed before response completed");
+                    }
+                    finish();
+                    return;
+                }
+                if (n == 0) {
+                    return;
+                }
+            }
+        }
+
+        /** 工作线程处理不过来时停止读取，积压减少后再继续 */
+        private void pauseReading() {
+            setInterest(0);
+            Exchange owner = exchange;
+            parser.relay.onDrained(
+                    () ->
+                            loop.execute(
+                                    () -> {
+                                        if (exchange != owner || parser == null) {
+                                            return;
+                                        }
+                                        try {
+                                            setInterest(SelectionKey.OP_READ);
+                                            readResponse();
+                                        } catch (IOException | RuntimeException e) {
+                                            abort(e);
+                                        }
+                                    }));
+        }
+
+        /** 解密netIn中的数据到appIn，appIn已满还有剩余数据时返回true */
+        private boolean unwrap() throws IOException {
+            netIn.flip();
+            try {
+                while (netIn.hasRemaining()) {
+                    SSLEngineResult result = engine.unwrap(netIn, appIn);
+                    switch (result.getStatus()) {
+                        case BUFFER_OVERFLOW:
+                            return true;
+                        case BUFFER_UNDERFLOW:
+                            return false;
+                        case CLOSED:
+                            parser.onEof();
+                            return false;
+                        default:
+                            if (result.getHandshakeStatus()
+                                    == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                                Runnable task;
+                                while ((task = engine.getDelegatedTask()) != null) {
+                                    task.run();
+                                }
+                            }
+                            if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                                return false;
+                            }
+                    }
+                }
+                return false;
+            } finally {
+                netIn.compact();
+            }
+        }
+
+        /** 响应读取完成：归还或关闭连接，然后完成请求或跟随重定向 */
+        private void finish() {
+            Exchange current = exchange;
+            ResponseParser response = parser;
+            exchange = null;
+            parser = null;
+            if (response.reusable()
+                    && (engine == null || netIn.position() == 0)
+                    && state.get() == ACTIVE) {
+                release();
+            } else {
+                state.set(CLOSED);
+                close();
+            }
+            if (response.redirect != null) {
+                current.url = response.redirect;
+                current.redirects++;
+                int statusCode = response.statusCode;
+                if (statusCode == 303
+                        || ((statusCode == 301 || statusCode == 302)
+                                && !"GET".equals(current.method)
+                                && !"HEAD".equals(current.method))) {
+                    current.method = "GET";
+                    current.sendBody = false;
+                }
+                dispatch(current);
+                return;
+            }
+            response.complete()
+                    .whenComplete(
+                            (result, error) -> {
+                                if (error == null) {
+                                    current.future.complete(result);
+                                } else if (response.relay != null) {
+                                    // 工作线程中的回调出错和读取过程中出错一样按配置重试
+                                    fail(current, error, false);
+                                } else {
+                                    current.future.completeExceptionally(error);
+                                }
+                            });
+        }
+
+        /** 放回连接池，空闲期间只关注可读事件用于检测失效连接 */
+        private void release() {
+            reused = false;
+            Deque<Connection> connections =
+                    pool.computeIfAbsent(route, r -> new ConcurrentLinkedDeque<>());
+            if (closed || connections.size() >= maxIdlePerHost) {
+                state.set(CLOSED);
+                close();
+                return;
+            }
+            releaseBuffers();
+            setInterest(SelectionKey.OP_READ);
+            int generation = ++idleGeneration;
+            state.set(IDLE);
+            connections.addLast(this);
+            long now = System.currentTimeMillis();
+            if (idleTimeoutMillis < Long.MAX_VALUE - now) {
+                loop.addTimer(now + idleTimeoutMillis, () -> checkIdle(generation));
+            }
+        }
+
+        /** 放回连接池后一直没有被取用的连接超时关闭 */
+        private void checkIdle(int generation) {
+            if (generation == idleGeneration && state.compareAndSet(IDLE, CLOSED)) {
+                idleEvicted.incrementAndGet();
+                close();
+            }
+        }
+
+        void abort(Throwable error) {
+            Exchange current = exchange;
+            boolean stale = reused && (parser == null || !parser.started);
+            exchange = null;
+            if (parser != null) {
+                parser.abort();
+                parser = null;
+            }
+            state.set(CLOSED);
+            close();
+            if (current != null) {
+                fail(current, error, stale);
+            }
+        }
+
+        void close() {
+            loop.connections.remove(this);
+            Deque<Connection> connections = pool.get(route);
+            if (connections != null) {
+                connections.remove(this);
+            }
+            if (source != null) {
+                source.close();
+                source = null;
+            }
+            staged = null;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            releaseBuffers();
+        }
+    }
+
+    /** 按字节解析HTTP/1.1响应的状态机，状态行和头部先写入复用的行缓冲区 */
+    private final class ResponseParser {
+        static final int STATUS_LINE = 0;
+        static final int HEADERS = 1;
+        static final int BODY_FIXED = 2;
+        static final int BODY_EOF = 3;
+        static final int CHUNK_SIZE = 4;
+        static final int CHUNK_DATA = 5;
+        static final int CHUNK_END = 6;
+        static final int TRAILERS = 7;
+
+        final Exchange exchange;
+        final HandlerRelay relay;
+        final JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        int state = STATUS_LINE;
+        byte[] line = new byte[256];
+        int lineLength;
+        int statusCode;
+        boolean http11;
+        boolean connectionClose;
+        boolean connectionKeepAlive;
+        boolean chunked;
+        long contentLength = -1;
+        long remaining;
+        boolean started;
+        boolean done;
+        boolean trailingBytes;
+        URL redirect;
+        ContentDecoder.Incremental decoder;
+        long totalBytes;
+        byte[] scratch;
+
+        ResponseParser(Exchange exchange) {
+            this.exchange = exchange;
+            this.relay = exchange.relay;
+        }
+
+        void feed(ByteBuffer buffer) throws IOException {
+            if (buffer.hasRemaining()) {
+                started = true;
+            }
+            while (buffer.hasRemaining() && !done && !paused()) {
+                switch (state) {
+                    case BODY_FIXED:
+                    case CHUNK_DATA:
+                        {
+                            int n = body(buffer, (int) Math.min(remaining, buffer.remaining()));
+                            remaining -= n;
+                            if (remaining == 0) {
+                                if (state == BODY_FIXED) {
+                                    done = true;
+                                } else {
+                                    state = CHUNK_END;
+                                }
+                            }
+                            break;
+                        }
+                    case BODY_EOF:
+                        body(buffer, buffer.remaining());
+                        break;
+                    default:
+                        if (readLine(buffer)) {
+                            processLine();
+                            lineLength = 0;
+                        }
+                }
+            }
+            if (done && buffer.hasRemaining()) {
+                trailingBytes = true;
+                buffer.position(buffer.limit());
+            }
+        }
+
+        /** 工作线程积压过多，停止解析，剩余数据留在缓冲区中 */
+        boolean paused() {
+            return relay != null && relay.backlogged();
+        }
+
+        void onEof() {
+            if (state == BODY_EOF) {
+                done = true;
+            }
+        }
+
+        boolean reusable() {
+            boolean keepAlive = http11 ? !connectionClose : connectionKeepAlive;
+            return keepAlive && state != BODY_EOF && !trailingBytes;
+        }
+
+        /** 读取到换行符时返回true，行内容（不含CRLF）在line中 */
+        private boolean readLine(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                        lineLength--;
+                    }
+                    return true;
+                }
+                if (lineLength == line.length) {
+                    if (line.length >= MAX_LINE_LENGTH) {
+                        throw new ProtocolException("response header line too long");
+                    }
+                    byte[] grown = new byte[Math.min(MAX_LINE_LENGTH, line.length * 2)];
+                    System.arraycopy(line, 0, grown, 0, lineLength);
+                    line = grown;
+                }
+                line[lineLength++] = b;
+            }
+            return false;
+        }
+
+        private void processLine() throws IOException {
+            switch (state) {
+                case STATUS_LINE:
+                    if (lineLength == 0) {
+                        return; // 忽略状态行之前的空行
+                    }
+                    parseStatusLine();
+                    state = HEADERS;
+                    break;
+                case HEADERS:
+                    if (lineLength == 0) {
+                        headersComplete();
+                    } else {
+                        parseHeader();
+                    }
+                    break;
+                case CHUNK_SIZE:
+                    remaining = parseChunkSize();
+                    state = remaining == 0 ? TRAILERS : CHUNK_DATA;
+                    break;
+                case CHUNK_END:
+                    if (lineLength != 0) {
+                        throw new ProtocolException("invalid chunked encoding");
+                    }
+                    state = CHUNK_SIZE;
+                    break;
+                case TRAILERS:
+                    if (lineLength == 0) {
+                        done = true;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("unexpected state " + state);
+            }
+        }
+
+        private void parseStatusLine() throws IOException {
+            // HTTP/1.1 200 OK
+            if (lineLength < 12
+                    || line[0] != 'H'
+                    || line[1] != 'T'
+                    || line[2] != 'T'
+                    || line[3] != 'P'
+                    || line[4] != '/'
+                    || line[8] != ' ') {
+                throw new ProtocolException(
+                        "invalid status line: "
+                                + new String(line, 0, lineLength, StandardCharsets.ISO_8859_1));
+            }
+            http11 = line[5] == '1' && line[7] != '0';
+            int code = 0;
+            for (int i = 9; i < 12; i++) {
+                int digit = line[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new ProtocolException("invalid status code");
+                }
+                code = code * 10 + digit;
+            }
+            statusCode = code;
+            response.setStatusCode(code);
+            response.setStatusMessage(
+                    lineLength > 13
+                            ? new String(line, 13, lineLength - 13, StandardCharsets.ISO_8859_1)
+                            : "");
+        }
+
+        private void parseHeader() throws IOException {
+            int colon = -1;
+            for (int i = 0; i < lineLength; i++) {
+                if (line[i] == ':') {
+                    colon = i;
+                    break;
+                }
+            }
+            if (colon <= 0) {
+                throw new ProtocolException("invalid header line");
+            }
+            int start = colon + 1;
+            int end = lineLength;
+            while (start < end && (line[start] == ' ' || line[start] == '\t')) start++;
+            while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\t')) end--;
+            String name = new String(line, 0, colon, StandardCharsets.ISO_8859_1);
+            String value = new String(line, start, end - start, StandardCharsets.UTF_8);
+            response.addHeader(name, value);
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new ProtocolException("invalid Content-Length: " + value);
+                }
+            } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                chunked = value.toLowerCase().contains("chunked");
+            } else if ("Connection".equalsIgnoreCase(name)) {
+                String lower = value.toLowerCase();
+                connectionClose |= lower.contains("close");
+                connectionKeepAlive |= lower.contains("keep-alive");
+            }
+        }
+
+        private long parseChunkSize() throws IOException {
+            long size = 0;
+            int digits = 0;
+            for (int i = 0; i < lineLength; i++) {
+                int c = line[i];
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    if (c == ';' || c == ' ' || c == '\t') {
+                        break;
+                    }
+                    throw new ProtocolException("invalid chunk size");
+                }
+                if (++digits > 15) {
+                    throw new ProtocolException("chunk size too large");
+                }
+                size = (size << 4) | digit;
+            }
+            if (digits == 0) {
+                throw new ProtocolException("invalid chunk size");
+            }
+            return size;
+        }
+
+        private void headersComplete() throws IOException {
+            // 忽略1xx中间响应（101除外），继续读取最终响应
+            if (statusCode >= 100 && statusCode < 200 && statusCode != 101) {
+                reset();
+                return;
+            }
+            JCurl.HttpRequestModel.RequestConfig config = exchange.model.getConfig();
+            String location = response.getHeader("Location");
+            if (config.isFollowRedirects() && isRedirect(statusCode) && location != null) {
+                if (exchange.redirects >= MAX_REDIRECTS) {
+                    throw new ProtocolException("Server redirected too many times");
+                }
+                redirect = new URL(exchange.url, location);
+            } else {
+                decoder =
+                        ContentDecoders.newDecoder(
+                                response.getHeader(CONTENT_ENCODING), config.getBufferSize());
+                JCurl.StreamHandler handler = exchange.handler;
+                int code = response.getStatusCode();
+                String message = response.getStatusMessage();
+                Map<String, List<String>> headers = response.getHeaders();
+                if (relay != null) {
+                    relay.submit(null, () -> handler.onStart(code, message, headers));
+                } else {
+                    handler.onStart(code, message, headers);
+                }
+            }
+
+            if ("HEAD".equals(exchange.method)
+                    || statusCode == 204
+                    || statusCode == 304
+                    || statusCode < 200) {
+                done = true;
+            } else if (chunked) {
+                state = CHUNK_SIZE;
+            } else if (contentLength >= 0) {
+                remaining = contentLength;
+                state = BODY_FIXED;
+                done = contentLength == 0;
+            } else {
+                state = BODY_EOF;
+            }
+        }
+
+        private void reset() {
+            response.getHeaders().clear();
+            state = STATUS_LINE;
+            chunked = false;
+            contentLength = -1;
+            connectionClose = false;
+            connectionKeepAlive = false;
+        }
+
+        /** 把响应体交给handler，返回消费的字节数，暂停时可能少于length */
+        private int body(ByteBuffer buffer, int length) throws IOException {
+            if (redirect != null) {
+                buffer.position(buffer.position() + length);
+                return length;
+            }
+            int bufferSize = exchange.model.getConfig().getBufferSize();
+            int consumed = 0;
+            while (consumed < length && !paused()) {
+                int n = Math.min(length - consumed, bufferSize);
+                // 网络缓冲区是direct buffer，分批复制到复用的堆数组后解压并交给handler
+                if (relay != null) {
+                    byte[] chunk = relay.chunk(n);
+                    buffer.get(chunk, 0, n);
+                    relay.submit(chunk, () -> decode(chunk, n));
+                } else {
+                    if (scratch == null) {
+                        scratch = BufferPool.shared().acquire(bufferSize);
+                    }
+                    buffer.get(scratch, 0, n);
+                    decode(scratch, n);
+                }
+                consumed += n;
+            }
+            return consumed;
+        }
+
+        private void decode(byte[] chunk, int length) throws IOException {
+            if (decoder != null) {
+                decoder.decode(chunk, 0, length, this::emit);
+            } else {
+                emit(chunk, 0, length);
+            }
+        }
+
+        private void emit(byte[] chunk, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            totalBytes += length;
+            long maxDownloadSize = exchange.model.getConfig().getMaxDownloadSize();
+            if (maxDownloadSize > 0 && totalBytes > maxDownloadSize) {
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
+            exchange.handler.onChunk(chunk, offset, length);
+        }
+
+        /** 完成响应，handler在工作线程中执行时等全部回调结束后才完成 */
+        CompletableFuture<JCurl.HttpResponseModel> complete() {
+            CompletableFuture<JCurl.HttpResponseModel> result = new CompletableFuture<>();
+            JCurl.StreamHandler handler = exchange.handler;
+            JCurl.BodyBuffer buffer = exchange.buffer;
+            IOTask last =
+                    () -> {
+                        if (decoder != null) {
+                            decoder.finish(this::emit);
+                        }
+                        handler.onComplete();
+                        if (buffer != null) {
+                            buffer.applyTo(response);
+                        }
+                    };
+            if (relay != null) {
+                relay.finish(last)
+                        .whenComplete(
+                                (ignored, error) -> {
+                                    if (error == null) {
+                                        release();
+                                        result.complete(response);
+                                    } else {
+                                        discard(buffer);
+                                        result.completeExceptionally(error);
+                                    }
+                                });
+                return result;
+            }
+            try {
+                last.run();
+                release();
+                result.complete(response);
+            } catch (IOException | RuntimeException e) {
+                discard(buffer);
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        void abort() {
+            JCurl.BodyBuffer buffer = exchange.buffer;
+            if (relay != null) {
+                // 等已排队的回调结束后再释放解压器和删除临时文件
+                relay.cancel(() -> discard(buffer));
+            } else {
+                discard(buffer);
+            }
+        }
+
+        private void discard(JCurl.BodyBuffer buffer) {
+            release();
+            if (buffer != null) {
+                buffer.discard();
+            }
+        }
+
+        private void release() {
+            if (decoder != null) {
+                decoder.close();
+            }
+            BufferPool.shared().release(scratch);
+            scratch = null;
+        }
+    }
+
+    /** 可能抛出IOException的回调 */
+    private interface IOTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * 在工作线程中按顺序解压响应体并调用handler，selector线程只复制数据
+     *
+     * <p>回调出错时中止连接，之后的回调不再执行
+     */
+    private final class HandlerRelay {
+        private final Exchange exchange;
+        private final Connection connection;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        /** 复用的数据块，同一请求只在少量数组间轮换，请求结束后还给缓冲池 */
+        private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+
+        private final AtomicReference<Runnable> drained = new AtomicReference<>();
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+
+        HandlerRelay(Exchange exchange, Connection connection) {
+            this.exchange = exchange;
+            this.connection = connection;
+        }
+
+        /** 借出至少length字节的数据块，交给{@link #submit}的任务执行后自动归还 */
+        byte[] chunk(int length) {
+            byte[] chunk = free.poll();
+            if (chunk != null && chunk.length >= length) {
+                return chunk;
+            }
+            if (chunk != null) {
+                BufferPool.shared().release(chunk);
+            }
+            return BufferPool.shared().acquire(length);
+        }
+
+        /** 等待处理的数据块是否过多，应暂停读取 */
+        boolean backlogged() {
+            return inFlight.get() >= MAX_RELAY_CHUNKS;
+        }
+
+        /** 积压降到一半以下或回调出错时调用一次resume */
+        void onDrained(Runnable resume) {
+            drained.set(resume);
+            if (inFlight.get() <= MAX_RELAY_CHUNKS / 2 || error != null) {
+                runDrained();
+            }
+        }
+
+        /** 把任务接到回调链后面，之前的回调已出错时直接抛出该异常 */
+        void submit(byte[] chunk, IOTask task) throws IOException {
+            Throwable failure = error;
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+            enqueue(chunk, task);
+        }
+
+        /** 在所有回调之后执行last，返回的future在任一回调出错时异常完成 */
+        CompletableFuture<Void> finish(IOTask last) {
+            enqueue(null, last);
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            exchange.callbacks.whenComplete(
+                    (ignored, e) -> {
+                        releaseChunks();
+                        Throwable failure = error;
+                        if (failure == null && e != null) {
+                            failure = e instanceof CompletionException ? e.getCause() : e;
+                        }
+                        if (failure != null) {
+                            result.completeExceptionally(failure);
+                        } else {
+                            result.complete(null);
+                        }
+                    });
+            return result;
+        }
+
+        /** 放弃还没执行的回调，已排队的回调结束后执行cleanup */
+        void cancel(Runnable cleanup) {
+            cancelled = true;
+            exchange.callbacks.whenComplete(
+                    (ignored, e) -> {
+                        releaseChunks();
+                        cleanup.run();
+                    });
+        }
+
+        private void enqueue(byte[] chunk, IOTask task) {
+            if (chunk != null) {
+                inFlight.incrementAndGet();
+            }
+            exchange.callbacks =
+                    exchange.callbacks.thenRunAsync(
+                            () -> {
+                                try {
+                                    if (!cancelled && error == null) {
+                                        task.run();
+                                    }
+                                } catch (IOException | RuntimeException e) {
+                                    error = e;
+                                    connection.loop.execute(
+                                            () -> {
+                                                if (exchange.relay == this) {
+                                                    connection.abortIfCurrent(exchange, e);
+                                                }
+                                            });
+                                } finally {
+                                    if (chunk != null) {
+                                        free.add(chunk);
+                                        if (inFlight.decrementAndGet() <= MAX_RELAY_CHUNKS / 2) {
+                                            runDrained();
+                                        }
+                                    }
+                                    if (error != null) {
+                                        runDrained();
+                                    }
+                                }
+                            },
+                            JCurl.getAsyncExecutor());
+        }
+
+        private void releaseChunks() {
+            byte[] chunk;
+            while ((chunk = free.poll()) != null) {
+                BufferPool.shared().release(chunk);
+            }
+        }
+
+        private void runDrained() {
+            Runnable resume = drained.getAndSet(null);
+            if (resume != null) {
+                resume.run();
+            }
+        }
+    }
+}
@@ -1,58 +1,92 @@
 package io.github.jsbxyyx.jcurl;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Credentials;
+import okhttp3.Dns;
 import okhttp3.MediaType;
-import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 
-import javax.net.ssl.KeyManager;
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
+import javax.net.SocketFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Authenticator;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.PasswordAuthentication;
 import java.net.Proxy;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.security.KeyStore;
-import java.security.SecureRandom;
-import java.security.cert.X509Certificate;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static io.github.jsbxyyx.jcurl.JCurl.Constants.APPLICATION_OCTET_STREAM_VALUE;
 import static io.github.jsbxyyx.jcurl.JCurl.Constants.APPLICATION_X_WWW_FORM_URLENCODED_VALUE;
 import static io.github.jsbxyyx.jcurl.JCurl.Constants.AUTHORIZATION;
 import static io.github.jsbxyyx.jcurl.JCurl.Constants.CONTENT_ENCODING;
 import static io.github.jsbxyyx.jcurl.JCurl.Constants.CONTENT_TYPE;
 import static io.github.jsbxyyx.jcurl.JCurl.Constants.COOKIE;
-import static io.github.jsbxyyx.jcurl.JCurl.Constants.DEFLATE_VALUE;
-import static io.github.jsbxyyx.jcurl.JCurl.Constants.GZIP_VALUE;
 import static io.github.jsbxyyx.jcurl.JCurl.Constants.PROXY_AUTHORIZATION;
 
 /** OkHttp实现的HTTP请求执行器 需要依赖: com.squareup.okhttp3:okhttp:4.x */
 public class OkHttpExecutor implements JCurl.HttpExecutor {
 
-    private static final OkHttpExecutor DEFAULT = new OkHttpExecutor(null);
-
-    private final OkHttpClient baseClient;
-
-    private OkHttpExecutor(OkHttpClient baseClient) {
-        this.baseClient = baseClient;
+    /** 默认缓存的客户端数量上限 */
+    public static final int DEFAULT_MAX_CACHED_CLIENTS = 16;
+
+    private static final OkHttpExecutor DEFAULT =
+            new OkHttpExecutor(new OkHttpClient(), DEFAULT_MAX_CACHED_CLIENTS);
+
+    /** 异步重试的延迟调度器 */
+    private static final ScheduledExecutorService RETRY_SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(
+                    r -> {
+                        Thread thread = new Thread(r, "jcurl-okhttp-retry");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final OkHttpClient rootClient;
+    private final int maxCachedClients;
+    private final Map<ClientKey, OkHttpClient> clientCache;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheEvictions = new AtomicLong();
+
+    private OkHttpExecutor(OkHttpClient rootClient, int maxCachedClients) {
+        this.rootClient = rootClient;
+        this.maxCachedClients = maxCachedClients;
+        // LRU：按访问顺序排列，超出上限时淘汰最久未使用的客户端
+        this.clientCache =
+                new LinkedHashMap<ClientKey, OkHttpClient>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<ClientKey, OkHttpClient> eldest) {
+                        if (size() > OkHttpExecutor.this.maxCachedClients) {
+                            cacheEvictions.incrementAndGet();
+                            return true;
+                        }
+                        return false;
+                    }
+                };
     }
 
     public static OkHttpExecutor create() {
@@ -60,8 +94,16 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
     }
 
     public static OkHttpExecutor create(OkHttpClient baseClient) {
+        return create(baseClient, DEFAULT_MAX_CACHED_CLIENTS);
+    }
+
+    /** 指定基础客户端和客户端缓存上限创建执行器，派生出的客户端共享基础客户端的连接池和调度器 */
+    public static OkHttpExecutor create(OkHttpClient baseClient, int maxCachedClients) {
         if (baseClient == null) throw new IllegalArgumentException("baseClient cannot be null");
-        return new OkHttpExecutor(baseClient);
+        if (maxCachedClients <= 0) {
+            throw new IllegalArgumentException("maxCachedClients must be greater than 0");
+        }
+        return new OkHttpExecutor(baseClient, maxCachedClients);
     }
 
     public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel) throws IOException {
@@ -69,11 +111,20 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
         Request request = buildRequest(requestModel);
 
         // 执行请求（带重试）
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
         return executeWithRetry(
-                client,
-                request,
-                requestModel.getConfig().getMaxRetries(),
-                requestModel.getConfig().getRetryDelay());
+                client, request, config, response -> buildResponse(response, config));
+    }
+
+    /** 读到响应头即返回，关闭响应体流时关闭OkHttp响应，连接回到连接池 */
+    @Override
+    public JCurl.HttpResponseModel executeOpen(JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        OkHttpClient client = buildClient(requestModel);
+        Request request = buildRequest(requestModel);
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        return executeWithRetry(
+                client, request, config, response -> openResponse(response, config));
     }
 
     @Override
@@ -89,8 +140,7 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
         while (attempts <= maxRetries) {
             try {
                 Response response = client.newCall(request).execute();
-                return buildResponseStream(
-                        response, requestModel.getConfig().getMaxDownloadSize(), handler);
+                return buildResponseStream(response, requestModel.getConfig(), handler);
             } catch (IOException e) {
                 lastException = e;
                 attempts++;
@@ -108,8 +158,125 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
         throw new IOException("request failed，retry " + maxRetries + " times", lastException);
     }
 
+    /** 基于{@link Call#enqueue}的异步执行，不占用调用方线程 */
+    @Override
+    public CompletableFuture<JCurl.HttpResponseModel> executeAsync(
+            JCurl.HttpRequestModel requestModel) {
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        return enqueueWithRetry(requestModel, response -> buildResponse(response, config));
+    }
+
+    @Override
+    public CompletableFuture<JCurl.HttpResponseModel> executeStreamAsync(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) {
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        return enqueueWithRetry(
+                requestModel, response -> buildResponseStream(response, config, handler));
+    }
+
+    private CompletableFuture<JCurl.HttpResponseModel> enqueueWithRetry(
+            JCurl.HttpRequestModel requestModel, ResponseReader reader) {
+        CompletableFuture<JCurl.HttpResponseModel> future = new CompletableFuture<>();
+        // 当前正在执行的请求，重试时替换；取消future时取消它
+        AtomicReference<Call> current = new AtomicReference<>();
+        future.whenComplete(
+                (response, error) -> {
+                    Call call = current.get();
+                    if (future.isCancelled() && call != null) {
+                        call.cancel();
+                    }
+                });
+        try {
+            OkHttpClient client = buildClient(requestModel);
+            Request request = buildRequest(requestModel);
+            enqueue(
+                    client,
+                    request,
+                    reader,
+                    future,
+                    current,
+                    0,
+                    requestModel.getConfig().getMaxRetries(),
+                    requestModel.getConfig().getRetryDelay());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static void enqueue(
+            OkHttpClient client,
+            Request request,
+            ResponseReader reader,
+            CompletableFuture<JCurl.HttpResponseModel> future,
+            AtomicReference<Call> current,
+            int attempts,
+            int maxRetries,
+            int retryDelay) {
+        if (future.isDone()) {
+            return;
+        }
+        Call call = client.newCall(request);
+        current.set(call);
+        // 设置之前future已被取消时，取消回调看不到这次请求
+        if (future.isCancelled()) {
+            return;
+        }
+        call.enqueue(
+                new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        retryOrFail(e);
+                    }
+
+                    @Override
+                    public void onResponse(Call call, Response response) {
+                        try {
+                            future.complete(reader.read(response));
+                        } catch (IOException e) {
+                            retryOrFail(e);
+                        } catch (RuntimeException e) {
+                            future.completeExceptionally(e);
+                        } finally {
+                            response.close();
+                        }
+                    }
+
+                    private void retryOrFail(IOException e) {
+                        int nextAttempts = attempts + 1;
+                        if (nextAttempts > maxRetries || future.isDone()) {
+                            future.completeExceptionally(
+                                    new IOException(
+                                            "request failed，retry " + maxRetries + " times", e));
+                            return;
+                        }
+                        RETRY_SCHEDULER.schedule(
+                                () ->
+                                        enqueue(
+                                                client,
+                                                request,
+                                                reader,
+                                                future,
+                                                current,
+                                                nextAttempts,
+                                                maxRetries,
+                                                retryDelay),
+                                retryDelay,
+                                TimeUnit.MILLISECONDS);
+                    }
+                });
+    }
+
+    /** 读取响应 */
+    @FunctionalInterface
+    private interface ResponseReader {
+        JCurl.HttpResponseModel read(Response response) throws IOException;
+    }
+
     private static JCurl.HttpResponseModel buildResponseStream(
-            Response response, long maxDownloadSize, JCurl.StreamHandler handler)
+            Response response,
+            JCurl.HttpRequestModel.RequestConfig config,
+            JCurl.StreamHandler handler)
             throws IOException {
         JCurl.HttpResponseModel result = new JCurl.HttpResponseModel();
         result.setStatusCode(response.code());
@@ -124,18 +291,16 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
         handler.onStart(result.getStatusCode(), result.getStatusMessage(), result.getHeaders());
 
         if (response.body() != null) {
-            String encoding = response.header(CONTENT_ENCODING);
-            InputStream bodyStream = response.body().byteStream();
-            if (GZIP_VALUE.equalsIgnoreCase(encoding)) {
-                bodyStream = new GZIPInputStream(bodyStream);
-            } else if (DEFLATE_VALUE.equalsIgnoreCase(encoding)) {
-                bodyStream = new InflaterInputStream(bodyStream);
-            }
+            InputStream bodyStream =
+                    ContentDecoders.decode(
+                            response.body().byteStream(), response.header(CONTENT_ENCODING));
+            long maxDownloadSize = config.getMaxDownloadSize();
+            // 复用缓冲池中的缓冲区，不为每次读取分配新数组
+            byte[] buffer = BufferPool.shared().acquire(config.getBufferSize());
             try {
-                byte[] buffer = new byte[8192];
                 int bytesRead;
                 long totalBytesRead = 0;
-                while ((bytesRead = bodyStream.read(buffer)) != -1) {
+                while ((bytesRead = bodyStream.read(buffer, 0, config.getBufferSize())) != -1) {
                     totalBytesRead += bytesRead;
                     if (maxDownloadSize > 0 && totalBytesRead > maxDownloadSize) {
                         throw new IOException(
@@ -143,11 +308,10 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
                                         + maxDownloadSize
                                         + " bytes");
                     }
-                    byte[] chunk = new byte[bytesRead];
-                    System.arraycopy(buffer, 0, chunk, 0, bytesRead);
-                    handler.onChunk(chunk);
+                    handler.onChunk(buffer, 0, bytesRead);
                 }
             } finally {
+                BufferPool.shared().release(buffer);
                 bodyStream.close();
             }
         }
@@ -157,79 +321,358 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
     }
 
     private OkHttpClient buildClient(JCurl.HttpRequestModel requestModel) {
-        OkHttpClient.Builder builder =
-                baseClient != null ? baseClient.newBuilder() : new OkHttpClient.Builder();
-        builder.connectTimeout(requestModel.getConfig().getConnectTimeout(), TimeUnit.MILLISECONDS)
-                .readTimeout(requestModel.getConfig().getReadTimeout(), TimeUnit.MILLISECONDS)
-                .followRedirects(requestModel.getConfig().isFollowRedirects())
-                .followSslRedirects(requestModel.getConfig().isFollowRedirects());
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        Proxy proxy = createProxy(config);
 
-        // SSL验证和客户端证书配置
-        if (!requestModel.getConfig().isVerifySSL()
-                || requestModel.getConfig().getCertPath() != null
-                || requestModel.getConfig().getCertBytes() != null) {
-            configureSSL(builder, requestModel.getConfig());
+        // SOCKS代理认证（全局Authenticator，每次请求都需要设置）
+        if (proxy != null && proxy.type() == Proxy.Type.SOCKS) {
+            configureSocksAuth(config);
         }
 
-        // 代理设置
-        boolean isProxy = false;
-        if (requestModel.getConfig().getProxy() == null) {
-            if (requestModel.getConfig().getProxyHost() != null
-                    && requestModel.getConfig().getProxyPort() > 0) {
-                Proxy proxy =
-                        new Proxy(
-                                requestModel.getConfig().getProxyType(),
-                                new InetSocketAddress(
-                                        requestModel.getConfig().getProxyHost(),
-                                        requestModel.getConfig().getProxyPort()));
-                builder.proxy(proxy);
-                isProxy = true;
+        ClientKey key = new ClientKey(config, proxy);
+        synchronized (clientCache) {
+            OkHttpClient client = clientCache.get(key);
+            if (client != null) {
+                cacheHits.incrementAndGet();
+                return client;
             }
-        } else {
-            builder.proxy(requestModel.getConfig().getProxy());
-            isProxy = true;
         }
-        if (isProxy) {
+        cacheMisses.incrementAndGet();
+
+        OkHttpClient client = newClient(config, proxy);
+        synchronized (clientCache) {
+            OkHttpClient existing = clientCache.putIfAbsent(key, client);
+            return existing != null ? existing : client;
+        }
+    }
+
+    private OkHttpClient newClient(JCurl.HttpRequestModel.RequestConfig config, Proxy proxy) {
+        // 所有客户端都派生自同一个根客户端，共享连接池和调度器
+        OkHttpClient.Builder builder = rootClient.newBuilder();
+        builder.connectTimeout(config.getConnectTimeout(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeout(), TimeUnit.MILLISECONDS)
+                .followRedirects(config.isFollowRedirects())
+                .followSslRedirects(config.isFollowRedirects());
+
+        // SSL验证和客户端证书配置
+        if (!config.isVerifySSL()
+                || config.getCertPath() != null
+                || config.getCertBytes() != null) {
+            configureSSL(builder, config);
+        }
+
+        // 域名解析：没有指定解析器且基础客户端使用了自定义Dns时保留基础客户端的设置
+        DnsResolver resolver = config.effectiveDnsResolver();
+        Dns dns = rootClient.dns();
+        if (config.getDnsResolver() != null || dns == Dns.SYSTEM) {
+            dns = resolver::resolve;
+            builder.dns(dns);
+        }
+
+        // --resolve和--connect-to：映射中的主机先返回占位地址，建立连接时再换成映射的地址和端口
+        HostMapping mapping = config.hostMapping();
+        if (mapping != null) {
+            MappingDns mappingDns = new MappingDns(mapping, dns);
+            builder.dns(mappingDns);
+            builder.socketFactory(new MappingSocketFactory(mappingDns, mapping, resolver));
+        }
+
+        // 代理设置
+        if (proxy != null) {
+            builder.proxy(proxy);
             // HTTP代理认证
-            if (requestModel.getConfig().getProxy().type() == Proxy.Type.HTTP
-                    && requestModel.getConfig().getProxyUsername() != null) {
+            if (proxy.type() == Proxy.Type.HTTP && config.getProxyUsername() != null) {
+                String credential =
+                        Credentials.basic(
+                                config.getProxyUsername(),
+                                config.getProxyPassword() != null ? config.getProxyPassword() : "");
                 builder.proxyAuthenticator(
-                        (route, response) -> {
-                            String credential =
-                                    Credentials.basic(
-                                            requestModel.getConfig().getProxyUsername(),
-                                            requestModel.getConfig().getProxyPassword() != null
-                                                    ? requestModel.getConfig().getProxyPassword()
-                                                    : "");
-                            return response.request()
-                                    .newBuilder()
-                                    .header(PROXY_AUTHORIZATION, credential)
-                                    .build();
-                        });
-            }
-            // SOCKS代理认证
-            if (requestModel.getConfig().isSocksProxy()
-                    && requestModel.getConfig().getProxyUsername() != null) {
-                Authenticator.setDefault(
-                        new Authenticator() {
-                            @Override
-                            protected PasswordAuthentication getPasswordAuthentication() {
-                                return new PasswordAuthentication(
-                                        requestModel.getConfig().getProxyUsername(),
-                                        requestModel.getConfig().getProxyPassword() == null
-                                                ? "".toCharArray()
-                                                : requestModel
-                                                        .getConfig()
-                                                        .getProxyPassword()
-                                                        .toCharArray());
-                            }
-                        });
+                        (route, response) ->
+                                response.request()
+                                        .newBuilder()
+                                        .header(PROXY_AUTHORIZATION, credential)
+                                        .build());
             }
         }
 
         return builder.build();
     }
 
+    private static Proxy createProxy(JCurl.HttpRequestModel.RequestConfig config) {
+        if (config.getProxy() != null) {
+            return config.getProxy();
+        }
+        if (config.getProxyHost() != null && config.getProxyPort() > 0) {
+            return new Proxy(
+                    config.getProxyType(),
+                    new InetSocketAddress(config.getProxyHost(), config.getProxyPort()));
+        }
+        return null;
+    }
+
+    private static void configureSocksAuth(JCurl.HttpRequestModel.RequestConfig config) {
+        if (config.getProxyUsername() == null) {
+            return;
+        }
+        String username = config.getProxyUsername();
+        char[] password =
+                config.getProxyPassword() == null
+                        ? new char[0]
+                        : config.getProxyPassword().toCharArray();
+        Authenticator.setDefault(
+                new Authenticator() {
+                    @Override
+                    protected PasswordAuthentication getPasswordAuthentication() {
+                        return new PasswordAuthentication(username, password);
+                    }
+                });
+    }
+
+    /** 获取客户端缓存统计 */
+    public ClientCacheStats getClientCacheStats() {
+        int size;
+        synchronized (clientCache) {
+            size = clientCache.size();
+        }
+        return new ClientCacheStats(
+                cacheHits.get(), cacheMisses.get(), cacheEvictions.get(), size, maxCachedClients);
+    }
+
+    /** 清空客户端缓存（共享的连接池保留） */
+    public void clearClientCache() {
+        synchronized (clientCache) {
+            clientCache.clear();
+        }
+    }
+
+    /** 客户端缓存统计 */
+    public static class ClientCacheStats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+        private final int maxSize;
+
+        ClientCacheStats(long hits, long misses, long evictions, int size, int maxSize) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+            this.maxSize = maxSize;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        @Override
+        public String toString() {
+            return "ClientCacheStats{"
+                    + "hits="
+                    + hits
+                    + ", misses="
+                    + misses
+                    + ", evictions="
+                    + evictions
+                    + ", size="
+                    + size
+                    + ", maxSize="
+                    + maxSize
+                    + '}';
+        }
+    }
+
+    /**
+     * 映射可能命中的主机返回占位地址，其余主机交给原来的Dns。OkHttp的Dns不知道端口，
+     * 是否命中和实际地址在建立连接时按主机和端口决定
+     *
+     * <p>每个主机分配不同的占位地址（0.0.0.0/8中不能连接的地址），OkHttp不会因为地址相同把不同主机
+     * 的请求合并到同一个HTTP/2连接上。
+     */
+    private static final class MappingDns implements Dns {
+        private final HostMapping mapping;
+        private final Dns base;
+        private final Map<String, InetAddress> placeholders = new ConcurrentHashMap<>();
+        private final AtomicInteger nextPlaceholder = new AtomicInteger();
+
+        MappingDns(HostMapping mapping, Dns base) {
+            this.mapping = mapping;
+            this.base = base;
+        }
+
+        @Override
+        public List<InetAddress> lookup(String host) throws UnknownHostException {
+            if (!mapping.mayApply(host)) {
+                return base.lookup(host);
+            }
+            InetAddress placeholder = placeholders.get(host);
+            if (placeholder == null) {
+                int n = nextPlaceholder.incrementAndGet();
+                if (n > 0xFFFFFF) {
+                    throw new UnknownHostException("too many mapped hosts: " + host);
+                }
+                byte[] address = {0, (byte) (n >>> 16), (byte) (n >>> 8), (byte) n};
+                InetAddress created = InetAddress.getByAddress(host, address);
+                InetAddress existing = placeholders.putIfAbsent(host, created);
+                placeholder = existing != null ? existing : created;
+            }
+            return Collections.singletonList(placeholder);
+        }
+
+        /** 是否是为该主机分配的占位地址 */
+        boolean isPlaceholder(String host, InetAddress address) {
+            return address != null && address.equals(placeholders.get(host));
+        }
+    }
+
+    /**
+     * 把映射主机的占位地址换成--resolve/--connect-to指定的地址和端口，TLS的SNI仍使用URL中的主机名。
+     * OkHttp只使用createSocket()，其余方法按默认方式直接连接
+     */
+    private static final class MappingSocketFactory extends SocketFactory {
+        private final MappingDns dns;
+        private final HostMapping mapping;
+        private final DnsResolver resolver;
+
+        MappingSocketFactory(MappingDns dns, HostMapping mapping, DnsResolver resolver) {
+            this.dns = dns;
+            this.mapping = mapping;
+            this.resolver = resolver;
+        }
+
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public void connect(SocketAddress endpoint, int timeout) throws IOException {
+                    if (endpoint instanceof InetSocketAddress) {
+                        InetSocketAddress address = (InetSocketAddress) endpoint;
+                        // 按主机和端口查找映射，端口没有映射时用解析器解析
+                        if (dns.isPlaceholder(address.getHostString(), address.getAddress())) {
+                            endpoint =
+                                    mapping.connectAddress(
+                                            address.getHostString(), address.getPort(), resolver);
+                        }
+                    }
+                    super.connect(endpoint, timeout);
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return new Socket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+                throws IOException {
+            return new Socket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return new Socket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(
+                InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return new Socket(address, port, localAddress, localPort);
+        }
+    }
+
+    /** 客户端缓存的key，只包含影响连接的配置 */
+    private static final class ClientKey {
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final boolean followRedirects;
+        private final boolean verifySSL;
+        private final String certType;
+        private final String certPath;
+        private final String certPassword;
+        private final byte[] certBytes;
+        private final Proxy proxy;
+        private final String proxyUsername;
+        private final String proxyPassword;
+        private final DnsResolver dnsResolver;
+        private final HostMapping hostMapping;
+        private final int hash;
+
+        ClientKey(JCurl.HttpRequestModel.RequestConfig config, Proxy proxy) {
+            this.connectTimeout = config.getConnectTimeout();
+            this.readTimeout = config.getReadTimeout();
+            this.followRedirects = config.isFollowRedirects();
+            this.verifySSL = config.isVerifySSL();
+            this.certType = config.getCertType();
+            this.certPath = config.getCertPath();
+            this.certPassword = config.getCertPassword();
+            this.certBytes = config.getCertBytes();
+            this.proxy = proxy;
+            this.proxyUsername = config.getProxyUsername();
+            this.proxyPassword = config.getProxyPassword();
+            this.dnsResolver = config.getDnsResolver();
+            this.hostMapping = config.hostMapping();
+            int h =
+                    Objects.hash(
+                            connectTimeout,
+                            readTimeout,
+                            followRedirects,
+                            verifySSL,
+                            certType,
+                            certPath,
+                            certPassword,
+                            proxy,
+                            proxyUsername,
+                            proxyPassword,
+                            dnsResolver,
+                            hostMapping);
+            this.hash = 31 * h + Arrays.hashCode(certBytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClientKey)) return false;
+            ClientKey that = (ClientKey) o;
+            return connectTimeout == that.connectTimeout
+                    && readTimeout == that.readTimeout
+                    && followRedirects == that.followRedirects
+                    && verifySSL == that.verifySSL
+                    && Objects.equals(certType, that.certType)
+                    && Objects.equals(certPath, that.certPath)
+                    && Objects.equals(certPassword, that.certPassword)
+                    && Arrays.equals(certBytes, that.certBytes)
+                    && Objects.equals(proxy, that.proxy)
+                    && Objects.equals(proxyUsername, that.proxyUsername)
+                    && Objects.equals(proxyPassword, that.proxyPassword)
+                    && Objects.equals(dnsResolver, that.dnsResolver)
+                    && Objects.equals(hostMapping, that.hostMapping);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
     private static Request buildRequest(JCurl.HttpRequestModel requestModel) {
         Request.Builder builder = new Request.Builder().url(requestModel.getFullUrl());
 
@@ -272,35 +715,60 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
         // 无请求体
         if (requestModel.getBody() == null
                 && requestModel.getBinaryBody() == null
+                && requestModel.getBodySource() == null
                 && requestModel.getFormFields() == null) {
             return null;
         }
 
-        // Multipart表单
+        // Multipart表单：预先计算长度，文件内容边读边发，长度未知时使用chunked编码
         if (requestModel.getFormFields() != null) {
-            MultipartBody.Builder multipartBuilder =
-                    new MultipartBody.Builder().setType(MultipartBody.FORM);
-
-            for (Map.Entry<String, JCurl.HttpRequestModel.FormField> entry :
-                    requestModel.getAllFormFields()) {
-                JCurl.HttpRequestModel.FormField field = entry.getValue();
-
-                if (field.isFile()) {
-                    File file = new File(field.getFilePath());
-                    MediaType mediaType =
-                            field.getContentType() != null
-                                    ? MediaType.parse(field.getContentType())
-                                    : MediaType.parse(APPLICATION_OCTET_STREAM_VALUE);
-                    multipartBuilder.addFormDataPart(
-                            entry.getKey(),
-                            field.getFileName(),
-                            RequestBody.create(file, mediaType));
-                } else {
-                    multipartBuilder.addFormDataPart(entry.getKey(), field.getValue());
+            JCurl.MultipartForm form = new JCurl.MultipartForm(requestModel.getAllFormFields());
+            MediaType mediaType = MediaType.parse(form.getContentType());
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return mediaType;
                 }
-            }
 
-            return multipartBuilder.build();
+                @Override
+                public long contentLength() {
+                    return form.getContentLength();
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    form.writeTo(sink.outputStream());
+                }
+            };
+        }
+
+        // 文件、流形式的请求体：发送时直接从来源读取，通道来源只能发送一次
+        if (requestModel.getBodySource() != null) {
+            JCurl.HttpRequestModel.BodySource source = requestModel.getBodySource();
+            MediaType mediaType = getMediaType(requestModel.getHeaders());
+            return new RequestBody() {
+                @Override
+                public MediaType contentType() {
+                    return mediaType;
+                }
+
+                @Override
+                public long contentLength() {
+                    return source.getLength();
+                }
+
+                @Override
+                public boolean isOneShot() {
+                    return !source.isRepeatable();
+                }
+
+                @Override
+                public void writeTo(BufferedSink sink) throws IOException {
+                    try (Source in = Okio.source(source.openStream())) {
+                        sink.writeAll(in);
+                    }
+                }
+            };
         }
 
         // 二进制数据
@@ -329,15 +797,20 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
     }
 
     private static JCurl.HttpResponseModel executeWithRetry(
-            OkHttpClient client, Request request, int maxRetries, int retryDelay)
+            OkHttpClient client,
+            Request request,
+            JCurl.HttpRequestModel.RequestConfig config,
+            ResponseReader reader)
             throws IOException {
+        int maxRetries = config.getMaxRetries();
+        int retryDelay = config.getRetryDelay();
         int attempts = 0;
         IOException lastException = null;
 
         while (attempts <= maxRetries) {
             try {
                 Response response = client.newCall(request).execute();
-                return buildResponse(response);
+                return reader.read(response);
             } catch (IOException e) {
                 lastException = e;
                 attempts++;
@@ -356,7 +829,32 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
         throw new IOException("request failed，retry " + maxRetries + " times", lastException);
     }
 
-    private static JCurl.HttpResponseModel buildResponse(Response response) throws IOException {
+    private static JCurl.HttpResponseModel openResponse(
+            Response response, JCurl.HttpRequestModel.RequestConfig config) {
+        JCurl.HttpResponseModel result = new JCurl.HttpResponseModel();
+        result.setStatusCode(response.code());
+        result.setStatusMessage(response.message());
+        for (String name : response.headers().names()) {
+            for (String value : response.headers(name)) {
+                result.addHeader(name, value);
+            }
+        }
+        if (response.body() == null) {
+            response.close();
+            result.setBodyBytes(new byte[0]);
+            return result;
+        }
+        result.setBodyStream(
+                new JCurl.BodyStream(
+                        response.body().byteStream(),
+                        response.header(CONTENT_ENCODING),
+                        config.getMaxDownloadSize(),
+                        response::close));
+        return result;
+    }
+
+    private static JCurl.HttpResponseModel buildResponse(
+            Response response, JCurl.HttpRequestModel.RequestConfig config) throws IOException {
         JCurl.HttpResponseModel result = new JCurl.HttpResponseModel();
         result.setStatusCode(response.code());
         result.setStatusMessage(response.message());
@@ -370,15 +868,24 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
 
         // 响应体
         if (response.body() != null) {
-            byte[] bodyBytes = response.body().bytes();
-            // 处理gzip压缩
-            String encoding = response.header(CONTENT_ENCODING);
-            if (GZIP_VALUE.equalsIgnoreCase(encoding)) {
-                bodyBytes = decompressGzip(bodyBytes);
-            } else if (DEFLATE_VALUE.equalsIgnoreCase(encoding)) {
-                bodyBytes = decompressDeflate(bodyBytes);
+            InputStream rawStream = response.body().byteStream();
+            InputStream bodyStream =
+                    ContentDecoders.decode(rawStream, response.header(CONTENT_ENCODING));
+            JCurl.BodyBuffer body =
+                    new JCurl.BodyBuffer(config.getMaxDownloadSize(), config.getSpillThreshold());
+            // 边读边解压，未压缩时按Content-Length一次分配
+            if (bodyStream == rawStream && !"HEAD".equals(response.request().method())) {
+                body.expect(response.body().contentLength());
             }
-            result.setBodyBytes(bodyBytes);
+            try {
+                body.readFrom(bodyStream);
+            } catch (IOException e) {
+                body.discard();
+                throw e;
+            } finally {
+                bodyStream.close();
+            }
+            body.applyTo(result);
         }
 
         return result;
@@ -387,129 +894,13 @@ public class OkHttpExecutor implements JCurl.HttpExecutor {
     private static void configureSSL(
             OkHttpClient.Builder builder, JCurl.HttpRequestModel.RequestConfig config) {
         try {
-            TrustManager[] trustManagers = null;
-            KeyManager[] keyManagers = null;
-
-            // 配置信任管理器（如果不验证SSL）
+            JCurl.SslContextCache.SslEntry entry = JCurl.SslContextCache.get(config);
+            builder.sslSocketFactory(entry.getSocketFactory(), entry.getTrustManager());
             if (!config.isVerifySSL()) {
-                trustManagers =
-                        new TrustManager[] {
-                            new X509TrustManager() {
-                                @Override
-                                public void checkClientTrusted(
-                                        X509Certificate[] chain, String authType) {}
-
-                                @Override
-                                public void checkServerTrusted(
-                                        X509Certificate[] chain, String authType) {}
-
-                                @Override
-                                public X509Certificate[] getAcceptedIssuers() {
-                                    return new X509Certificate[0];
-                                }
-                            }
-                        };
-            }
-
-            // 配置客户端证书
-            if (config.getCertPath() != null || config.getCertBytes() != null) {
-                keyManagers = loadClientCertificate(config);
-            }
-
-            // 初始化SSL上下文
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(keyManagers, trustManagers, new SecureRandom());
-
-            if (trustManagers != null) {
-                builder.sslSocketFactory(
-                        sslContext.getSocketFactory(), (X509TrustManager) trustManagers[0]);
                 builder.hostnameVerifier((hostname, session) -> true);
-            } else {
-                builder.sslSocketFactory(sslContext.getSocketFactory(), getDefaultTrustManager());
             }
         } catch (Exception e) {
             throw new RuntimeException("config SSL failed.", e);
         }
     }
-
-    private static KeyManager[] loadClientCertificate(JCurl.HttpRequestModel.RequestConfig config)
-            throws Exception {
-        String certType = config.getCertType();
-        if (certType == null || certType.isEmpty()) {
-            certType = JCurl.CertType.P12.getKeystoreType();
-        }
-
-        KeyStore keyStore = KeyStore.getInstance(certType);
-        char[] password =
-                config.getCertPassword() != null
-                        ? config.getCertPassword().toCharArray()
-                        : new char[0];
-
-        // 从字节数组或文件加载证书
-        if (config.getCertBytes() != null) {
-            try (ByteArrayInputStream bis = new ByteArrayInputStream(config.getCertBytes())) {
-                keyStore.load(bis, password);
-            }
-        } else if (config.getCertPath() != null) {
-            try (InputStream fis = Files.newInputStream(Paths.get(config.getCertPath()))) {
-                keyStore.load(fis, password);
-            }
-        } else {
-            throw new IllegalArgumentException("cert path or cert bytes must be provided");
-        }
-
-        KeyManagerFactory kmf =
-                KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
-        kmf.init(keyStore, password);
-        return kmf.getKeyManagers();
-    }
-
-    private static X509TrustManager getDefaultTrustManager() throws Exception {
-        TrustManager[] trustManagers =
-                new TrustManager[] {
-                    new X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(X509Certificate[] chain, String authType) {}
-
-                        @Override
-                        public void checkServerTrusted(X509Certificate[] chain, String authType) {}
-
-                        @Override
-                        public X509Certificate[] getAcceptedIssuers() {
-                            return new X509Certificate[0];
-                        }
-                    }
-                };
-        return (X509TrustManager) trustManagers[0];
-    }
-
-    /** 解压gzip数据 */
-    private static byte[] decompressGzip(byte[] compressed) throws IOException {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(compressed);
-                GZIPInputStream gzipStream = new GZIPInputStream(bis);
-                ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = gzipStream.read(buffer)) != -1) {
-                bos.write(buffer, 0, len);
-            }
-            return bos.toByteArray();
-        }
-    }
-
-    /** 解压deflate数据 */
-    private static byte[] decompressDeflate(byte[] compressed) throws IOException {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(compressed);
-                InflaterInputStream inflaterStream = new InflaterInputStream(bis);
-                ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = inflaterStream.read(buffer)) != -1) {
-                bos.write(buffer, 0, len);
-            }
-            return bos.toByteArray();
-        }
-    }
 }
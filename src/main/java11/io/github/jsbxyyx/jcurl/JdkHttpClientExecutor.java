@@ -0,0 +1,701 @@
+package io.github.jsbxyyx.jcurl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.APPLICATION_X_WWW_FORM_URLENCODED_VALUE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.AUTHORIZATION;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.BASIC_SPACE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.CONTENT_ENCODING;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.CONTENT_TYPE;
+import static io.github.jsbxyyx.jcurl.JCurl.Constants.COOKIE;
+
+/**
+ * java.net.http.HttpClient实现的HTTP请求执行器（Java 11+，零依赖）
+ *
+ * <p>相同连接配置的请求共享同一个HttpClient，HTTP/2下多个请求在同一个连接上多路复用。
+ *
+ * <p>限制：HttpClient不支持SOCKS代理；insecure模式只会信任所有证书，主机名校验需要通过系统属性
+ * jdk.internal.httpclient.disableHostnameVerification关闭；Host请求头由URL决定，
+ * 设置了不同的Host请求头时抛出IOException；域名只能由JVM解析，主机映射（--resolve、--connect-to）
+ * 或自定义解析器生效时同样抛出IOException。
+ */
+public class JdkHttpClientExecutor implements JCurl.HttpExecutor {
+
+    private static final int MAX_CACHED_CLIENTS = 16;
+
+    /** HttpClient不允许设置的请求头 */
+    private static final Set<String> RESTRICTED_HEADERS =
+            new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        Collections.addAll(
+                RESTRICTED_HEADERS, "Connection", "Content-Length", "Expect", "Host", "Upgrade");
+    }
+
+    private static final JdkHttpClientExecutor HTTP2 = new JdkHttpClientExecutor(true);
+    private static final JdkHttpClientExecutor HTTP1 = new JdkHttpClientExecutor(false);
+
+    private final boolean http2;
+    private final Map<ClientKey, HttpClient> clientCache =
+            new LinkedHashMap<ClientKey, HttpClient>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ClientKey, HttpClient> eldest) {
+                    return size() > MAX_CACHED_CLIENTS;
+                }
+            };
+
+    private JdkHttpClientExecutor(boolean http2) {
+        this.http2 = http2;
+    }
+
+    /** 当前运行时是否支持java.net.http.HttpClient */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    public static JdkHttpClientExecutor create() {
+        return HTTP2;
+    }
+
+    /** 指定是否优先使用HTTP/2创建执行器 */
+    public static JdkHttpClientExecutor create(boolean http2) {
+        return http2 ? HTTP2 : HTTP1;
+    }
+
+    @Override
+    public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel) throws IOException {
+        return await(executeAsync(requestModel));
+    }
+
+    @Override
+    public JCurl.HttpResponseModel executeStream(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) throws IOException {
+        return await(executeStreamAsync(requestModel, handler));
+    }
+
+    /** 响应体使用HttpClient的InputStream订阅者，关闭流时取消订阅 */
+    @Override
+    public JCurl.HttpResponseModel executeOpen(JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        return await(
+                sendWithRetry(
+                        requestModel,
+                        () ->
+                                responseInfo ->
+                                        HttpResponse.BodySubscribers.mapping(
+                                                HttpResponse.BodySubscribers.ofInputStream(),
+                                                stream ->
+                                                        openResponse(
+                                                                responseInfo, stream, config))));
+    }
+
+    @Override
+    public CompletableFuture<JCurl.HttpResponseModel> executeAsync(
+            JCurl.HttpRequestModel requestModel) {
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        return sendWithRetry(
+                requestModel,
+                () ->
+                        responseInfo ->
+                                new StreamSubscriber(
+                                        responseInfo,
+                                        new JCurl.BodyBuffer(0, config.getSpillThreshold()),
+                                        config));
+    }
+
+    @Override
+    public CompletableFuture<JCurl.HttpResponseModel> executeStreamAsync(
+            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler) {
+        JCurl.HttpRequestModel.RequestConfig config = requestModel.getConfig();
+        return sendWithRetry(
+                requestModel,
+                () -> responseInfo -> new StreamSubscriber(responseInfo, handler, config));
+    }
+
+    private CompletableFuture<JCurl.HttpResponseModel> sendWithRetry(
+            JCurl.HttpRequestModel requestModel, BodyHandlerFactory bodyHandlerFactory) {
+        CompletableFuture<JCurl.HttpResponseModel> future = new CompletableFuture<>();
+        try {
+            HttpClient client = buildClient(requestModel.getConfig());
+            send(client, requestModel, bodyHandlerFactory, future, 0);
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void send(
+            HttpClient client,
+            JCurl.HttpRequestModel requestModel,
+            BodyHandlerFactory bodyHandlerFactory,
+            CompletableFuture<JCurl.HttpResponseModel> future,
+            int attempts) {
+        if (future.isDone()) {
+            return;
+        }
+        int maxRetries = requestModel.getConfig().getMaxRetries();
+        int retryDelay = requestModel.getConfig().getRetryDelay();
+        CompletableFuture<HttpResponse<JCurl.HttpResponseModel>> call;
+        try {
+            call = client.sendAsync(buildRequest(requestModel), bodyHandlerFactory.create());
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        // 取消future时同时取消请求
+        future.whenComplete(
+                (response, error) -> {
+                    if (future.isCancelled()) {
+                        call.cancel(true);
+                    }
+                });
+        call.whenComplete(
+                (response, error) -> {
+                    if (error == null) {
+                        future.complete(response.body());
+                        return;
+                    }
+                    Throwable cause = unwrap(error);
+                    if (!(cause instanceof IOException)) {
+                        future.completeExceptionally(cause);
+                        return;
+                    }
+                    if (attempts + 1 > maxRetries || future.isDone()) {
+                        future.completeExceptionally(
+                                new IOException(
+                                        "request failed，retry " + maxRetries + " times", cause));
+                        return;
+                    }
+                    CompletableFuture.delayedExecutor(retryDelay, TimeUnit.MILLISECONDS)
+                            .execute(
+                                    () ->
+                                            send(
+                                                    client,
+                                                    requestModel,
+                                                    bodyHandlerFactory,
+                                                    future,
+                                                    attempts + 1));
+                });
+    }
+
+    private static JCurl.HttpResponseModel await(CompletableFuture<JCurl.HttpResponseModel> future)
+            throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("request interrupt", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UncheckedIOException) {
+            return cause.getCause();
+        }
+        return cause;
+    }
+
+    private HttpClient buildClient(JCurl.HttpRequestModel.RequestConfig config) throws IOException {
+        Proxy proxy = createProxy(config);
+        if (proxy != null && proxy.type() == Proxy.Type.SOCKS) {
+            throw new IOException("SOCKS proxy is not supported by java.net.http.HttpClient");
+        }
+
+        JCurl.SslContextCache.SslEntry sslEntry = null;
+        if (!config.isVerifySSL()
+                || config.getCertPath() != null
+                || config.getCertBytes() != null) {
+            try {
+                sslEntry = JCurl.SslContextCache.get(config);
+            } catch (Exception e) {
+                throw new RuntimeException("config SSL failed.", e);
+            }
+        }
+
+        ClientKey key = new ClientKey(config, proxy, sslEntry);
+        synchronized (clientCache) {
+            HttpClient client = clientCache.get(key);
+            if (client != null) {
+                return client;
+            }
+        }
+
+        HttpClient.Builder builder =
+                HttpClient.newBuilder()
+                        .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                        .connectTimeout(Duration.ofMillis(config.getConnectTimeout()))
+                        .followRedirects(
+                                config.isFollowRedirects()
+                                        ? HttpClient.Redirect.NORMAL
+                                        : HttpClient.Redirect.NEVER);
+        if (sslEntry != null) {
+            builder.sslContext(sslEntry.getSslContext());
+        }
+        if (proxy != null) {
+            builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+            if (config.getProxyUsername() != null) {
+                String username = config.getProxyUsername();
+                char[] password =
+                        config.getProxyPassword() == null
+                                ? new char[0]
+                                : config.getProxyPassword().toCharArray();
+                builder.authenticator(
+                        new Authenticator() {
+                            @Override
+                            protected PasswordAuthentication getPasswordAuthentication() {
+                                if (getRequestorType() != RequestorType.PROXY) {
+                                    return null;
+                                }
+                                return new PasswordAuthentication(username, password);
+                            }
+                        });
+            }
+        }
+
+        HttpClient client = builder.build();
+        synchronized (clientCache) {
+            HttpClient existing = clientCache.putIfAbsent(key, client);
+            return existing != null ? existing : client;
+        }
+    }
+
+    /** Host请求头是否就是URL中的主机和端口，默认端口可以省略 */
+    private static boolean isUrlHost(URI uri, String host) {
+        String value = host.trim();
+        if (value.equalsIgnoreCase(uri.getRawAuthority())) {
+            return true;
+        }
+        int port = uri.getPort();
+        int defaultPort = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return (port == -1 || port == defaultPort) && value.equalsIgnoreCase(uri.getHost());
+    }
+
+    private static void checkResolution(URI uri, JCurl.HttpRequestModel.RequestConfig config)
+            throws IOException {
+        HostMapping mapping = config.hostMapping();
+        int port = uri.getPort();
+        if (port == -1) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        if (mapping != null && mapping.applies(uri.getHost(), port)) {
+            throw new IOException(
+                    "--resolve/--connect-to is not supported by java.net.http.HttpClient: "
+                            + mapping);
+        }
+        DnsResolver resolver = config.getDnsResolver();
+        if (resolver != null
+                && resolver != DnsResolver.SYSTEM
+                && resolver != CachingDnsResolver.shared()) {
+            throw new IOException("DnsResolver is not supported by java.net.http.HttpClient");
+        }
+    }
+
+    private static Proxy createProxy(JCurl.HttpRequestModel.RequestConfig config) {
+        if (config.getProxy() != null) {
+            return config.getProxy().type() == Proxy.Type.DIRECT ? null : config.getProxy();
+        }
+        if (config.getProxyHost() != null && config.getProxyPort() > 0) {
+            return new Proxy(
+                    config.getProxyType(),
+                    new InetSocketAddress(config.getProxyHost(), config.getProxyPort()));
+        }
+        return null;
+    }
+
+    private static HttpRequest buildRequest(JCurl.HttpRequestModel requestModel)
+            throws IOException {
+        URI uri = URI.create(requestModel.getFullUrl());
+        // HttpClient总是按URL发送Host，不同的Host请求头无法发送，直接报错而不是忽略
+        String host = requestModel.getHeader("Host");
+        if (host != null && !isUrlHost(uri, host)) {
+            throw new IOException(
+                    "Host header is not supported by java.net.http.HttpClient: " + host);
+        }
+        // HttpClient只能使用JVM的域名解析，主机映射和自定义解析器同样直接报错
+        checkResolution(uri, requestModel.getConfig());
+        HttpRequest.Builder builder =
+                HttpRequest.newBuilder(uri)
+                        .timeout(Duration.ofMillis(requestModel.getConfig().getReadTimeout()));
+
+        // 添加请求头（支持多值）
+        for (Map.Entry<String, List<String>> header : requestModel.getHeaders().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.header(header.getKey(), value);
+            }
+        }
+
+        // 添加Cookie
+        if (!requestModel.getCookies().isEmpty()) {
+            StringBuilder cookieHeader = new StringBuilder();
+            for (Map.Entry<String, String> cookie : requestModel.getCookies().entrySet()) {
+                if (cookieHeader.length() > 0) cookieHeader.append("; ");
+                cookieHeader.append(cookie.getKey()).append("=").append(cookie.getValue());
+            }
+            builder.header(COOKIE, cookieHeader.toString());
+        }
+
+        // Basic认证
+        if (requestModel.getUsername() != null) {
+            String auth =
+                    requestModel.getUsername()
+                            + ":"
+                            + (requestModel.getPassword() != null
+                                    ? requestModel.getPassword()
+                                    : "");
+            builder.setHeader(
+                    AUTHORIZATION,
+                    BASIC_SPACE
+                            + Base64.getEncoder()
+                                    .encodeToString(auth.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        builder.method(requestModel.getMethod(), buildBodyPublisher(requestModel, builder));
+        return builder.build();
+    }
+
+    private static HttpRequest.BodyPublisher buildBodyPublisher(
+            JCurl.HttpRequestModel requestModel, HttpRequest.Builder builder) throws IOException {
+        // Multipart表单：长度已知时按固定长度发送
+        if (requestModel.getFormFields() != null && !requestModel.getFormFields().isEmpty()) {
+            JCurl.MultipartForm form = new JCurl.MultipartForm(requestModel.getAllFormFields());
+            builder.setHeader(CONTENT_TYPE, form.getContentType());
+            HttpRequest.BodyPublisher publisher =
+                    HttpRequest.BodyPublishers.ofInputStream(form::openStream);
+            long contentLength = form.getContentLength();
+            return contentLength > 0
+                    ? HttpRequest.BodyPublishers.fromPublisher(publisher, contentLength)
+                    : publisher;
+        }
+
+        // 文件、流形式的请求体：发送时直接从来源读取
+        if (requestModel.getBodySource() != null) {
+            JCurl.HttpRequestModel.BodySource source = requestModel.getBodySource();
+            setDefaultContentType(requestModel, builder);
+            HttpRequest.BodyPublisher publisher =
+                    HttpRequest.BodyPublishers.ofInputStream(
+                            () -> {
+                                try {
+                                    return source.openStream();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+            long contentLength = source.getLength();
+            return contentLength > 0
+                    ? HttpRequest.BodyPublishers.fromPublisher(publisher, contentLength)
+                    : publisher;
+        }
+
+        // 二进制数据
+        if (requestModel.getBinaryBody() != null) {
+            setDefaultContentType(requestModel, builder);
+            return HttpRequest.BodyPublishers.ofByteArray(requestModel.getBinaryBody());
+        }
+
+        // 文本数据
+        if (requestModel.getBody() != null) {
+            setDefaultContentType(requestModel, builder);
+            return HttpRequest.BodyPublishers.ofString(
+                    requestModel.getBody(), StandardCharsets.UTF_8);
+        }
+
+        return HttpRequest.BodyPublishers.noBody();
+    }
+
+    private static void setDefaultContentType(
+            JCurl.HttpRequestModel requestModel, HttpRequest.Builder builder) {
+        if (requestModel.getHeader(CONTENT_TYPE) == null) {
+            builder.setHeader(CONTENT_TYPE, APPLICATION_X_WWW_FORM_URLENCODED_VALUE);
+        }
+    }
+
+    private static JCurl.HttpResponseModel openResponse(
+            HttpResponse.ResponseInfo responseInfo,
+            InputStream stream,
+            JCurl.HttpRequestModel.RequestConfig config) {
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        response.setStatusCode(responseInfo.statusCode());
+        response.setStatusMessage("");
+        for (Map.Entry<String, List<String>> entry : responseInfo.headers().map().entrySet()) {
+            // 跳过HTTP/2伪头（如 :status）
+            if (entry.getKey().startsWith(":")) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                response.addHeader(entry.getKey(), value);
+            }
+        }
+        response.setBodyStream(
+                new JCurl.BodyStream(
+                        stream,
+                        responseInfo.headers().firstValue(CONTENT_ENCODING).orElse(null),
+                        config.getMaxDownloadSize(),
+                        null));
+        return response;
+    }
+
+    /** 每次发送（包括重试）都需要新的BodyHandler，保证handler状态不被复用 */
+    @FunctionalInterface
+    private interface BodyHandlerFactory {
+        HttpResponse.BodyHandler<JCurl.HttpResponseModel> create();
+    }
+
+    /** 把HttpClient推送的响应体（解压后）转发给StreamHandler */
+    private static final class StreamSubscriber
+            implements HttpResponse.BodySubscriber<JCurl.HttpResponseModel> {
+        private final JCurl.StreamHandler handler;
+        private final long maxDownloadSize;
+        private final JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        private final CompletableFuture<JCurl.HttpResponseModel> result = new CompletableFuture<>();
+        private final ContentDecoder.Incremental decoder;
+        private final int bufferSize;
+        private byte[] scratch;
+        private Flow.Subscription subscription;
+        private long totalBytes;
+        private IOException startError;
+
+        StreamSubscriber(
+                HttpResponse.ResponseInfo responseInfo,
+                JCurl.StreamHandler handler,
+                JCurl.HttpRequestModel.RequestConfig config) {
+            this.handler = handler;
+            this.maxDownloadSize = config.getMaxDownloadSize();
+            this.bufferSize = config.getBufferSize();
+            response.setStatusCode(responseInfo.statusCode());
+            response.setStatusMessage("");
+            HttpHeaders headers = responseInfo.headers();
+            for (Map.Entry<String, List<String>> entry : headers.map().entrySet()) {
+                // 跳过HTTP/2伪头（如 :status）
+                if (entry.getKey().startsWith(":")) {
+                    continue;
+                }
+                for (String value : entry.getValue()) {
+                    response.addHeader(entry.getKey(), value);
+                }
+            }
+            decoder =
+                    ContentDecoders.newDecoder(
+                            headers.firstValue(CONTENT_ENCODING).orElse(null), bufferSize);
+            try {
+                handler.onStart(
+                        response.getStatusCode(),
+                        response.getStatusMessage(),
+                        response.getHeaders());
+            } catch (IOException e) {
+                startError = e;
+            }
+        }
+
+        @Override
+        public CompletionStage<JCurl.HttpResponseModel> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (startError != null) {
+                subscription.cancel();
+                result.completeExceptionally(startError);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    // 堆缓冲区直接使用其数组，否则分批复制到复用的数组
+                    while (buffer.hasRemaining()) {
+                        byte[] array;
+                        int offset;
+                        int length;
+                        if (buffer.hasArray()) {
+                            array = buffer.array();
+                            offset = buffer.arrayOffset() + buffer.position();
+                            length = buffer.remaining();
+                            buffer.position(buffer.limit());
+                        } else {
+                            if (scratch == null) {
+                                scratch = BufferPool.shared().acquire(bufferSize);
+                            }
+                            array = scratch;
+                            offset = 0;
+                            length = Math.min(buffer.remaining(), bufferSize);
+                            buffer.get(scratch, 0, length);
+                        }
+                        if (decoder != null) {
+                            decoder.decode(array, offset, length, this::emit);
+                        } else {
+                            emit(array, offset, length);
+                        }
+                    }
+                }
+                subscription.request(1);
+            } catch (IOException e) {
+                subscription.cancel();
+                release();
+                discard();
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void emit(byte[] chunk, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            totalBytes += length;
+            if (maxDownloadSize > 0 && totalBytes > maxDownloadSize) {
+                throw new IOException(
+                        "response body size more than max-download-size limit: "
+                                + maxDownloadSize
+                                + " bytes");
+            }
+            handler.onChunk(chunk, offset, length);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            release();
+            discard();
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                try {
+                    if (decoder != null) {
+                        decoder.finish(this::emit);
+                    }
+                } finally {
+                    release();
+                }
+                handler.onComplete();
+                if (handler instanceof JCurl.BodyBuffer) {
+                    ((JCurl.BodyBuffer) handler).applyTo(response);
+                }
+                result.complete(response);
+            } catch (IOException | RuntimeException e) {
+                discard();
+                result.completeExceptionally(e);
+            }
+        }
+
+        /** 响应失败时删除已写入的响应体临时文件 */
+        private void discard() {
+            if (handler instanceof JCurl.BodyBuffer) {
+                ((JCurl.BodyBuffer) handler).discard();
+            }
+        }
+
+        private void release() {
+            if (decoder != null) {
+                decoder.close();
+            }
+            BufferPool.shared().release(scratch);
+            scratch = null;
+        }
+    }
+
+    /** 客户端缓存的key，只包含影响连接的配置 */
+    private static final class ClientKey {
+        private final int connectTimeout;
+        private final boolean followRedirects;
+        private final JCurl.SslContextCache.SslEntry sslEntry;
+        private final Proxy proxy;
+        private final String proxyUsername;
+        private final String proxyPassword;
+
+        ClientKey(
+                JCurl.HttpRequestModel.RequestConfig config,
+                Proxy proxy,
+                JCurl.SslContextCache.SslEntry sslEntry) {
+            this.connectTimeout = config.getConnectTimeout();
+            this.followRedirects = config.isFollowRedirects();
+            this.sslEntry = sslEntry;
+            this.proxy = proxy;
+            this.proxyUsername = config.getProxyUsername();
+            this.proxyPassword = config.getProxyPassword();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ClientKey)) return false;
+            ClientKey that = (ClientKey) o;
+            return connectTimeout == that.connectTimeout
+                    && followRedirects == that.followRedirects
+                    && sslEntry == that.sslEntry
+                    && Objects.equals(proxy, that.proxy)
+                    && Objects.equals(proxyUsername, that.proxyUsername)
+                    && Objects.equals(proxyPassword, that.proxyPassword);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                    connectTimeout,
+                    followRedirects,
+                    System.identityHashCode(sslEntry),
+                    proxy,
+                    proxyUsername,
+                    proxyPassword);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试异步执行 */
+public class AsyncTest {
+
+    private TestServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/",
+                exchange -> {
+                    byte[] body =
+                            exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, body);
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testExecAsync() throws Exception {
+        assertAsync(JCurl.HttpUrlConnectionExecutor.create());
+        assertAsync(OkHttpExecutor.create());
+    }
+
+    @Test
+    void testExecStreamAsync() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/stream")
+                        .execStreamAsync(OkHttpExecutor.create(), bos::write)
+                        .get();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("/stream", new String(bos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testExecAsyncFailure() {
+        server.close();
+        CompletableFuture<JCurl.HttpResponseModel> future =
+                JCurl.create()
+                        .url(baseUrl + "/down")
+                        .retry(1)
+                        .retryDelay(10)
+                        .execAsync(OkHttpExecutor.create());
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    @Test
+    void testRetryCancelsCurrentCall() throws Exception {
+        BlockingQueue<Socket> held = new LinkedBlockingQueue<>();
+        try (ServerSocket serverSocket =
+                new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor =
+                    new Thread(
+                            () -> {
+                                try {
+                                    // 前两次直接断开触发重试，之后的连接不响应
+                                    for (int i = 0; ; i++) {
+                                        Socket socket = serverSocket.accept();
+                                        if (i < 2) {
+                                            socket.close();
+                                        } else {
+                                            held.add(socket);
+                                        }
+                                    }
+                                } catch (IOException ignored) {
+                                }
+                            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            CompletableFuture<JCurl.HttpResponseModel> future =
+                    JCurl.create()
+                            .url("http://127.0.0.1:" + serverSocket.getLocalPort() + "/hang")
+                            .retry(3)
+                            .retryDelay(10)
+                            .execAsync(OkHttpExecutor.create());
+            Socket socket = held.poll(5, TimeUnit.SECONDS);
+            assertNotNull(socket);
+            // 重试不会在future上叠加新的完成回调
+            assertEquals(1, future.getNumberOfDependents());
+            future.cancel(true);
+            assertThrows(CancellationException.class, future::get);
+            // 取消future时取消正在执行的请求，读完请求后连接被关闭而不是读超时
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) != -1) {}
+            socket.close();
+        }
+    }
+
+    @Test
+    void testExecAll() throws Exception {
+        List<JCurl> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(JCurl.create().url(baseUrl + "/all/" + i));
+        }
+        List<JCurl.HttpResponseModel> responses = JCurl.execAll(requests);
+        assertEquals(50, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            assertEquals("/all/" + i, responses.get(i).getBody());
+        }
+    }
+
+    @Test
+    void testDefaultAsyncExecutor() throws Exception {
+        String threadName =
+                CompletableFuture.supplyAsync(
+                                () -> Thread.currentThread().getName(), JCurl.getAsyncExecutor())
+                        .get();
+        String prefix = JCurl.isVirtualThreadSupported() ? "jcurl-virtual-" : "jcurl-async-";
+        assertTrue(threadName.startsWith(prefix), threadName);
+    }
+
+    private void assertAsync(JCurl.HttpExecutor executor) throws Exception {
+        List<CompletableFuture<JCurl.HttpResponseModel>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(JCurl.create().url(baseUrl + "/" + i).execAsync(executor));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals("/" + i, futures.get(i).get().getBody());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试批量执行 */
+public class BatchTest {
+
+    private TestServer server;
+    private int port;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int delay = 20;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start(Executors.newCachedThreadPool());
+        server.createContext(
+                "/",
+                exchange -> {
+                    int current = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(current, Math::max);
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    byte[] body =
+                            exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, body);
+                });
+        port = server.port();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testPerHostLimitAndOrder() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        JCurl.Batch.Stats stats =
+                JCurl.batch(OkHttpExecutor.create())
+                        .maxConcurrency(16)
+                        .maxPerHost(4)
+                        .ordered(true)
+                        .onResult(
+                                item -> {
+                                    assertEquals(
+                                            "/" + item.getIndex(), item.getResponse().getBody());
+                                    indexes.add(item.getIndex());
+                                })
+                        .execute(requests("127.0.0.1", 40));
+
+        assertEquals(40, stats.getTotal());
+        assertEquals(40, stats.getSucceeded());
+        assertTrue(maxInFlight.get() <= 4, "max in flight: " + maxInFlight.get());
+        for (int i = 0; i < indexes.size(); i++) {
+            assertEquals(i, indexes.get(i).longValue());
+        }
+        assertTrue(stats.getP50() >= 20, stats.toString());
+        assertTrue(stats.getP99() >= stats.getP50());
+        assertTrue(stats.getThroughput() > 0);
+    }
+
+    @Test
+    void testGlobalLimitAndFailures() throws IOException {
+        List<JCurl.HttpRequestModel> models = new ArrayList<>();
+        requests("127.0.0.1", 30).forEachRemaining(models::add);
+        models.add(JCurl.create().url("http://127.0.0.1:1/unreachable").build());
+        AtomicInteger callbacks = new AtomicInteger();
+
+        JCurl.Batch.Stats stats =
+                JCurl.batch(JCurl.HttpUrlConnectionExecutor.create())
+                        .maxConcurrency(5)
+                        .onResult(item -> callbacks.incrementAndGet())
+                        .execute(models);
+
+        assertEquals(31, callbacks.get());
+        assertEquals(1, stats.getFailed());
+        assertTrue(maxInFlight.get() <= 5, "max in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    void testLatencyExcludesQueueWait() throws IOException {
+        delay = 200;
+        // 每个host同时只执行一个请求，后面的请求排队等待，等待时间不计入延迟
+        JCurl.Batch.Stats stats =
+                JCurl.batch(OkHttpExecutor.create())
+                        .maxPerHost(1)
+                        .onResult(item -> assertTrue(item.getLatencyMillis() < 350))
+                        .execute(requests("127.0.0.1", 4));
+
+        assertEquals(4, stats.getSucceeded());
+        assertTrue(stats.getElapsedMillis() >= 800, stats.toString());
+        assertTrue(stats.getMaxLatency() < 350, stats.toString());
+    }
+
+    /** 惰性生成请求，不在内存中保存整个批次 */
+    private Iterator<JCurl.HttpRequestModel> requests(String host, int count) {
+        return new Iterator<JCurl.HttpRequestModel>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public JCurl.HttpRequestModel next() {
+                return JCurl.create().url("http://" + host + ":" + port + "/" + next++).build();
+            }
+        };
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试响应体收集：已知长度一次分配，未知长度分块收集，超过阈值写入临时文件 */
+public class BodyBufferTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[300 * 1024 + 5];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 17);
+        }
+        server = TestServer.start();
+        server.createContext(
+                "/fixed",
+                exchange -> {
+                    exchange.sendResponseHeaders(
+                            200, "HEAD".equals(exchange.getRequestMethod()) ? -1 : content.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content);
+                    }
+                });
+        server.createContext(
+                "/chunked",
+                exchange -> {
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        for (int i = 0; i < content.length; i += 1000) {
+                            os.write(content, i, Math.min(1000, content.length - i));
+                        }
+                    }
+                });
+        server.createContext(
+                "/gzip",
+                exchange -> {
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody())) {
+                        os.write(content);
+                    }
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private List<JCurl.HttpExecutor> executors() {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        return executors;
+    }
+
+    @Test
+    void testExecutors() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            for (String path : new String[] {"/fixed", "/chunked", "/gzip"}) {
+                JCurl.HttpResponseModel response =
+                        JCurl.create().url(baseUrl + path).exec(executor);
+                assertEquals(content.length, response.getBodyLength(), name + path);
+                assertArrayEquals(content, response.getBodyBytes(), name + path);
+            }
+        }
+    }
+
+    @Test
+    void testSpillToFile() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            for (String path : new String[] {"/fixed", "/chunked", "/gzip"}) {
+                try (JCurl.HttpResponseModel response =
+                        JCurl.create()
+                                .url(baseUrl + path)
+                                .spillThreshold(64 * 1024)
+                                .exec(executor)) {
+                    assertTrue(response.isBodySpilled(), name + path);
+                    assertEquals(content.length, response.getBodyLength(), name + path);
+                    try (InputStream is = response.getBodyStream()) {
+                        assertArrayEquals(content, readAll(is), name + path);
+                    }
+                    // 临时文件可以做内存映射
+                    try (FileChannel channel = (FileChannel) response.getBodyChannel()) {
+                        MappedByteBuffer mapped =
+                                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                        assertEquals(content[content.length - 1], mapped.get(content.length - 1));
+                    }
+                    assertArrayEquals(content, response.getBodyBytes(), name + path);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testBelowSpillThreshold() throws IOException {
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/fixed")
+                        .spillThreshold(content.length)
+                        .exec(NioHttpExecutor.create());
+        assertFalse(response.isBodySpilled());
+        assertArrayEquals(content, response.getBodyBytes());
+    }
+
+    @Test
+    void testSpillFileDeletedOnClose() throws IOException {
+        JCurl.BodyBuffer buffer = new JCurl.BodyBuffer(0, 1000);
+        buffer.readFrom(new ByteArrayInputStream(content));
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        buffer.applyTo(response);
+        assertTrue(response.isBodySpilled());
+        assertEquals(content.length, response.getBodyLength());
+        response.close();
+        assertFalse(response.isBodySpilled());
+        assertNull(response.getBodyStream());
+
+        JCurl.SpillFile file = JCurl.SpillFile.create();
+        assertTrue(Files.exists(file.path()));
+        file.close();
+        assertFalse(Files.exists(file.path()));
+
+        // 读取失败时删除临时文件
+        JCurl.BodyBuffer failed = new JCurl.BodyBuffer(content.length - 1, 1000);
+        assertThrows(IOException.class, () -> failed.readFrom(new ByteArrayInputStream(content)));
+        failed.discard();
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            bos.write(buffer, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    @Test
+    void testExactLength() throws IOException {
+        JCurl.BodyBuffer buffer = new JCurl.BodyBuffer(0, 0);
+        buffer.expect(content.length);
+        buffer.readFrom(new ByteArrayInputStream(content));
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        buffer.applyTo(response);
+        byte[] body = response.getBodyBytes();
+        assertArrayEquals(content, body);
+        // 精确分配的数组直接作为响应体，重复访问不再拼接
+        assertSame(body, response.getBodyBytes());
+    }
+
+    @Test
+    void testLengthMismatch() throws IOException {
+        // 实际数据比声明的长
+        JCurl.BodyBuffer longer = new JCurl.BodyBuffer(0, 0);
+        longer.expect(1000);
+        longer.readFrom(new ByteArrayInputStream(content));
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        longer.applyTo(response);
+        assertArrayEquals(content, response.getBodyBytes());
+
+        // 实际数据比声明的短
+        JCurl.BodyBuffer shorter = new JCurl.BodyBuffer(0, 0);
+        shorter.expect(content.length + 100);
+        shorter.onChunk(content, 0, 10);
+        shorter.onChunk(content, 10, 20);
+        shorter.applyTo(response);
+        assertEquals(30, response.getBodyLength());
+        assertArrayEquals(Arrays.copyOf(content, 30), response.getBodyBytes());
+
+        // 声明接近上限的长度，只按实际收到的数据分配
+        JCurl.BodyBuffer huge = new JCurl.BodyBuffer(0, 0);
+        huge.expect(Integer.MAX_VALUE - 8);
+        huge.readFrom(new ByteArrayInputStream(content));
+        huge.applyTo(response);
+        assertArrayEquals(content, response.getBodyBytes());
+    }
+
+    @Test
+    void testLargeKnownLength() throws IOException {
+        byte[] large = new byte[5 * 1024 * 1024 + 7];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 13);
+        }
+        JCurl.BodyBuffer buffer = new JCurl.BodyBuffer(0, 0);
+        buffer.expect(large.length);
+        buffer.readFrom(new ByteArrayInputStream(large));
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        buffer.applyTo(response);
+        assertEquals(large.length, response.getBodyLength());
+        assertArrayEquals(large, response.getBodyBytes());
+    }
+
+    @Test
+    void testLargeKnownLengthSingleArray() throws IOException {
+        byte[] large = new byte[4 * 1024 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 7);
+        }
+        // 记录读入的目标数组，最终的响应体应该就是最后读入的数组
+        byte[][] target = new byte[1][];
+        InputStream in =
+                new ByteArrayInputStream(large) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        target[0] = b;
+                        return super.read(b, off, len);
+                    }
+                };
+        JCurl.BodyBuffer buffer = new JCurl.BodyBuffer(0, 0);
+        buffer.expect(large.length);
+        buffer.readFrom(in);
+        JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+        buffer.applyTo(response);
+        byte[] body = response.getBodyBytes();
+        assertEquals(large.length, target[0].length);
+        assertSame(target[0], body);
+        assertArrayEquals(large, body);
+    }
+
+    @Test
+    void testMaxDownloadSize() {
+        JCurl.BodyBuffer buffer = new JCurl.BodyBuffer(1024, 0);
+        buffer.expect(content.length);
+        assertThrows(IOException.class, () -> buffer.readFrom(new ByteArrayInputStream(content)));
+    }
+}
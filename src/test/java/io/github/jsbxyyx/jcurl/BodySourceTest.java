@@ -0,0 +1,139 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** 测试文件、输入流、通道形式的请求体 */
+public class BodySourceTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/upload",
+                exchange -> {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    try (InputStream is = exchange.getRequestBody()) {
+                        byte[] buffer = new byte[8192];
+                        int n;
+                        while ((n = is.read(buffer)) != -1) {
+                            bos.write(buffer, 0, n);
+                        }
+                    }
+                    String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+                    exchange.getResponseHeaders()
+                            .add("X-Length", contentLength != null ? contentLength : "chunked");
+                    exchange.sendResponseHeaders(200, bos.size() == 0 ? -1 : bos.size());
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        bos.writeTo(os);
+                    }
+                });
+        baseUrl = server.baseUrl();
+        content = new byte[200 * 1024 + 7];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        file = Files.createTempFile("jcurl-body", ".bin");
+        Files.write(file, content);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(file);
+    }
+
+    private List<JCurl.HttpExecutor> executors() {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        return executors;
+    }
+
+    @Test
+    void testFileRange() throws IOException {
+        byte[] expected = Arrays.copyOfRange(content, 1000, 1000 + 100 * 1024);
+        for (JCurl.HttpExecutor executor : executors()) {
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url(baseUrl + "/upload")
+                            .post()
+                            .bodyFile(file.toString(), 1000, 100 * 1024)
+                            .exec(executor);
+            String name = executor.getClass().getSimpleName();
+            assertEquals(String.valueOf(expected.length), response.getHeader("X-Length"), name);
+            assertArrayEquals(expected, response.getBodyBytes(), name);
+        }
+    }
+
+    @Test
+    void testStreamWithUnknownLength() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url(baseUrl + "/upload")
+                            .post()
+                            .bodyStream(() -> new ByteArrayInputStream(content), -1)
+                            .exec(executor);
+            String name = executor.getClass().getSimpleName();
+            assertEquals("chunked", response.getHeader("X-Length"), name);
+            assertArrayEquals(content, response.getBodyBytes(), name);
+        }
+    }
+
+    @Test
+    void testChannelSharedByCopy() throws IOException {
+        JCurl.HttpRequestModel model =
+                JCurl.create()
+                        .url(baseUrl + "/upload")
+                        .post()
+                        .bodyChannel(
+                                Channels.newChannel(new ByteArrayInputStream(content)),
+                                content.length)
+                        .build();
+        JCurl copy = JCurl.fromModel(model);
+        assertSame(model.getBodySource(), copy.build().getBodySource());
+
+        JCurl.HttpResponseModel response = copy.exec(OkHttpExecutor.create());
+        assertArrayEquals(content, response.getBodyBytes());
+        // 通道已被读取，不能再次发送
+        assertThrows(IOException.class, () -> JCurl.fromModel(model).exec(OkHttpExecutor.create()));
+    }
+
+    @Test
+    void testParseDataBinaryFile() {
+        JCurl.HttpRequestModel model =
+                JCurl.parse("curl --data-binary @" + file + " " + baseUrl + "/upload");
+        assertEquals("POST", model.getMethod());
+        assertEquals(content.length, model.getBodySource().getLength());
+        assertNull(model.getBinaryBody());
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试复用缓冲区的流式响应 */
+public class BufferHandlerTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[500 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        server = TestServer.start();
+        server.createContext(
+                "/plain",
+                exchange -> {
+                    TestServer.respond(exchange, 200, content);
+                });
+        server.createContext(
+                "/gzip",
+                exchange -> {
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, 0);
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(exchange.getResponseBody())) {
+                        gzip.write(content);
+                    }
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testBufferReused() throws IOException {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        for (JCurl.HttpExecutor executor : executors) {
+            for (String path : new String[] {"/plain", "/gzip"}) {
+                String name = executor.getClass().getSimpleName() + path;
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                Set<byte[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+                JCurl.create()
+                        .url(baseUrl + path)
+                        .bufferSize(4096)
+                        .execStream(
+                                executor,
+                                (JCurl.BufferHandler)
+                                        (buffer, offset, length) -> {
+                                            buffers.add(buffer);
+                                            bos.write(buffer, offset, length);
+                                        });
+                assertArrayEquals(content, bos.toByteArray(), name);
+                assertTrue(buffers.size() < 10, name + " buffers: " + buffers.size());
+            }
+        }
+    }
+
+    @Test
+    void testByteArrayHandlerStillWorks() throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        JCurl.create().url(baseUrl + "/plain").execStream(chunks::add);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            bos.write(chunk);
+        }
+        assertArrayEquals(content, bos.toByteArray());
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试缓冲池 */
+public class BufferPoolTest {
+
+    @Test
+    void testSizeClasses() {
+        BufferPool pool = BufferPool.create(8, true);
+        assertEquals(4096, pool.acquire(1).length);
+        assertEquals(8192, pool.acquire(8192).length);
+        assertEquals(16384, pool.acquire(8193).length);
+        assertEquals(300 * 1024, pool.acquire(300 * 1024).length);
+        assertEquals(32768, pool.acquireDirect(20000).capacity());
+        assertEquals(5, pool.getStats().getMisses());
+    }
+
+    @Test
+    void testReuse() {
+        BufferPool pool = BufferPool.create(8, true);
+        byte[] buffer = pool.acquire(8192);
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(5000));
+
+        ByteBuffer direct = pool.acquireDirect(4096);
+        direct.put((byte) 1);
+        pool.releaseDirect(direct);
+        ByteBuffer again = pool.acquireDirect(4096);
+        assertSame(direct, again);
+        assertEquals(0, again.position());
+
+        // 非分级大小的数组不会进入缓冲池
+        pool.release(new byte[5000]);
+        assertNotSame(buffer, pool.acquire(8192));
+
+        BufferPool.Stats stats = pool.getStats();
+        assertEquals(2, stats.getHits());
+        assertEquals(2, stats.getReleased());
+    }
+
+    @Test
+    void testBounded() {
+        BufferPool pool = BufferPool.create(1, false);
+        pool.release(new byte[4096]);
+        pool.release(new byte[4096]);
+        assertEquals(1, pool.getStats().getDiscarded());
+    }
+
+    @Test
+    void testConcurrentBorrowNeverShared() throws Exception {
+        BufferPool pool = BufferPool.create(16, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Set<byte[]> inUse =
+                Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int i = 0; i < 10_000; i++) {
+                                        byte[] buffer = pool.acquire(8192);
+                                        assertTrue(inUse.add(buffer));
+                                        inUse.remove(buffer);
+                                        pool.release(buffer);
+                                    }
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(pool.getStats().getHitRate() > 0.9, pool.getStats().toString());
+    }
+}
@@ -0,0 +1,410 @@
+package io.github.jsbxyyx.jcurl;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试按RFC 9111缓存响应的执行器 */
+public class CachingHttpExecutorTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+    private final Queue<Runnable> background = new ArrayDeque<>();
+    private volatile String version = "v1";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/fresh", exchange -> send(exchange, 200, "max-age=60", version, null));
+        server.createContext(
+                "/etag",
+                exchange -> {
+                    String etag = "\"" + version + "\"";
+                    exchange.getResponseHeaders().add("ETag", etag);
+                    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                        exchange.getResponseHeaders().add("X-Validated", "yes");
+                        send(exchange, 304, "no-cache", null, null);
+                    } else {
+                        send(exchange, 200, "no-cache", version, null);
+                    }
+                });
+        server.createContext(
+                "/swr",
+                exchange ->
+                        send(exchange, 200, "max-age=1, stale-while-revalidate=60", version, null));
+        server.createContext(
+                "/vary",
+                exchange ->
+                        send(
+                                exchange,
+                                200,
+                                "max-age=60",
+                                exchange.getRequestHeaders().getFirst("Accept-Language"),
+                                "Accept-Language"));
+        server.createContext(
+                "/nostore", exchange -> send(exchange, 200, "no-store", version, null));
+        server.createContext(
+                "/large", exchange -> send(exchange, 200, "max-age=60", repeat(600), null));
+        server.createContext(
+                "/public", exchange -> send(exchange, 200, "public, max-age=60", version, null));
+        server.createContext(
+                "/truncated",
+                exchange -> {
+                    requests.computeIfAbsent("/truncated", k -> new AtomicInteger())
+                            .incrementAndGet();
+                    exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+                    exchange.sendResponseHeaders(200, 100);
+                    exchange.getResponseBody().write(new byte[10]);
+                    exchange.getResponseBody().flush();
+                    // 没有写完Content-Length就关闭连接
+                    exchange.close();
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private void send(HttpExchange exchange, int status, String cc, String body, String vary)
+            throws IOException {
+        requests.computeIfAbsent(exchange.getRequestURI().getPath(), k -> new AtomicInteger())
+                .incrementAndGet();
+        exchange.getResponseHeaders().add("Cache-Control", cc);
+        if (vary != null) {
+            exchange.getResponseHeaders().add("Vary", vary);
+        }
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        TestServer.respond(exchange, status, bytes);
+    }
+
+    private CachingHttpExecutor cache(long maxBytes) {
+        return new CachingHttpExecutor(
+                JCurl.HttpUrlConnectionExecutor.keepAlive(),
+                new CachingHttpExecutor.MemoryStore(maxBytes),
+                background::add,
+                clock::get);
+    }
+
+    private int count(String path) {
+        AtomicInteger count = requests.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    private JCurl.HttpResponseModel get(CachingHttpExecutor cache, String path) throws IOException {
+        return JCurl.create().url(baseUrl + path).exec(cache);
+    }
+
+    @Test
+    void testFreshHitAndExpiry() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        assertEquals("v1", get(cache, "/fresh").getBody());
+        version = "v2";
+        clock.addAndGet(30_000);
+        JCurl.HttpResponseModel hit = get(cache, "/fresh");
+        assertEquals("v1", hit.getBody());
+        assertTrue(Integer.parseInt(hit.getHeader("Age")) >= 30);
+        assertEquals(1, count("/fresh"));
+
+        // 请求要求no-cache时不使用缓存
+        JCurl.HttpResponseModel reload =
+                JCurl.create()
+                        .url(baseUrl + "/fresh")
+                        .header("Cache-Control", "no-cache")
+                        .exec(cache);
+        assertEquals("v2", reload.getBody());
+
+        clock.addAndGet(61_000);
+        version = "v3";
+        assertEquals("v3", get(cache, "/fresh").getBody());
+        assertEquals(3, count("/fresh"));
+
+        CachingHttpExecutor.CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        // 没有验证器时no-cache直接重新请求
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getEntryCount());
+    }
+
+    @Test
+    void testRevalidation() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        assertEquals("v1", get(cache, "/etag").getBody());
+        JCurl.HttpResponseModel validated = get(cache, "/etag");
+        assertEquals(200, validated.getStatusCode());
+        assertEquals("v1", validated.getBody());
+        assertEquals("yes", validated.getHeader("X-Validated"));
+
+        version = "v2";
+        assertEquals("v2", get(cache, "/etag").getBody());
+        assertEquals(3, count("/etag"));
+
+        CachingHttpExecutor.CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getRevalidations());
+        assertEquals(1, stats.getNotModified());
+    }
+
+    @Test
+    void testStaleWhileRevalidate() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        assertEquals("v1", get(cache, "/swr").getBody());
+        version = "v2";
+        clock.addAndGet(5_000);
+        // 返回过期的响应，只提交一次后台重新验证
+        assertEquals("v1", get(cache, "/swr").getBody());
+        assertEquals("v1", get(cache, "/swr").getBody());
+        assertEquals(1, background.size());
+        assertEquals(1, count("/swr"));
+
+        background.poll().run();
+        assertEquals("v2", get(cache, "/swr").getBody());
+        assertEquals(2, count("/swr"));
+        // 服务端的Date按真实时间生成，落后于测试时钟，新的响应一开始就已经过期
+        assertEquals(3, cache.getStats().getStaleHits());
+
+        // 超出stale-while-revalidate窗口后同步请求
+        version = "v3";
+        clock.addAndGet(120_000);
+        assertEquals("v3", get(cache, "/swr").getBody());
+        assertEquals(3, count("/swr"));
+    }
+
+    @Test
+    void testVaryNoStoreAndInvalidation() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        for (int i = 0; i < 2; i++) {
+            for (String language : new String[] {"en", "zh"}) {
+                JCurl.HttpResponseModel response =
+                        JCurl.create()
+                                .url(baseUrl + "/vary")
+                                .header("Accept-Language", language)
+                                .exec(cache);
+                assertEquals(language, response.getBody());
+            }
+        }
+        assertEquals(2, count("/vary"));
+        assertEquals(2, cache.getStats().getEntryCount());
+
+        get(cache, "/nostore");
+        get(cache, "/nostore");
+        assertEquals(2, count("/nostore"));
+
+        JCurl.create().url(baseUrl + "/fresh").exec(cache);
+        JCurl.create().url(baseUrl + "/fresh").post().exec(cache);
+        JCurl.create().url(baseUrl + "/fresh").exec(cache);
+        assertEquals(3, count("/fresh"));
+
+        JCurl.HttpResponseModel onlyCached =
+                JCurl.create()
+                        .url(baseUrl + "/missing")
+                        .header("Cache-Control", "only-if-cached")
+                        .exec(cache);
+        assertEquals(504, onlyCached.getStatusCode());
+    }
+
+    @Test
+    void testEvictByBytes() throws IOException {
+        CachingHttpExecutor cache = cache(1000);
+        get(cache, "/large");
+        get(cache, "/fresh");
+        assertEquals(2, cache.getStats().getEntryCount());
+        // 再缓存一个600字节的响应时淘汰最久未使用的/large
+        get(cache, "/fresh");
+        JCurl.create().url(baseUrl + "/large").queryParam("x", "1").exec(cache);
+        CachingHttpExecutor.CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getEvictions());
+        assertTrue(stats.getSize() <= 1000);
+        get(cache, "/fresh");
+        assertEquals(1, count("/fresh"));
+
+        cache.clear();
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    void testAuthenticatedRequests() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        for (int i = 0; i < 2; i++) {
+            JCurl.create().url(baseUrl + "/fresh").bearerToken("alice").exec(cache);
+            JCurl.create().url(baseUrl + "/fresh").auth("bob", "secret").exec(cache);
+        }
+        // 没有public等指令的响应不缓存，其他调用方不会得到带认证的响应
+        assertEquals(4, count("/fresh"));
+        assertEquals(0, cache.getStats().getEntryCount());
+
+        JCurl.create().url(baseUrl + "/public").bearerToken("alice").exec(cache);
+        get(cache, "/public");
+        assertEquals(1, count("/public"));
+    }
+
+    @Test
+    void testReroutedRequestsBypassCache() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        String url = "http://localhost:" + server.port() + "/fresh";
+        assertEquals("v1", JCurl.create().url(url).exec(cache).getBody());
+        version = "v2";
+
+        // 映射到其他地址的请求不能拿到按URL缓存的响应，也不能写入缓存
+        JCurl.HttpResponseModel resolved =
+                JCurl.create()
+                        .url(url)
+                        .resolve("localhost:" + server.port() + ":127.0.0.1")
+                        .exec(cache);
+        assertEquals("v2", resolved.getBody());
+        version = "v3";
+        JCurl.HttpResponseModel custom =
+                JCurl.create()
+                        .url(url)
+                        .dnsResolver(
+                                host -> Collections.singletonList(InetAddress.getLoopbackAddress()))
+                        .exec(cache);
+        assertEquals("v3", custom.getBody());
+        assertEquals(3, count("/fresh"));
+
+        assertEquals("v1", JCurl.create().url(url).exec(cache).getBody());
+        assertEquals(3, count("/fresh"));
+    }
+
+    @Test
+    void testIncompleteBodyNotCached() throws IOException {
+        CachingHttpExecutor cache = cache(1 << 20);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(
+                    IOException.class,
+                    () -> JCurl.create().url(baseUrl + "/truncated").retry(0).exec(cache));
+        }
+        assertEquals(0, cache.getStats().getEntryCount());
+
+        // 执行器返回的响应体和Content-Length不一致时也不缓存
+        AtomicInteger executions = new AtomicInteger();
+        CachingHttpExecutor partial =
+                new CachingHttpExecutor(
+                        request -> {
+                            executions.incrementAndGet();
+                            JCurl.HttpResponseModel response = new JCurl.HttpResponseModel();
+                            response.setStatusCode(200);
+                            response.addHeader("Cache-Control", "max-age=60");
+                            response.addHeader("Content-Length", "100");
+                            response.setBodyBytes(new byte[10]);
+                            return response;
+                        },
+                        new CachingHttpExecutor.MemoryStore(1 << 20),
+                        background::add,
+                        clock::get);
+        get(partial, "/partial");
+        get(partial, "/partial");
+        assertEquals(2, executions.get());
+        assertEquals(0, partial.getStats().getEntryCount());
+    }
+
+    private static String repeat(int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testStreamTeesOnlyStorableResponses() throws IOException {
+        JCurl.HttpExecutor keepAlive = JCurl.HttpUrlConnectionExecutor.keepAlive();
+        AtomicInteger buffered = new AtomicInteger();
+        AtomicInteger streamed = new AtomicInteger();
+        JCurl.HttpExecutor delegate =
+                new JCurl.HttpExecutor() {
+                    @Override
+                    public JCurl.HttpResponseModel execute(JCurl.HttpRequestModel requestModel)
+                            throws IOException {
+                        buffered.incrementAndGet();
+                        return keepAlive.execute(requestModel);
+                    }
+
+                    @Override
+                    public JCurl.HttpResponseModel executeStream(
+                            JCurl.HttpRequestModel requestModel, JCurl.StreamHandler handler)
+                            throws IOException {
+                        streamed.incrementAndGet();
+                        return keepAlive.executeStream(requestModel, handler);
+                    }
+                };
+        CachingHttpExecutor cache =
+                new CachingHttpExecutor(
+                        delegate,
+                        new CachingHttpExecutor.MemoryStore(1 << 20),
+                        background::add,
+                        clock::get);
+
+        // 不可缓存的响应直接流式交给handler，不保存
+        assertEquals("v1", stream(cache, "/nostore"));
+        assertEquals("v1", stream(cache, "/nostore"));
+        assertEquals(0, cache.getStats().getEntryCount());
+
+        // 可缓存的响应边转交边收集，之后从缓存返回
+        assertEquals("v1", stream(cache, "/fresh"));
+        version = "v2";
+        assertEquals("v1", stream(cache, "/fresh"));
+        assertEquals(1, count("/fresh"));
+
+        // 重新验证得到304时handler只收到缓存的响应
+        assertEquals("v2", stream(cache, "/etag"));
+        assertEquals("v2", stream(cache, "/etag"));
+        assertEquals(2, count("/etag"));
+        assertEquals(1, cache.getStats().getNotModified());
+        assertEquals(0, buffered.get());
+        assertEquals(5, streamed.get());
+    }
+
+    /** 流式读取响应，handler只能收到一次onStart且状态码为200 */
+    private String stream(CachingHttpExecutor cache, String path) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        AtomicInteger starts = new AtomicInteger();
+        JCurl.create()
+                .url(baseUrl + path)
+                .execStream(
+                        cache,
+                        new JCurl.BufferHandler() {
+                            @Override
+                            public void onStart(
+                                    int statusCode,
+                                    String statusMessage,
+                                    Map<String, List<String>> headers) {
+                                assertEquals(200, statusCode);
+                                starts.incrementAndGet();
+                            }
+
+                            @Override
+                            public void onChunk(byte[] buffer, int offset, int length) {
+                                body.write(buffer, offset, length);
+                            }
+                        });
+        assertEquals(1, starts.get());
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,266 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试合并并发相同请求的执行器 */
+public class CoalescingHttpExecutorTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private ExecutorService pool;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger arrivals = new AtomicInteger();
+    private final CountDownLatch arrived = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final byte[] content = new byte[64 * 1024];
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        pool = Executors.newCachedThreadPool();
+        server = TestServer.start(pool);
+        server.createContext(
+                "/",
+                exchange -> {
+                    String path = exchange.getRequestURI().getPath();
+                    requests.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+                    arrivals.incrementAndGet();
+                    arrived.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (path.equals("/fail")) {
+                        exchange.close();
+                        return;
+                    }
+                    String language = exchange.getRequestHeaders().getFirst("Accept-Language");
+                    byte[] body =
+                            path.equals("/large")
+                                    ? content
+                                    : (path + " " + language).getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, body);
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.close();
+        pool.shutdownNow();
+    }
+
+    private int count(String path) {
+        AtomicInteger count = requests.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    /** 第一个请求到达服务端后再提交其余请求，等待发送的请求都到达服务端、其余请求都开始等待 */
+    private List<Future<JCurl.HttpResponseModel>> submit(
+            CoalescingHttpExecutor executor, List<JCurl> requests, int sent)
+            throws InterruptedException {
+        List<Future<JCurl.HttpResponseModel>> futures = new ArrayList<>();
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < requests.size(); i++) {
+            JCurl request = requests.get(i);
+            futures.add(
+                    pool.submit(
+                            () -> {
+                                threads.add(Thread.currentThread());
+                                return request.exec(executor);
+                            }));
+            if (i == 0) {
+                arrived.await();
+            }
+        }
+        while (threads.size() < requests.size()
+                || arrivals.get() < sent
+                || waiting(threads) < requests.size() - sent) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        return futures;
+    }
+
+    private static int waiting(List<Thread> threads) {
+        int waiting = 0;
+        synchronized (threads) {
+            for (Thread thread : threads) {
+                if (thread.getState() == Thread.State.WAITING) {
+                    waiting++;
+                }
+            }
+        }
+        return waiting;
+    }
+
+    @Test
+    void testCoalesceIdenticalRequests() throws Exception {
+        CoalescingHttpExecutor executor =
+                CoalescingHttpExecutor.create(JCurl.HttpUrlConnectionExecutor.create());
+        List<JCurl> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(JCurl.create().url(baseUrl + "/hot").header("X-Request-Id", "" + i));
+        }
+        List<Future<JCurl.HttpResponseModel>> futures = submit(executor, requests, 1);
+        List<JCurl.HttpResponseModel> responses = new ArrayList<>();
+        for (Future<JCurl.HttpResponseModel> future : futures) {
+            JCurl.HttpResponseModel response = future.get();
+            assertEquals(200, response.getStatusCode());
+            assertEquals("/hot null", response.getBody());
+            responses.add(response);
+        }
+        assertEquals(1, count("/hot"));
+        // 每个请求得到独立的响应头
+        responses.get(1).setHeader("X-Local", "1");
+        assertNull(responses.get(2).getHeader("X-Local"));
+        assertNotSame(responses.get(1), responses.get(2));
+
+        CoalescingHttpExecutor.CoalescingStats stats = executor.getStats();
+        assertEquals(1, stats.getExecutions());
+        assertEquals(19, stats.getCoalesced());
+        assertEquals(0, stats.getInFlight());
+
+        // 完成后的请求重新发送
+        JCurl.create().url(baseUrl + "/hot").exec(executor);
+        assertEquals(2, count("/hot"));
+    }
+
+    @Test
+    void testKeyHeadersAndBypass() throws Exception {
+        CoalescingHttpExecutor executor =
+                CoalescingHttpExecutor.create(
+                        JCurl.HttpUrlConnectionExecutor.create(),
+                        Collections.singletonList("accept-language"));
+        List<JCurl> requests = new ArrayList<>();
+        for (String language : new String[] {"en", "en", "zh", "zh"}) {
+            requests.add(JCurl.create().url(baseUrl + "/vary").header("Accept-Language", language));
+        }
+        requests.add(JCurl.create().url(baseUrl + "/vary").post().body("x"));
+        List<Future<JCurl.HttpResponseModel>> futures = submit(executor, requests, 3);
+        assertEquals("/vary en", futures.get(0).get().getBody());
+        assertEquals("/vary en", futures.get(1).get().getBody());
+        assertEquals("/vary zh", futures.get(2).get().getBody());
+        assertEquals("/vary zh", futures.get(3).get().getBody());
+        futures.get(4).get();
+        assertEquals(3, count("/vary"));
+        CoalescingHttpExecutor.CoalescingStats stats = executor.getStats();
+        assertEquals(2, stats.getCoalesced());
+        assertEquals(1, stats.getBypassed());
+    }
+
+    @Test
+    void testConnectionConfigInKey() throws Exception {
+        CoalescingHttpExecutor executor =
+                CoalescingHttpExecutor.create(JCurl.HttpUrlConnectionExecutor.create());
+        String url = baseUrl + "/config";
+        String authority = url.substring("http://".length(), url.indexOf("/config"));
+        List<JCurl> requests = new ArrayList<>();
+        requests.add(JCurl.create().url(url));
+        requests.add(JCurl.create().url(url));
+        requests.add(JCurl.create().url(url).followRedirects());
+        requests.add(JCurl.create().url(url).insecure());
+        requests.add(JCurl.create().url(url).resolve(authority + ":127.0.0.1"));
+        List<Future<JCurl.HttpResponseModel>> futures = submit(executor, requests, 4);
+        for (Future<JCurl.HttpResponseModel> future : futures) {
+            assertEquals(200, future.get().getStatusCode());
+        }
+        // 连接配置不同的请求各自发送，只有配置相同的第二个请求被合并
+        assertEquals(4, count("/config"));
+        assertEquals(1, executor.getStats().getCoalesced());
+    }
+
+    @Test
+    void testFailureShared() throws Exception {
+        CoalescingHttpExecutor executor =
+                CoalescingHttpExecutor.create(JCurl.HttpUrlConnectionExecutor.create());
+        List<JCurl> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(JCurl.create().url(baseUrl + "/fail").retry(0));
+        }
+        for (Future<JCurl.HttpResponseModel> future : submit(executor, requests, 1)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException, e.getCause().toString());
+                continue;
+            }
+            throw new AssertionError("expected failure");
+        }
+        // HttpURLConnection可能自行重试一次，只检查合并器发送的次数
+        assertEquals(1, executor.getStats().getExecutions());
+        assertEquals(2, executor.getStats().getCoalesced());
+    }
+
+    @Test
+    void testBodyCopies() throws Exception {
+        CoalescingHttpExecutor executor =
+                CoalescingHttpExecutor.create(JCurl.HttpUrlConnectionExecutor.create());
+        List<JCurl> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(JCurl.create().url(baseUrl + "/large"));
+        }
+        List<Future<JCurl.HttpResponseModel>> futures = submit(executor, requests, 1);
+        List<JCurl.HttpResponseModel> responses = new ArrayList<>();
+        for (Future<JCurl.HttpResponseModel> future : futures) {
+            responses.add(future.get());
+        }
+        assertEquals(1, count("/large"));
+        // 修改其中一个响应体数组不影响其他请求
+        byte[] mutated = responses.get(1).getBodyBytes();
+        Arrays.fill(mutated, (byte) 0);
+        assertSame(mutated, responses.get(1).getBodyBytes());
+        assertArrayEquals(content, responses.get(0).getBodyBytes());
+        assertArrayEquals(content, responses.get(2).getBodyBytes());
+    }
+
+    @Test
+    void testSpilledBodyCopies() throws Exception {
+        CoalescingHttpExecutor executor =
+                CoalescingHttpExecutor.create(JCurl.HttpUrlConnectionExecutor.create());
+        List<JCurl> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(JCurl.create().url(baseUrl + "/large").spillThreshold(1024));
+        }
+        List<Future<JCurl.HttpResponseModel>> futures = submit(executor, requests, 1);
+        JCurl.HttpResponseModel first = futures.get(0).get();
+        assertTrue(first.isBodySpilled());
+        // 关闭其中一个响应不影响其他副本
+        first.close();
+        for (Future<JCurl.HttpResponseModel> future : futures.subList(1, futures.size())) {
+            try (JCurl.HttpResponseModel response = future.get()) {
+                assertTrue(response.isBodySpilled());
+                assertArrayEquals(content, response.getBodyBytes());
+            }
+        }
+        assertEquals(1, count("/large"));
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** 测试可注册的Content-Encoding解码 */
+public class ContentDecoderTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[200 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        server = TestServer.start();
+        context("/zlib", "deflate", deflate(content, false));
+        context("/raw", "deflate", deflate(content, true));
+        // 先gzip再deflate
+        context("/stacked", "gzip, deflate", deflate(gzip(content), false));
+        context("/xor", "x-xor", xor(content));
+        context("/unknown", "br", content);
+        byte[] gzip = gzip(content);
+        context("/truncated", "gzip", Arrays.copyOf(gzip, gzip.length / 2));
+        // 两个gzip成员依次拼接
+        int half = content.length / 2;
+        context(
+                "/members",
+                "gzip",
+                concat(
+                        gzip(Arrays.copyOfRange(content, 0, half)),
+                        gzip(Arrays.copyOfRange(content, half, content.length))));
+        byte[] badCrc = gzip.clone();
+        badCrc[badCrc.length - 8] ^= 1;
+        context("/bad-crc", "gzip", badCrc);
+        byte[] badSize = gzip.clone();
+        badSize[badSize.length - 1] ^= 1;
+        context("/bad-size", "gzip", badSize);
+        context("/garbage", "gzip", concat(gzip, "not gzip data".getBytes("UTF-8")));
+        server.createContext(
+                "/echo",
+                exchange -> {
+                    String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                    byte[] body = String.valueOf(accept).getBytes("UTF-8");
+                    TestServer.respond(exchange, 200, body);
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        ContentDecoders.unregister("x-xor");
+    }
+
+    private void context(String path, String encoding, byte[] body) {
+        server.createContext(
+                path,
+                exchange -> {
+                    exchange.getResponseHeaders().add("Content-Encoding", encoding);
+                    TestServer.respond(exchange, 200, body);
+                });
+    }
+
+    private List<JCurl.HttpExecutor> executors() {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        return executors;
+    }
+
+    @Test
+    void testDeflateAndStackedEncodings() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            for (String path : new String[] {"/zlib", "/raw", "/stacked"}) {
+                String name = executor.getClass().getSimpleName() + " " + path;
+                assertArrayEquals(content, exec(executor, path), name);
+                assertArrayEquals(content, stream(executor, path), name);
+                try (JCurl.HttpResponseModel response =
+                        JCurl.create().url(baseUrl + path).execOpen(executor)) {
+                    assertArrayEquals(content, response.getBodyBytes(), name);
+                }
+            }
+            String name = executor.getClass().getSimpleName();
+            // 未注册的编码原样返回
+            assertArrayEquals(content, exec(executor, "/unknown"), name);
+            assertThrows(IOException.class, () -> stream(executor, "/truncated"), name);
+        }
+    }
+
+    @Test
+    void testGzipTrailerAndMembers() throws IOException {
+        // 指定compressed时所有执行器（包括OkHttp）都由ContentDecoders解码
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            assertArrayEquals(content, compressed(executor, "/members"), name);
+            // 尾部校验失败和成员之后的其他数据不会被悄悄忽略
+            for (String path : new String[] {"/bad-crc", "/bad-size", "/garbage"}) {
+                assertThrows(
+                        IOException.class, () -> compressed(executor, path), name + " " + path);
+            }
+        }
+    }
+
+    @Test
+    void testCustomDecoder() throws IOException {
+        ContentDecoders.register(new XorDecoder());
+        assertEquals("gzip, deflate, x-xor", ContentDecoders.acceptEncoding());
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            assertArrayEquals(content, exec(executor, "/xor"), name);
+            assertArrayEquals(content, stream(executor, "/xor"), name);
+            JCurl.HttpResponseModel echo =
+                    JCurl.create().url(baseUrl + "/echo").compressed().exec(executor);
+            assertEquals("gzip, deflate, x-xor", echo.getBody(), name);
+        }
+        assertEquals(true, ContentDecoders.unregister("X-XOR"));
+        assertNull(ContentDecoders.get("x-xor"));
+        assertEquals("gzip, deflate", ContentDecoders.acceptEncoding());
+    }
+
+    private byte[] exec(JCurl.HttpExecutor executor, String path) throws IOException {
+        return JCurl.create().url(baseUrl + path).exec(executor).getBodyBytes();
+    }
+
+    private byte[] compressed(JCurl.HttpExecutor executor, String path) throws IOException {
+        byte[] body = JCurl.create().url(baseUrl + path).compressed().exec(executor).getBodyBytes();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.create()
+                .url(baseUrl + path)
+                .compressed()
+                .execStream(executor, (JCurl.BufferHandler) bos::write);
+        assertArrayEquals(body, bos.toByteArray());
+        return body;
+    }
+
+    private byte[] stream(JCurl.HttpExecutor executor, String path) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.create().url(baseUrl + path).execStream(executor, (JCurl.BufferHandler) bos::write);
+        return bos.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream os = new GZIPOutputStream(bos)) {
+            os.write(data);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static byte[] deflate(byte[] data, boolean nowrap) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+        try (DeflaterOutputStream os = new DeflaterOutputStream(bos, deflater)) {
+            os.write(data);
+        } finally {
+            deflater.end();
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] xor(byte[] data) {
+        byte[] result = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = (byte) (data[i] ^ 0x5a);
+        }
+        return result;
+    }
+
+    /** 只实现了流式解码的自定义编码 */
+    private static final class XorDecoder implements ContentDecoder {
+
+        @Override
+        public String getEncoding() {
+            return "x-xor";
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    return b == -1 ? -1 : (b ^ 0x5a);
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    for (int i = 0; i < n; i++) {
+                        b[off + i] ^= 0x5a;
+                    }
+                    return n;
+                }
+            };
+        }
+    }
+}
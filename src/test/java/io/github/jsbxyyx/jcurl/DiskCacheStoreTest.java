@@ -0,0 +1,261 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试磁盘缓存 */
+public class DiskCacheStoreTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private Path dir;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/",
+                exchange -> {
+                    String path = exchange.getRequestURI().getPath();
+                    requests.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+                    String language = exchange.getRequestHeaders().getFirst("Accept-Language");
+                    byte[] body;
+                    if (path.startsWith("/large")) {
+                        body = new byte[600];
+                    } else {
+                        body = (path + " " + language).getBytes(StandardCharsets.UTF_8);
+                    }
+                    exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+                    exchange.getResponseHeaders().add("Vary", "Accept-Language");
+                    TestServer.respond(exchange, 200, body);
+                });
+        baseUrl = server.baseUrl();
+        dir = Files.createTempDirectory("jcurl-cache");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private int count(String path) {
+        AtomicInteger count = requests.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    private JCurl.HttpResponseModel get(CachingHttpExecutor cache, String path, String language)
+            throws IOException {
+        return JCurl.create().url(baseUrl + path).header("Accept-Language", language).exec(cache);
+    }
+
+    private static CachingHttpExecutor cache(DiskCacheStore store) {
+        return CachingHttpExecutor.create(JCurl.HttpUrlConnectionExecutor.keepAlive(), store);
+    }
+
+    @Test
+    void testPersistAcrossReopen() throws IOException {
+        try (DiskCacheStore store = DiskCacheStore.open(dir, 1 << 20)) {
+            CachingHttpExecutor cache = cache(store);
+            assertEquals("/a en", get(cache, "/a", "en").getBody());
+            assertEquals("/a zh", get(cache, "/a", "zh").getBody());
+            assertEquals("/b en", get(cache, "/b", "en").getBody());
+            assertEquals(3, cache.getStats().getEntryCount());
+        }
+
+        try (DiskCacheStore store = DiskCacheStore.open(dir, 1 << 20)) {
+            CachingHttpExecutor cache = cache(store);
+            assertEquals(3, cache.getStats().getEntryCount());
+            assertEquals("/a zh", get(cache, "/a", "zh").getBody());
+            JCurl.HttpResponseModel hit = get(cache, "/a", "en");
+            // 响应体引用映射的数据文件
+            try (InputStream in = hit.getBodyStream()) {
+                assertArrayEquals("/a en".getBytes(StandardCharsets.UTF_8), readAll(in));
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            JCurl.create()
+                    .url(baseUrl + "/b")
+                    .header("Accept-Language", "en")
+                    .execStream(cache, (JCurl.BufferHandler) bos::write);
+            assertEquals("/b en", new String(bos.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(2, count("/a"));
+            assertEquals(1, count("/b"));
+            assertEquals(3, cache.getStats().getHits());
+
+            // 同一个目录不能同时打开两次
+            assertThrows(IOException.class, () -> DiskCacheStore.open(dir, 1 << 20));
+        }
+    }
+
+    @Test
+    void testCrashRecovery() throws IOException {
+        Path copy = Files.createDirectory(dir.resolve("copy"));
+        try (DiskCacheStore store = DiskCacheStore.open(dir, 1 << 20)) {
+            CachingHttpExecutor cache = cache(store);
+            get(cache, "/a", "en");
+            get(cache, "/b", "en");
+            JCurl.create().url(baseUrl + "/a").post().exec(cache);
+            // 模拟进程崩溃：复制没有正常关闭的文件
+            for (String name : new String[] {"jcurl-cache.data", "jcurl-cache.index"}) {
+                Files.copy(dir.resolve(name), copy.resolve(name));
+            }
+        }
+        // 最后一条记录只写了一半
+        byte[] torn = {0x4A, 0x43, 0x52, 0x31, 1, 2, 3};
+        Files.write(copy.resolve("jcurl-cache.data"), torn, StandardOpenOption.APPEND);
+        long length = Files.size(copy.resolve("jcurl-cache.data"));
+
+        try (DiskCacheStore store = DiskCacheStore.open(copy, 1 << 20)) {
+            CachingHttpExecutor cache = cache(store);
+            assertEquals(1, cache.getStats().getEntryCount());
+            assertEquals(length - torn.length, Files.size(copy.resolve("jcurl-cache.data")));
+            assertEquals("/b en", get(cache, "/b", "en").getBody());
+            assertEquals(1, count("/b"));
+            // POST也计入请求次数
+            assertEquals("/a en", get(cache, "/a", "en").getBody());
+            assertEquals(3, count("/a"));
+        }
+
+        // 索引损坏时同样从数据文件恢复
+        Files.write(copy.resolve("jcurl-cache.index"), new byte[] {1, 2, 3});
+        try (DiskCacheStore store = DiskCacheStore.open(copy, 1 << 20)) {
+            CachingHttpExecutor cache = cache(store);
+            assertEquals(2, cache.getStats().getEntryCount());
+            get(cache, "/a", "en");
+            get(cache, "/b", "en");
+            assertEquals(3, count("/a"));
+            assertEquals(1, count("/b"));
+        }
+    }
+
+    @Test
+    void testEvictByBytes() throws IOException {
+        try (DiskCacheStore store = DiskCacheStore.open(dir, 4000)) {
+            CachingHttpExecutor cache = cache(store);
+            for (int i = 0; i < 10; i++) {
+                get(cache, "/large" + i, "en");
+                // 保持/a最近被访问
+                get(cache, "/a", "en");
+            }
+            CachingHttpExecutor.CacheStats stats = cache.getStats();
+            assertTrue(stats.getEvictions() > 0);
+            assertTrue(stats.getSize() <= 4000);
+            assertTrue(Files.size(dir.resolve("jcurl-cache.data")) <= 4000);
+            assertEquals(1, count("/a"));
+            assertEquals(1, count("/large9"));
+            get(cache, "/large9", "en");
+            assertEquals(1, count("/large9"));
+            get(cache, "/large0", "en");
+            assertEquals(2, count("/large0"));
+
+            cache.clear();
+            assertEquals(0, cache.getStats().getEntryCount());
+            assertEquals(0, Files.size(dir.resolve("jcurl-cache.data")));
+            get(cache, "/a", "en");
+            assertEquals(2, count("/a"));
+        }
+    }
+
+    @Test
+    void testConcurrentAccessDuringCompaction() throws Exception {
+        try (DiskCacheStore store = DiskCacheStore.open(dir, 64 * 1024)) {
+            JCurl.HttpRequestModel request = JCurl.create().url(baseUrl + "/").peek();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicInteger hits = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                boolean writer = t % 2 == 0;
+                threads.add(
+                        new Thread(
+                                () -> {
+                                    try {
+                                        for (int i = 0; i < 400; i++) {
+                                            int key = i % 100;
+                                            if (writer) {
+                                                store.put("k" + key, request, entry(key));
+                                            } else {
+                                                CachingHttpExecutor.Entry hit =
+                                                        store.get("k" + key, request);
+                                                if (hit != null) {
+                                                    // 压缩期间命中的响应体仍然完整
+                                                    assertEquals(1000 + key, hit.body.remaining());
+                                                    while (hit.body.hasRemaining()) {
+                                                        assertEquals((byte) key, hit.body.get());
+                                                    }
+                                                    hits.incrementAndGet();
+                                                }
+                                            }
+                                        }
+                                    } catch (Throwable e) {
+                                        failure.compareAndSet(null, e);
+                                    }
+                                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            assertTrue(store.evictions() > 0);
+            assertTrue(hits.get() > 0);
+            assertTrue(Files.size(dir.resolve("jcurl-cache.data")) <= 64 * 1024);
+        }
+    }
+
+    private static CachingHttpExecutor.Entry entry(int key) {
+        byte[] body = new byte[1000 + key];
+        Arrays.fill(body, (byte) key);
+        return new CachingHttpExecutor.Entry(
+                200,
+                "OK",
+                new JCurl.HeaderMap(),
+                ByteBuffer.wrap(body),
+                Collections.emptyMap(),
+                0,
+                0);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bos.write(buffer, 0, n);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,359 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/** 测试域名解析缓存和各执行器的解析器接入 */
+public class DnsResolverTest {
+
+    private TestServer server;
+    private String host;
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final Queue<Runnable> background = new ArrayDeque<>();
+    private volatile List<InetAddress> records;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        records =
+                Arrays.asList(
+                        InetAddress.getByAddress("a.test", new byte[] {10, 0, 0, 1}),
+                        InetAddress.getByAddress("a.test", new byte[] {10, 0, 0, 2}),
+                        InetAddress.getByAddress("a.test", new byte[] {10, 0, 0, 3}));
+        server = TestServer.start();
+        server.createContext(
+                "/host",
+                exchange -> {
+                    byte[] body =
+                            String.valueOf(exchange.getRequestHeaders().getFirst("Host"))
+                                    .getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, body);
+                });
+        host = "jcurl.test:" + server.port();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    /** 记录调用次数的解析器，jcurl.test指向本机，missing.test不存在 */
+    private List<InetAddress> lookup(String name) throws UnknownHostException {
+        lookups.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+        switch (name) {
+            case "jcurl.test":
+            case "secure.test":
+            case "resolver-only.test":
+                return Arrays.asList(InetAddress.getByAddress(name, new byte[] {127, 0, 0, 1}));
+            case "a.test":
+                return records;
+            case "dual.test":
+                // 服务器只监听IPv4，IPv6地址拒绝连接
+                return Arrays.asList(
+                        InetAddress.getByAddress(name, new byte[] {127, 0, 0, 1}),
+                        InetAddress.getByAddress(name, InetAddress.getByName("::1").getAddress()));
+            default:
+                throw new UnknownHostException(name);
+        }
+    }
+
+    private int count(String name) {
+        AtomicInteger count = lookups.get(name);
+        return count == null ? 0 : count.get();
+    }
+
+    private CachingDnsResolver resolver() {
+        return new CachingDnsResolver(
+                this::lookup, 10_000, 2_000, true, background::add, clock::get);
+    }
+
+    @Test
+    void testTtlRefreshAndNegativeCache() throws IOException {
+        CachingDnsResolver resolver = resolver();
+        assertEquals(3, resolver.resolve("a.test").size());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        resolver.resolve("A.TEST");
+        assertEquals(1, count("a.test"));
+        assertTrue(background.isEmpty());
+
+        // 过了TTL的3/4后在后台刷新，期间返回旧的结果
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        records = Arrays.asList(InetAddress.getByAddress("a.test", new byte[] {10, 0, 0, 9}));
+        assertEquals(3, resolver.resolve("a.test").size());
+        assertEquals(3, resolver.resolve("a.test").size());
+        assertEquals(1, background.size());
+        background.poll().run();
+        assertEquals(Arrays.asList(records.get(0)), new ArrayList<>(resolver.resolve("a.test")));
+        assertEquals(2, count("a.test"));
+
+        // 过期后同步解析
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        resolver.resolve("a.test");
+        assertEquals(3, count("a.test"));
+
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("missing.test"));
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("missing.test"));
+        assertEquals(1, count("missing.test"));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("missing.test"));
+        assertEquals(2, count("missing.test"));
+
+        // IP地址不经过解析器
+        assertEquals("127.0.0.1", resolver.resolve("127.0.0.1").get(0).getHostAddress());
+        assertEquals(0, count("127.0.0.1"));
+
+        CachingDnsResolver.DnsStats stats = resolver.getStats();
+        assertEquals(5, stats.getLookups());
+        assertEquals(2, stats.getFailures());
+        assertEquals(1, stats.getRefreshes());
+        assertEquals(1, stats.getNegativeHits());
+        assertTrue(stats.getMaxLookupMillis() >= stats.getAverageLookupMillis());
+    }
+
+    @Test
+    void testRoundRobin() throws IOException {
+        CachingDnsResolver resolver = resolver();
+        Set<InetAddress> first = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            List<InetAddress> addresses = resolver.resolve("a.test");
+            assertEquals(3, addresses.size());
+            assertEquals(new HashSet<>(records), new HashSet<>(addresses));
+            first.add(addresses.get(0));
+        }
+        assertEquals(new HashSet<>(records), first);
+        assertEquals(1, count("a.test"));
+    }
+
+    @Test
+    void testRotationKeepsFirstFamily() throws IOException {
+        InetAddress v4a = InetAddress.getByAddress("a.test", new byte[] {10, 0, 0, 1});
+        InetAddress v6 = InetAddress.getByName("::1");
+        InetAddress v4b = InetAddress.getByAddress("a.test", new byte[] {10, 0, 0, 2});
+        records = Arrays.asList(v4a, v6, v4b);
+        CachingDnsResolver resolver = resolver();
+        Set<InetAddress> first = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            List<InetAddress> addresses = resolver.resolve("a.test");
+            first.add(addresses.get(0));
+            // 其他协议族的地址始终排在后面
+            assertEquals(v6, addresses.get(2));
+        }
+        assertEquals(new HashSet<>(Arrays.asList(v4a, v4b)), first);
+
+        // 不轮换时保持解析器返回的顺序
+        CachingDnsResolver ordered =
+                new CachingDnsResolver(
+                        this::lookup, 10_000, 2_000, false, background::add, clock::get);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(records, ordered.resolve("a.test"));
+        }
+    }
+
+    /** 双栈域名的另一个协议族不可连接时，每次请求都连接第一个协议族的地址 */
+    @Test
+    void testDualStackAlwaysConnects() throws IOException {
+        CachingDnsResolver resolver = resolver();
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        String dual = "dual.test:" + server.port();
+        for (JCurl.HttpExecutor executor : executors) {
+            String name = executor.getClass().getSimpleName();
+            for (int i = 0; i < 4; i++) {
+                JCurl.HttpResponseModel response =
+                        JCurl.create()
+                                .url("http://" + dual + "/host")
+                                .dnsResolver(resolver)
+                                .connectTimeout(2000)
+                                .exec(executor);
+                assertEquals(200, response.getStatusCode(), name);
+                assertEquals(dual, response.getBody(), name);
+            }
+        }
+    }
+
+    /** 没有指定解析器时HttpURLConnection交给JVM解析，不经过共享的解析缓存 */
+    @Test
+    void testUrlConnectionDefaultsToJvmLookup() throws IOException {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        String local = "localhost:" + server.port();
+        for (JCurl.HttpExecutor executor : executors) {
+            String name = executor.getClass().getSimpleName();
+            for (DnsResolver resolver : new DnsResolver[] {null, DnsResolver.SYSTEM}) {
+                CachingDnsResolver.DnsStats before = CachingDnsResolver.shared().getStats();
+                JCurl.HttpResponseModel response =
+                        JCurl.create()
+                                .url("http://" + local + "/host")
+                                .dnsResolver(resolver)
+                                .exec(executor);
+                assertEquals(200, response.getStatusCode(), name);
+                assertEquals(local, response.getBody(), name);
+                CachingDnsResolver.DnsStats after = CachingDnsResolver.shared().getStats();
+                assertEquals(before.getHits(), after.getHits(), name);
+                assertEquals(before.getMisses(), after.getMisses(), name);
+            }
+        }
+    }
+
+    @Test
+    void testExecutorsUseResolver() throws IOException {
+        CachingDnsResolver resolver = resolver();
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        for (JCurl.HttpExecutor executor : executors) {
+            String name = executor.getClass().getSimpleName();
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url("http://" + host + "/host")
+                            .dnsResolver(resolver)
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode(), name);
+            // 连接解析出的地址，Host请求头仍然是原来的域名
+            assertEquals(host, response.getBody(), name);
+        }
+        assertEquals(1, count("jcurl.test"));
+
+        for (JCurl.HttpExecutor executor : executors) {
+            String name = executor.getClass().getSimpleName();
+            IOException e =
+                    assertThrows(
+                            IOException.class,
+                            () ->
+                                    JCurl.create()
+                                            .url("http://missing.test/host")
+                                            .dnsResolver(resolver)
+                                            .exec(executor),
+                            name);
+            // OkHttpExecutor把失败包装为重试失败
+            Throwable cause = e;
+            while (cause.getCause() != null && !(cause instanceof UnknownHostException)) {
+                cause = cause.getCause();
+            }
+            assertTrue(cause instanceof UnknownHostException, name);
+        }
+        assertEquals(1, count("missing.test"));
+    }
+
+    @Test
+    void testHttpsConnectsResolvedAddress() throws Exception {
+        CachingDnsResolver resolver = resolver();
+        try (ServerSocket serverSocket =
+                new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            CountDownLatch accepted = new CountDownLatch(1);
+            Thread acceptor =
+                    new Thread(
+                            () -> {
+                                try (Socket socket = serverSocket.accept()) {
+                                    accepted.countDown();
+                                } catch (IOException ignored) {
+                                }
+                            });
+            acceptor.start();
+            // 服务端不是TLS，握手失败，但连接已经建立到解析出的地址
+            assertThrows(
+                    IOException.class,
+                    () ->
+                            JCurl.create()
+                                    .url("https://secure.test:" + serverSocket.getLocalPort() + "/")
+                                    .dnsResolver(resolver)
+                                    .connectTimeout(2000)
+                                    .readTimeout(2000)
+                                    .exec(JCurl.HttpUrlConnectionExecutor.create()));
+            assertTrue(accepted.await(5, TimeUnit.SECONDS));
+            assertEquals(1, count("secure.test"));
+            acceptor.join(5000);
+        }
+    }
+
+    /** 只有解析器知道的域名，HttpURLConnection的HTTPS请求不能再交给JVM解析，否则无法连接 */
+    @Test
+    void testHttpsSkipsJvmLookup() throws Exception {
+        boolean jvmResolvable;
+        try {
+            InetAddress.getByName("resolver-only.test");
+            jvmResolvable = true;
+        } catch (UnknownHostException e) {
+            jvmResolvable = false;
+        }
+        assumeTrue(!jvmResolvable, "resolver-only.test is resolvable by the JVM");
+        CachingDnsResolver resolver = resolver();
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        try (ServerSocket serverSocket =
+                new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            String url = "https://resolver-only.test:" + serverSocket.getLocalPort() + "/";
+            for (JCurl.HttpExecutor executor : executors) {
+                String name = executor.getClass().getSimpleName();
+                StringBuilder hello = new StringBuilder();
+                Thread acceptor =
+                        new Thread(
+                                () -> {
+                                    try (Socket socket = serverSocket.accept()) {
+                                        byte[] buffer = new byte[4096];
+                                        int n = socket.getInputStream().read(buffer);
+                                        synchronized (hello) {
+                                            hello.append(
+                                                    new String(
+                                                            buffer,
+                                                            0,
+                                                            Math.max(n, 0),
+                                                            StandardCharsets.ISO_8859_1));
+                                        }
+                                    } catch (IOException ignored) {
+                                    }
+                                });
+                acceptor.start();
+                // 服务端不是TLS，握手失败，但ClientHello已经发送到解析出的地址
+                assertThrows(
+                        IOException.class,
+                        () ->
+                                JCurl.create()
+                                        .url(url)
+                                        .dnsResolver(resolver)
+                                        .connectTimeout(2000)
+                                        .readTimeout(2000)
+                                        .exec(executor),
+                        name);
+                acceptor.join(5000);
+                synchronized (hello) {
+                    assertTrue(hello.toString().contains("resolver-only.test"), name);
+                }
+            }
+        }
+        assertEquals(1, count("resolver-only.test"));
+    }
+}
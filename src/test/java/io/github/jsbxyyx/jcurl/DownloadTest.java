@@ -0,0 +1,288 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试直接下载到文件 */
+public class DownloadTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private Path dir;
+    private byte[] content;
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger servedBytes = new AtomicInteger();
+    // 依次用于续传请求的错误响应：状态码或错误的Content-Range
+    private final Queue<String> rangeFaults = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[2 * 1024 * 1024 + 3];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 7);
+        }
+        server = TestServer.start();
+        server.createContext(
+                "/file.bin",
+                exchange -> {
+                    boolean chunked = exchange.getRequestURI().getQuery() != null;
+                    exchange.sendResponseHeaders(200, chunked ? 0 : content.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content);
+                    }
+                });
+        server.createContext(
+                "/ranged.bin",
+                exchange -> {
+                    exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+                    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                    if ("HEAD".equals(exchange.getRequestMethod())) {
+                        exchange.getResponseHeaders()
+                                .add("Content-Length", String.valueOf(content.length));
+                        exchange.sendResponseHeaders(200, -1);
+                        exchange.close();
+                        return;
+                    }
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    int start = 0;
+                    int end = content.length - 1;
+                    if (range != null) {
+                        rangeRequests.incrementAndGet();
+                        String[] bounds = range.substring("bytes=".length()).split("-");
+                        start = Integer.parseInt(bounds[0]);
+                        end = Integer.parseInt(bounds[1]);
+                        String fault = rangeFaults.poll();
+                        exchange.getResponseHeaders()
+                                .add(
+                                        "Content-Range",
+                                        fault != null
+                                                ? fault
+                                                : "bytes "
+                                                        + start
+                                                        + "-"
+                                                        + end
+                                                        + "/"
+                                                        + content.length);
+                    }
+                    exchange.sendResponseHeaders(range != null ? 206 : 200, end - start + 1);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content, start, end - start + 1);
+                    }
+                });
+        server.createContext(
+                "/flaky.bin",
+                exchange -> {
+                    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                    String range = exchange.getRequestHeaders().getFirst("Range");
+                    int start = 0;
+                    if (range != null) {
+                        rangeRequests.incrementAndGet();
+                        String fault = rangeFaults.poll();
+                        if (fault != null) {
+                            byte[] error = "error".getBytes(StandardCharsets.UTF_8);
+                            if (fault.startsWith("bytes")) {
+                                exchange.getResponseHeaders().add("Content-Range", fault);
+                                exchange.sendResponseHeaders(206, error.length);
+                            } else {
+                                exchange.sendResponseHeaders(Integer.parseInt(fault), error.length);
+                            }
+                            try (OutputStream os = exchange.getResponseBody()) {
+                                os.write(error);
+                            }
+                            return;
+                        }
+                        start =
+                                Integer.parseInt(
+                                        range.substring("bytes=".length(), range.length() - 1));
+                        exchange.getResponseHeaders()
+                                .add(
+                                        "Content-Range",
+                                        "bytes "
+                                                + start
+                                                + "-"
+                                                + (content.length - 1)
+                                                + "/"
+                                                + content.length);
+                    }
+                    int length = content.length - start;
+                    exchange.sendResponseHeaders(range != null ? 206 : 200, length);
+                    OutputStream os = exchange.getResponseBody();
+                    // 第一次请求只发送一半就断开连接
+                    int sent = range == null ? length / 2 : length;
+                    // 先计数再发送，客户端读完响应时计数已经更新
+                    servedBytes.addAndGet(sent);
+                    os.write(content, start, sent);
+                    os.flush();
+                    exchange.close();
+                });
+        baseUrl = server.baseUrl();
+        dir = Files.createTempDirectory("jcurl-download");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    void testExecToFile() throws IOException {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        for (JCurl.HttpExecutor executor : executors) {
+            for (String query : new String[] {"", "?chunked"}) {
+                String name = executor.getClass().getSimpleName() + query;
+                Path file = dir.resolve("out.bin");
+                JCurl.HttpResponseModel response =
+                        JCurl.create()
+                                .url(baseUrl + "/file.bin" + query)
+                                .execToFile(executor, file);
+                assertEquals(200, response.getStatusCode(), name);
+                assertNull(response.getBodyBytes(), name);
+                assertArrayEquals(content, Files.readAllBytes(file), name);
+                assertFalse(Files.exists(dir.resolve("out.bin.part")), name);
+            }
+        }
+    }
+
+    @Test
+    void testSegmented() throws IOException {
+        Path file = dir.resolve("segmented.bin");
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/ranged.bin")
+                        .execToFile(OkHttpExecutor.create(), file, 4);
+        assertEquals(200, response.getStatusCode());
+        assertEquals(4, rangeRequests.get());
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    @Test
+    void testSegmentedRejectsWrongRange() {
+        Path file = dir.resolve("wrong.bin");
+        // 长度正确但区间不是请求的区间，不能拼接出错误的文件
+        rangeFaults.add("bytes 0-99/" + content.length);
+        IOException e =
+                assertThrows(
+                        IOException.class,
+                        () ->
+                                JCurl.create()
+                                        .url(baseUrl + "/ranged.bin")
+                                        .retry(0)
+                                        .execToFile(OkHttpExecutor.create(), file, 4));
+        assertTrue(String.valueOf(e.getCause()).contains("unexpected Content-Range"));
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(dir.resolve("wrong.bin.part")));
+    }
+
+    @Test
+    void testSegmentedFallback() throws IOException {
+        Path file = dir.resolve("single.bin");
+        JCurl.create()
+                .url(baseUrl + "/file.bin")
+                .execToFile(JCurl.HttpUrlConnectionExecutor.create(), file, 4);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(0, rangeRequests.get());
+    }
+
+    @Test
+    void testResumeOnRetry() throws IOException {
+        Path file = dir.resolve("resumed.bin");
+        JCurl.fromCurl("curl -C - --retry 2 -o " + file + " " + baseUrl + "/flaky.bin")
+                .retryDelay(10)
+                .exec();
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(1, rangeRequests.get());
+        assertEquals(content.length, servedBytes.get());
+        assertFalse(Files.exists(dir.resolve("resumed.bin.part.checkpoint")));
+    }
+
+    @Test
+    void testResumeAcrossRestart() throws IOException {
+        Path file = dir.resolve("restart.bin");
+        JCurl request = JCurl.create().url(baseUrl + "/flaky.bin").resume();
+        // 不重试时第一次下载失败，保留已下载的数据和检查点
+        assertThrows(IOException.class, () -> request.execToFile(file));
+        assertTrue(Files.exists(dir.resolve("restart.bin.part.checkpoint")));
+        assertFalse(Files.exists(file));
+
+        request.execToFile(file);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(1, rangeRequests.get());
+    }
+
+    @Test
+    void testResumeKeepsDataOnErrorStatus() throws IOException {
+        Path file = dir.resolve("errors.bin");
+        Path checkpoint = dir.resolve("errors.bin.part.checkpoint");
+        JCurl request = JCurl.create().url(baseUrl + "/flaky.bin").resume();
+        assertThrows(IOException.class, () -> request.execToFile(file));
+        long partial = Files.size(dir.resolve("errors.bin.part"));
+        assertTrue(partial > 0);
+
+        // 错误状态码和无法解析的Content-Range都不能覆盖已下载的数据
+        for (String fault : new String[] {"503", "404", "bytes */123", "bytes 5/", "bytes x-y/z"}) {
+            rangeFaults.add(fault);
+            IOException e = assertThrows(IOException.class, () -> request.execToFile(file), fault);
+            assertTrue(String.valueOf(e.getCause()).contains("unexpected"), fault);
+            assertEquals(partial, Files.size(dir.resolve("errors.bin.part")), fault);
+            assertTrue(Files.exists(checkpoint), fault);
+        }
+
+        request.execToFile(file);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertFalse(Files.exists(checkpoint));
+        assertEquals(content.length, servedBytes.get());
+    }
+
+    @Test
+    void testOutputOption() throws IOException {
+        Path file = dir.resolve("curl.bin");
+        JCurl.fromCurl("curl -o " + file + " " + baseUrl + "/file.bin").exec();
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    @Test
+    void testMaxDownloadSize() {
+        Path file = dir.resolve("limited.bin");
+        assertThrows(
+                IOException.class,
+                () ->
+                        JCurl.create()
+                                .url(baseUrl + "/file.bin?chunked")
+                                .maxDownloadSize(1024)
+                                .execToFile(file));
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(dir.resolve("limited.bin.part")));
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试忽略大小写的header存储 */
+public class HeaderMapTest {
+
+    @Test
+    void testCaseInsensitiveAndOriginalCase() {
+        JCurl.HeaderMap headers = new JCurl.HeaderMap();
+        headers.add("X-Request-Id", "1");
+        headers.add("x-request-id", "2");
+        headers.add("Set-Cookie", "a=1");
+
+        assertEquals(Arrays.asList("1", "2"), headers.get("X-REQUEST-ID"));
+        assertTrue(headers.containsKey("set-cookie"));
+        assertTrue(headers.keySet().contains("SET-COOKIE"));
+        // 保留第一次出现时的大小写和插入顺序
+        assertEquals(
+                Arrays.asList("X-Request-Id", "Set-Cookie"), new ArrayList<>(headers.keySet()));
+        assertNull(headers.get("X-Request"));
+        assertNull(headers.get(1));
+    }
+
+    @Test
+    void testPutRemoveAndIterator() {
+        JCurl.HeaderMap headers = new JCurl.HeaderMap(2);
+        for (int i = 0; i < 20; i++) {
+            headers.add("H" + i, String.valueOf(i));
+        }
+        assertEquals(20, headers.size());
+
+        List<String> old = headers.put("h3", Collections.singletonList("x"));
+        assertEquals(Collections.singletonList("3"), old);
+        assertEquals(Collections.singletonList("x"), headers.get("H3"));
+        assertEquals("H3", new ArrayList<>(headers.keySet()).get(3));
+
+        assertEquals(Collections.singletonList("5"), headers.remove("h5"));
+        assertFalse(headers.containsKey("H5"));
+        assertEquals(19, headers.size());
+
+        Iterator<Map.Entry<String, List<String>>> it = headers.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey().length() == 2) {
+                it.remove();
+            }
+        }
+        assertEquals(
+                Arrays.asList("H10", "H11", "H12", "H13", "H14", "H15", "H16", "H17", "H18", "H19"),
+                new ArrayList<>(headers.keySet()));
+        assertEquals(Collections.singletonList("19"), headers.get("h19"));
+
+        headers.clear();
+        assertTrue(headers.isEmpty());
+        assertNull(headers.get("H19"));
+    }
+
+    @Test
+    void testKnownNamesAndCopy() {
+        JCurl.HeaderMap headers = new JCurl.HeaderMap();
+        headers.add(new String("Content-Type"), "text/plain");
+        assertSame(JCurl.Constants.CONTENT_TYPE, headers.keySet().iterator().next());
+
+        Map<String, List<String>> source = new LinkedHashMap<>();
+        source.put("Accept", new ArrayList<>(Collections.singletonList("a")));
+        source.put("accept", new ArrayList<>(Collections.singletonList("b")));
+        JCurl.HttpRequestModel model = new JCurl.HttpRequestModel();
+        model.setHeaders(source);
+        assertEquals(Arrays.asList("a", "b"), model.getHeaderValues("ACCEPT"));
+        // 复制后与原map互不影响
+        source.get("Accept").add("c");
+        assertEquals(2, model.getHeaderValues("accept").size());
+    }
+}
@@ -0,0 +1,298 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试--resolve和--connect-to指定的静态主机映射 */
+public class HostMappingTest {
+
+    private TestServer server;
+    private int port;
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    /** 所有域名都解析失败，映射命中时不会调用 */
+    private final DnsResolver failing =
+            host -> {
+                lookups.incrementAndGet();
+                throw new UnknownHostException(host);
+            };
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/host",
+                exchange -> {
+                    byte[] body =
+                            String.valueOf(exchange.getRequestHeaders().getFirst("Host"))
+                                    .getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, body);
+                });
+        server.createContext(
+                "/redirect",
+                exchange -> {
+                    String query = exchange.getRequestURI().getQuery();
+                    exchange.getResponseHeaders()
+                            .add(
+                                    "Location",
+                                    query != null ? query.substring("to=".length()) : "/host");
+                    exchange.sendResponseHeaders(302, -1);
+                    exchange.close();
+                });
+        port = server.port();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private static List<JCurl.HttpExecutor> executors() {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        return executors;
+    }
+
+    @Test
+    void testParseOptions() {
+        JCurl.HttpRequestModel request =
+                JCurl.parse(
+                        "curl --resolve jcurl.test:"
+                                + port
+                                + ":127.0.0.1,[::1] --connect-to ::other.test:8080"
+                                + " http://jcurl.test:"
+                                + port
+                                + "/host");
+        assertEquals(
+                Arrays.asList("jcurl.test:" + port + ":127.0.0.1,[::1]"),
+                request.getConfig().getResolve());
+        assertEquals(Arrays.asList("::other.test:8080"), request.getConfig().getConnectTo());
+        // 复制的配置保留映射
+        assertEquals(request.getConfig().getResolve(), request.getConfig().copy().getResolve());
+
+        JCurl curl =
+                JCurl.create()
+                        .url("http://jcurl.test/")
+                        .opt("--resolve", "jcurl.test:80:127.0.0.1")
+                        .opt("--connect-to", "jcurl.test:80:localhost:8080");
+        assertEquals(1, curl.peek().getConfig().getResolve().size());
+        assertEquals(1, curl.peek().getConfig().getConnectTo().size());
+
+        for (String invalid :
+                new String[] {
+                    "jcurl.test:80", "jcurl.test:x:127.0.0.1", "jcurl.test:80:localhost"
+                }) {
+            assertThrows(
+                    IllegalArgumentException.class, () -> JCurl.create().resolve(invalid), invalid);
+        }
+        for (String invalid : new String[] {"a:1:b", "a:99999:b:1", "[::1:1:b:2"}) {
+            assertThrows(
+                    IllegalArgumentException.class,
+                    () -> JCurl.create().connectTo(invalid),
+                    invalid);
+        }
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> JCurl.parse("curl --resolve jcurl.test http://jcurl.test/"));
+    }
+
+    @Test
+    void testMappingRules() throws IOException {
+        HostMapping mapping =
+                HostMapping.of(
+                        Arrays.asList(
+                                "a.test:443:10.0.0.1,10.0.0.2",
+                                "*:443:10.0.0.9",
+                                "b.test:80:10.0.0.3",
+                                "-b.test:80",
+                                "[::1]:8443:10.0.0.4"),
+                        Arrays.asList("c.test:443:a.test:", ":8080:127.0.0.1:9090"));
+        assertEquals(
+                new InetSocketAddress(InetAddress.getByName("10.0.0.1"), 443),
+                mapping.connectAddress("A.TEST", 443, failing));
+        assertEquals(
+                new InetSocketAddress(InetAddress.getByName("10.0.0.9"), 443),
+                mapping.connectAddress("other.test", 443, failing));
+        // --connect-to只替换主机时再按--resolve查找地址
+        assertEquals(
+                new InetSocketAddress(InetAddress.getByName("10.0.0.1"), 443),
+                mapping.connectAddress("c.test", 443, failing));
+        assertEquals(
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 9090),
+                mapping.connectAddress("any.test", 8080, failing));
+        assertEquals(
+                new InetSocketAddress(InetAddress.getByName("10.0.0.4"), 8443),
+                mapping.connectAddress("[::1]", 8443, failing));
+        assertTrue(mapping.applies("a.test", 443));
+        assertFalse(mapping.applies("b.test", 80));
+        assertTrue(mapping.mayApply("b.test"));
+        assertFalse(mapping.applies("a.test", 80));
+        assertEquals(0, lookups.get());
+        assertThrows(
+                UnknownHostException.class, () -> mapping.connectAddress("b.test", 80, failing));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void testResolveKeepsHostHeader() throws IOException {
+        String host = "jcurl.test:" + port;
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url("http://" + host + "/host")
+                            .resolve(host + ":127.0.0.1")
+                            .dnsResolver(failing)
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode(), name);
+            assertEquals(host, response.getBody(), name);
+        }
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void testRedirectToMappedHost() throws IOException {
+        String first = "jcurl.test:" + port;
+        String second = "other.test:" + port;
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            // 相对地址的重定向仍然连接映射的地址
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url("http://" + first + "/redirect")
+                            .resolve(first + ":127.0.0.1")
+                            .dnsResolver(failing)
+                            .followRedirects()
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode(), name);
+            assertEquals(first, response.getBody(), name);
+            // 重定向到其他主机时Host请求头跟着改变
+            response =
+                    JCurl.create()
+                            .url("http://" + first + "/redirect?to=http://" + second + "/host")
+                            .resolve(first + ":127.0.0.1")
+                            .resolve(second + ":127.0.0.1")
+                            .dnsResolver(failing)
+                            .followRedirects()
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode(), name);
+            assertEquals(second, response.getBody(), name);
+        }
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void testMappingMatchesPort() throws IOException {
+        String host = "jcurl.test:" + port;
+        DnsResolver loopback =
+                name -> {
+                    lookups.incrementAndGet();
+                    return Collections.singletonList(InetAddress.getLoopbackAddress());
+                };
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            // 只映射了其他端口，请求的端口按解析器解析
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url("http://" + host + "/host")
+                            .resolve("jcurl.test:" + (port == 1 ? 2 : 1) + ":10.255.255.1")
+                            .dnsResolver(loopback)
+                            .connectTimeout(2000)
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode(), name);
+            assertEquals(host, response.getBody(), name);
+        }
+        assertTrue(lookups.get() > 0);
+    }
+
+    @Test
+    void testConnectToChangesPort() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url("http://stand-in.test/host")
+                            .connectTo("stand-in.test:80:jcurl.test:" + port)
+                            .resolve("jcurl.test:" + port + ":127.0.0.1")
+                            .dnsResolver(failing)
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode(), name);
+            // Host请求头仍然是URL中的主机和端口
+            assertEquals("stand-in.test", response.getBody(), name);
+        }
+        assertEquals(0, lookups.get());
+    }
+
+    @Test
+    void testHttpsKeepsSni() throws Exception {
+        List<JCurl.HttpExecutor> executors = executors();
+        for (JCurl.HttpExecutor executor : executors) {
+            String name = executor.getClass().getSimpleName();
+            try (ServerSocket serverSocket =
+                    new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+                StringBuilder hello = new StringBuilder();
+                Thread acceptor =
+                        new Thread(
+                                () -> {
+                                    try (Socket socket = serverSocket.accept()) {
+                                        byte[] buffer = new byte[4096];
+                                        InputStream in = socket.getInputStream();
+                                        int n = in.read(buffer);
+                                        synchronized (hello) {
+                                            hello.append(
+                                                    new String(
+                                                            buffer,
+                                                            0,
+                                                            Math.max(n, 0),
+                                                            StandardCharsets.ISO_8859_1));
+                                        }
+                                    } catch (IOException ignored) {
+                                    }
+                                });
+                acceptor.start();
+                // 服务端不是TLS，握手失败，但ClientHello已经发送到映射的端口
+                assertThrows(
+                        IOException.class,
+                        () ->
+                                JCurl.create()
+                                        .url("https://secure.test/")
+                                        .connectTo(
+                                                "secure.test:443:127.0.0.1:"
+                                                        + serverSocket.getLocalPort())
+                                        .dnsResolver(failing)
+                                        .connectTimeout(2000)
+                                        .readTimeout(2000)
+                                        .exec(executor),
+                        name);
+                acceptor.join(5000);
+                synchronized (hello) {
+                    assertTrue(hello.toString().contains("secure.test"), name);
+                }
+            }
+        }
+        assertEquals(0, lookups.get());
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/** 测试 java.net.http.HttpClient 执行器（Java 11+） */
+public class JdkHttpClientExecutorTest {
+
+    private TestServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(JdkHttpClientExecutor.isSupported());
+        server = TestServer.start();
+        server.createContext(
+                "/echo",
+                exchange -> {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    try (InputStream is = exchange.getRequestBody()) {
+                        byte[] buffer = new byte[1024];
+                        int n;
+                        while ((n = is.read(buffer)) != -1) {
+                            bos.write(buffer, 0, n);
+                        }
+                    }
+                    String body =
+                            exchange.getRequestMethod()
+                                    + " "
+                                    + exchange.getRequestHeaders().getFirst("X-Test")
+                                    + " "
+                                    + new String(bos.toByteArray(), StandardCharsets.UTF_8);
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, bytes);
+                });
+        server.createContext(
+                "/gzip",
+                exchange -> {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+                        for (int i = 0; i < 1000; i++) {
+                            gzip.write("hello gzip ".getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, bos.size());
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        bos.writeTo(os);
+                    }
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testExecute() throws IOException {
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/echo")
+                        .header("X-Test", "jdk")
+                        .post()
+                        .body("payload")
+                        .exec(JdkHttpClientExecutor.create());
+        assertEquals(200, response.getStatusCode());
+        assertEquals("POST jdk payload", response.getBody());
+    }
+
+    @Test
+    void testStreamGzip() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.create()
+                .url(baseUrl + "/gzip")
+                .compressed()
+                .execStream(JdkHttpClientExecutor.create(), bos::write);
+        assertEquals(11 * 1000, bos.size());
+
+        JCurl.HttpResponseModel response =
+                JCurl.create().url(baseUrl + "/gzip").exec(JdkHttpClientExecutor.create(false));
+        assertEquals(11 * 1000, response.getBodyBytes().length);
+    }
+
+    @Test
+    void testMaxDownloadSize() {
+        assertThrows(
+                IOException.class,
+                () ->
+                        JCurl.create()
+                                .url(baseUrl + "/gzip")
+                                .maxDownloadSize(100)
+                                .exec(JdkHttpClientExecutor.create()));
+    }
+
+    @Test
+    void testHostHeader() throws IOException {
+        String host = "127.0.0.1:" + server.port();
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/echo")
+                        .header("Host", host)
+                        .exec(JdkHttpClientExecutor.create());
+        assertEquals(200, response.getStatusCode());
+        // 无法发送的Host请求头不会被悄悄忽略
+        assertThrows(
+                IOException.class,
+                () ->
+                        JCurl.create()
+                                .url(baseUrl + "/echo")
+                                .header("Host", "other.test")
+                                .exec(JdkHttpClientExecutor.create()));
+    }
+
+    @Test
+    void testResolutionOverrides() throws IOException {
+        // 映射其他主机不影响这个请求
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/echo")
+                        .resolve("other.test:80:127.0.0.1")
+                        .exec(JdkHttpClientExecutor.create());
+        assertEquals(200, response.getStatusCode());
+        // HttpClient无法使用的映射和解析器不会被悄悄忽略
+        String url = "http://localhost:" + server.port() + "/echo";
+        assertThrows(
+                IOException.class,
+                () ->
+                        JCurl.create()
+                                .url(url)
+                                .resolve("localhost:" + server.port() + ":127.0.0.1")
+                                .exec(JdkHttpClientExecutor.create()));
+        assertThrows(
+                IOException.class,
+                () ->
+                        JCurl.create()
+                                .url(url)
+                                .connectTo("localhost::127.0.0.1:")
+                                .exec(JdkHttpClientExecutor.create()));
+        assertThrows(
+                IOException.class,
+                () ->
+                        JCurl.create()
+                                .url(url)
+                                .dnsResolver(
+                                        host ->
+                                                Collections.singletonList(
+                                                        InetAddress.getLoopbackAddress()))
+                                .exec(JdkHttpClientExecutor.create()));
+    }
+}
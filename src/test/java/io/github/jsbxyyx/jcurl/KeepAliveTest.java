@@ -0,0 +1,64 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试 HttpUrlConnectionExecutor 的 keep-alive 模式 */
+public class KeepAliveTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/",
+                exchange -> {
+                    remotePorts.add(exchange.getRemoteAddress().getPort());
+                    boolean error = exchange.getRequestURI().getPath().startsWith("/error");
+                    byte[] body = (error ? "error" : "ok").getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(error ? 500 : 200, body.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(body);
+                    }
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testConnectionReused() throws IOException {
+        JCurl.HttpUrlConnectionExecutor executor = JCurl.HttpUrlConnectionExecutor.keepAlive();
+        long before = executor.getRequestCount();
+        long reusedBefore = executor.getReusedConnectionCount();
+
+        for (int i = 0; i < 5; i++) {
+            String path = i % 2 == 0 ? "/ok" : "/error";
+            JCurl.HttpResponseModel response = JCurl.create().url(baseUrl + path).exec(executor);
+            assertEquals(i % 2 == 0 ? "ok" : "error", response.getBody());
+        }
+
+        assertEquals(5, executor.getRequestCount() - before);
+        System.out.println("客户端端口: " + remotePorts);
+        // 错误响应体也被读完，连接可以继续复用
+        assertTrue(remotePorts.size() < 5);
+        // HTTP请求也统计复用：没有新建连接的请求都是复用的
+        assertEquals(5 - remotePorts.size(), executor.getReusedConnectionCount() - reusedBefore);
+    }
+}
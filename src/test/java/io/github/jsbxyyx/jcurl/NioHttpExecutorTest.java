@@ -0,0 +1,286 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 测试NIO执行器 */
+public class NioHttpExecutorTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private NioHttpExecutor executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/echo",
+                exchange -> {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    try (InputStream is = exchange.getRequestBody()) {
+                        byte[] buffer = new byte[1024];
+                        int n;
+                        while ((n = is.read(buffer)) != -1) {
+                            bos.write(buffer, 0, n);
+                        }
+                    }
+                    String body =
+                            exchange.getRequestMethod()
+                                    + " "
+                                    + exchange.getRequestURI()
+                                    + " "
+                                    + new String(bos.toByteArray(), StandardCharsets.UTF_8);
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, bytes);
+                });
+        server.createContext(
+                "/chunked-gzip",
+                exchange -> {
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, 0);
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(exchange.getResponseBody())) {
+                        for (int i = 0; i < 5000; i++) {
+                            gzip.write("hello nio ".getBytes(StandardCharsets.UTF_8));
+                        }
+                    }
+                });
+        server.createContext(
+                "/redirect",
+                exchange -> {
+                    exchange.getResponseHeaders().add("Location", "/echo?from=redirect");
+                    exchange.sendResponseHeaders(302, -1);
+                    exchange.close();
+                });
+        server.createContext(
+                "/redirect-host",
+                exchange -> {
+                    exchange.getResponseHeaders()
+                            .add(
+                                    "Location",
+                                    "http://other.test:" + server.port() + "/echo?from=host");
+                    exchange.sendResponseHeaders(302, -1);
+                    exchange.close();
+                });
+        server.createContext(
+                "/slow",
+                exchange -> {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    exchange.sendResponseHeaders(200, -1);
+                    exchange.close();
+                });
+        baseUrl = server.baseUrl();
+        executor = NioHttpExecutor.create(2, 8, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+        server.close();
+    }
+
+    @Test
+    void testExecuteAndReuse() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            JCurl.HttpResponseModel response =
+                    JCurl.create().url(baseUrl + "/echo").post().body("payload" + i).exec(executor);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("POST /echo payload" + i, response.getBody());
+        }
+        NioHttpExecutor.PoolStats stats = executor.getPoolStats();
+        assertEquals(1, stats.getOpened());
+        assertEquals(9, stats.getReused());
+        assertEquals(1, stats.getIdle());
+    }
+
+    @Test
+    void testChunkedGzipStream() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.HttpResponseModel response =
+                JCurl.create().url(baseUrl + "/chunked-gzip").execStream(executor, bos::write);
+        assertEquals(200, response.getStatusCode());
+        assertEquals(10 * 5000, bos.size());
+    }
+
+    @Test
+    void testRedirect() throws IOException {
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/redirect")
+                        .followRedirects()
+                        .post()
+                        .body("x")
+                        .exec(executor);
+        assertEquals("GET /echo?from=redirect ", response.getBody());
+
+        response = JCurl.create().url(baseUrl + "/redirect").exec(executor);
+        assertEquals(302, response.getStatusCode());
+    }
+
+    @Test
+    void testBlockingWorkOffSelector() throws IOException {
+        // DNS解析（包括selector线程中发起的重定向）和handler回调都不在selector线程中执行
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        DnsResolver resolver =
+                host -> {
+                    threads.add(Thread.currentThread().getName());
+                    return Collections.singletonList(InetAddress.getLoopbackAddress());
+                };
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl.replace("127.0.0.1", "first.test") + "/redirect-host")
+                        .followRedirects()
+                        .dnsResolver(resolver)
+                        .exec(executor);
+        assertEquals("GET /echo?from=host ", response.getBody());
+        assertFalse(threads.isEmpty());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.create()
+                .url(baseUrl + "/chunked-gzip")
+                .execStream(
+                        executor,
+                        chunk -> {
+                            threads.add(Thread.currentThread().getName());
+                            bos.write(chunk);
+                        });
+        assertEquals(10 * 5000, bos.size());
+        for (String thread : threads) {
+            assertFalse(thread.startsWith("jcurl-nio-"), thread);
+        }
+    }
+
+    @Test
+    void testSlowHandlerBackpressure() throws IOException {
+        // handler比网络慢时暂停读取，数据不会丢失也不会乱序
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/chunked-gzip")
+                        .bufferSize(1024)
+                        .execStream(
+                                executor,
+                                chunk -> {
+                                    try {
+                                        Thread.sleep(1);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    bos.write(chunk);
+                                });
+        assertEquals(200, response.getStatusCode());
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            expected.append("hello nio ");
+        }
+        assertEquals(expected.toString(), new String(bos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testConcurrentAsync() throws Exception {
+        List<CompletableFuture<JCurl.HttpResponseModel>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(JCurl.create().url(baseUrl + "/echo?i=" + i).execAsync(executor));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals("GET /echo?i=" + i + " ", futures.get(i).get().getBody());
+        }
+        assertTrue(executor.getPoolStats().getIdle() <= 8);
+    }
+
+    @Test
+    void testIdleEviction() throws Exception {
+        try (NioHttpExecutor shortIdle = NioHttpExecutor.create(1, 8, 50)) {
+            JCurl.create().url(baseUrl + "/echo").exec(shortIdle);
+            assertEquals(1, shortIdle.getPoolStats().getIdle());
+            Thread.sleep(500);
+            assertEquals(0, shortIdle.getPoolStats().getIdle());
+            assertEquals(1, shortIdle.getPoolStats().getIdleEvicted());
+        }
+    }
+
+    @Test
+    void testReadTimeout() throws IOException {
+        assertThrows(
+                SocketTimeoutException.class,
+                () -> JCurl.create().url(baseUrl + "/slow").readTimeout(100).exec(executor));
+        // 超时时间为0表示不限制
+        JCurl.HttpResponseModel response =
+                JCurl.create().url(baseUrl + "/slow").readTimeout(0).exec(executor);
+        assertEquals(200, response.getStatusCode());
+    }
+
+    @Test
+    void testSlowUploadWithinTimeout() throws IOException {
+        // 请求体生成得很慢，总耗时超过读超时，但每次写入都有进展
+        JCurl.HttpRequestModel.BodySource source =
+                JCurl.HttpRequestModel.BodySource.stream(
+                        () ->
+                                new InputStream() {
+                                    private int remaining = 64 * 1024;
+
+                                    @Override
+                                    public int read() {
+                                        throw new UnsupportedOperationException();
+                                    }
+
+                                    @Override
+                                    public int read(byte[] b, int off, int len) {
+                                        if (remaining == 0) {
+                                            return -1;
+                                        }
+                                        try {
+                                            Thread.sleep(20);
+                                        } catch (InterruptedException e) {
+                                            Thread.currentThread().interrupt();
+                                        }
+                                        int n = Math.min(Math.min(len, 1024), remaining);
+                                        remaining -= n;
+                                        Arrays.fill(b, off, off + n, (byte) 'a');
+                                        return n;
+                                    }
+                                },
+                        -1);
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/echo")
+                        .post()
+                        .bodySource(source)
+                        .readTimeout(500)
+                        .exec(executor);
+        assertEquals(200, response.getStatusCode());
+        assertEquals("POST /echo ".length() + 64 * 1024, response.getBody().length());
+    }
+
+    @Test
+    void testConnectFailure() {
+        server.close();
+        assertThrows(
+                IOException.class,
+                () -> JCurl.create().url(baseUrl + "/echo").retry(1).retryDelay(10).exec(executor));
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.jsbxyyx.jcurl;
+
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** 测试 OkHttp 客户端缓存 */
+public class OkHttpClientCacheTest {
+
+    private TestServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/",
+                exchange -> {
+                    byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, body);
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void testClientReusedForSameConfig() throws IOException {
+        OkHttpExecutor executor = OkHttpExecutor.create(new OkHttpClient(), 2);
+
+        for (int i = 0; i < 3; i++) {
+            JCurl.HttpResponseModel response =
+                    JCurl.create().url(baseUrl + "/a").get().exec(executor);
+            assertEquals("ok", response.getBody());
+        }
+
+        OkHttpExecutor.ClientCacheStats stats = executor.getClientCacheStats();
+        System.out.println(stats);
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void testLruEviction() throws IOException {
+        OkHttpExecutor executor = OkHttpExecutor.create(new OkHttpClient(), 2);
+
+        JCurl.create().url(baseUrl).connectTimeout(1000).exec(executor);
+        JCurl.create().url(baseUrl).connectTimeout(2000).exec(executor);
+        JCurl.create().url(baseUrl).connectTimeout(3000).exec(executor);
+
+        OkHttpExecutor.ClientCacheStats stats = executor.getClientCacheStats();
+        assertEquals(3, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2, stats.getSize());
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** 测试读到响应头即返回、响应体按需读取的响应 */
+public class OpenResponseTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private byte[] content;
+    private volatile CountDownLatch release;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[100 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 7);
+        }
+        server = TestServer.start(Executors.newCachedThreadPool());
+        server.createContext(
+                "/slow",
+                exchange -> {
+                    exchange.getResponseHeaders().add("X-Test", "slow");
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(content, 0, 1024);
+                        os.flush();
+                        // 客户端拿到响应头后才发送剩余的响应体
+                        release.await(5, TimeUnit.SECONDS);
+                        os.write(content, 1024, content.length - 1024);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        server.createContext(
+                "/gzip",
+                exchange -> {
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    if ("HEAD".equals(exchange.getRequestMethod())) {
+                        exchange.sendResponseHeaders(200, -1);
+                        exchange.close();
+                        return;
+                    }
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody())) {
+                        os.write(content);
+                    }
+                });
+        baseUrl = server.baseUrl();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    /** 支持边读边返回的执行器 */
+    private List<JCurl.HttpExecutor> executors() {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(JCurl.HttpUrlConnectionExecutor.keepAlive());
+        executors.add(OkHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        return executors;
+    }
+
+    @Test
+    void testHeadersBeforeBody() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            release = new CountDownLatch(1);
+            try (JCurl.HttpResponseModel response =
+                    JCurl.create().url(baseUrl + "/slow").execOpen(executor)) {
+                // 服务端还没有发完响应体
+                assertEquals(200, response.getStatusCode(), name);
+                assertEquals("slow", response.getHeader("X-Test"), name);
+                assertEquals(-1, response.getBodyLength(), name);
+                release.countDown();
+                assertArrayEquals(content, readAll(response.getBodyStream()), name);
+            }
+        }
+    }
+
+    @Test
+    void testDecodeAndLimit() throws IOException {
+        List<JCurl.HttpExecutor> executors = executors();
+        executors.add(NioHttpExecutor.create());
+        for (JCurl.HttpExecutor executor : executors) {
+            String name = executor.getClass().getSimpleName();
+            try (JCurl.HttpResponseModel response =
+                    JCurl.create().url(baseUrl + "/gzip").compressed().execOpen(executor)) {
+                assertArrayEquals(content, response.getBodyBytes(), name);
+            }
+            try (JCurl.HttpResponseModel response =
+                    JCurl.create().url(baseUrl + "/gzip").compressed().head().execOpen(executor)) {
+                assertEquals(-1, response.getBodyStream().read(), name);
+            }
+        }
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            try (JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url(baseUrl + "/gzip")
+                            .compressed()
+                            .maxDownloadSize(1000)
+                            .execOpen(executor)) {
+                assertThrows(IOException.class, () -> readAll(response.getBodyStream()), name);
+            }
+        }
+    }
+
+    @Test
+    void testCloseBeforeEnd() throws IOException {
+        for (JCurl.HttpExecutor executor : executors()) {
+            String name = executor.getClass().getSimpleName();
+            release = new CountDownLatch(1);
+            JCurl.HttpResponseModel response =
+                    JCurl.create().url(baseUrl + "/slow").execOpen(executor);
+            InputStream stream = response.getBodyStream();
+            assertEquals(content[0], (byte) stream.read(), name);
+            response.close();
+            release.countDown();
+            assertThrows(IOException.class, stream::read, name);
+
+            // 连接释放后可以继续发送请求
+            release = new CountDownLatch(0);
+            JCurl.HttpResponseModel next = JCurl.create().url(baseUrl + "/slow").exec(executor);
+            assertArrayEquals(content, next.getBodyBytes(), name);
+        }
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            bos.write(buffer, 0, n);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/** 测试 SSLContext 缓存 */
+public class SslContextCacheTest {
+
+    @AfterEach
+    void tearDown() {
+        JCurl.SslContextCache.setReloadOnChange(false);
+        JCurl.SslContextCache.invalidateAll();
+    }
+
+    @Test
+    void testInsecureContextCached() throws Exception {
+        JCurl.HttpRequestModel.RequestConfig config =
+                JCurl.create().url("https://localhost").insecure().build().getConfig();
+
+        JCurl.SslContextCache.SslEntry first = JCurl.SslContextCache.get(config);
+        JCurl.SslContextCache.SslEntry second = JCurl.SslContextCache.get(config.copy());
+        assertSame(first, second);
+        assertSame(first.getSocketFactory(), second.getSocketFactory());
+
+        JCurl.SslContextCache.invalidateAll();
+        assertNotSame(first, JCurl.SslContextCache.get(config));
+    }
+
+    @Test
+    void testClientCertBytesCached() throws Exception {
+        byte[] cert = emptyKeyStore("secret");
+
+        JCurl.HttpRequestModel.RequestConfig config =
+                JCurl.create()
+                        .url("https://localhost")
+                        .clientCert(JCurl.CertType.PKCS12, cert, "secret")
+                        .build()
+                        .getConfig();
+        JCurl.HttpRequestModel.RequestConfig sameContent =
+                JCurl.create()
+                        .url("https://localhost")
+                        .clientCert(JCurl.CertType.P12, cert.clone(), "secret")
+                        .build()
+                        .getConfig();
+
+        assertSame(JCurl.SslContextCache.get(config), JCurl.SslContextCache.get(sameContent));
+    }
+
+    @Test
+    void testReloadOnChange() throws Exception {
+        Path certFile = Files.createTempFile("jcurl-cert", ".p12");
+        try {
+            Files.write(certFile, emptyKeyStore("secret"));
+            JCurl.HttpRequestModel.RequestConfig config =
+                    JCurl.create()
+                            .url("https://localhost")
+                            .clientCert(JCurl.CertType.PKCS12, certFile.toString(), "secret")
+                            .build()
+                            .getConfig();
+
+            JCurl.SslContextCache.SslEntry first = JCurl.SslContextCache.get(config);
+            assertSame(first, JCurl.SslContextCache.get(config));
+
+            JCurl.SslContextCache.setReloadOnChange(true);
+            Files.setLastModifiedTime(
+                    certFile, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+            JCurl.SslContextCache.SslEntry reloaded = JCurl.SslContextCache.get(config);
+            assertNotSame(first, reloaded);
+            assertSame(reloaded, JCurl.SslContextCache.get(config));
+
+            JCurl.SslContextCache.invalidate(certFile.toString());
+            assertNotSame(reloaded, JCurl.SslContextCache.get(config));
+        } finally {
+            Files.deleteIfExists(certFile);
+        }
+    }
+
+    private static byte[] emptyKeyStore(String password) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        keyStore.store(bos, password.toCharArray());
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.jsbxyyx.jcurl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** 测试流式发送请求体（固定长度） */
+public class StreamingBodyTest {
+
+    private TestServer server;
+    private String baseUrl;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = TestServer.start();
+        server.createContext(
+                "/upload",
+                exchange -> {
+                    long received = 0;
+                    try (InputStream is = exchange.getRequestBody()) {
+                        byte[] buffer = new byte[8192];
+                        int n;
+                        while ((n = is.read(buffer)) != -1) {
+                            received += n;
+                        }
+                    }
+                    String body =
+                            exchange.getRequestMethod()
+                                    + " "
+                                    + exchange.getRequestHeaders().getFirst("Content-Length")
+                                    + " "
+                                    + received;
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    TestServer.respond(exchange, 200, bytes);
+                });
+        server.createContext(
+                "/redirect",
+                exchange -> {
+                    try (InputStream is = exchange.getRequestBody()) {
+                        while (is.read(new byte[8192]) != -1) {}
+                    }
+                    exchange.getResponseHeaders().add("Location", "/upload");
+                    exchange.sendResponseHeaders(
+                            Integer.parseInt(exchange.getRequestURI().getQuery()), -1);
+                    exchange.close();
+                });
+        baseUrl = server.baseUrl();
+        file = Files.createTempFile("jcurl-upload", ".bin");
+        Files.write(file, new byte[3 * 1024 * 1024 + 17]);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void testMultipartContentLength() throws IOException {
+        List<JCurl.HttpExecutor> executors = new ArrayList<>();
+        executors.add(JCurl.HttpUrlConnectionExecutor.create());
+        executors.add(OkHttpExecutor.create());
+        executors.add(NioHttpExecutor.create());
+        if (JdkHttpClientExecutor.isSupported()) {
+            executors.add(JdkHttpClientExecutor.create());
+        }
+        for (JCurl.HttpExecutor executor : executors) {
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url(baseUrl + "/upload")
+                            .post()
+                            .formField("name", "测试")
+                            .formFile("file", file.toString())
+                            .exec(executor);
+            String[] result = response.getBody().split(" ");
+            assertEquals(result[1], result[2], executor.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void testMultipartFormLength() throws IOException {
+        JCurl.HttpRequestModel model =
+                JCurl.create()
+                        .url(baseUrl + "/upload")
+                        .formField("a", "1")
+                        .formFile("file", file.toString())
+                        .build();
+        JCurl.MultipartForm form = new JCurl.MultipartForm(model.getAllFormFields());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        form.writeTo(bos);
+        assertEquals(form.getContentLength(), bos.size());
+    }
+
+    @Test
+    void testFixedLengthBody() throws IOException {
+        JCurl.HttpResponseModel response =
+                JCurl.create()
+                        .url(baseUrl + "/upload")
+                        .post()
+                        .body("你好")
+                        .exec(JCurl.HttpUrlConnectionExecutor.create());
+        assertEquals("POST 6 6", response.getBody());
+    }
+
+    @Test
+    void testFollowRedirectsWithStreamingBody() throws IOException {
+        long size = Files.size(file);
+        for (JCurl.HttpExecutor executor :
+                new JCurl.HttpExecutor[] {
+                    JCurl.HttpUrlConnectionExecutor.create(),
+                    JCurl.HttpUrlConnectionExecutor.keepAlive()
+                }) {
+            // 307、308按原方法从文件重新发送请求体
+            for (int code : new int[] {307, 308}) {
+                JCurl.HttpResponseModel response =
+                        JCurl.create()
+                                .url(baseUrl + "/redirect?" + code)
+                                .post()
+                                .bodyFile(file.toString(), 0, size)
+                                .followRedirects()
+                                .exec(executor);
+                assertEquals(200, response.getStatusCode(), String.valueOf(code));
+                assertEquals("POST " + size + " " + size, response.getBody(), String.valueOf(code));
+            }
+            // 303改为不带请求体的GET
+            JCurl.HttpResponseModel response =
+                    JCurl.create()
+                            .url(baseUrl + "/redirect?303")
+                            .post()
+                            .formFile("file", file.toString())
+                            .followRedirects()
+                            .exec(executor);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("GET null 0", response.getBody());
+            // 不跟随时返回重定向响应
+            response =
+                    JCurl.create()
+                            .url(baseUrl + "/redirect?307")
+                            .post()
+                            .bodyFile(file.toString(), 0, size)
+                            .exec(executor);
+            assertEquals(307, response.getStatusCode());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.jsbxyyx.jcurl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/** 测试用的本地HTTP服务器：监听127.0.0.1的随机端口，启动后仍然可以添加处理器 */
+final class TestServer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private TestServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /** 启动服务器，请求在一个线程中依次处理 */
+    static TestServer start() throws IOException {
+        return start(null);
+    }
+
+    /** 启动服务器，请求交给executor并发处理 */
+    static TestServer start(Executor executor) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.start();
+        return new TestServer(server);
+    }
+
+    void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    /** 立即停止，可以重复调用 */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /** 按固定长度发送响应体并结束响应 */
+    static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}